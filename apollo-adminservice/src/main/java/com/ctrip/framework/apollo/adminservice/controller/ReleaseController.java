@@ -9,17 +9,21 @@ import com.ctrip.framework.apollo.biz.message.MessageSender;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.NamespaceBranchService;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
+import com.ctrip.framework.apollo.biz.service.ReleaseContentService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -27,6 +31,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -46,6 +51,8 @@ public class ReleaseController {
   private MessageSender messageSender;
   @Autowired
   private NamespaceBranchService namespaceBranchService;
+  @Autowired
+  private ReleaseContentService releaseContentService;
 
 
   @RequestMapping(value = "/releases/{releaseId}", method = RequestMethod.GET)
@@ -127,6 +134,35 @@ public class ReleaseController {
     return BeanUtils.transfrom(ReleaseDTO.class, release);
   }
 
+  /**
+   * publish many namespaces in one transaction
+   *
+   * @return published releases, in the same order as the request
+   */
+  @Transactional
+  @RequestMapping(path = "/releases/batch", method = RequestMethod.POST)
+  public List<ReleaseDTO> batchPublish(@RequestParam("operator") String operator,
+                                       @RequestBody List<NamespacePublishDTO> publishes) {
+    if (CollectionUtils.isEmpty(publishes)) {
+      throw new BadRequestException("Namespaces to publish can not be empty");
+    }
+
+    List<Release> releases = releaseService.batchPublish(publishes, operator);
+
+    // 计算需要发送的 Release 消息，灰度发布使用父 Namespace 的集群名
+    Set<String> messages = new LinkedHashSet<>();
+    for (NamespacePublishDTO publish : publishes) {
+      Namespace parentNamespace = namespaceService.findParentNamespace(publish.getAppId(), publish.getClusterName(),
+                                                                       publish.getNamespaceName());
+      String messageCluster = parentNamespace != null ? parentNamespace.getClusterName() : publish.getClusterName();
+      messages.add(ReleaseMessageKeyGenerator.generate(publish.getAppId(), messageCluster,
+                                                       publish.getNamespaceName()));
+    }
+    // 批量发送 Release 消息
+    messageSender.sendMessages(messages, Topics.APOLLO_RELEASE_TOPIC);
+
+    return BeanUtils.batchTransform(ReleaseDTO.class, releases);
+  }
 
   /**
    * merge branch items to master and publish master
@@ -185,4 +221,15 @@ public class ReleaseController {
                               Topics.APOLLO_RELEASE_TOPIC);
   }
 
+  /**
+   * migrate configurations of existing releases to shared release content
+   *
+   * @return the last migrated release id, same as fromId when all releases are migrated
+   */
+  @RequestMapping(path = "/releases/contents/migration", method = RequestMethod.POST)
+  public long migrateReleaseContents(@RequestParam(value = "fromId", defaultValue = "0") long fromId,
+                                     @RequestParam(value = "size", defaultValue = "100") int size) {
+    return releaseContentService.migrate(fromId, size);
+  }
+
 }
@@ -1,6 +1,8 @@
 package com.ctrip.framework.apollo.adminservice.controller;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 
 import com.ctrip.framework.apollo.biz.entity.Namespace;
@@ -13,6 +15,7 @@ import com.ctrip.framework.apollo.common.dto.AppDTO;
 import com.ctrip.framework.apollo.common.dto.ClusterDTO;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 
@@ -31,6 +34,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Mockito.mock;
@@ -129,4 +133,42 @@ public class ReleaseControllerTest extends AbstractControllerTest {
             Topics.APOLLO_RELEASE_TOPIC);
 
   }
+
+  @Test
+  public void testMessagesSendAfterBatchPublish() throws Exception {
+    String someAppId = "someAppId";
+    String someCluster = "someCluster";
+    String someNamespaceName = "someNamespace";
+    String anotherNamespaceName = "anotherNamespace";
+
+    NamespaceService someNamespaceService = mock(NamespaceService.class);
+    ReleaseService someReleaseService = mock(ReleaseService.class);
+    MessageSender someMessageSender = mock(MessageSender.class);
+
+    ReleaseController releaseController = new ReleaseController();
+    ReflectionTestUtils.setField(releaseController, "releaseService", someReleaseService);
+    ReflectionTestUtils.setField(releaseController, "namespaceService", someNamespaceService);
+    ReflectionTestUtils.setField(releaseController, "messageSender", someMessageSender);
+
+    List<NamespacePublishDTO> publishes = Lists.newArrayList(
+        assemblePublish(someAppId, someCluster, someNamespaceName),
+        assemblePublish(someAppId, someCluster, anotherNamespaceName));
+
+    releaseController.batchPublish("test", publishes);
+
+    verify(someReleaseService, times(1)).batchPublish(publishes, "test");
+    verify(someMessageSender, times(1)).sendMessages(Sets.newLinkedHashSet(Lists.newArrayList(
+        Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).join(someAppId, someCluster, someNamespaceName),
+        Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).join(someAppId, someCluster, anotherNamespaceName))),
+        Topics.APOLLO_RELEASE_TOPIC);
+  }
+
+  private NamespacePublishDTO assemblePublish(String appId, String clusterName, String namespaceName) {
+    NamespacePublishDTO publish = new NamespacePublishDTO();
+    publish.setAppId(appId);
+    publish.setClusterName(clusterName);
+    publish.setNamespaceName(namespaceName);
+    publish.setReleaseName("someName");
+    return publish;
+  }
 }
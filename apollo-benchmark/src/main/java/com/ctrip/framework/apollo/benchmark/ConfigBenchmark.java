@@ -0,0 +1,130 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.internals.AbstractConfigRepository;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The typed and untyped reads of {@link DefaultConfig} by concurrent threads, with and without config changes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+  private static final String NAMESPACE = "benchmark";
+
+  @Param({"100"})
+  private int keys;
+
+  private DefaultConfig config;
+  private Properties[] versions;
+  private String[] stringKeys;
+  private String[] intKeys;
+  private String[] arrayKeys;
+
+  @Setup
+  public void setUp() {
+    stringKeys = new String[keys];
+    intKeys = new String[keys];
+    arrayKeys = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      stringKeys[i] = "benchmark.string." + i;
+      intKeys[i] = "benchmark.int." + i;
+      arrayKeys[i] = "benchmark.array." + i;
+    }
+    versions = new Properties[]{assembleProperties(0), assembleProperties(1)};
+    config = new DefaultConfig(NAMESPACE, new StaticConfigRepository(versions[0]));
+  }
+
+  @Benchmark
+  public String getProperty() {
+    return config.getProperty(stringKeys[nextIndex()], null);
+  }
+
+  @Benchmark
+  public Integer getIntProperty() {
+    return config.getIntProperty(intKeys[nextIndex()], null);
+  }
+
+  @Benchmark
+  public String[] getArrayProperty() {
+    return config.getArrayProperty(arrayKeys[nextIndex()], ",", null);
+  }
+
+  @Benchmark
+  @Group("changing")
+  @GroupThreads(3)
+  public Integer getIntPropertyWhileChanging() {
+    return config.getIntProperty(intKeys[nextIndex()], null);
+  }
+
+  /**
+   * Flip between two versions of the config, i.e. every typed value read has to be parsed again after each change
+   */
+  @Benchmark
+  @Group("changing")
+  @GroupThreads(1)
+  public void changeConfig() {
+    config.onRepositoryChange(NAMESPACE, versions[ThreadLocalRandom.current().nextInt(versions.length)]);
+  }
+
+  private int nextIndex() {
+    return ThreadLocalRandom.current().nextInt(keys);
+  }
+
+  private Properties assembleProperties(int version) {
+    Properties properties = new Properties();
+    for (int i = 0; i < keys; i++) {
+      properties.setProperty(stringKeys[i], "value-" + version + "-" + i);
+      properties.setProperty(intKeys[i], String.valueOf(version * keys + i));
+      properties.setProperty(arrayKeys[i], "a" + version + ",b" + i + ",c");
+    }
+    return properties;
+  }
+
+  private static class StaticConfigRepository extends AbstractConfigRepository {
+    private final Properties properties;
+
+    StaticConfigRepository(Properties properties) {
+      this.properties = properties;
+    }
+
+    @Override
+    public Properties getConfig() {
+      return properties;
+    }
+
+    @Override
+    public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+      //no upstream
+    }
+
+    @Override
+    protected void sync() {
+      //never changes
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.internals.AbstractConfigRepository;
+import com.ctrip.framework.apollo.internals.ConfigRepository;
+import com.ctrip.framework.apollo.internals.ConfigSnapshot;
+import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.internals.RepositoryChangeSet;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The memory of many large namespaces when their configs change, run with {@code -prof gc} and compare the bytes
+ * allocated per change in {@code gc.alloc.rate.norm}.
+ *
+ * The repositories publish each version either as a {@link ConfigSnapshot}, which is shared by reference down to the
+ * configs, or as plain {@link Properties}, which are copied by each config.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigSnapshotBenchmark {
+  @Param({"100"})
+  private int namespaces;
+
+  @Param({"1000"})
+  private int keys;
+
+  @Param({"true", "false"})
+  private boolean snapshot;
+
+  private PublishingConfigRepository[] repositories;
+  private DefaultConfig[] configs;
+  private Properties[][] versions;
+  private int version;
+
+  @Setup
+  public void setUp() {
+    repositories = new PublishingConfigRepository[namespaces];
+    configs = new DefaultConfig[namespaces];
+    versions = new Properties[namespaces][];
+    for (int i = 0; i < namespaces; i++) {
+      versions[i] = new Properties[]{assembleProperties(i, 0), assembleProperties(i, 1)};
+      repositories[i] = new PublishingConfigRepository(versions[i][0]);
+      configs[i] = new DefaultConfig("benchmark" + i, repositories[i]);
+    }
+  }
+
+  /**
+   * Change a tenth of the keys of all the namespaces
+   */
+  @Benchmark
+  public DefaultConfig[] changeAllNamespaces() {
+    version ^= 1;
+    for (int i = 0; i < namespaces; i++) {
+      repositories[i].publish(versions[i][version]);
+    }
+    return configs;
+  }
+
+  private Properties assembleProperties(int namespace, int version) {
+    Properties properties = new Properties();
+    for (int i = 0; i < keys; i++) {
+      String value = i % 10 == 0 ? "value-" + version + "-" + i : "value-" + i;
+      properties.setProperty("benchmark." + namespace + ".key." + i, value);
+    }
+    return snapshot ? ConfigSnapshot.of(properties) : properties;
+  }
+
+  /**
+   * Publish the versions with the changed keys, like the remote config repository
+   */
+  private static class PublishingConfigRepository extends AbstractConfigRepository {
+    private Properties properties;
+    private long fingerprint;
+
+    PublishingConfigRepository(Properties properties) {
+      this.properties = properties;
+      this.fingerprint = RepositoryChangeSet.fingerprint(properties);
+    }
+
+    void publish(Properties newProperties) {
+      RepositoryChangeSet changeSet = RepositoryChangeSet.diff(properties, fingerprint, newProperties);
+      properties = newProperties;
+      fingerprint = changeSet.getFingerprint();
+      fireRepositoryChange("benchmark", newProperties, changeSet);
+    }
+
+    @Override
+    public Properties getConfig() {
+      return properties;
+    }
+
+    @Override
+    public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+      //no upstream
+    }
+
+    @Override
+    protected void sync() {
+      //changed by publish only
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.metrics.MetricNames;
+import com.ctrip.framework.apollo.metrics.internals.DefaultMetricsReporter;
+import com.ctrip.framework.apollo.metrics.internals.NullMetricsReporter;
+import com.ctrip.framework.apollo.metrics.spi.MetricsReporter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The overhead of reporting the metrics on the hot paths, e.g. a latency per config load and a counter per
+ * notification, compared with the null reporter which drops them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+  private static final int NAMESPACES = 100;
+
+  @Param({"default", "null"})
+  private String reporter;
+
+  private MetricsReporter metricsReporter;
+  private String[] namespaces;
+
+  @Setup
+  public void setUp() {
+    metricsReporter = "default".equals(reporter) ? new DefaultMetricsReporter() : new NullMetricsReporter();
+    namespaces = new String[NAMESPACES];
+    for (int i = 0; i < NAMESPACES; i++) {
+      namespaces[i] = "namespace" + i;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Sequence {
+    private int next;
+
+    int next() {
+      return next++ & Integer.MAX_VALUE;
+    }
+  }
+
+  @Benchmark
+  public void recordLatency(Sequence sequence) {
+    int next = sequence.next();
+    metricsReporter.recordLatency(MetricNames.REMOTE_CONFIG_LOAD_LATENCY, namespaces[next % NAMESPACES],
+        next * 1000L);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void recordLatencyConcurrently(Sequence sequence) {
+    int next = sequence.next();
+    metricsReporter.recordLatency(MetricNames.REMOTE_CONFIG_LOAD_LATENCY, namespaces[next % NAMESPACES],
+        next * 1000L);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void incrementCounterConcurrently(Sequence sequence) {
+    metricsReporter.incrementCounter(MetricNames.LONG_POLL_NOTIFICATIONS, namespaces[sequence.next() % NAMESPACES]);
+  }
+}
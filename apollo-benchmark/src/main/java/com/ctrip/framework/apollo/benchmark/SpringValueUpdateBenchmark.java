@@ -0,0 +1,164 @@
+package com.ctrip.framework.apollo.benchmark;
+
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.ctrip.framework.apollo.spring.property.AutoUpdateConfigChangeListener;
+import com.ctrip.framework.apollo.spring.property.SpringValue;
+import com.ctrip.framework.apollo.spring.property.SpringValueRegistry;
+import com.ctrip.framework.apollo.spring.util.SpringInjector;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * The auto update of many {@code @Value} fields when their keys change, i.e. {@code beans * 5} fields are registered and
+ * {@code changes} keys of them are changed by each config change event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpringValueUpdateBenchmark {
+  private static final String NAMESPACE = "application";
+  private static final String[] FIELDS = {"someString", "someInt", "someLong", "someBoolean", "someDefaultString"};
+
+  @Param({"1000"})
+  private int beans;
+
+  @Param({"1", "100", "5000"})
+  private int changes;
+
+  private SwitchablePropertySource propertySource;
+  private AutoUpdateConfigChangeListener listener;
+  private Map<String, String>[] versions;
+  private ConfigChangeEvent[] events;
+  private int version;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    versions = new Map[]{assembleVersion(0), assembleVersion(1)};
+    propertySource = new SwitchablePropertySource(versions[0]);
+    StandardEnvironment environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(propertySource);
+    DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+    PropertySourcesPlaceholderConfigurer placeholderConfigurer = new PropertySourcesPlaceholderConfigurer();
+    placeholderConfigurer.setEnvironment(environment);
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+
+    //the registry is shared, so the keys are prefixed by the identity of this trial
+    SpringValueRegistry registry = SpringInjector.getInstance(SpringValueRegistry.class);
+    for (int i = 0; i < beans; i++) {
+      SomeBean bean = new SomeBean();
+      String beanName = "someBean" + i;
+      for (int j = 0; j < FIELDS.length; j++) {
+        Field field = SomeBean.class.getDeclaredField(FIELDS[j]);
+        String key = key(i, j);
+        String placeholder = j == FIELDS.length - 1 ? "${" + key + ":someDefaultValue}" : "${" + key + "}";
+        registry.register(key, new SpringValue(key, placeholder, bean, beanName, field, false));
+      }
+    }
+
+    listener = new AutoUpdateConfigChangeListener(environment, beanFactory);
+    events = new ConfigChangeEvent[]{assembleEvent(1, 0), assembleEvent(0, 1)};
+  }
+
+  @Benchmark
+  public AutoUpdateConfigChangeListener changeKeys() {
+    version ^= 1;
+    propertySource.switchTo(versions[version]);
+    listener.onChange(events[version]);
+    return listener;
+  }
+
+  private String key(int bean, int field) {
+    return "benchmark." + System.identityHashCode(this) + ".bean" + bean + "." + FIELDS[field];
+  }
+
+  private String value(int field, int version) {
+    switch (field) {
+      case 1:
+      case 2:
+        return String.valueOf(version + 1);
+      case 3:
+        return String.valueOf(version == 1);
+      default:
+        return "value-" + version;
+    }
+  }
+
+  private Map<String, String> assembleVersion(int version) {
+    Map<String, String> properties = new HashMap<>();
+    for (int i = 0; i < beans; i++) {
+      for (int j = 0; j < FIELDS.length; j++) {
+        properties.put(key(i, j), value(j, version));
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * The first changes keys are changed, spread over the beans
+   */
+  private ConfigChangeEvent assembleEvent(int from, int to) {
+    Map<String, ConfigChange> configChanges = new HashMap<>();
+    for (int i = 0; i < changes; i++) {
+      int bean = i / FIELDS.length;
+      int field = i % FIELDS.length;
+      String key = key(bean, field);
+      configChanges.put(key, new ConfigChange(NAMESPACE, key, value(field, from), value(field, to),
+          PropertyChangeType.MODIFIED));
+    }
+    return new ConfigChangeEvent(NAMESPACE, configChanges);
+  }
+
+  /**
+   * Like the apollo property source, whose config is changed before the listeners are notified
+   */
+  private static class SwitchablePropertySource extends PropertySource<Object> {
+    private volatile Map<String, String> properties;
+
+    SwitchablePropertySource(Map<String, String> properties) {
+      super("benchmark", new Object());
+      this.properties = properties;
+    }
+
+    void switchTo(Map<String, String> properties) {
+      this.properties = properties;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+      return properties.get(name);
+    }
+  }
+
+  public static class SomeBean {
+    private String someString;
+    private int someInt;
+    private long someLong;
+    private boolean someBoolean;
+    private String someDefaultString;
+  }
+}
@@ -8,6 +8,7 @@ import com.google.gson.reflect.TypeToken;
 import com.ctrip.framework.apollo.biz.service.BizDBPropertySource;
 import com.ctrip.framework.apollo.common.config.RefreshableConfig;
 import com.ctrip.framework.apollo.common.config.RefreshablePropertySource;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -30,6 +31,7 @@ public class BizConfig extends RefreshableConfig {
   private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
   private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+  private static final String DEFAULT_CONFIG_SERVICE_SNAPSHOT_PATH = "/opt/data/100003171/config-snapshot.db";
 
   private Gson gson = new Gson();
   private static final Type namespaceValueLengthOverrideTypeReference =
@@ -140,6 +142,34 @@ public class BizConfig extends RefreshableConfig {
     return getBooleanProperty("config-service.cache.enabled", false);
   }
 
+  public String configServiceRouting() {
+    return getValue("config-service.routing", ConfigServiceRouting.RANDOM.getValue());
+  }
+
+  public boolean isConfigServiceSnapshotEnabled() {
+    return getBooleanProperty("config-service.snapshot.enabled", false);
+  }
+
+  public String configServiceSnapshotPath() {
+    return getValue("config-service.snapshot.path", DEFAULT_CONFIG_SERVICE_SNAPSHOT_PATH);
+  }
+
+  public boolean isReleaseContentDedupEnabled() {
+    return getBooleanProperty("release.content.dedup.enabled", false);
+  }
+
+  public boolean isReleaseContentCompressEnabled() {
+    return getBooleanProperty("release.content.compress.enabled", true);
+  }
+
+  /**
+   * max-age in seconds of the Cache-Control header for config files, 0 means the caches must revalidate every time
+   */
+  public int configFileCacheMaxAgeInSeconds() {
+    int maxAge = getIntProperty("config-file.cache-control.max-age", 0);
+    return checkInt(maxAge, 0, Integer.MAX_VALUE, 0);
+  }
+
   int checkInt(int value, int min, int max, int defaultValue) {
     if (value >= min && value <= max) {
       return value;
@@ -0,0 +1,73 @@
+package com.ctrip.framework.apollo.biz.datasource;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Enabled when the replicas of ConfigDB are configured, e.g.
+ *
+ * <pre>
+ * apollo.datasource.replica.urls = jdbc:mysql://replica1:3306/ApolloConfigDB,jdbc:mysql://replica2:3306/ApolloConfigDB
+ * apollo.datasource.replica.username = (optional, the same as spring.datasource.username by default)
+ * apollo.datasource.replica.password = (optional, the same as spring.datasource.password by default)
+ * apollo.datasource.replica.lag-check-interval-in-milli = (optional, 1000 by default)
+ * </pre>
+ *
+ * The data sources are configured in the environment rather than {@link com.ctrip.framework.apollo.biz.config.BizConfig},
+ * as BizConfig is read from ConfigDB.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "apollo.datasource.replica", name = "urls")
+public class ReplicaDataSourceConfiguration {
+  private static final Splitter URL_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+  private static final long DEFAULT_LAG_CHECK_INTERVAL_IN_MILLI = 1000;
+
+  @Autowired
+  private DataSourceProperties properties;
+
+  @Autowired
+  private Environment environment;
+
+  @Bean
+  @ConfigurationProperties(prefix = DataSourceProperties.PREFIX)
+  public DataSource primaryDataSource() {
+    return newDataSourceBuilder().url(properties.getUrl()).username(properties.getUsername())
+        .password(properties.getPassword()).build();
+  }
+
+  @Bean
+  @Primary
+  public ReplicaRoutingDataSource dataSource() {
+    String username = environment.getProperty("apollo.datasource.replica.username", properties.getUsername());
+    String password = environment.getProperty("apollo.datasource.replica.password", properties.getPassword());
+
+    Map<String, DataSource> replicas = Maps.newLinkedHashMap();
+    for (String url : URL_SPLITTER.split(environment.getProperty("apollo.datasource.replica.urls"))) {
+      replicas.put(url, newDataSourceBuilder().url(url).username(username).password(password).build());
+    }
+
+    long lagCheckInterval = environment.getProperty("apollo.datasource.replica.lag-check-interval-in-milli",
+        Long.class, DEFAULT_LAG_CHECK_INTERVAL_IN_MILLI);
+
+    return new ReplicaRoutingDataSource(primaryDataSource(), replicas, lagCheckInterval);
+  }
+
+  private DataSourceBuilder newDataSourceBuilder() {
+    return DataSourceBuilder.create(properties.getClassLoader()).type(properties.getType())
+        .driverClassName(properties.getDriverClassName());
+  }
+}
@@ -0,0 +1,40 @@
+package com.ctrip.framework.apollo.biz.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Mark the reads on the current thread as staleness tolerant, so that they could be served by a replica of ConfigDB
+ * if {@link ReplicaRoutingDataSource} is configured. The reads must not be in a transaction started outside, as the
+ * connection of the transaction is already bound.
+ */
+public final class ReplicaReadContext {
+  private static final ThreadLocal<Boolean> replicaRead = new ThreadLocal<>();
+
+  private ReplicaReadContext() {
+  }
+
+  public static <T> T read(Supplier<T> reader) {
+    Boolean previous = replicaRead.get();
+    replicaRead.set(Boolean.TRUE);
+    try {
+      return reader.get();
+    } finally {
+      if (previous == null) {
+        replicaRead.remove();
+      } else {
+        replicaRead.set(previous);
+      }
+    }
+  }
+
+  public static void run(Runnable reader) {
+    read(() -> {
+      reader.run();
+      return null;
+    });
+  }
+
+  public static boolean isReplicaRead() {
+    return Boolean.TRUE.equals(replicaRead.get());
+  }
+}
@@ -0,0 +1,195 @@
+package com.ctrip.framework.apollo.biz.datasource;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.ImmutableList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * Route the staleness tolerant reads, i.e. the ones in {@link ReplicaReadContext}, to the replicas of ConfigDB and
+ * the others to the primary.
+ *
+ * A replica is only used when it has replicated the latest release message, so the release, gray release rule etc.
+ * read after a release message are never older than the message. The latest message id is learned from the release
+ * messages scanned and from the primary periodically, and the position of each replica is checked periodically as
+ * well. Once a newer release message comes, the replicas behind it are skipped until they are checked again. The
+ * reads fall back to the primary if no replica is eligible or the connection to the replica fails.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements ReleaseMessageListener,
+    InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+  private static final String LATEST_MESSAGE_ID_SQL = "SELECT MAX(Id) FROM ReleaseMessage";
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final long lagCheckIntervalInMilli;
+  private final AtomicLong latestMessageId = new AtomicLong();
+  private final AtomicInteger roundRobin = new AtomicInteger();
+  private final ScheduledExecutorService executorService;
+
+  /**
+   * @param primary the primary data source
+   * @param replicas replica name -> replica data source
+   * @param lagCheckIntervalInMilli the interval to check the positions of the replicas
+   */
+  public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                  long lagCheckIntervalInMilli) {
+    this.primary = primary;
+    ImmutableList.Builder<Replica> builder = ImmutableList.builder();
+    for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+      builder.add(new Replica(entry.getKey(), entry.getValue()));
+    }
+    this.replicas = builder.build();
+    this.lagCheckIntervalInMilli = lagCheckIntervalInMilli;
+    executorService = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("ReplicaRoutingDataSource", true));
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    //replicas are not used before the first check
+    checkReplicas();
+    executorService.scheduleWithFixedDelay(this::checkReplicas, lagCheckIntervalInMilli,
+        lagCheckIntervalInMilli, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    executorService.shutdownNow();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    Replica replica = selectReplica();
+    if (replica != null) {
+      try {
+        return replica.dataSource.getConnection();
+      } catch (SQLException ex) {
+        onReplicaFailure(replica, ex);
+      }
+    }
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    Replica replica = selectReplica();
+    if (replica != null) {
+      try {
+        return replica.dataSource.getConnection(username, password);
+      } catch (SQLException ex) {
+        onReplicaFailure(replica, ex);
+      }
+    }
+    return primary.getConnection(username, password);
+  }
+
+  @Override
+  public void handleMessage(ReleaseMessage message, String channel) {
+    //the replicas behind the message are skipped from now on
+    updateLatestMessageId(message.getId());
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  long getLatestMessageId() {
+    return latestMessageId.get();
+  }
+
+  /**
+   * Check the position of the primary first, then the replicas, so a replica is never regarded as caught up while
+   * it's not
+   */
+  void checkReplicas() {
+    try {
+      updateLatestMessageId(queryLatestMessageId(primary));
+    } catch (Throwable ex) {
+      logger.warn("Check the latest release message id of primary failed", ex);
+    }
+
+    long latest = latestMessageId.get();
+    for (Replica replica : replicas) {
+      try {
+        replica.position = queryLatestMessageId(replica.dataSource);
+        replica.available = true;
+        if (replica.position < latest) {
+          logger.debug("Replica {} is behind, position: {}, latest release message id: {}", replica.name,
+              replica.position, latest);
+        }
+      } catch (Throwable ex) {
+        onReplicaFailure(replica, ex);
+      }
+    }
+  }
+
+  private Replica selectReplica() {
+    if (!ReplicaReadContext.isReplicaRead() || replicas.isEmpty()) {
+      return null;
+    }
+    long latest = latestMessageId.get();
+    int start = Math.abs(roundRobin.getAndIncrement() % replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get((start + i) % replicas.size());
+      if (replica.available && replica.position >= latest) {
+        return replica;
+      }
+    }
+    Tracer.logEvent("Apollo.DataSource.ReplicaFallback", String.valueOf(latest));
+    return null;
+  }
+
+  private void onReplicaFailure(Replica replica, Throwable ex) {
+    //skipped until the next successful check
+    replica.available = false;
+    logger.warn("Replica {} is unavailable, fall back to primary, reason: {}", replica.name, ex.getMessage());
+    Tracer.logEvent("Apollo.DataSource.ReplicaUnavailable", replica.name);
+  }
+
+  private void updateLatestMessageId(long messageId) {
+    latestMessageId.accumulateAndGet(messageId, Math::max);
+  }
+
+  private long queryLatestMessageId(DataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(LATEST_MESSAGE_ID_SQL)) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+
+  private static class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    //the latest release message id replicated
+    private volatile long position = -1;
+    private volatile boolean available;
+
+    Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+  }
+}
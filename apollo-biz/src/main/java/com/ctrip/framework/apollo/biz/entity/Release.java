@@ -7,7 +7,12 @@ import org.hibernate.annotations.Where;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.Table;
 
 /**
@@ -15,9 +20,15 @@ import javax.persistence.Table;
  */
 @Entity
 @Table(name = "Release")
+@NamedEntityGraph(name = Release.WITH_CONTENT, attributeNodes = @NamedAttributeNode("releaseContent"))
 @SQLDelete(sql = "Update Release set isDeleted = 1 where id = ?")
 @Where(clause = "isDeleted = 0")
 public class Release extends BaseEntity {
+  /**
+   * the entity graph fetching the shared content by a join, for the queries whose releases' configurations are read
+   */
+  public static final String WITH_CONTENT = "Release.withContent";
+
   @Column(name = "ReleaseKey", nullable = false)
   private String releaseKey;
 
@@ -43,6 +54,13 @@ public class Release extends BaseEntity {
   @Column(name = "IsAbandoned", columnDefinition = "Bit default '0'")
   private boolean isAbandoned;
 
+  /**
+   * the shared content of the release, if set, the configurations column is left empty
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "ContentId")
+  private ReleaseContent releaseContent;
+
   public String getReleaseKey() {
     return releaseKey;
   }
@@ -60,6 +78,9 @@ public class Release extends BaseEntity {
   }
 
   public String getConfigurations() {
+    if (releaseContent != null) {
+      return releaseContent.getConfigurations();
+    }
     return configurations;
   }
 
@@ -99,6 +120,14 @@ public class Release extends BaseEntity {
     this.name = name;
   }
 
+  public ReleaseContent getReleaseContent() {
+    return releaseContent;
+  }
+
+  public void setReleaseContent(ReleaseContent releaseContent) {
+    this.releaseContent = releaseContent;
+  }
+
   public boolean isAbandoned() {
     return isAbandoned;
   }
@@ -109,7 +138,7 @@ public class Release extends BaseEntity {
 
   public String toString() {
     return toStringHelper().add("name", name).add("appId", appId).add("clusterName", clusterName)
-        .add("namespaceName", namespaceName).add("configurations", configurations)
+        .add("namespaceName", namespaceName).add("configurations", getConfigurations())
         .add("comment", comment).add("isAbandoned", isAbandoned).toString();
   }
 }
@@ -0,0 +1,106 @@
+package com.ctrip.framework.apollo.biz.entity;
+
+import com.google.common.base.MoreObjects;
+
+import com.ctrip.framework.apollo.biz.utils.ReleaseContentCodec;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+/**
+ * Release configurations stored once per content hash, shared by all the releases with the same content.
+ * Rows are immutable, so they are never updated or deleted.
+ */
+@Entity
+@Table(name = "ReleaseContent")
+public class ReleaseContent {
+  @Id
+  @GeneratedValue
+  @Column(name = "Id")
+  private long id;
+
+  @Column(name = "ContentHash", nullable = false)
+  private String contentHash;
+
+  @Column(name = "Content", nullable = false)
+  @Lob
+  private String content;
+
+  @Column(name = "IsCompressed", columnDefinition = "Bit default '0'")
+  private boolean isCompressed;
+
+  @Column(name = "DataChange_CreatedTime")
+  private Date dataChangeCreatedTime;
+
+  @Transient
+  private volatile String configurations;
+
+  @PrePersist
+  protected void prePersist() {
+    if (this.dataChangeCreatedTime == null) {
+      dataChangeCreatedTime = new Date();
+    }
+  }
+
+  public ReleaseContent() {
+  }
+
+  public ReleaseContent(String contentHash, String content, boolean isCompressed) {
+    this.contentHash = contentHash;
+    this.content = content;
+    this.isCompressed = isCompressed;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public boolean isCompressed() {
+    return isCompressed;
+  }
+
+  public Date getDataChangeCreatedTime() {
+    return dataChangeCreatedTime;
+  }
+
+  /**
+   * @return the configurations json, decompressed if necessary
+   */
+  public String getConfigurations() {
+    if (configurations == null) {
+      configurations = isCompressed ? ReleaseContentCodec.decompress(content) : content;
+    }
+    return configurations;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .omitNullValues()
+        .add("id", id)
+        .add("contentHash", contentHash)
+        .add("isCompressed", isCompressed)
+        .add("dataChangeCreatedTime", dataChangeCreatedTime)
+        .toString();
+  }
+}
@@ -10,6 +10,7 @@ import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.datasource.ReplicaReadContext;
 import com.ctrip.framework.apollo.biz.entity.GrayReleaseRule;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
@@ -132,8 +133,8 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     String namespace = keys.get(2);
 
     // 获得对应的 GrayReleaseRule 数组
-    List<GrayReleaseRule> rules = grayReleaseRuleRepository
-        .findByAppIdAndClusterNameAndNamespaceName(appId, cluster, namespace);
+    List<GrayReleaseRule> rules = ReplicaReadContext.read(() -> grayReleaseRuleRepository
+        .findByAppIdAndClusterNameAndNamespaceName(appId, cluster, namespace));
 
     // 合并到 GrayReleaseRule 缓存中
     mergeGrayReleaseRules(rules);
@@ -223,8 +224,9 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
     // 循环顺序分批加载 GrayReleaseRule ，直到结束或者线程打断
     while (hasMore && !Thread.currentThread().isInterrupted()) {
       // 顺序分批加载 GrayReleaseRule 500 条
-      List<GrayReleaseRule> grayReleaseRules = grayReleaseRuleRepository
-          .findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+      long lastIdScanned = maxIdScanned;
+      List<GrayReleaseRule> grayReleaseRules = ReplicaReadContext.read(() -> grayReleaseRuleRepository
+          .findFirst500ByIdGreaterThanOrderByIdAsc(lastIdScanned));
       if (CollectionUtils.isEmpty(grayReleaseRules)) {
         break;
       }
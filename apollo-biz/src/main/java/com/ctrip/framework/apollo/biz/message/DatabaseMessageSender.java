@@ -14,6 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
@@ -84,6 +86,39 @@ public class DatabaseMessageSender implements MessageSender {
     }
   }
 
+  @Override
+  @Transactional
+  public void sendMessages(Collection<String> messages, String channel) {
+    logger.info("Sending {} messages to channel {}", messages.size(), channel);
+    // 仅允许发送 APOLLO_RELEASE_TOPIC
+    if (!Objects.equals(channel, Topics.APOLLO_RELEASE_TOPIC)) {
+      logger.warn("Channel {} not supported by DatabaseMessageSender!", channel);
+      return;
+    }
+
+    Transaction transaction = Tracer.newTransaction("Apollo.AdminService", "sendMessages");
+    try {
+      List<ReleaseMessage> releaseMessages = new ArrayList<>(messages.size());
+      for (String message : messages) {
+        Tracer.logEvent("Apollo.AdminService.ReleaseMessage", message);
+        releaseMessages.add(new ReleaseMessage(message));
+      }
+      // 批量保存 ReleaseMessage 对象
+      Iterable<ReleaseMessage> newMessages = releaseMessageRepository.save(releaseMessages);
+      // 添加到清理 Message 队列。若队列已满，添加失败，不阻塞等待。
+      for (ReleaseMessage newMessage : newMessages) {
+        toClean.offer(newMessage.getId());
+      }
+      transaction.setStatus(Transaction.SUCCESS);
+    } catch (Throwable ex) {
+      logger.error("Sending messages to database failed", ex);
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      transaction.complete();
+    }
+  }
+
   /**
    * 清理 ReleaseMessage 任务
    * 通知 Spring 调用，初始化清理 ReleaseMessage 任务。
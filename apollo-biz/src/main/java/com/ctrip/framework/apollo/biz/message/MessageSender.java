@@ -1,8 +1,16 @@
 package com.ctrip.framework.apollo.biz.message;
 
+import java.util.Collection;
+
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public interface MessageSender {
   void sendMessage(String message, String channel);
+
+  default void sendMessages(Collection<String> messages, String channel) {
+    for (String message : messages) {
+      sendMessage(message, channel);
+    }
+  }
 }
@@ -4,10 +4,17 @@ import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
 
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface NamespaceLockRepository extends PagingAndSortingRepository<NamespaceLock, Long> {
 
   NamespaceLock findByNamespaceId(Long namespaceId);
 
   Long deleteByNamespaceId(Long namespaceId);
 
+  List<NamespaceLock> findByNamespaceIdIn(Collection<Long> namespaceIds);
+
+  Long deleteByNamespaceIdIn(Collection<Long> namespaceIds);
+
 }
@@ -0,0 +1,10 @@
+package com.ctrip.framework.apollo.biz.repository;
+
+import com.ctrip.framework.apollo.biz.entity.ReleaseContent;
+
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+public interface ReleaseContentRepository extends PagingAndSortingRepository<ReleaseContent, Long> {
+
+  ReleaseContent findFirstByContentHash(String contentHash);
+}
@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
@@ -23,4 +24,8 @@ public interface ReleaseMessageRepository extends PagingAndSortingRepository<Rel
 
   @Query("select message, max(id) as id from ReleaseMessage where message in :messages group by message")
   List<Object[]> findLatestReleaseMessagesGroupByMessages(@Param("messages") Collection<String> messages);
+
+  @Query("select message, max(id) as id from ReleaseMessage where message > :message and id <= :maxId group by message order by message")
+  List<Object[]> findLatestReleaseMessagesGroupByMessagesAfter(@Param("message") String message,
+      @Param("maxId") long maxId, Pageable pageable);
 }
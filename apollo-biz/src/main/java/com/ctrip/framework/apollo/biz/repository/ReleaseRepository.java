@@ -3,6 +3,7 @@ package com.ctrip.framework.apollo.biz.repository;
 import com.ctrip.framework.apollo.biz.entity.Release;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
@@ -16,23 +17,41 @@ import java.util.Set;
  */
 public interface ReleaseRepository extends PagingAndSortingRepository<Release, Long> {
 
+  @Override
+  @EntityGraph(Release.WITH_CONTENT)
+  Release findOne(Long id);
+
+  @Override
+  @EntityGraph(Release.WITH_CONTENT)
+  Iterable<Release> findAll(Iterable<Long> ids);
+
+  @EntityGraph(Release.WITH_CONTENT)
   Release findFirstByAppIdAndClusterNameAndNamespaceNameAndIsAbandonedFalseOrderByIdDesc(@Param("appId") String appId, @Param("clusterName") String clusterName,
                                                                                          @Param("namespaceName") String namespaceName);
 
+  @EntityGraph(Release.WITH_CONTENT)
   Release findByIdAndIsAbandonedFalse(long id);
 
+  @EntityGraph(Release.WITH_CONTENT)
   List<Release> findByAppIdAndClusterNameAndNamespaceNameOrderByIdDesc(String appId, String clusterName, String namespaceName, Pageable page);
 
+  @EntityGraph(Release.WITH_CONTENT)
   List<Release> findByAppIdAndClusterNameAndNamespaceNameAndIsAbandonedFalseOrderByIdDesc(String appId, String clusterName, String namespaceName, Pageable page);
 
+  @EntityGraph(Release.WITH_CONTENT)
   List<Release> findByReleaseKeyIn(Set<String> releaseKey);
 
+  @EntityGraph(Release.WITH_CONTENT)
   List<Release> findByIdIn(Set<Long> releaseIds);
 
+  @EntityGraph(Release.WITH_CONTENT)
+  List<Release> findByIdGreaterThanOrderByIdAsc(long id, Pageable page);
+
   @Modifying
   @Query("update Release set isdeleted=1,DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3")
   int batchDelete(String appId, String clusterName, String namespaceName, String operator);
 
   // For release history conversion program, need to delete after conversion it done
+  @EntityGraph(Release.WITH_CONTENT)
   List<Release> findByAppIdAndClusterNameAndNamespaceNameOrderByIdAsc(String appId, String clusterName, String namespaceName);
 }
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -37,4 +38,18 @@ public class AuditService {
   void audit(Audit audit){
     auditRepository.save(audit);
   }
+
+  @Transactional
+  void batchAudit(String entityName, List<Long> entityIds, Audit.OP op, String owner) {
+    List<Audit> audits = new ArrayList<>(entityIds.size());
+    for (Long entityId : entityIds) {
+      Audit audit = new Audit();
+      audit.setEntityName(entityName);
+      audit.setEntityId(entityId);
+      audit.setOpName(op.name());
+      audit.setDataChangeCreatedBy(owner);
+      audits.add(audit);
+    }
+    auditRepository.save(audits);
+  }
 }
@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.google.common.collect.Lists;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Audit;
@@ -15,10 +16,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class ItemService {
@@ -157,8 +161,101 @@ public class ItemService {
     return managedItem;
   }
 
+  @Transactional
+  public List<Item> batchSave(List<Item> entities, String operator) {
+    if (entities.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Map<Long, Integer> lastLineNums = new HashMap<>();
+    Map<Long, Integer> valueLengthLimits = new HashMap<>();
+    for (Item entity : entities) {
+      checkItemKeyLength(entity.getKey());
+      checkItemValueLength(entity.getValue(), valueLengthLimits.computeIfAbsent(entity.getNamespaceId(),
+                                                                                this::getItemValueLengthLimit));
+
+      entity.setId(0);//protection
+
+      if (entity.getLineNum() == 0) {
+        int lastLineNum = lastLineNums.computeIfAbsent(entity.getNamespaceId(), namespaceId -> {
+          Item lastItem = findLastOne(namespaceId);
+          return lastItem == null ? 0 : lastItem.getLineNum();
+        });
+        entity.setLineNum(lastLineNum + 1);
+        lastLineNums.put(entity.getNamespaceId(), lastLineNum + 1);
+      }
+    }
+
+    List<Item> items = Lists.newArrayList(itemRepository.save(entities));
+
+    auditService.batchAudit(Item.class.getSimpleName(), items.stream().map(Item::getId).collect(Collectors.toList()),
+                            Audit.OP.INSERT, operator);
+
+    return items;
+  }
+
+  /**
+   * update managed items, which should be loaded by {@link #findItems(Collection)} in the same transaction
+   */
+  @Transactional
+  public List<Item> batchUpdate(List<Item> managedItems, String operator) {
+    if (managedItems.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    Map<Long, Integer> valueLengthLimits = new HashMap<>();
+    for (Item managedItem : managedItems) {
+      checkItemValueLength(managedItem.getValue(), valueLengthLimits.computeIfAbsent(managedItem.getNamespaceId(),
+                                                                                     this::getItemValueLengthLimit));
+    }
+
+    List<Item> items = Lists.newArrayList(itemRepository.save(managedItems));
+
+    auditService.batchAudit(Item.class.getSimpleName(), items.stream().map(Item::getId).collect(Collectors.toList()),
+                            Audit.OP.UPDATE, operator);
+
+    return items;
+  }
+
+  /**
+   * delete managed items, which should be loaded by {@link #findItems(Collection)} in the same transaction
+   */
+  @Transactional
+  public List<Item> batchDelete(List<Item> managedItems, String operator) {
+    if (managedItems.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    for (Item managedItem : managedItems) {
+      managedItem.setDeleted(true);
+      managedItem.setDataChangeLastModifiedBy(operator);
+    }
+
+    List<Item> items = Lists.newArrayList(itemRepository.save(managedItems));
+
+    auditService.batchAudit(Item.class.getSimpleName(), items.stream().map(Item::getId).collect(Collectors.toList()),
+                            Audit.OP.DELETE, operator);
+
+    return items;
+  }
+
+  public Map<Long, Item> findItems(Collection<Long> itemIds) {
+    if (itemIds.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<Long, Item> items = new HashMap<>(itemIds.size());
+    for (Item item : itemRepository.findAll(itemIds)) {
+      items.put(item.getId(), item);
+    }
+    return items;
+  }
+
   private boolean checkItemValueLength(long namespaceId, String value) {
-    int limit = getItemValueLengthLimit(namespaceId);
+    return checkItemValueLength(value, getItemValueLengthLimit(namespaceId));
+  }
+
+  private boolean checkItemValueLength(String value, int limit) {
     if (!StringUtils.isEmpty(value) && value.length() > limit) {
       throw new BadRequestException("value too long. length limit:" + limit);
     }
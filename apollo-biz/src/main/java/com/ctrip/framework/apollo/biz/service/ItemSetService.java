@@ -15,6 +15,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 
 @Service
 public class ItemSetService {
@@ -39,43 +45,63 @@ public class ItemSetService {
     String operator = changeSet.getDataChangeLastModifiedBy();
     ConfigChangeContentBuilder configChangeContentBuilder = new ConfigChangeContentBuilder();
 
+    //load all items to update and delete in one query
+    Set<Long> managedItemIds = new HashSet<>();
+    changeSet.getUpdateItems().forEach(item -> managedItemIds.add(item.getId()));
+    changeSet.getDeleteItems().forEach(item -> managedItemIds.add(item.getId()));
+    Map<Long, Item> managedItems = itemService.findItems(managedItemIds);
+
     if (!CollectionUtils.isEmpty(changeSet.getCreateItems())) {
+      List<Item> entities = new ArrayList<>(changeSet.getCreateItems().size());
       for (ItemDTO item : changeSet.getCreateItems()) {
         Item entity = BeanUtils.transfrom(Item.class, item);
         entity.setDataChangeCreatedBy(operator);
         entity.setDataChangeLastModifiedBy(operator);
-        Item createdItem = itemService.save(entity);
+        entities.add(entity);
+      }
+      for (Item createdItem : itemService.batchSave(entities, operator)) {
         configChangeContentBuilder.createItem(createdItem);
       }
       auditService.audit("ItemSet", null, Audit.OP.INSERT, operator);
     }
 
     if (!CollectionUtils.isEmpty(changeSet.getUpdateItems())) {
+      List<Item> itemsToUpdate = new ArrayList<>(changeSet.getUpdateItems().size());
+      List<Item> beforeUpdateItems = new ArrayList<>(changeSet.getUpdateItems().size());
       for (ItemDTO item : changeSet.getUpdateItems()) {
         Item entity = BeanUtils.transfrom(Item.class, item);
 
-        Item managedItem = itemService.findOne(entity.getId());
+        Item managedItem = managedItems.get(entity.getId());
         if (managedItem == null) {
           throw new NotFoundException(String.format("item not found.(key=%s)", entity.getKey()));
         }
-        Item beforeUpdateItem = BeanUtils.transfrom(Item.class, managedItem);
+        beforeUpdateItems.add(BeanUtils.transfrom(Item.class, managedItem));
 
         //protect. only value,comment,lastModifiedBy,lineNum can be modified
         managedItem.setValue(entity.getValue());
         managedItem.setComment(entity.getComment());
         managedItem.setLineNum(entity.getLineNum());
         managedItem.setDataChangeLastModifiedBy(operator);
+        itemsToUpdate.add(managedItem);
+      }
 
-        Item updatedItem = itemService.update(managedItem);
-        configChangeContentBuilder.updateItem(beforeUpdateItem, updatedItem);
-
+      List<Item> updatedItems = itemService.batchUpdate(itemsToUpdate, operator);
+      for (int i = 0; i < updatedItems.size(); i++) {
+        configChangeContentBuilder.updateItem(beforeUpdateItems.get(i), updatedItems.get(i));
       }
       auditService.audit("ItemSet", null, Audit.OP.UPDATE, operator);
     }
 
     if (!CollectionUtils.isEmpty(changeSet.getDeleteItems())) {
+      List<Item> itemsToDelete = new ArrayList<>(changeSet.getDeleteItems().size());
       for (ItemDTO item : changeSet.getDeleteItems()) {
-        Item deletedItem = itemService.delete(item.getId(), operator);
+        Item managedItem = managedItems.get(item.getId());
+        if (managedItem == null) {
+          throw new IllegalArgumentException("item not exist. ID:" + item.getId());
+        }
+        itemsToDelete.add(managedItem);
+      }
+      for (Item deletedItem : itemService.batchDelete(itemsToDelete, operator)) {
         configChangeContentBuilder.deleteItem(deletedItem);
       }
       auditService.audit("ItemSet", null, Audit.OP.DELETE, operator);
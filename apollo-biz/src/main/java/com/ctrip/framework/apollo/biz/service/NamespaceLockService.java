@@ -7,6 +7,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 @Service
 public class NamespaceLockService {
 
@@ -17,6 +21,13 @@ public class NamespaceLockService {
     return namespaceLockRepository.findByNamespaceId(namespaceId);
   }
 
+  public List<NamespaceLock> findLocks(Collection<Long> namespaceIds) {
+    if (namespaceIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return namespaceLockRepository.findByNamespaceIdIn(namespaceIds);
+  }
+
 
   @Transactional
   public NamespaceLock tryLock(NamespaceLock lock){
@@ -27,4 +38,12 @@ public class NamespaceLockService {
   public void unlock(Long namespaceId){
     namespaceLockRepository.deleteByNamespaceId(namespaceId);
   }
+
+  @Transactional
+  public void batchUnlock(Collection<Long> namespaceIds) {
+    if (namespaceIds.isEmpty()) {
+      return;
+    }
+    namespaceLockRepository.deleteByNamespaceIdIn(namespaceIds);
+  }
 }
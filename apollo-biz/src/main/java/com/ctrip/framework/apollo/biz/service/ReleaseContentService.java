@@ -0,0 +1,96 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.google.gson.Gson;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseContent;
+import com.ctrip.framework.apollo.biz.repository.ReleaseContentRepository;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseContentCodec;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+import com.ctrip.framework.apollo.tracer.Tracer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores release configurations deduplicated by content hash, optionally compressed.
+ *
+ * @see ReleaseContent
+ */
+@Service
+public class ReleaseContentService {
+
+  /**
+   * small contents are not worth compressing
+   */
+  private static final int COMPRESS_THRESHOLD = 1024;
+
+  private Gson gson = new Gson();
+
+  @Autowired
+  private ReleaseContentRepository releaseContentRepository;
+  @Autowired
+  private ReleaseRepository releaseRepository;
+  @Autowired
+  private BizConfig bizConfig;
+
+  /**
+   * set the configurations of the release, stored in shared content if dedup is enabled
+   */
+  public void setConfigurations(Release release, Map<String, String> configurations) {
+    if (!bizConfig.isReleaseContentDedupEnabled()) {
+      release.setConfigurations(gson.toJson(configurations));
+      return;
+    }
+    release.setReleaseContent(findOrCreate(configurations));
+    release.setConfigurations("");
+  }
+
+  @Transactional
+  public ReleaseContent findOrCreate(Map<String, String> configurations) {
+    String contentHash = ReleaseContentCodec.hash(configurations);
+    ReleaseContent releaseContent = releaseContentRepository.findFirstByContentHash(contentHash);
+    if (releaseContent != null) {
+      Tracer.logEvent("Apollo.ReleaseContent.Reuse", contentHash);
+      return releaseContent;
+    }
+
+    String content = gson.toJson(configurations);
+    boolean isCompressed = bizConfig.isReleaseContentCompressEnabled() && content.length() >= COMPRESS_THRESHOLD;
+    if (isCompressed) {
+      content = ReleaseContentCodec.compress(content);
+    }
+    return releaseContentRepository.save(new ReleaseContent(contentHash, content, isCompressed));
+  }
+
+  /**
+   * Move the configurations of existing releases into shared content, in id order.
+   *
+   * @param fromId only releases with bigger id are migrated
+   * @param size   max number of releases to migrate
+   * @return the biggest id migrated, or fromId if there are no more releases to migrate
+   */
+  @Transactional
+  public long migrate(long fromId, int size) {
+    List<Release> releases = releaseRepository.findByIdGreaterThanOrderByIdAsc(fromId, new PageRequest(0, size));
+    long lastId = fromId;
+    for (Release release : releases) {
+      lastId = release.getId();
+      if (release.getReleaseContent() != null) {
+        continue;
+      }
+      Map<String, String> configurations = gson.fromJson(release.getConfigurations(), GsonType.CONFIG);
+      release.setReleaseContent(findOrCreate(configurations));
+      release.setConfigurations("");
+      releaseRepository.save(release);
+    }
+    return lastId;
+  }
+}
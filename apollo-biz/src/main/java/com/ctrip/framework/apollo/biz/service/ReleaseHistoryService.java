@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 
 import com.ctrip.framework.apollo.biz.entity.Audit;
@@ -13,7 +14,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -47,6 +50,31 @@ public class ReleaseHistoryService {
   public ReleaseHistory createReleaseHistory(String appId, String clusterName, String
       namespaceName, String branchName, long releaseId, long previousReleaseId, int operation,
                                              Map<String, Object> operationContext, String operator) {
+    ReleaseHistory releaseHistory = buildReleaseHistory(appId, clusterName, namespaceName, branchName, releaseId,
+                                                        previousReleaseId, operation, operationContext, operator);
+
+    releaseHistoryRepository.save(releaseHistory);
+
+    auditService.audit(ReleaseHistory.class.getSimpleName(), releaseHistory.getId(),
+                       Audit.OP.INSERT, releaseHistory.getDataChangeCreatedBy());
+
+    return releaseHistory;
+  }
+
+  @Transactional
+  public List<ReleaseHistory> batchCreateReleaseHistories(List<ReleaseHistory> releaseHistories, String operator) {
+    List<ReleaseHistory> savedReleaseHistories = Lists.newArrayList(releaseHistoryRepository.save(releaseHistories));
+
+    auditService.batchAudit(ReleaseHistory.class.getSimpleName(),
+                            savedReleaseHistories.stream().map(ReleaseHistory::getId).collect(Collectors.toList()),
+                            Audit.OP.INSERT, operator);
+
+    return savedReleaseHistories;
+  }
+
+  ReleaseHistory buildReleaseHistory(String appId, String clusterName, String namespaceName, String branchName,
+                                     long releaseId, long previousReleaseId, int operation,
+                                     Map<String, Object> operationContext, String operator) {
     ReleaseHistory releaseHistory = new ReleaseHistory();
     releaseHistory.setAppId(appId);
     releaseHistory.setClusterName(clusterName);
@@ -63,12 +91,6 @@ public class ReleaseHistoryService {
     releaseHistory.setDataChangeCreatedTime(new Date());
     releaseHistory.setDataChangeCreatedBy(operator);
     releaseHistory.setDataChangeLastModifiedBy(operator);
-
-    releaseHistoryRepository.save(releaseHistory);
-
-    auditService.audit(ReleaseHistory.class.getSimpleName(), releaseHistory.getId(),
-                       Audit.OP.INSERT, releaseHistory.getDataChangeCreatedBy());
-
     return releaseHistory;
   }
 
@@ -10,12 +10,14 @@ import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.NamespaceLock;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
 import com.ctrip.framework.apollo.biz.utils.ReleaseKeyGenerator;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperationContext;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.GrayReleaseRuleItemTransformer;
@@ -29,13 +31,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -62,6 +68,8 @@ public class ReleaseService {
   private ReleaseHistoryService releaseHistoryService;
   @Autowired
   private ItemSetService itemSetService;
+  @Autowired
+  private ReleaseContentService releaseContentService;
 
   public Release findOne(long releaseId) {
     return releaseRepository.findOne(releaseId);
@@ -213,6 +221,101 @@ public class ReleaseService {
     return release;
   }
 
+  /**
+   * 批量发布多个 Namespace ，返回的 Release 数组与请求的顺序一致。
+   *
+   * 普通的主干 Namespace ，批量保存 Release 、ReleaseHistory 和 Audit ，并批量解锁；
+   * 灰度发布或有子 Namespace 的主干发布，涉及合并逻辑，仍走 {@link #publish} 。
+   *
+   * @param publishes 发布请求数组
+   * @param operator 操作人
+   * @return Release 数组
+   */
+  @Transactional
+  public List<Release> batchPublish(List<NamespacePublishDTO> publishes, String operator) {
+    // 获得 Namespace 数组
+    List<Namespace> namespaces = new ArrayList<>(publishes.size());
+    Set<Long> namespaceIds = new HashSet<>();
+    for (NamespacePublishDTO publish : publishes) {
+      Namespace namespace = namespaceService.findOne(publish.getAppId(), publish.getClusterName(),
+                                                     publish.getNamespaceName());
+      if (namespace == null) {
+        throw new NotFoundException(String.format("Could not find namespace for %s %s %s", publish.getAppId(),
+                                                  publish.getClusterName(), publish.getNamespaceName()));
+      }
+      // 同一个 Namespace 只允许发布一次，否则 previousReleaseId 不准确
+      if (!namespaceIds.add(namespace.getId())) {
+        throw new BadRequestException(String.format("Duplicated namespace %s %s %s in batch publish",
+                                                    publish.getAppId(), publish.getClusterName(),
+                                                    publish.getNamespaceName()));
+      }
+      namespaces.add(namespace);
+    }
+
+    // 批量校验锁定
+    Set<Long> lockedByOperator = namespaceLockService.findLocks(namespaceIds).stream()
+        .filter(lock -> lock.getDataChangeCreatedBy().equals(operator))
+        .map(NamespaceLock::getNamespaceId)
+        .collect(Collectors.toSet());
+
+    Release[] releases = new Release[publishes.size()];
+    List<Integer> batchIndexes = new ArrayList<>();
+    List<Release> batchReleases = new ArrayList<>();
+    List<Long> previousReleaseIds = new ArrayList<>();
+    for (int i = 0; i < publishes.size(); i++) {
+      NamespacePublishDTO publish = publishes.get(i);
+      Namespace namespace = namespaces.get(i);
+      if (!publish.isEmergencyPublish() && lockedByOperator.contains(namespace.getId())) {
+        throw new BadRequestException("Config can not be published by yourself.");
+      }
+
+      // 灰度相关的 Namespace ，走单个发布的逻辑
+      if (namespaceService.findParentNamespace(namespace) != null
+          || namespaceService.findChildNamespace(namespace) != null) {
+        releases[i] = publish(namespace, publish.getReleaseName(), publish.getReleaseComment(), operator,
+                              publish.isEmergencyPublish());
+        continue;
+      }
+
+      Release lastActiveRelease = findLatestActiveRelease(namespace);
+      previousReleaseIds.add(lastActiveRelease == null ? 0 : lastActiveRelease.getId());
+      batchReleases.add(buildRelease(namespace, publish.getReleaseName(), publish.getReleaseComment(),
+                                     getNamespaceItems(namespace), operator));
+      batchIndexes.add(i);
+    }
+
+    if (batchReleases.isEmpty()) {
+      return Arrays.asList(releases);
+    }
+
+    // 批量保存 Release 对象
+    List<Release> savedReleases = Lists.newArrayList(releaseRepository.save(batchReleases));
+    auditService.batchAudit(Release.class.getSimpleName(),
+                            savedReleases.stream().map(Release::getId).collect(Collectors.toList()),
+                            Audit.OP.INSERT, operator);
+
+    // 批量保存 ReleaseHistory 对象
+    List<ReleaseHistory> releaseHistories = new ArrayList<>(savedReleases.size());
+    List<Long> releasedNamespaceIds = new ArrayList<>(savedReleases.size());
+    for (int i = 0; i < savedReleases.size(); i++) {
+      int index = batchIndexes.get(i);
+      Release release = savedReleases.get(i);
+      Map<String, Object> operationContext = Maps.newHashMap();
+      operationContext.put(ReleaseOperationContext.IS_EMERGENCY_PUBLISH, publishes.get(index).isEmergencyPublish());
+      releaseHistories.add(releaseHistoryService.buildReleaseHistory(
+          release.getAppId(), release.getClusterName(), release.getNamespaceName(), release.getClusterName(),
+          release.getId(), previousReleaseIds.get(i), ReleaseOperation.NORMAL_RELEASE, operationContext, operator));
+      releasedNamespaceIds.add(namespaces.get(index).getId());
+      releases[index] = release;
+    }
+    releaseHistoryService.batchCreateReleaseHistories(releaseHistories, operator);
+
+    // 批量解锁
+    namespaceLockService.batchUnlock(releasedNamespaceIds);
+
+    return Arrays.asList(releases);
+  }
+
   private void checkLock(Namespace namespace, boolean isEmergencyPublish, String operator) {
     if (!isEmergencyPublish) {
       NamespaceLock lock = namespaceLockService.findLock(namespace.getId());
@@ -435,6 +538,18 @@ public class ReleaseService {
 
   private Release createRelease(Namespace namespace, String name, String comment,
                                 Map<String, String> configurations, String operator) {
+    Release release = buildRelease(namespace, name, comment, configurations, operator);
+    release = releaseRepository.save(release);
+
+    namespaceLockService.unlock(namespace.getId());
+    auditService.audit(Release.class.getSimpleName(), release.getId(), Audit.OP.INSERT,
+                       release.getDataChangeCreatedBy());
+
+    return release;
+  }
+
+  private Release buildRelease(Namespace namespace, String name, String comment,
+                               Map<String, String> configurations, String operator) {
     Release release = new Release();
     release.setReleaseKey(ReleaseKeyGenerator.generateReleaseKey(namespace));
     release.setDataChangeCreatedTime(new Date());
@@ -445,13 +560,7 @@ public class ReleaseService {
     release.setAppId(namespace.getAppId());
     release.setClusterName(namespace.getClusterName());
     release.setNamespaceName(namespace.getNamespaceName());
-    release.setConfigurations(gson.toJson(configurations));
-    release = releaseRepository.save(release);
-
-    namespaceLockService.unlock(namespace.getId());
-    auditService.audit(Release.class.getSimpleName(), release.getId(), Audit.OP.INSERT,
-                       release.getDataChangeCreatedBy());
-
+    releaseContentService.setConfigurations(release, configurations);
     return release;
   }
 
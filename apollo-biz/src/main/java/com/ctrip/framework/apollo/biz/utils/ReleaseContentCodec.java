@@ -0,0 +1,56 @@
+package com.ctrip.framework.apollo.biz.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Hash and compression helpers for release configurations stored in ReleaseContent.
+ */
+public class ReleaseContentCodec {
+
+  private static final Gson GSON = new Gson();
+
+  /**
+   * The hash is calculated from the configurations sorted by key, so equal configurations always have the same hash
+   * no matter how the map is ordered.
+   */
+  public static String hash(Map<String, String> configurations) {
+    String canonicalContent = GSON.toJson(new TreeMap<>(configurations));
+    return Hashing.sha256().hashString(canonicalContent, Charsets.UTF_8).toString();
+  }
+
+  /**
+   * gzip the content and encode it in base64, so that it could be stored in a text column
+   */
+  public static String compress(String content) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(content.getBytes(Charsets.UTF_8));
+    } catch (IOException ex) {
+      throw new IllegalStateException("Compress release content failed", ex);
+    }
+    return Base64.getEncoder().encodeToString(bytes.toByteArray());
+  }
+
+  public static String decompress(String content) {
+    byte[] compressed = Base64.getDecoder().decode(content);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+    } catch (IOException ex) {
+      throw new IllegalStateException("Decompress release content failed", ex);
+    }
+  }
+}
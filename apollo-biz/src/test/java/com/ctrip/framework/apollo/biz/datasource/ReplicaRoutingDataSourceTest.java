@@ -0,0 +1,136 @@
+package com.ctrip.framework.apollo.biz.datasource;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest extends AbstractUnitTest {
+  private static final String CREATE_TABLE_SQL =
+      "CREATE TABLE ReleaseMessage (Id BIGINT AUTO_INCREMENT PRIMARY KEY, Message VARCHAR(1024) NOT NULL)";
+  private static final String INSERT_SQL = "INSERT INTO ReleaseMessage (Message) VALUES ('someMessage')";
+
+  private EmbeddedDatabase primary;
+  private EmbeddedDatabase replica;
+  @Mock
+  private DataSource brokenReplica;
+  private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+  @Before
+  public void setUp() throws Exception {
+    primary = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("primaryConfigDB").build();
+    replica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("replicaConfigDB").build();
+    new JdbcTemplate(primary).execute(CREATE_TABLE_SQL);
+    new JdbcTemplate(replica).execute(CREATE_TABLE_SQL);
+
+    //replicate the same messages
+    insertMessage(primary);
+    insertMessage(replica);
+
+    replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, ImmutableMap.of("replica", replica),
+        Long.MAX_VALUE);
+    replicaRoutingDataSource.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    replicaRoutingDataSource.destroy();
+    primary.shutdown();
+    replica.shutdown();
+  }
+
+  @Test
+  public void testReadWithoutReplicaReadContext() throws Exception {
+    assertEquals("primaryConfigDB", connectedDatabase());
+  }
+
+  @Test
+  public void testReadFromReplicaCaughtUp() throws Exception {
+    assertEquals(1, replicaRoutingDataSource.getLatestMessageId());
+    assertEquals("replicaConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+    assertEquals("primaryConfigDB", connectedDatabase());
+  }
+
+  @Test
+  public void testFallbackToPrimaryWhenReplicaIsBehindPrimary() throws Exception {
+    insertMessage(primary);
+
+    replicaRoutingDataSource.checkReplicas();
+
+    assertEquals(2, replicaRoutingDataSource.getLatestMessageId());
+    assertEquals("primaryConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+
+    insertMessage(replica);
+    replicaRoutingDataSource.checkReplicas();
+
+    assertEquals("replicaConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+  }
+
+  @Test
+  public void testFallbackToPrimaryWhenReplicaIsBehindReleaseMessage() throws Exception {
+    ReleaseMessage someMessage = new ReleaseMessage("someMessage");
+    someMessage.setId(2);
+
+    replicaRoutingDataSource.handleMessage(someMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+    assertEquals("primaryConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+  }
+
+  @Test
+  public void testFallbackToPrimaryWhenReplicaIsUnavailable() throws Exception {
+    //the first check succeeds, then the replica is down
+    when(brokenReplica.getConnection()).thenAnswer(invocation -> replica.getConnection())
+        .thenThrow(new SQLException("some error"));
+    replicaRoutingDataSource.destroy();
+    replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, ImmutableMap.of("brokenReplica",
+        brokenReplica), Long.MAX_VALUE);
+    replicaRoutingDataSource.afterPropertiesSet();
+
+    assertEquals("primaryConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+    assertEquals("primaryConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+
+    verify(brokenReplica, times(2)).getConnection();
+  }
+
+  @Test
+  public void testNestedReplicaReadContext() throws Exception {
+    ReplicaReadContext.run(() -> {
+      assertEquals("replicaConfigDB", ReplicaReadContext.read(this::connectedDatabase));
+      assertEquals("replicaConfigDB", connectedDatabase());
+    });
+    assertEquals("primaryConfigDB", connectedDatabase());
+  }
+
+  private void insertMessage(DataSource dataSource) {
+    new JdbcTemplate(dataSource).update(INSERT_SQL);
+  }
+
+  private String connectedDatabase() {
+    try (Connection connection = replicaRoutingDataSource.getConnection()) {
+      String url = connection.getMetaData().getURL();
+      return url.substring(url.lastIndexOf(':') + 1).split(";")[0];
+    } catch (SQLException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package com.ctrip.framework.apollo.biz.message;
 
+import com.google.common.collect.Lists;
+
 import com.ctrip.framework.apollo.biz.AbstractUnitTest;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
@@ -10,8 +12,11 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyListOf;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -48,6 +53,25 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest{
     assertEquals(someMessage, captor.getValue().getMessage());
   }
 
+  @Test
+  public void testSendMessages() throws Exception {
+    List<String> someMessages = Lists.newArrayList("some-message", "another-message");
+    ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
+    ReleaseMessage anotherReleaseMessage = mock(ReleaseMessage.class);
+    when(releaseMessageRepository.save(anyListOf(ReleaseMessage.class)))
+        .thenReturn(Lists.newArrayList(someReleaseMessage, anotherReleaseMessage));
+
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+
+    messageSender.sendMessages(someMessages, Topics.APOLLO_RELEASE_TOPIC);
+
+    verify(releaseMessageRepository, times(1)).save(captor.capture());
+    List<ReleaseMessage> savedMessages = captor.getValue();
+    assertEquals(2, savedMessages.size());
+    assertEquals("some-message", savedMessages.get(0).getMessage());
+    assertEquals("another-message", savedMessages.get(1).getMessage());
+  }
+
   @Test
   public void testSendUnsupportedMessage() throws Exception {
     String someMessage = "some-message";
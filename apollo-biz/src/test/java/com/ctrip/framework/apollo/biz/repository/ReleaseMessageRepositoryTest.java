@@ -0,0 +1,51 @@
+package com.ctrip.framework.apollo.biz.repository;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseMessageRepositoryTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private ReleaseMessageRepository repository;
+
+  @Test
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testFindLatestReleaseMessagesGroupByMessagesAfter() throws Exception {
+    String someMessage = "a";
+    String anotherMessage = "b";
+    String yetAnotherMessage = "c";
+
+    long someMessageId = repository.save(new ReleaseMessage(someMessage)).getId();
+    repository.save(new ReleaseMessage(anotherMessage));
+    long anotherMessageId = repository.save(new ReleaseMessage(anotherMessage)).getId();
+    long maxId = repository.save(new ReleaseMessage(yetAnotherMessage)).getId();
+    repository.save(new ReleaseMessage(someMessage));
+
+    List<Object[]> firstBatch = repository.findLatestReleaseMessagesGroupByMessagesAfter("", maxId,
+        new PageRequest(0, 2));
+    List<Object[]> secondBatch = repository.findLatestReleaseMessagesGroupByMessagesAfter(anotherMessage, maxId,
+        new PageRequest(0, 2));
+    List<Object[]> thirdBatch = repository.findLatestReleaseMessagesGroupByMessagesAfter(yetAnotherMessage, maxId,
+        new PageRequest(0, 2));
+
+    assertEquals(2, firstBatch.size());
+    assertEquals(someMessage, firstBatch.get(0)[0]);
+    assertEquals(someMessageId, firstBatch.get(0)[1]);
+    assertEquals(anotherMessage, firstBatch.get(1)[0]);
+    assertEquals(anotherMessageId, firstBatch.get(1)[1]);
+    assertEquals(1, secondBatch.size());
+    assertEquals(yetAnotherMessage, secondBatch.get(0)[0]);
+    assertEquals(maxId, secondBatch.get(0)[1]);
+    assertTrue(thirdBatch.isEmpty());
+  }
+}
@@ -0,0 +1,110 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.repository.ItemRepository;
+import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+public class ItemSetServiceTest extends AbstractIntegrationTest {
+
+  private static final int EXISTING_ITEM_COUNT = 3000;
+  private static final int CREATE_ITEM_COUNT = 2000;
+  private static final int UPDATE_ITEM_COUNT = 2000;
+  private static final int DELETE_ITEM_COUNT = 1000;
+
+  @Autowired
+  private ItemSetService itemSetService;
+  @Autowired
+  private ItemService itemService;
+  @Autowired
+  private ItemRepository itemRepository;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private String someAppId = "someAppId";
+  private String someClusterName = "someClusterName";
+  private String someNamespaceName = "someNamespaceName";
+  private long someNamespaceId = 1000;
+  private String someOperator = "someOperator";
+
+  @Test
+  public void testUpdateLargeSetWithBatchedStatements() {
+    List<Item> existingItems = new ArrayList<>(EXISTING_ITEM_COUNT);
+    for (int i = 0; i < EXISTING_ITEM_COUNT; i++) {
+      existingItems.add(assembleItem("k" + i, "v" + i, i + 1));
+    }
+    existingItems = (List<Item>) itemRepository.save(existingItems);
+    entityManager.flush();
+    entityManager.clear();
+
+    ItemChangeSets changeSets = new ItemChangeSets();
+    changeSets.setDataChangeLastModifiedBy(someOperator);
+    for (int i = 0; i < CREATE_ITEM_COUNT; i++) {
+      ItemDTO item = new ItemDTO("new-k" + i, "new-v" + i, "", 0);
+      item.setNamespaceId(someNamespaceId);
+      changeSets.addCreateItem(item);
+    }
+    for (int i = 0; i < UPDATE_ITEM_COUNT; i++) {
+      Item existingItem = existingItems.get(i);
+      ItemDTO item = new ItemDTO(existingItem.getKey(), "updated-v" + i, "", existingItem.getLineNum());
+      item.setId(existingItem.getId());
+      item.setNamespaceId(someNamespaceId);
+      changeSets.addUpdateItem(item);
+    }
+    for (int i = UPDATE_ITEM_COUNT; i < UPDATE_ITEM_COUNT + DELETE_ITEM_COUNT; i++) {
+      ItemDTO item = new ItemDTO();
+      item.setId(existingItems.get(i).getId());
+      changeSets.addDeleteItem(item);
+    }
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+
+    itemSetService.updateSet(someAppId, someClusterName, someNamespaceName, changeSets);
+    entityManager.flush();
+
+    long statementCount = statistics.getPrepareStatementCount();
+    statistics.setStatisticsEnabled(false);
+
+    //every inserted row (created items and one audit per changed item) still fetches its own id,
+    //all the other statements should be batched, which would be more than 10000 without batching
+    long idGenerationCount = CREATE_ITEM_COUNT + CREATE_ITEM_COUNT + UPDATE_ITEM_COUNT + DELETE_ITEM_COUNT;
+    Assert.assertTrue("Too many statements: " + statementCount, statementCount - idGenerationCount < 50);
+
+    entityManager.clear();
+    List<Item> items = itemService.findItemsWithOrdered(someNamespaceId);
+    Assert.assertEquals(EXISTING_ITEM_COUNT - DELETE_ITEM_COUNT + CREATE_ITEM_COUNT, items.size());
+    Assert.assertEquals("updated-v0", items.get(0).getValue());
+    Assert.assertEquals("new-k0", items.get(EXISTING_ITEM_COUNT - DELETE_ITEM_COUNT).getKey());
+    Assert.assertEquals(EXISTING_ITEM_COUNT + 1, items.get(EXISTING_ITEM_COUNT - DELETE_ITEM_COUNT).getLineNum().intValue());
+  }
+
+  private Item assembleItem(String key, String value, int lineNum) {
+    Item item = new Item();
+    item.setNamespaceId(someNamespaceId);
+    item.setKey(key);
+    item.setValue(value);
+    item.setComment("");
+    item.setLineNum(lineNum);
+    item.setDataChangeCreatedBy(someOperator);
+    item.setDataChangeLastModifiedBy(someOperator);
+    return item;
+  }
+}
@@ -0,0 +1,177 @@
+package com.ctrip.framework.apollo.biz.service;
+
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseContent;
+import com.ctrip.framework.apollo.biz.repository.ReleaseRepository;
+import com.ctrip.framework.apollo.common.constants.GsonType;
+
+import org.hibernate.Hibernate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReleaseContentServiceTest extends AbstractIntegrationTest {
+
+  private Gson gson = new Gson();
+
+  @Autowired
+  private ReleaseContentService releaseContentService;
+  @Autowired
+  private ReleaseService releaseService;
+  @Autowired
+  private ReleaseRepository releaseRepository;
+  @Autowired
+  private BizConfig bizConfig;
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Before
+  public void setUp() throws Exception {
+    BizConfig someBizConfig = mock(BizConfig.class);
+    when(someBizConfig.isReleaseContentDedupEnabled()).thenReturn(true);
+    when(someBizConfig.isReleaseContentCompressEnabled()).thenReturn(true);
+    ReleaseContentService target = AopTestUtils.getTargetObject(releaseContentService);
+    ReflectionTestUtils.setField(target, "bizConfig", someBizConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ReleaseContentService target = AopTestUtils.getTargetObject(releaseContentService);
+    ReflectionTestUtils.setField(target, "bizConfig", bizConfig);
+  }
+
+  @Test
+  public void testFindOrCreateWithSameContent() throws Exception {
+    Map<String, String> someConfigurations = Maps.newLinkedHashMap();
+    Map<String, String> sameConfigurations = Maps.newLinkedHashMap();
+    for (int i = 0; i < 100; i++) {
+      someConfigurations.put("key" + i, "some long value " + i);
+      sameConfigurations.put("key" + (99 - i), "some long value " + (99 - i));
+    }
+
+    ReleaseContent someReleaseContent = releaseContentService.findOrCreate(someConfigurations);
+    ReleaseContent sameReleaseContent = releaseContentService.findOrCreate(sameConfigurations);
+
+    Assert.assertEquals(someReleaseContent.getId(), sameReleaseContent.getId());
+    Assert.assertTrue(someReleaseContent.isCompressed());
+    Assert.assertTrue(someReleaseContent.getContent().length() < gson.toJson(someConfigurations).length());
+    Assert.assertEquals(someConfigurations, gson.fromJson(someReleaseContent.getConfigurations(), GsonType.CONFIG));
+  }
+
+  @Test
+  public void testFindOrCreateWithSmallContent() throws Exception {
+    Map<String, String> someConfigurations = Maps.newHashMap();
+    someConfigurations.put("k1", "v1");
+
+    ReleaseContent someReleaseContent = releaseContentService.findOrCreate(someConfigurations);
+
+    Assert.assertFalse(someReleaseContent.isCompressed());
+    Assert.assertEquals(gson.toJson(someConfigurations), someReleaseContent.getContent());
+  }
+
+  @Test
+  @Sql(scripts = "/sql/release-creation-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testPublishWithSameContent() throws Exception {
+    Namespace namespace = new Namespace("test", "only-master", "application");
+    namespace.setId(100);
+
+    Release someRelease = releaseService.publish(namespace, "", "", "apollo", false);
+    Release anotherRelease = releaseService.publish(namespace, "", "", "apollo", false);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    Release someLoadedRelease = releaseService.findOne(someRelease.getId());
+    Release anotherLoadedRelease = releaseService.findOne(anotherRelease.getId());
+
+    Assert.assertNotEquals(someLoadedRelease.getId(), anotherLoadedRelease.getId());
+    Assert.assertEquals(someLoadedRelease.getReleaseContent().getId(), anotherLoadedRelease.getReleaseContent().getId());
+
+    Map<String, String> configurations = gson.fromJson(anotherLoadedRelease.getConfigurations(), GsonType.CONFIG);
+    Assert.assertEquals(3, configurations.size());
+    Assert.assertEquals("v1", configurations.get("k1"));
+  }
+
+  @Test
+  public void testMigrate() throws Exception {
+    Map<String, String> someConfigurations = Maps.newHashMap();
+    someConfigurations.put("k1", "v1");
+    Release someRelease = releaseRepository.save(assembleRelease(someConfigurations));
+    Release anotherRelease = releaseRepository.save(assembleRelease(someConfigurations));
+
+    long lastId = releaseContentService.migrate(someRelease.getId() - 1, 10);
+
+    Assert.assertEquals(anotherRelease.getId(), lastId);
+    Assert.assertEquals(lastId, releaseContentService.migrate(lastId, 10));
+
+    entityManager.flush();
+    entityManager.clear();
+
+    Release someMigratedRelease = releaseService.findOne(someRelease.getId());
+    Release anotherMigratedRelease = releaseService.findOne(anotherRelease.getId());
+    Assert.assertNotNull(someMigratedRelease.getReleaseContent());
+    Assert.assertEquals(someMigratedRelease.getReleaseContent().getId(),
+                        anotherMigratedRelease.getReleaseContent().getId());
+    Assert.assertEquals(someConfigurations, gson.fromJson(someMigratedRelease.getConfigurations(), GsonType.CONFIG));
+  }
+
+  @Test
+  public void testFetchContentWithReleases() throws Exception {
+    Map<String, String> someConfigurations = Maps.newHashMap();
+    someConfigurations.put("k1", "v1");
+    Release someRelease = releaseRepository.save(assembleRelease(someConfigurations));
+    releaseRepository.save(assembleRelease(someConfigurations));
+    releaseContentService.migrate(someRelease.getId() - 1, 10);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    List<Release> releases = releaseService.findAllReleases("someAppId", "someCluster", "someNamespace",
+                                                            new PageRequest(0, 10));
+    Release someLoadedRelease = releaseService.findOne(someRelease.getId());
+    //the content is fetched along with the releases, not lazily loaded one by one
+    entityManager.clear();
+
+    Assert.assertEquals(2, releases.size());
+    for (Release release : releases) {
+      Assert.assertTrue(Hibernate.isInitialized(release.getReleaseContent()));
+      Assert.assertEquals(someConfigurations, gson.fromJson(release.getConfigurations(), GsonType.CONFIG));
+    }
+    Assert.assertTrue(Hibernate.isInitialized(someLoadedRelease.getReleaseContent()));
+  }
+
+  private Release assembleRelease(Map<String, String> configurations) {
+    Release release = new Release();
+    release.setReleaseKey("someReleaseKey");
+    release.setName("someName");
+    release.setComment("");
+    release.setAppId("someAppId");
+    release.setClusterName("someCluster");
+    release.setNamespaceName("someNamespace");
+    release.setConfigurations(gson.toJson(configurations));
+    release.setDataChangeCreatedBy("apollo");
+    return release;
+  }
+}
@@ -1,5 +1,6 @@
 package com.ctrip.framework.apollo.biz.service;
 
+import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
@@ -10,6 +11,8 @@ import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.ReleaseOperation;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
+import com.ctrip.framework.apollo.common.exception.NotFoundException;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -20,6 +23,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Map;
 
 public class ReleaseCreationTest extends AbstractIntegrationTest {
@@ -484,6 +488,60 @@ public class ReleaseCreationTest extends AbstractIntegrationTest {
   }
 
 
+  @Test
+  @Sql(scripts = "/sql/release-creation-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testBatchPublish() {
+    String normalClusterName = "only-master";
+    String parentClusterName = "default1";
+    String childClusterName = "child-cluster1";
+
+    List<Release> releases = releaseService.batchPublish(
+        Lists.newArrayList(instancePublish(normalClusterName), instancePublish(parentClusterName)), operator);
+
+    Assert.assertEquals(2, releases.size());
+    Assert.assertEquals(normalClusterName, releases.get(0).getClusterName());
+    Assert.assertEquals(parentClusterName, releases.get(1).getClusterName());
+
+    //assert normal namespace
+    Release normalRelease = releaseService.findLatestActiveRelease(testApp, normalClusterName, testNamespace);
+    Assert.assertEquals(releases.get(0).getId(), normalRelease.getId());
+    Map<String, String> normalConfiguration = parseConfiguration(normalRelease.getConfigurations());
+    Assert.assertEquals(3, normalConfiguration.size());
+    Assert.assertEquals("v1", normalConfiguration.get("k1"));
+
+    Page<ReleaseHistory> normalReleaseHistories = releaseHistoryService.findReleaseHistoriesByNamespace
+        (testApp, normalClusterName, testNamespace, pageable);
+    Assert.assertEquals(1, normalReleaseHistories.getTotalElements());
+    ReleaseHistory normalReleaseHistory = normalReleaseHistories.getContent().get(0);
+    Assert.assertEquals(ReleaseOperation.NORMAL_RELEASE, normalReleaseHistory.getOperation());
+    Assert.assertEquals(normalRelease.getId(), normalReleaseHistory.getReleaseId());
+    Assert.assertEquals(0, normalReleaseHistory.getPreviousReleaseId());
+
+    //assert namespace with branch is merged to branch as well
+    Release childRelease = releaseService.findLatestActiveRelease(testApp, childClusterName, testNamespace);
+    Assert.assertNotNull(childRelease);
+    Assert.assertEquals(3, parseConfiguration(childRelease.getConfigurations()).size());
+  }
+
+  @Test(expected = NotFoundException.class)
+  @Sql(scripts = "/sql/release-creation-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+  @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+  public void testBatchPublishWithNotExistedNamespace() {
+    releaseService.batchPublish(
+        Lists.newArrayList(instancePublish("only-master"), instancePublish("not-existed")), operator);
+  }
+
+  private NamespacePublishDTO instancePublish(String clusterName) {
+    NamespacePublishDTO publish = new NamespacePublishDTO();
+    publish.setAppId(testApp);
+    publish.setClusterName(clusterName);
+    publish.setNamespaceName(testNamespace);
+    publish.setReleaseName("batch-release");
+    publish.setReleaseComment("");
+    return publish;
+  }
+
   private Namespace instanceNamespace(long id, String clusterName) {
     Namespace namespace = new Namespace();
     namespace.setAppId(testApp);
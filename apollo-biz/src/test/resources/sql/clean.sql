@@ -4,6 +4,7 @@ DELETE FROM Cluster;
 DELETE FROM namespace;
 DELETE FROM grayreleaserule;
 DELETE FROM release;
+DELETE FROM releasecontent;
 DELETE FROM item;
 DELETE FROM releasemessage;
 DELETE FROM releasehistory;
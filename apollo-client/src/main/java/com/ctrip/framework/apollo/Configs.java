@@ -0,0 +1,95 @@
+package com.ctrip.framework.apollo;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.ctrip.framework.apollo.internals.AbstractConfig;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.Maps;
+
+/**
+ * Helpers of {@link Config}, for the features supported by the configs created by apollo but not by the
+ * {@link Config} interface, so that the other implementations of the interface are not affected.
+ */
+public class Configs {
+  private Configs() {
+  }
+
+  /**
+   * Add change listener to the config, will only be notified when any of the interested keys is changed in the
+   * namespace.
+   *
+   * @param config the config
+   * @param listener the config change listener
+   * @param interestedKeys the keys interested by the listener
+   */
+  public static void addChangeListener(Config config, ConfigChangeListener listener, Set<String> interestedKeys) {
+    addChangeListener(config, listener, interestedKeys, null);
+  }
+
+  /**
+   * Add change listener to the config, will only be notified when any of the interested keys is changed, or any of the
+   * keys starting with the interested key prefixes is changed in the namespace. The change event only contains the
+   * interested changes.
+   *
+   * @param config the config
+   * @param listener the config change listener
+   * @param interestedKeys the keys interested by the listener, could be null
+   * @param interestedKeyPrefixes the key prefixes interested by the listener, e.g. "redis." for "redis.host" and
+   *        "redis.port", could be null
+   */
+  public static void addChangeListener(Config config, final ConfigChangeListener listener,
+      final Set<String> interestedKeys, final Set<String> interestedKeyPrefixes) {
+    if (config instanceof AbstractConfig) {
+      ((AbstractConfig) config).addChangeListener(listener, interestedKeys, interestedKeyPrefixes);
+      return;
+    }
+    if ((interestedKeys == null || interestedKeys.isEmpty())
+        && (interestedKeyPrefixes == null || interestedKeyPrefixes.isEmpty())) {
+      config.addChangeListener(listener);
+      return;
+    }
+    //filter the changes of all the keys, for the configs not routing the changes by themselves
+    config.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        Map<String, ConfigChange> changes = Maps.newHashMap();
+        for (String key : changeEvent.changedKeys()) {
+          if (isInterested(key, interestedKeys, interestedKeyPrefixes)) {
+            changes.put(key, changeEvent.getChange(key));
+          }
+        }
+        if (!changes.isEmpty()) {
+          listener.onChange(new ConfigChangeEvent(changeEvent.getNamespace(), changes));
+        }
+      }
+    });
+  }
+
+  /**
+   * Return how long the config is behind the config service, e.g. when it's served from the local cache file before
+   * it's synced with the config service. The apps could wait until it's fresh enough before they are ready.
+   *
+   * @param config the config
+   * @return the staleness in milliseconds, 0 if the config is synced with the config service or the config doesn't
+   * track it, or {@link Long#MAX_VALUE} if no config is loaded
+   */
+  public static long getStalenessInMillis(Config config) {
+    return config instanceof AbstractConfig ? ((AbstractConfig) config).getStalenessInMillis() : 0;
+  }
+
+  private static boolean isInterested(String key, Set<String> interestedKeys, Set<String> interestedKeyPrefixes) {
+    if (interestedKeys != null && interestedKeys.contains(key)) {
+      return true;
+    }
+    if (interestedKeyPrefixes != null) {
+      for (String prefix : interestedKeyPrefixes) {
+        if (key.startsWith(prefix)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,44 @@
+package com.ctrip.framework.apollo.bind;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customize how a field is bound by {@link ConfigBindings}.
+ *
+ * <p>Usage example:</p>
+ * <pre class="code">
+ * public class SomeProperties {
+ *   //bound to "some.timeout", e.g. some.timeout = 1M30S
+ *   &#064;BindKey(value = "some.timeout", duration = true)
+ *   private long timeoutInMillis = 1000;
+ *
+ *   //bound to "hosts", e.g. hosts = host1;host2
+ *   &#064;BindKey(delimiter = ";")
+ *   private List&lt;String&gt; hosts;
+ * }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@Documented
+public @interface BindKey {
+  /**
+   * The property name relative to the prefix, the field name if not specified
+   */
+  String value() default "";
+
+  /**
+   * The delimiter regex of the list fields
+   */
+  String delimiter() default ",";
+
+  /**
+   * Whether the long field is a duration in milliseconds, see
+   * {@link com.ctrip.framework.apollo.Config#getDurationProperty(String, long)} for the format
+   */
+  boolean duration() default false;
+}
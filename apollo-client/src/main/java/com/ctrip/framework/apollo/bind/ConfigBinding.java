@@ -0,0 +1,18 @@
+package com.ctrip.framework.apollo.bind;
+
+/**
+ * A typed object bound to the properties of a config, see {@link ConfigBindings}.
+ *
+ * <p>The bound object is rebuilt only when the properties it's bound to change, and the new object is published
+ * atomically, so {@link #get()} is just a volatile read and could be called on every request.</p>
+ *
+ * @param <T> the type of the bound object
+ */
+public interface ConfigBinding<T> {
+  /**
+   * Get the object bound to the current properties, which should be treated as immutable.
+   *
+   * @return the bound object
+   */
+  T get();
+}
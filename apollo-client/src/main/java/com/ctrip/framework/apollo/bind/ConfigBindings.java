@@ -0,0 +1,48 @@
+package com.ctrip.framework.apollo.bind;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.internals.AbstractConfig;
+
+/**
+ * Bind the properties of a config to typed objects, see {@link AbstractConfig#bind(String, Class)}.
+ *
+ * <p>Only the configs created by apollo, e.g. {@link com.ctrip.framework.apollo.ConfigService#getConfig(String)},
+ * support binding, as the binding is rebound by the config on changes.</p>
+ */
+public class ConfigBindings {
+  private ConfigBindings() {
+  }
+
+  /**
+   * Bind the properties to an object of the type, the field names are used as the property names. Equivalent to
+   * {@code bind(config, "", type)}.
+   *
+   * @param config the config
+   * @param type the type of the bound object
+   * @param <T>  the type of the bound object
+   * @return the binding
+   * @see #bind(Config, String, Class)
+   */
+  public static <T> ConfigBinding<T> bind(Config config, Class<T> type) {
+    return bind(config, "", type);
+  }
+
+  /**
+   * Bind the properties with the prefix to an object of the type, see {@link AbstractConfig#bind(String, Class)}.
+   *
+   * @param config the config
+   * @param prefix the prefix of the property names, e.g. "redis."
+   * @param type   the type of the bound object
+   * @param <T>    the type of the bound object
+   * @return the binding
+   * @throws ApolloConfigException if the type can't be bound, or the config is not created by apollo
+   */
+  public static <T> ConfigBinding<T> bind(Config config, String prefix, Class<T> type) {
+    if (!(config instanceof AbstractConfig)) {
+      throw new ApolloConfigException(String.format("Binding is not supported by %s, only by the configs created by "
+          + "apollo", config.getClass().getName()));
+    }
+    return ((AbstractConfig) config).bind(prefix, type);
+  }
+}
@@ -1,38 +1,36 @@
 package com.ctrip.framework.apollo.internals;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.bind.ConfigBinding;
 import com.ctrip.framework.apollo.build.ApolloInjector;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.function.Functions;
 import com.ctrip.framework.apollo.util.parser.Parsers;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -40,54 +38,78 @@ import com.google.common.collect.Sets;
 public abstract class AbstractConfig implements Config {
   private static final Logger logger = LoggerFactory.getLogger(AbstractConfig.class);
 
-  private static ExecutorService m_executorService;
+  private static final Joiner BINDING_KEY_JOINER = Joiner.on('#');
 
-  private List<ConfigChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
+  //all the listeners and their interested keys, replaced as a whole when a listener is added
+  private volatile ConfigChangeListenerRouter m_router = ConfigChangeListenerRouter.EMPTY;
+  private final ChangeListenerDispatcher<ConfigChangeListener, ConfigChangeEvent> m_dispatcher =
+      new ChangeListenerDispatcher<ConfigChangeListener, ConfigChangeEvent>("Apollo.ConfigChangeListener") {
+        @Override
+        protected ConfigChangeEvent merge(ConfigChangeEvent pending, ConfigChangeEvent event) {
+          return mergeConfigChanges(pending, event);
+        }
+
+        @Override
+        protected void onChange(ConfigChangeListener listener, ConfigChangeEvent event) {
+          listener.onChange(event);
+        }
+      };
   private ConfigUtil m_configUtil;
-  private volatile Cache<String, Integer> m_integerCache;
-  private volatile Cache<String, Long> m_longCache;
-  private volatile Cache<String, Short> m_shortCache;
-  private volatile Cache<String, Float> m_floatCache;
-  private volatile Cache<String, Double> m_doubleCache;
-  private volatile Cache<String, Byte> m_byteCache;
-  private volatile Cache<String, Boolean> m_booleanCache;
-  private volatile Cache<String, Date> m_dateCache;
-  private volatile Cache<String, Long> m_durationCache;
-  private Map<String, Cache<String, String[]>> m_arrayCache;
-  private List<Cache> allCaches;
-  private AtomicLong m_configVersion; //indicate config version
-
-  static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("Config", true));
-  }
+  private final AtomicReference<TypedValueSnapshot> m_snapshot;
+  private final long m_maxSnapshotSize;
+  private final long m_snapshotExpireTimeInNanos;
+  //prefix#type -> binding
+  private final ConcurrentMap<String, DefaultConfigBinding<?>> m_bindings = Maps.newConcurrentMap();
 
   public AbstractConfig() {
       m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
-      m_configVersion = new AtomicLong();
-      m_arrayCache = Maps.newConcurrentMap();
-      allCaches = Lists.newArrayList();
+      m_maxSnapshotSize = m_configUtil.getMaxConfigCacheSize();
+      m_snapshotExpireTimeInNanos = m_configUtil.getConfigCacheExpireTimeUnit()
+          .toNanos(m_configUtil.getConfigCacheExpireTime());
+      m_snapshot = new AtomicReference<>(newSnapshot());
   }
 
   @Override
   public void addChangeListener(ConfigChangeListener listener) {
-    if (!m_listeners.contains(listener)) {
-      m_listeners.add(listener);
+    addChangeListener(listener, null, null);
+  }
+
+  /**
+   * Add change listener to this config instance, will only be notified when any of the interested keys is changed in
+   * this namespace. Use {@link com.ctrip.framework.apollo.Configs#addChangeListener(Config, ConfigChangeListener, Set)}
+   * for a {@link Config}.
+   *
+   * @param listener the config change listener
+   * @param interestedKeys the keys interested by the listener
+   */
+  public void addChangeListener(ConfigChangeListener listener, Set<String> interestedKeys) {
+    addChangeListener(listener, interestedKeys, null);
+  }
+
+  /**
+   * Add change listener to this config instance, will only be notified when any of the interested keys is changed, or
+   * any of the keys starting with the interested key prefixes is changed in this namespace. The change event only
+   * contains the interested changes.
+   *
+   * @param listener the config change listener
+   * @param interestedKeys the keys interested by the listener, could be null
+   * @param interestedKeyPrefixes the key prefixes interested by the listener, e.g. "redis." for "redis.host" and
+   *        "redis.port", could be null
+   */
+  public synchronized void addChangeListener(ConfigChangeListener listener, Set<String> interestedKeys,
+      Set<String> interestedKeyPrefixes) {
+    if (m_router.contains(listener)) {
+      return;
     }
+    //the listener is added with its routes at once, so it's never notified of all the changes
+    m_router = m_router.with(listener, interestedKeys != null ? interestedKeys : Collections.<String>emptySet(),
+        interestedKeyPrefixes != null ? interestedKeyPrefixes : Collections.<String>emptySet());
   }
 
   @Override
   public Integer getIntProperty(String key, Integer defaultValue) {
     try {
-      if (m_integerCache == null) {
-        synchronized (this) {
-          if (m_integerCache == null) {
-            m_integerCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_INT_FUNCTION, m_integerCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.INTEGER, Functions.TO_INT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getIntProperty for %s failed, return default value %d", key,
@@ -99,15 +121,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Long getLongProperty(String key, Long defaultValue) {
     try {
-      if (m_longCache == null) {
-        synchronized (this) {
-          if (m_longCache == null) {
-            m_longCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_LONG_FUNCTION, m_longCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.LONG, Functions.TO_LONG_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getLongProperty for %s failed, return default value %d", key,
@@ -119,15 +133,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Short getShortProperty(String key, Short defaultValue) {
     try {
-      if (m_shortCache == null) {
-        synchronized (this) {
-          if (m_shortCache == null) {
-            m_shortCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_SHORT_FUNCTION, m_shortCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.SHORT, Functions.TO_SHORT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getShortProperty for %s failed, return default value %d", key,
@@ -139,15 +145,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Float getFloatProperty(String key, Float defaultValue) {
     try {
-      if (m_floatCache == null) {
-        synchronized (this) {
-          if (m_floatCache == null) {
-            m_floatCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_FLOAT_FUNCTION, m_floatCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.FLOAT, Functions.TO_FLOAT_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getFloatProperty for %s failed, return default value %f", key,
@@ -159,15 +157,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Double getDoubleProperty(String key, Double defaultValue) {
     try {
-      if (m_doubleCache == null) {
-        synchronized (this) {
-          if (m_doubleCache == null) {
-            m_doubleCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DOUBLE_FUNCTION, m_doubleCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.DOUBLE, Functions.TO_DOUBLE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDoubleProperty for %s failed, return default value %f", key,
@@ -179,15 +169,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Byte getByteProperty(String key, Byte defaultValue) {
     try {
-      if (m_byteCache == null) {
-        synchronized (this) {
-          if (m_byteCache == null) {
-            m_byteCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_BYTE_FUNCTION, m_byteCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.BYTE, Functions.TO_BYTE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getByteProperty for %s failed, return default value %d", key,
@@ -199,15 +181,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Boolean getBooleanProperty(String key, Boolean defaultValue) {
     try {
-      if (m_booleanCache == null) {
-        synchronized (this) {
-          if (m_booleanCache == null) {
-            m_booleanCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_BOOLEAN_FUNCTION, m_booleanCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.BOOLEAN, Functions.TO_BOOLEAN_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getBooleanProperty for %s failed, return default value %b", key,
@@ -219,27 +193,22 @@ public abstract class AbstractConfig implements Config {
   @Override
   public String[] getArrayProperty(String key, final String delimiter, String[] defaultValue) {
     try {
-      if (!m_arrayCache.containsKey(delimiter)) {
-        synchronized (this) {
-          if (!m_arrayCache.containsKey(delimiter)) {
-            m_arrayCache.put(delimiter, this.<String[]>newCache());
-          }
-        }
-      }
-
-      Cache<String, String[]> cache = m_arrayCache.get(delimiter);
-      String[] result = cache.getIfPresent(key);
+      TypedValueSnapshot snapshot = m_snapshot.get();
+      long now = System.nanoTime();
+      String[] result = snapshot.getArray(delimiter, key, now);
 
       if (result != null) {
         return result;
       }
 
-      return getValueAndStoreToCache(key, new Function<String, String[]>() {
-        @Override
-        public String[] apply(String input) {
-          return input.split(delimiter);
-        }
-      }, cache, defaultValue);
+      String value = getProperty(key, null);
+
+      if (value != null) {
+        result = value.split(delimiter);
+        //not cached if the snapshot is full
+        snapshot.putArray(delimiter, key, result, now);
+        return result;
+      }
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getArrayProperty for %s failed, return default value", key), ex));
@@ -267,15 +236,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public Date getDateProperty(String key, Date defaultValue) {
     try {
-      if (m_dateCache == null) {
-        synchronized (this) {
-          if (m_dateCache == null) {
-            m_dateCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DATE_FUNCTION, m_dateCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.DATE, Functions.TO_DATE_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDateProperty for %s failed, return default value %s", key,
@@ -322,15 +283,7 @@ public abstract class AbstractConfig implements Config {
   @Override
   public long getDurationProperty(String key, long defaultValue) {
     try {
-      if (m_durationCache == null) {
-        synchronized (this) {
-          if (m_durationCache == null) {
-            m_durationCache = newCache();
-          }
-        }
-      }
-
-      return getValueFromCache(key, Functions.TO_DURATION_FUNCTION, m_durationCache, defaultValue);
+      return getValueFromSnapshot(key, TypedValueSnapshot.DURATION, Functions.TO_DURATION_FUNCTION, defaultValue);
     } catch (Throwable ex) {
       Tracer.logError(new ApolloConfigException(
           String.format("getDurationProperty for %s failed, return default value %d", key,
@@ -340,29 +293,86 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
-  private <T> T getValueFromCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    T result = cache.getIfPresent(key);
+  /**
+   * Bind the properties to an object of the type, the field names are used as the property names. Equivalent to
+   * {@code bind("", type)}.
+   *
+   * @param type the type of the bound object
+   * @param <T>  the type of the bound object
+   * @return the binding
+   * @see #bind(String, Class)
+   */
+  public <T> ConfigBinding<T> bind(Class<T> type) {
+    return bind("", type);
+  }
 
-    if (result != null) {
-      return result;
+  /**
+   * Bind the properties with the prefix to an object of the type. The type should have a no-arg constructor, and
+   * the non-static, non-transient fields are bound as follows:
+   * <ul>
+   * <li>String, primitives and their wrappers, enums and Dates are bound to the property {@code prefix + fieldName},
+   * or {@code prefix + key} if customized with {@link com.ctrip.framework.apollo.bind.BindKey}</li>
+   * <li>Lists of the types above are bound to the property split by the delimiter, which is "," by default</li>
+   * <li>Fields of the other types are bound as nested objects with the prefix {@code prefix + fieldName + "."}</li>
+   * </ul>
+   * The fields keep the values initialized by the constructor if the properties don't exist or can't be parsed.
+   *
+   * <p>The object is rebuilt and published atomically only when the bound properties change, so reading the binding
+   * is cheaper than reading the properties. The same binding is returned for the same prefix and type. Use {@link
+   * com.ctrip.framework.apollo.bind.ConfigBindings} to bind a {@link Config}.</p>
+   *
+   * @param prefix the prefix of the property names, e.g. "redis."
+   * @param type   the type of the bound object
+   * @param <T>    the type of the bound object
+   * @return the binding
+   * @throws com.ctrip.framework.apollo.exceptions.ApolloConfigException if the type can't be bound
+   */
+  @SuppressWarnings("unchecked")
+  public <T> ConfigBinding<T> bind(String prefix, Class<T> type) {
+    prefix = Strings.nullToEmpty(prefix);
+    String bindingKey = BINDING_KEY_JOINER.join(prefix, type.getName());
+    DefaultConfigBinding<T> binding = (DefaultConfigBinding<T>) m_bindings.get(bindingKey);
+    if (binding == null) {
+      DefaultConfigBinding<T> created = new DefaultConfigBinding<>(this, ConfigBinder.compile(prefix, type));
+      binding = (DefaultConfigBinding<T>) m_bindings.putIfAbsent(bindingKey, created);
+      if (binding == null) {
+        binding = created;
+      }
     }
+    //registered before bound, so the changes after the binding are never missed
+    binding.initialize();
+    return binding;
+  }
 
-    return getValueAndStoreToCache(key, parser, cache, defaultValue);
+  /**
+   * Return how long the config is behind the config service, e.g. when it's served from the local cache file before
+   * it's synced with the config service. The configs not backed by a config repository are considered up to date.
+   *
+   * @return the staleness in milliseconds, 0 if the config is synced with the config service, or {@link
+   * Long#MAX_VALUE} if no config is loaded
+   * @see com.ctrip.framework.apollo.Configs#getStalenessInMillis(Config)
+   */
+  public long getStalenessInMillis() {
+    return 0;
   }
 
-  private <T> T getValueAndStoreToCache(String key, Function<String, T> parser, Cache<String, T> cache, T defaultValue) {
-    long currentConfigVersion = m_configVersion.get();
+  private <T> T getValueFromSnapshot(String key, int type, Function<String, T> parser, T defaultValue) {
+    TypedValueSnapshot snapshot = m_snapshot.get();
+    long now = System.nanoTime();
+    T result = snapshot.get(type, key, now);
+
+    if (result != null) {
+      return result;
+    }
+
     String value = getProperty(key, null);
 
     if (value != null) {
-      T result = parser.apply(value);
+      result = parser.apply(value);
 
       if (result != null) {
-        synchronized (this) {
-          if (m_configVersion.get() == currentConfigVersion) {
-            cache.put(key, result);
-          }
-        }
+        //not cached if the snapshot is full
+        snapshot.put(type, key, result, now);
         return result;
       }
     }
@@ -370,53 +380,90 @@ public abstract class AbstractConfig implements Config {
     return defaultValue;
   }
 
-  private <T> Cache<String, T> newCache() {
-    Cache<String, T> cache = CacheBuilder.newBuilder()
-        .maximumSize(m_configUtil.getMaxConfigCacheSize())
-        .expireAfterAccess(m_configUtil.getConfigCacheExpireTime(), m_configUtil.getConfigCacheExpireTimeUnit())
-        .build();
-    allCaches.add(cache);
-    return cache;
+  private TypedValueSnapshot newSnapshot() {
+    return new TypedValueSnapshot(m_maxSnapshotSize, m_snapshotExpireTimeInNanos, System.nanoTime());
   }
 
   /**
-   * Clear config cache
+   * Clear config cache, should be called after the config properties are updated
    */
   protected void clearConfigCache() {
-    synchronized (this) {
-      for (Cache c : allCaches) {
-        if (c != null) {
-          c.invalidateAll();
-        }
+    m_snapshot.set(newSnapshot());
+  }
+
+  protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
+    //rebind before notifying the listeners, so they see the new bindings
+    rebind(changeEvent);
+
+    ConfigChangeListenerRouter router = m_router;
+    for (ConfigChangeListener listener : router.getUnroutedListeners()) {
+      m_dispatcher.dispatch(listener, changeEvent);
+    }
+    for (Map.Entry<ConfigChangeListener, ConfigChangeEvent> routed : router.route(changeEvent).entrySet()) {
+      m_dispatcher.dispatch(routed.getKey(), routed.getValue());
+    }
+  }
+
+  /**
+   * Merge the event into the pending one of a listener which is still busy, the changes of a key are merged into one
+   * from its oldest value to its newest value
+   *
+   * @return the merged event, or null if all the keys are changed back
+   */
+  static ConfigChangeEvent mergeConfigChanges(ConfigChangeEvent pending, ConfigChangeEvent event) {
+    Map<String, ConfigChange> changes = Maps.newLinkedHashMap();
+    for (String key : pending.changedKeys()) {
+      changes.put(key, pending.getChange(key));
+    }
+    for (String key : event.changedKeys()) {
+      ConfigChange change = event.getChange(key);
+      ConfigChange pendingChange = changes.remove(key);
+      if (pendingChange == null) {
+        changes.put(key, change);
+        continue;
+      }
+      String oldValue = pendingChange.getOldValue();
+      String newValue = change.getNewValue();
+      if (Objects.equal(oldValue, newValue)) {
+        continue;
+      }
+      PropertyChangeType changeType = PropertyChangeType.MODIFIED;
+      if (oldValue == null) {
+        changeType = PropertyChangeType.ADDED;
+      } else if (newValue == null) {
+        changeType = PropertyChangeType.DELETED;
       }
-      m_configVersion.incrementAndGet();
+      changes.put(key, new ConfigChange(event.getNamespace(), key, oldValue, newValue, changeType));
     }
+    if (changes.isEmpty()) {
+      return null;
+    }
+    return new ConfigChangeEvent(event.getNamespace(), changes);
   }
 
-  protected void fireConfigChange(final ConfigChangeEvent changeEvent) {
-    for (final ConfigChangeListener listener : m_listeners) {
-      m_executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          String listenerName = listener.getClass().getName();
-          Transaction transaction = Tracer.newTransaction("Apollo.ConfigChangeListener", listenerName);
-          try {
-            listener.onChange(changeEvent);
-            transaction.setStatus(Transaction.SUCCESS);
-          } catch (Throwable ex) {
-            transaction.setStatus(ex);
-            Tracer.logError(ex);
-            logger.error("Failed to invoke config change listener {}", listenerName, ex);
-          } finally {
-            transaction.complete();
-          }
-        }
-      });
+  /**
+   * @return the metrics of the change listeners, e.g. to find out the slow listeners
+   */
+  List<ChangeListenerDispatcher.ListenerMetrics> getChangeListenerMetrics() {
+    return m_dispatcher.getListenerMetrics();
+  }
+
+  private void rebind(ConfigChangeEvent changeEvent) {
+    for (DefaultConfigBinding<?> binding : m_bindings.values()) {
+      try {
+        binding.rebindIfChanged(changeEvent.changedKeys());
+      } catch (Throwable ex) {
+        Tracer.logError(ex);
+        logger.error("Failed to rebind config for namespace {}", changeEvent.getNamespace(), ex);
+      }
     }
   }
 
+  /**
+   * Calculate the changes of the changed keys only
+   */
   List<ConfigChange> calcPropertyChanges(String namespace, Properties previous,
-                                         Properties current) {
+                                         Properties current, Set<String> changedKeys) {
     if (previous == null) {
       previous = new Properties();
     }
@@ -425,33 +472,21 @@ public abstract class AbstractConfig implements Config {
       current = new Properties();
     }
 
-    Set<String> previousKeys = previous.stringPropertyNames();
-    Set<String> currentKeys = current.stringPropertyNames();
-
-    Set<String> commonKeys = Sets.intersection(previousKeys, currentKeys);
-    Set<String> newKeys = Sets.difference(currentKeys, commonKeys);
-    Set<String> removedKeys = Sets.difference(previousKeys, commonKeys);
-
-    List<ConfigChange> changes = Lists.newArrayList();
-
-    for (String newKey : newKeys) {
-      changes.add(new ConfigChange(namespace, newKey, null, current.getProperty(newKey),
-          PropertyChangeType.ADDED));
-    }
-
-    for (String removedKey : removedKeys) {
-      changes.add(new ConfigChange(namespace, removedKey, previous.getProperty(removedKey), null,
-          PropertyChangeType.DELETED));
-    }
+    List<ConfigChange> changes = Lists.newArrayListWithCapacity(changedKeys.size());
 
-    for (String commonKey : commonKeys) {
-      String previousValue = previous.getProperty(commonKey);
-      String currentValue = current.getProperty(commonKey);
+    for (String changedKey : changedKeys) {
+      String previousValue = previous.getProperty(changedKey);
+      String currentValue = current.getProperty(changedKey);
       if (Objects.equal(previousValue, currentValue)) {
         continue;
       }
-      changes.add(new ConfigChange(namespace, commonKey, previousValue, currentValue,
-          PropertyChangeType.MODIFIED));
+      PropertyChangeType changeType = PropertyChangeType.MODIFIED;
+      if (previousValue == null) {
+        changeType = PropertyChangeType.ADDED;
+      } else if (currentValue == null) {
+        changeType = PropertyChangeType.DELETED;
+      }
+      changes.add(new ConfigChange(namespace, changedKey, previousValue, currentValue, changeType));
     }
 
     return changes;
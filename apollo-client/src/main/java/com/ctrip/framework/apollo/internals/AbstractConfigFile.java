@@ -2,8 +2,6 @@ package com.ctrip.framework.apollo.internals;
 
 import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -11,29 +9,35 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.ConfigFileChangeListener;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigFileChangeEvent;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public abstract class AbstractConfigFile implements ConfigFile, RepositoryChangeListener {
+public abstract class AbstractConfigFile implements ConfigFile, RepositoryChangeSetListener {
   private static final Logger logger = LoggerFactory.getLogger(AbstractConfigFile.class);
-  private static ExecutorService m_executorService;
   protected ConfigRepository m_configRepository;
   protected String m_namespace;
   protected AtomicReference<Properties> m_configProperties;
   private List<ConfigFileChangeListener> m_listeners = Lists.newCopyOnWriteArrayList();
+  private final ChangeListenerDispatcher<ConfigFileChangeListener, ConfigFileChangeEvent> m_dispatcher =
+      new ChangeListenerDispatcher<ConfigFileChangeListener, ConfigFileChangeEvent>(
+          "Apollo.ConfigFileChangeListener") {
+        @Override
+        protected ConfigFileChangeEvent merge(ConfigFileChangeEvent pending, ConfigFileChangeEvent event) {
+          return mergeConfigFileChanges(pending, event);
+        }
 
-  static {
-    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory
-        .create("ConfigFile", true));
-  }
+        @Override
+        protected void onChange(ConfigFileChangeListener listener, ConfigFileChangeEvent event) {
+          listener.onChange(event);
+        }
+      };
 
   public AbstractConfigFile(String namespace, ConfigRepository configRepository) {
     m_configRepository = configRepository;
@@ -63,17 +67,22 @@ public abstract class AbstractConfigFile implements ConfigFile, RepositoryChange
 
   protected abstract void update(Properties newProperties);
 
+  /**
+   * The content is replaced as a whole, so the changed keys are not used
+   */
+  @Override
+  public void onRepositoryChange(String namespace, Properties newProperties, RepositoryChangeSet changeSet) {
+    onRepositoryChange(namespace, newProperties);
+  }
+
   @Override
   public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
     if (newProperties.equals(m_configProperties.get())) {
       return;
     }
-    Properties newConfigProperties = new Properties();
-    newConfigProperties.putAll(newProperties);
-
     String oldValue = getContent();
 
-    update(newProperties);
+    update(ConfigSnapshot.of(newProperties));
 
     String newValue = getContent();
 
@@ -97,25 +106,27 @@ public abstract class AbstractConfigFile implements ConfigFile, RepositoryChange
     }
   }
 
-  private void fireConfigChange(final ConfigFileChangeEvent changeEvent) {
-    for (final ConfigFileChangeListener listener : m_listeners) {
-      m_executorService.submit(new Runnable() {
-        @Override
-        public void run() {
-          String listenerName = listener.getClass().getName();
-          Transaction transaction = Tracer.newTransaction("Apollo.ConfigFileChangeListener", listenerName);
-          try {
-            listener.onChange(changeEvent);
-            transaction.setStatus(Transaction.SUCCESS);
-          } catch (Throwable ex) {
-            transaction.setStatus(ex);
-            Tracer.logError(ex);
-            logger.error("Failed to invoke config file change listener {}", listenerName, ex);
-          } finally {
-            transaction.complete();
-          }
-        }
-      });
+  private void fireConfigChange(ConfigFileChangeEvent changeEvent) {
+    m_dispatcher.dispatch(m_listeners, changeEvent);
+  }
+
+  /**
+   * Merge the event into the pending one of a listener which is still busy
+   *
+   * @return the merged event from the oldest content to the newest content, or null if the content is changed back
+   */
+  static ConfigFileChangeEvent mergeConfigFileChanges(ConfigFileChangeEvent pending, ConfigFileChangeEvent event) {
+    String oldValue = pending.getOldValue();
+    String newValue = event.getNewValue();
+    if (Objects.equal(oldValue, newValue)) {
+      return null;
+    }
+    PropertyChangeType changeType = PropertyChangeType.MODIFIED;
+    if (oldValue == null) {
+      changeType = PropertyChangeType.ADDED;
+    } else if (newValue == null) {
+      changeType = PropertyChangeType.DELETED;
     }
+    return new ConfigFileChangeEvent(event.getNamespace(), oldValue, newValue, changeType);
   }
 }
@@ -32,6 +32,23 @@ public abstract class AbstractConfigRepository implements ConfigRepository {
 
   protected abstract void sync();
 
+  /**
+   * Get how long the config of this repository is behind the config service.
+   * @return the staleness in milliseconds, 0 if the config is synced with the config service, or Long.MAX_VALUE if
+   * no config is loaded
+   */
+  public long getStalenessInMillis() {
+    return 0;
+  }
+
+  /**
+   * @return the staleness of the repository, 0 if the repository doesn't track it
+   */
+  static long stalenessOf(ConfigRepository repository) {
+    return repository instanceof AbstractConfigRepository ?
+        ((AbstractConfigRepository) repository).getStalenessInMillis() : 0;
+  }
+
   @Override
   public void addChangeListener(RepositoryChangeListener listener) {
     if (!m_listeners.contains(listener)) {
@@ -44,10 +61,14 @@ public abstract class AbstractConfigRepository implements ConfigRepository {
     m_listeners.remove(listener);
   }
 
-  protected void fireRepositoryChange(String namespace, Properties newProperties) {
+  protected void fireRepositoryChange(String namespace, Properties newProperties, RepositoryChangeSet changeSet) {
     for (RepositoryChangeListener listener : m_listeners) {
       try {
-        listener.onRepositoryChange(namespace, newProperties);
+        if (listener instanceof RepositoryChangeSetListener) {
+          ((RepositoryChangeSetListener) listener).onRepositoryChange(namespace, newProperties, changeSet);
+        } else {
+          listener.onRepositoryChange(namespace, newProperties);
+        }
       } catch (Throwable ex) {
         Tracer.logError(ex);
         logger.error("Failed to invoke repository change listener {}", listener.getClass(), ex);
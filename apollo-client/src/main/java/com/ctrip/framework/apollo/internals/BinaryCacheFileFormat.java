@@ -0,0 +1,143 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Charsets;
+
+/**
+ * The binary format of the local cache files:
+ *
+ * <pre>
+ * magic(4 bytes) version(1 byte) properties file checksum(8 bytes) count(4 bytes)
+ * [key length(4 bytes) key(UTF-8) value length(4 bytes) value(UTF-8)] * count
+ * crc32 of all the bytes above(8 bytes)
+ * </pre>
+ *
+ * It's loaded without the escaping and line parsing of the properties format, and a corrupted file is detected by the
+ * checksum. The properties file checksum is the crc32 of the properties file persisted along with it, so the binary
+ * file is known to be stale when the properties file doesn't match, e.g. it's modified manually.
+ */
+final class BinaryCacheFileFormat {
+  private static final int MAGIC = 0x41504c43; //APLC
+  private static final byte VERSION = 2;
+  private static final int CHECKSUM_LENGTH = 8;
+  //magic, version and properties file checksum
+  private static final int HEADER_LENGTH = 13;
+
+  private BinaryCacheFileFormat() {
+  }
+
+  /**
+   * Encode the properties without a properties file, e.g. to share them with the other processes
+   */
+  static byte[] encode(Properties properties) throws IOException {
+    return encode(properties, 0);
+  }
+
+  /**
+   * @param propertiesFileChecksum the checksum of the properties file persisted along with the binary file
+   */
+  static byte[] encode(Properties properties, long propertiesFileChecksum) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+    out.writeLong(propertiesFileChecksum);
+    out.writeInt(properties.size());
+    for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+      writeString(out, String.valueOf(entry.getKey()));
+      writeString(out, String.valueOf(entry.getValue()));
+    }
+    out.writeLong(checksum(bytes.toByteArray()));
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IOException if the content is not in the binary format or is corrupted
+   */
+  static Properties decode(byte[] content) throws IOException {
+    if (content.length < CHECKSUM_LENGTH) {
+      throw new IOException("Binary cache file is truncated");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(content);
+    CRC32 crc32 = new CRC32();
+    crc32.update(content, 0, content.length - CHECKSUM_LENGTH);
+    if (crc32.getValue() != buffer.getLong(content.length - CHECKSUM_LENGTH)) {
+      throw new IOException("Binary cache file checksum mismatch");
+    }
+
+    try {
+      readHeader(buffer);
+      int count = buffer.getInt();
+      Properties properties = new Properties();
+      for (int i = 0; i < count; i++) {
+        String key = readString(buffer);
+        properties.setProperty(key, readString(buffer));
+      }
+      if (buffer.position() != content.length - CHECKSUM_LENGTH) {
+        throw new IOException("Binary cache file has unexpected trailing bytes");
+      }
+      return properties;
+    } catch (BufferUnderflowException | IllegalArgumentException ex) {
+      throw new IOException("Binary cache file is malformed", ex);
+    }
+  }
+
+  /**
+   * @return the checksum of the properties file persisted along with the binary file
+   * @throws IOException if the content is not in the binary format
+   */
+  static long decodePropertiesFileChecksum(byte[] content) throws IOException {
+    if (content.length < HEADER_LENGTH) {
+      throw new IOException("Binary cache file is truncated");
+    }
+    return readHeader(ByteBuffer.wrap(content));
+  }
+
+  /**
+   * @return the properties file checksum in the header
+   */
+  private static long readHeader(ByteBuffer buffer) throws IOException {
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException("Not a binary cache file");
+    }
+    byte version = buffer.get();
+    if (version != VERSION) {
+      throw new IOException(String.format("Unsupported binary cache file version %d", version));
+    }
+    return buffer.getLong();
+  }
+
+  /**
+   * @return the checksum of the properties file content
+   */
+  static long checksum(byte[] content) {
+    CRC32 crc32 = new CRC32();
+    crc32.update(content);
+    return crc32.getValue();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid string length " + length);
+    }
+    String value = new String(buffer.array(), buffer.position(), length, Charsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+}
@@ -0,0 +1,267 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.metrics.MetricNames;
+import com.ctrip.framework.apollo.metrics.Metrics;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatch the change events to the listeners on a bounded thread pool, which is shared by all the configs and config
+ * files.
+ *
+ * The events of a listener are delivered one at a time and in order. The events which come while the listener is
+ * still busy are merged into one event covering all the pending changes, so a listener falling behind sees the latest
+ * state only, instead of a queue of stale events.
+ *
+ * @param <L> the type of the listeners
+ * @param <E> the type of the change events
+ */
+abstract class ChangeListenerDispatcher<L, E> {
+  private static final Logger logger = LoggerFactory.getLogger(ChangeListenerDispatcher.class);
+  private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+  static final long SLOW_LISTENER_THRESHOLD_IN_MILLIS = 1000;
+  private static final Executor m_sharedExecutor;
+
+  private final String m_transactionType;
+  private final Executor m_executor;
+  //listener -> the slot holding its pending event
+  private final ConcurrentMap<L, ListenerSlot> m_slots = Maps.newConcurrentMap();
+
+  static {
+    //at most one task per listener is queued, so the queue is bounded by the number of listeners
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), ApolloThreadFactory.create("ChangeListenerDispatcher", true));
+    executor.allowCoreThreadTimeOut(true);
+    m_sharedExecutor = executor;
+  }
+
+  /**
+   * @param transactionType the transaction type of the listener invocations, e.g. Apollo.ConfigChangeListener
+   */
+  ChangeListenerDispatcher(String transactionType) {
+    this(transactionType, m_sharedExecutor);
+  }
+
+  ChangeListenerDispatcher(String transactionType, Executor executor) {
+    m_transactionType = transactionType;
+    m_executor = executor;
+  }
+
+  /**
+   * Merge the event into the pending one of the listener
+   *
+   * @return the merged event, or null if the changes cancel each other out
+   */
+  protected abstract E merge(E pending, E event);
+
+  protected abstract void onChange(L listener, E event);
+
+  void dispatch(Iterable<L> listeners, E event) {
+    for (L listener : listeners) {
+      dispatch(listener, event);
+    }
+  }
+
+  void dispatch(L listener, E event) {
+    getSlot(listener).offer(event);
+  }
+
+  /**
+   * @return the metrics of the listeners, e.g. to find out the slow listeners
+   */
+  List<ListenerMetrics> getListenerMetrics() {
+    List<ListenerMetrics> metrics = Lists.newArrayListWithCapacity(m_slots.size());
+    for (ListenerSlot slot : m_slots.values()) {
+      metrics.add(slot.m_metrics);
+    }
+    return metrics;
+  }
+
+  private ListenerSlot getSlot(L listener) {
+    ListenerSlot slot = m_slots.get(listener);
+    if (slot == null) {
+      slot = new ListenerSlot(listener);
+      ListenerSlot previous = m_slots.putIfAbsent(listener, slot);
+      if (previous != null) {
+        slot = previous;
+      }
+    }
+    return slot;
+  }
+
+  private class ListenerSlot implements Runnable {
+    private final L m_listener;
+    private final ListenerMetrics m_metrics;
+    //guarded by this
+    private E m_pendingEvent;
+    //guarded by this, whether a task of this slot is submitted or running
+    private boolean m_scheduled;
+
+    ListenerSlot(L listener) {
+      m_listener = listener;
+      m_metrics = new ListenerMetrics(listener.getClass().getName());
+    }
+
+    void offer(E event) {
+      synchronized (this) {
+        if (m_pendingEvent == null) {
+          m_pendingEvent = event;
+        } else {
+          m_pendingEvent = merge(m_pendingEvent, event);
+          m_metrics.m_coalescedEvents++;
+          Metrics.incrementCounter(MetricNames.CHANGE_LISTENER_COALESCED_EVENTS, m_metrics.getListenerName());
+        }
+        if (m_scheduled) {
+          return;
+        }
+        m_scheduled = true;
+      }
+      submit();
+    }
+
+    @Override
+    public void run() {
+      E event;
+      synchronized (this) {
+        event = m_pendingEvent;
+        m_pendingEvent = null;
+        if (event == null) {
+          m_scheduled = false;
+          return;
+        }
+      }
+      try {
+        invoke(event);
+      } finally {
+        boolean hasPendingEvent;
+        synchronized (this) {
+          hasPendingEvent = m_pendingEvent != null;
+          m_scheduled = hasPendingEvent;
+        }
+        //resubmit instead of looping, so the other listeners get their turns
+        if (hasPendingEvent) {
+          submit();
+        }
+      }
+    }
+
+    private void submit() {
+      try {
+        m_executor.execute(this);
+      } catch (RejectedExecutionException ex) {
+        synchronized (this) {
+          m_scheduled = false;
+        }
+        Tracer.logError(ex);
+        logger.error("Failed to dispatch change event to listener {}", m_metrics.getListenerName(), ex);
+      }
+    }
+
+    private void invoke(E event) {
+      String listenerName = m_metrics.getListenerName();
+      Transaction transaction = Tracer.newTransaction(m_transactionType, listenerName);
+      long start = System.nanoTime();
+      try {
+        onChange(m_listener, event);
+        transaction.setStatus(Transaction.SUCCESS);
+      } catch (Throwable ex) {
+        transaction.setStatus(ex);
+        Tracer.logError(ex);
+        logger.error("Failed to invoke change listener {}", listenerName, ex);
+      } finally {
+        transaction.complete();
+        long elapsed = System.nanoTime() - start;
+        long elapsedInMillis = m_metrics.record(elapsed);
+        Metrics.recordLatency(MetricNames.CHANGE_LISTENER_LATENCY, listenerName, elapsed);
+        if (elapsedInMillis >= SLOW_LISTENER_THRESHOLD_IN_MILLIS) {
+          Metrics.incrementCounter(MetricNames.CHANGE_LISTENER_SLOW_INVOCATIONS, listenerName);
+          Tracer.logEvent("Apollo.Client.SlowChangeListener", listenerName);
+          logger.warn("Change listener {} took {} ms", listenerName, elapsedInMillis);
+        }
+      }
+    }
+  }
+
+  /**
+   * The metrics of a listener, which is written by one thread at a time
+   */
+  static class ListenerMetrics {
+    private final String m_listenerName;
+    private volatile long m_invocations;
+    private volatile long m_coalescedEvents;
+    private volatile long m_slowInvocations;
+    private volatile long m_totalTimeInNanos;
+    private volatile long m_maxTimeInNanos;
+
+    ListenerMetrics(String listenerName) {
+      m_listenerName = listenerName;
+    }
+
+    /**
+     * @return the elapsed time in milliseconds
+     */
+    private long record(long elapsedInNanos) {
+      long elapsedInMillis = TimeUnit.NANOSECONDS.toMillis(elapsedInNanos);
+      m_invocations++;
+      m_totalTimeInNanos += elapsedInNanos;
+      if (elapsedInNanos > m_maxTimeInNanos) {
+        m_maxTimeInNanos = elapsedInNanos;
+      }
+      if (elapsedInMillis >= SLOW_LISTENER_THRESHOLD_IN_MILLIS) {
+        m_slowInvocations++;
+      }
+      return elapsedInMillis;
+    }
+
+    String getListenerName() {
+      return m_listenerName;
+    }
+
+    long getInvocations() {
+      return m_invocations;
+    }
+
+    /**
+     * @return the number of events merged into the pending ones, instead of being delivered separately
+     */
+    long getCoalescedEvents() {
+      return m_coalescedEvents;
+    }
+
+    /**
+     * @return the number of invocations taking no less than {@link #SLOW_LISTENER_THRESHOLD_IN_MILLIS}
+     */
+    long getSlowInvocations() {
+      return m_slowInvocations;
+    }
+
+    long getTotalTimeInNanos() {
+      return m_totalTimeInNanos;
+    }
+
+    long getMaxTimeInNanos() {
+      return m_maxTimeInNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s{invocations=%d, coalescedEvents=%d, slowInvocations=%d, totalTime=%dms, maxTime=%dms}",
+          m_listenerName, m_invocations, m_coalescedEvents, m_slowInvocations,
+          TimeUnit.NANOSECONDS.toMillis(m_totalTimeInNanos), TimeUnit.NANOSECONDS.toMillis(m_maxTimeInNanos));
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.bind.BindKey;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.function.Functions;
+import com.google.common.base.Function;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Bind the properties to an object of a type, with the fields, the property names and the parsers resolved once when
+ * it's compiled.
+ */
+class ConfigBinder<T> {
+  private static final Map<Class<?>, Function<String, ?>> PARSERS =
+      ImmutableMap.<Class<?>, Function<String, ?>>builder()
+      .put(String.class, com.google.common.base.Functions.<String>identity())
+      .put(Integer.class, Functions.TO_INT_FUNCTION)
+      .put(int.class, Functions.TO_INT_FUNCTION)
+      .put(Long.class, Functions.TO_LONG_FUNCTION)
+      .put(long.class, Functions.TO_LONG_FUNCTION)
+      .put(Short.class, Functions.TO_SHORT_FUNCTION)
+      .put(short.class, Functions.TO_SHORT_FUNCTION)
+      .put(Float.class, Functions.TO_FLOAT_FUNCTION)
+      .put(float.class, Functions.TO_FLOAT_FUNCTION)
+      .put(Double.class, Functions.TO_DOUBLE_FUNCTION)
+      .put(double.class, Functions.TO_DOUBLE_FUNCTION)
+      .put(Byte.class, Functions.TO_BYTE_FUNCTION)
+      .put(byte.class, Functions.TO_BYTE_FUNCTION)
+      .put(Boolean.class, Functions.TO_BOOLEAN_FUNCTION)
+      .put(boolean.class, Functions.TO_BOOLEAN_FUNCTION)
+      .put(Date.class, Functions.TO_DATE_FUNCTION)
+      .build();
+
+  private final Class<T> m_type;
+  private final Constructor<T> m_constructor;
+  private final List<FieldBinder> m_fields;
+  private final Set<String> m_keys;
+
+  private ConfigBinder(Class<T> type, Constructor<T> constructor, List<FieldBinder> fields) {
+    m_type = type;
+    m_constructor = constructor;
+    m_fields = fields;
+    ImmutableSet.Builder<String> keys = ImmutableSet.builder();
+    for (FieldBinder field : fields) {
+      keys.addAll(field.keys());
+    }
+    m_keys = keys.build();
+  }
+
+  static <T> ConfigBinder<T> compile(String prefix, Class<T> type) {
+    return compile(Strings.nullToEmpty(prefix), type, Sets.<Class<?>>newHashSet());
+  }
+
+  private static <T> ConfigBinder<T> compile(String prefix, Class<T> type, Set<Class<?>> compiling) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+      throw new ApolloConfigException(String.format("Could not bind to interface or abstract class %s", type.getName()));
+    }
+    if (!compiling.add(type)) {
+      throw new ApolloConfigException(String.format("Could not bind to %s, as it's nested in itself", type.getName()));
+    }
+
+    Constructor<T> constructor;
+    try {
+      constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+    } catch (NoSuchMethodException ex) {
+      throw new ApolloConfigException(String.format("Could not bind to %s without a no-arg constructor", type.getName()));
+    }
+
+    List<FieldBinder> fields = Lists.newArrayList();
+    for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+      for (Field field : clazz.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+          continue;
+        }
+        field.setAccessible(true);
+        fields.add(compileField(prefix, field, compiling));
+      }
+    }
+
+    compiling.remove(type);
+    return new ConfigBinder<>(type, constructor, fields);
+  }
+
+  private static FieldBinder compileField(String prefix, Field field, Set<Class<?>> compiling) {
+    BindKey bindKey = field.getAnnotation(BindKey.class);
+    String key = prefix + (bindKey == null || bindKey.value().isEmpty() ? field.getName() : bindKey.value());
+    Class<?> fieldType = field.getType();
+
+    if (bindKey != null && bindKey.duration()) {
+      if (fieldType != long.class && fieldType != Long.class) {
+        throw new ApolloConfigException(String.format("Duration field %s should be long", field));
+      }
+      return new ValueBinder(field, key, Functions.TO_DURATION_FUNCTION);
+    }
+
+    Function<String, ?> parser = parserFor(fieldType);
+    if (parser != null) {
+      return new ValueBinder(field, key, parser);
+    }
+
+    if (fieldType == List.class) {
+      Type elementType = Object.class;
+      if (field.getGenericType() instanceof ParameterizedType) {
+        elementType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+      }
+      Function<String, ?> elementParser = elementType instanceof Class ? parserFor((Class<?>) elementType) : null;
+      if (elementParser == null) {
+        throw new ApolloConfigException(String.format("Unsupported element type of list field %s", field));
+      }
+      String delimiter = bindKey == null ? "," : bindKey.delimiter();
+      return new ListBinder(field, key, delimiter, elementParser);
+    }
+
+    if (fieldType.isArray() || fieldType.isPrimitive() || Iterable.class.isAssignableFrom(fieldType)
+        || Map.class.isAssignableFrom(fieldType)) {
+      throw new ApolloConfigException(String.format("Unsupported type of field %s", field));
+    }
+
+    return new NestedBinder(field, compile(key + ".", fieldType, compiling));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<String, ?> parserFor(final Class<?> type) {
+    if (type.isEnum()) {
+      return new Function<String, Object>() {
+        @Override
+        public Object apply(String input) {
+          return Enum.valueOf((Class<Enum>) type, input);
+        }
+      };
+    }
+    return PARSERS.get(type);
+  }
+
+  /**
+   * @return all the property names bound, including the nested ones
+   */
+  Set<String> keys() {
+    return m_keys;
+  }
+
+  Class<T> type() {
+    return m_type;
+  }
+
+  T bind(Config config) {
+    T instance;
+    try {
+      instance = m_constructor.newInstance();
+    } catch (Throwable ex) {
+      throw new ApolloConfigException(String.format("Could not create instance of %s", m_type.getName()), ex);
+    }
+    for (FieldBinder field : m_fields) {
+      field.bind(config, instance);
+    }
+    return instance;
+  }
+
+  private static abstract class FieldBinder {
+    protected final Field m_field;
+
+    FieldBinder(Field field) {
+      m_field = field;
+    }
+
+    abstract Set<String> keys();
+
+    abstract void bind(Config config, Object instance);
+  }
+
+  private static class ValueBinder extends FieldBinder {
+    private final String m_key;
+    private final Function<String, ?> m_parser;
+
+    ValueBinder(Field field, String key, Function<String, ?> parser) {
+      super(field);
+      m_key = key;
+      m_parser = parser;
+    }
+
+    @Override
+    Set<String> keys() {
+      return Collections.singleton(m_key);
+    }
+
+    @Override
+    void bind(Config config, Object instance) {
+      String value = config.getProperty(m_key, null);
+      if (value == null) {
+        return;
+      }
+      try {
+        m_field.set(instance, m_parser.apply(value));
+      } catch (Throwable ex) {
+        //keep the default value
+        Tracer.logError(new ApolloConfigException(
+            String.format("Bind %s to field %s failed, keep the default value", m_key, m_field), ex));
+      }
+    }
+  }
+
+  private static class ListBinder extends FieldBinder {
+    private final String m_key;
+    private final String m_delimiter;
+    private final Function<String, ?> m_elementParser;
+
+    ListBinder(Field field, String key, String delimiter, Function<String, ?> elementParser) {
+      super(field);
+      m_key = key;
+      m_delimiter = delimiter;
+      m_elementParser = elementParser;
+    }
+
+    @Override
+    Set<String> keys() {
+      return Collections.singleton(m_key);
+    }
+
+    @Override
+    void bind(Config config, Object instance) {
+      String value = config.getProperty(m_key, null);
+      if (value == null) {
+        return;
+      }
+      try {
+        ImmutableList.Builder<Object> elements = ImmutableList.builder();
+        for (String element : value.split(m_delimiter)) {
+          String trimmed = element.trim();
+          if (!trimmed.isEmpty()) {
+            elements.add(m_elementParser.apply(trimmed));
+          }
+        }
+        m_field.set(instance, elements.build());
+      } catch (Throwable ex) {
+        //keep the default value
+        Tracer.logError(new ApolloConfigException(
+            String.format("Bind %s to field %s failed, keep the default value", m_key, m_field), ex));
+      }
+    }
+  }
+
+  private static class NestedBinder extends FieldBinder {
+    private final ConfigBinder<?> m_binder;
+
+    NestedBinder(Field field, ConfigBinder<?> binder) {
+      super(field);
+      m_binder = binder;
+    }
+
+    @Override
+    Set<String> keys() {
+      return m_binder.keys();
+    }
+
+    @Override
+    void bind(Config config, Object instance) {
+      try {
+        m_field.set(instance, m_binder.bind(config));
+      } catch (IllegalAccessException ex) {
+        throw new ApolloConfigException(String.format("Could not set field %s", m_field), ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.ConfigChangeListener;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Route the config changes to the listeners interested in the changed keys, with a trie of the interested keys and
+ * key prefixes, so each changed key is matched in one walk of its characters, no matter how many listeners there are.
+ *
+ * It's immutable and holds all the listeners of a config, routed or not, so the listeners and their routes are always
+ * read together. It's rebuilt when a listener is added.
+ */
+final class ConfigChangeListenerRouter {
+  static final ConfigChangeListenerRouter EMPTY = new ConfigChangeListenerRouter(new Node(),
+      ImmutableList.<ConfigChangeListener>of(), ImmutableSet.<ConfigChangeListener>of());
+
+  private final Node m_root;
+  //all the listeners, in the order they are added
+  private final List<ConfigChangeListener> m_listeners;
+  private final Set<ConfigChangeListener> m_routedListeners;
+
+  private ConfigChangeListenerRouter(Node root, List<ConfigChangeListener> listeners,
+      Set<ConfigChangeListener> routedListeners) {
+    m_root = root;
+    m_listeners = listeners;
+    m_routedListeners = routedListeners;
+  }
+
+  /**
+   * @param interestedKeys the keys interested by the listener, could be empty
+   * @param interestedKeyPrefixes the key prefixes interested by the listener, could be empty
+   * @return a new router with the listener added as well, which is notified of all the changes if it's not interested in
+   * any key or key prefix
+   */
+  ConfigChangeListenerRouter with(ConfigChangeListener listener, Set<String> interestedKeys,
+      Set<String> interestedKeyPrefixes) {
+    List<ConfigChangeListener> listeners =
+        ImmutableList.<ConfigChangeListener>builder().addAll(m_listeners).add(listener).build();
+    if (interestedKeys.isEmpty() && interestedKeyPrefixes.isEmpty()) {
+      return new ConfigChangeListenerRouter(m_root, listeners, m_routedListeners);
+    }
+    Node root = m_root.copy();
+    for (String key : interestedKeys) {
+      root.getOrCreate(key).m_keyListeners.add(listener);
+    }
+    for (String prefix : interestedKeyPrefixes) {
+      root.getOrCreate(prefix).m_prefixListeners.add(listener);
+    }
+    return new ConfigChangeListenerRouter(root, listeners,
+        ImmutableSet.<ConfigChangeListener>builder().addAll(m_routedListeners).add(listener).build());
+  }
+
+  boolean contains(ConfigChangeListener listener) {
+    return m_listeners.contains(listener);
+  }
+
+  /**
+   * @return the listeners notified of all the changes, i.e. not routed by their interested keys
+   */
+  List<ConfigChangeListener> getUnroutedListeners() {
+    if (m_routedListeners.isEmpty()) {
+      return m_listeners;
+    }
+    List<ConfigChangeListener> unrouted = Lists.newArrayList();
+    for (ConfigChangeListener listener : m_listeners) {
+      if (!m_routedListeners.contains(listener)) {
+        unrouted.add(listener);
+      }
+    }
+    return unrouted;
+  }
+
+  /**
+   * @return the listeners interested in any of the changes -> the changes they are interested in
+   */
+  Map<ConfigChangeListener, ConfigChangeEvent> route(ConfigChangeEvent changeEvent) {
+    if (m_routedListeners.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<ConfigChangeListener, Map<String, ConfigChange>> routed = Maps.newLinkedHashMap();
+    for (String key : changeEvent.changedKeys()) {
+      Node node = m_root;
+      addChange(routed, node.m_prefixListeners, key, changeEvent);
+      for (int i = 0; i < key.length() && node != null; i++) {
+        node = node.m_children.get(key.charAt(i));
+        if (node != null) {
+          addChange(routed, node.m_prefixListeners, key, changeEvent);
+        }
+      }
+      if (node != null) {
+        addChange(routed, node.m_keyListeners, key, changeEvent);
+      }
+    }
+
+    Map<ConfigChangeListener, ConfigChangeEvent> events = Maps.newLinkedHashMap();
+    for (Map.Entry<ConfigChangeListener, Map<String, ConfigChange>> entry : routed.entrySet()) {
+      events.put(entry.getKey(), new ConfigChangeEvent(changeEvent.getNamespace(), entry.getValue()));
+    }
+    return events;
+  }
+
+  private void addChange(Map<ConfigChangeListener, Map<String, ConfigChange>> routed,
+      List<ConfigChangeListener> listeners, String key, ConfigChangeEvent changeEvent) {
+    for (ConfigChangeListener listener : listeners) {
+      Map<String, ConfigChange> changes = routed.get(listener);
+      if (changes == null) {
+        changes = Maps.newLinkedHashMap();
+        routed.put(listener, changes);
+      }
+      changes.put(key, changeEvent.getChange(key));
+    }
+  }
+
+  private static class Node {
+    private final Map<Character, Node> m_children = Maps.newHashMap();
+    //listeners interested in the key ending at this node
+    private final List<ConfigChangeListener> m_keyListeners = Lists.newArrayList();
+    //listeners interested in the keys starting with the prefix ending at this node
+    private final List<ConfigChangeListener> m_prefixListeners = Lists.newArrayList();
+
+    Node getOrCreate(String key) {
+      Node node = this;
+      for (int i = 0; i < key.length(); i++) {
+        Node child = node.m_children.get(key.charAt(i));
+        if (child == null) {
+          child = new Node();
+          node.m_children.put(key.charAt(i), child);
+        }
+        node = child;
+      }
+      return node;
+    }
+
+    Node copy() {
+      Node copy = new Node();
+      copy.m_keyListeners.addAll(m_keyListeners);
+      copy.m_prefixListeners.addAll(m_prefixListeners);
+      for (Map.Entry<Character, Node> entry : m_children.entrySet()) {
+        copy.m_children.put(entry.getKey(), entry.getValue().copy());
+      }
+      return copy;
+    }
+  }
+}
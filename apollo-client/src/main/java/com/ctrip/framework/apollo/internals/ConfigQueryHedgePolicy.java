@@ -0,0 +1,71 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Arrays;
+
+/**
+ * Decide when to hedge a config query, i.e. to send it to another config service as well if the first one doesn't
+ * respond within a percentile of the recent query latencies, and take whichever responds first.
+ *
+ * The hedges are capped by a budget, which is earned by a ratio of the queries, so the hedges add no more than the ratio
+ * of load to the config services, even when all of them are slow.
+ */
+class ConfigQueryHedgePolicy {
+  private static final int MAX_SAMPLES = 100;
+  private static final int MIN_SAMPLES = 10;
+  //the hedge delay before there are enough latency samples
+  static final long DEFAULT_HEDGE_DELAY_IN_MILLIS = 1000;
+  static final double BUDGET_RATIO = 0.1;
+  static final double MAX_BUDGET = 10;
+
+  private final double m_percentile;
+  //guarded by this, the ring buffer of the recent latencies
+  private final long[] m_samples = new long[MAX_SAMPLES];
+  //guarded by this
+  private int m_sampleCount;
+  //guarded by this
+  private double m_budget = MAX_BUDGET;
+
+  /**
+   * @param percentile the percentile of the latencies to hedge after, e.g. 95
+   */
+  ConfigQueryHedgePolicy(double percentile) {
+    m_percentile = percentile;
+  }
+
+  synchronized void recordLatency(long latencyInMillis) {
+    m_samples[m_sampleCount % MAX_SAMPLES] = latencyInMillis;
+    m_sampleCount++;
+  }
+
+  /**
+   * @return the time to wait for the first config service before hedging
+   */
+  synchronized long getHedgeDelayInMillis() {
+    int size = Math.min(m_sampleCount, MAX_SAMPLES);
+    if (size < MIN_SAMPLES) {
+      return DEFAULT_HEDGE_DELAY_IN_MILLIS;
+    }
+    long[] samples = Arrays.copyOf(m_samples, size);
+    Arrays.sort(samples);
+    int index = (int) Math.ceil(m_percentile / 100 * size) - 1;
+    return samples[Math.max(0, Math.min(index, size - 1))];
+  }
+
+  /**
+   * Earn the budget with a query
+   */
+  synchronized void onQuery() {
+    m_budget = Math.min(MAX_BUDGET, m_budget + BUDGET_RATIO);
+  }
+
+  /**
+   * @return true if there is budget left for a hedge, which is spent then
+   */
+  synchronized boolean tryAcquireHedge() {
+    if (m_budget < 1) {
+      return false;
+    }
+    m_budget -= 1;
+    return true;
+  }
+}
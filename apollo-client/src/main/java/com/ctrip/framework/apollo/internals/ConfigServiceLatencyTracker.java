@@ -0,0 +1,254 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Track the EWMA latency and error rate of each config service, and order the config services with them.
+ *
+ * The error rate weighs the latency in the ordering. A config service is ejected for a while after consecutive
+ * failures, or when its latency is far above the others'. Ejected config services are only tried after all the others.
+ */
+class ConfigServiceLatencyTracker {
+  private static final Logger logger = LoggerFactory.getLogger(ConfigServiceLatencyTracker.class);
+  private static final double EWMA_ALPHA = 0.3;
+  private static final int EJECT_CONSECUTIVE_FAILURES = 3;
+  //a config service is a latency outlier if it's 3 times slower than the median, and slower than 100ms
+  private static final double OUTLIER_LATENCY_RATIO = 3;
+  private static final double OUTLIER_MIN_LATENCY_IN_MILLIS = 100;
+  private static final int MAX_EJECTION_BACKOFF_SHIFT = 5;
+  private static final double MAX_SCORED_ERROR_RATE = 0.99;
+
+  private final ConcurrentMap<String, ServiceStats> m_stats = Maps.newConcurrentMap();
+  private final Ticker m_ticker;
+  private final long m_baseEjectionInNanos;
+  private final long m_failureLatencyInMillis;
+
+  /**
+   * @param failureLatencyInMillis the latency sample recorded for a failed request, e.g. the read timeout
+   */
+  ConfigServiceLatencyTracker(long failureLatencyInMillis) {
+    this(Ticker.systemTicker(), TimeUnit.SECONDS.toNanos(10), failureLatencyInMillis);
+  }
+
+  ConfigServiceLatencyTracker(Ticker ticker, long baseEjectionInNanos, long failureLatencyInMillis) {
+    m_ticker = ticker;
+    m_baseEjectionInNanos = baseEjectionInNanos;
+    m_failureLatencyInMillis = failureLatencyInMillis;
+  }
+
+  /**
+   * Record a successful request whose latency is meaningful, e.g. a config query
+   */
+  void onSuccess(ServiceDTO service, long latencyInMillis) {
+    ServiceStats stats = getStats(service);
+    stats.success(latencyInMillis, m_ticker.read());
+    if (isLatencyOutlier(service.getHomepageUrl(), stats)) {
+      eject(service.getHomepageUrl(), stats, "latency outlier");
+    }
+  }
+
+  /**
+   * Record a successful request whose latency is not meaningful, e.g. a long poll
+   */
+  void onSuccess(ServiceDTO service) {
+    getStats(service).success(-1, m_ticker.read());
+  }
+
+  void onFailure(ServiceDTO service) {
+    ServiceStats stats = getStats(service);
+    if (stats.failure(m_failureLatencyInMillis) >= EJECT_CONSECUTIVE_FAILURES) {
+      eject(service.getHomepageUrl(), stats, "consecutive failures");
+    }
+  }
+
+  /**
+   * Order the services with power of two choices: pick two random services and take the one with lower score first,
+   * see {@link #score(ServiceDTO)}. Services never queried are preferred, so that they are probed. Ejected services
+   * are put at the end.
+   */
+  List<ServiceDTO> order(List<ServiceDTO> services) {
+    List<ServiceDTO> candidates = Lists.newArrayList(services);
+    Collections.shuffle(candidates);
+    List<ServiceDTO> ejected = moveEjected(candidates);
+
+    Random random = ThreadLocalRandom.current();
+    List<ServiceDTO> ordered = Lists.newLinkedList();
+    while (candidates.size() > 1) {
+      int first = random.nextInt(candidates.size());
+      int second = random.nextInt(candidates.size() - 1);
+      if (second >= first) {
+        second++;
+      }
+      int chosen = score(candidates.get(first)) <= score(candidates.get(second)) ? first : second;
+      ordered.add(candidates.remove(chosen));
+    }
+    ordered.addAll(candidates);
+    ordered.addAll(ejected);
+    return ordered;
+  }
+
+  /**
+   * Keep the order of the services, only move the ejected ones to the end
+   */
+  List<ServiceDTO> demoteEjected(List<ServiceDTO> services) {
+    List<ServiceDTO> ordered = Lists.newLinkedList(services);
+    ordered.addAll(moveEjected(ordered));
+    return ordered;
+  }
+
+  boolean isEjected(ServiceDTO service) {
+    ServiceStats stats = m_stats.get(service.getHomepageUrl());
+    return stats != null && stats.isEjected(m_ticker.read());
+  }
+
+  double getLatency(ServiceDTO service) {
+    ServiceStats stats = m_stats.get(service.getHomepageUrl());
+    return stats == null ? -1 : stats.getLatency();
+  }
+
+  double getErrorRate(ServiceDTO service) {
+    ServiceStats stats = m_stats.get(service.getHomepageUrl());
+    return stats == null ? 0 : stats.getErrorRate();
+  }
+
+  private List<ServiceDTO> moveEjected(List<ServiceDTO> services) {
+    long now = m_ticker.read();
+    List<ServiceDTO> ejected = Lists.newArrayList();
+    for (ServiceDTO service : services) {
+      ServiceStats stats = m_stats.get(service.getHomepageUrl());
+      if (stats != null && stats.isEjected(now)) {
+        ejected.add(service);
+      }
+    }
+    services.removeAll(ejected);
+    return ejected;
+  }
+
+  /**
+   * The expected latency to get a successful response, i.e. the EWMA latency times the expected attempts with the EWMA
+   * error rate, so the errors below the ejection threshold make a service less preferred as well
+   */
+  private double score(ServiceDTO service) {
+    ServiceStats stats = m_stats.get(service.getHomepageUrl());
+    if (stats == null) {
+      return 0;
+    }
+    return Math.max(stats.getLatency(), 0) / (1 - Math.min(stats.getErrorRate(), MAX_SCORED_ERROR_RATE));
+  }
+
+  private boolean isLatencyOutlier(String serviceUrl, ServiceStats stats) {
+    double latency = stats.getLatency();
+    if (latency < OUTLIER_MIN_LATENCY_IN_MILLIS) {
+      return false;
+    }
+    List<Double> others = Lists.newArrayList();
+    long now = m_ticker.read();
+    for (Map.Entry<String, ServiceStats> entry : m_stats.entrySet()) {
+      ServiceStats other = entry.getValue();
+      if (!entry.getKey().equals(serviceUrl) && other.getLatency() >= 0 && !other.isEjected(now)) {
+        others.add(other.getLatency());
+      }
+    }
+    //never eject the only healthy one
+    if (others.isEmpty()) {
+      return false;
+    }
+    Collections.sort(others);
+    double median = others.get(others.size() / 2);
+    return latency > median * OUTLIER_LATENCY_RATIO;
+  }
+
+  private void eject(String serviceUrl, ServiceStats stats, String reason) {
+    long now = m_ticker.read();
+    //e.g. a slow response of a request sent before the ejection
+    if (stats.isEjected(now)) {
+      return;
+    }
+    long ejectionInNanos = stats.eject(now);
+    logger.warn("Config service {} ejected for {} ms, reason: {}", serviceUrl,
+        TimeUnit.NANOSECONDS.toMillis(ejectionInNanos), reason);
+    Tracer.logEvent("Apollo.ConfigService.Ejected", serviceUrl);
+  }
+
+  private ServiceStats getStats(ServiceDTO service) {
+    ServiceStats stats = m_stats.get(service.getHomepageUrl());
+    if (stats == null) {
+      stats = new ServiceStats();
+      ServiceStats previous = m_stats.putIfAbsent(service.getHomepageUrl(), stats);
+      if (previous != null) {
+        stats = previous;
+      }
+    }
+    return stats;
+  }
+
+  private class ServiceStats {
+    //-1 means no latency sample yet
+    private double latency = -1;
+    private double errorRate;
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+    private boolean ejected;
+
+    synchronized void success(long latencyInMillis, long now) {
+      if (latencyInMillis >= 0) {
+        latency = latency < 0 ? latencyInMillis : latency + EWMA_ALPHA * (latencyInMillis - latency);
+      }
+      errorRate = errorRate * (1 - EWMA_ALPHA);
+      consecutiveFailures = 0;
+      //the service has been healthy for a long time since the last ejection, so reset the ejection backoff
+      if (ejections > 0 && !isEjected(now)
+          && now - ejectedUntil > m_baseEjectionInNanos << MAX_EJECTION_BACKOFF_SHIFT) {
+        ejections = 0;
+      }
+    }
+
+    synchronized int failure(long latencyInMillis) {
+      latency = latency < 0 ? latencyInMillis : latency + EWMA_ALPHA * (latencyInMillis - latency);
+      errorRate = errorRate + EWMA_ALPHA * (1 - errorRate);
+      return ++consecutiveFailures;
+    }
+
+    synchronized long eject(long now) {
+      long ejectionInNanos = m_baseEjectionInNanos << Math.min(ejections, MAX_EJECTION_BACKOFF_SHIFT);
+      ejections++;
+      ejected = true;
+      ejectedUntil = now + ejectionInNanos;
+      //start over when the ejection expires
+      latency = -1;
+      consecutiveFailures = 0;
+      return ejectionInNanos;
+    }
+
+    synchronized boolean isEjected(long now) {
+      if (ejected && now - ejectedUntil >= 0) {
+        ejected = false;
+      }
+      return ejected;
+    }
+
+    synchronized double getLatency() {
+      return latency;
+    }
+
+    synchronized double getErrorRate() {
+      return errorRate;
+    }
+  }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -14,6 +15,8 @@ import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.schedule.DecorrelatedJitterSchedulePolicy;
+import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.tracer.Tracer;
@@ -146,6 +149,11 @@ public class ConfigServiceLocator {
     HttpRequest request = new HttpRequest(url);
     int maxRetries = 2;
     Throwable exception = null;
+    //retry in half to one on error retry interval, so the clients failed at the same time don't retry together
+    long onErrorRetryIntervalInMillis = m_configUtil.getOnErrorRetryIntervalTimeUnit()
+        .toMillis(m_configUtil.getOnErrorRetryInterval());
+    SchedulePolicy retrySchedulePolicy = new DecorrelatedJitterSchedulePolicy(onErrorRetryIntervalInMillis / 2,
+        onErrorRetryIntervalInMillis);
 
     for (int i = 0; i < maxRetries; i++) {
       Transaction transaction = Tracer.newTransaction("Apollo.MetaService", "getConfigService");
@@ -169,7 +177,7 @@ public class ConfigServiceLocator {
       }
 
       try {
-        m_configUtil.getOnErrorRetryIntervalTimeUnit().sleep(m_configUtil.getOnErrorRetryInterval());
+        TimeUnit.MILLISECONDS.sleep(retrySchedulePolicy.fail());
       } catch (InterruptedException ex) {
         //ignore
       }
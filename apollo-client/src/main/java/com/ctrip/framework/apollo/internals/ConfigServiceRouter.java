@@ -0,0 +1,209 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Order the config services for a request according to the routing advertised by meta service.
+ *
+ * In random mode the services are shuffled. Otherwise the services are placed on a consistent hash ring, so that
+ * requests of the same app id (or namespace) go to the same config service and each config service only caches
+ * a part of the namespaces. The first service returned is the primary one, the rest are the fallback replicas in ring
+ * order. The primaries are assigned with bounded load: a service whose load advertised by meta service exceeds 1.25x
+ * the average load is skipped, and only tried after the others, so a hot routing key can't pile up on one service.
+ * The order only depends on the routing key and the services advertised, so all clients agree on it.
+ *
+ * The latency and errors of each config service are tracked as well. In random mode the services are ordered with
+ * power of two choices on their EWMA latency, and in both modes the ejected outliers are tried last. The latencies of
+ * the config queries also decide when to hedge them, see {@link ConfigQueryHedgePolicy}.
+ */
+public class ConfigServiceRouter {
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final int VIRTUAL_NODES_PER_SERVICE = 100;
+  private static final double LOAD_BOUND_FACTOR = 1.25;
+
+  private final ConfigUtil m_configUtil;
+  private final ConfigServiceLatencyTracker m_latencyTracker;
+  private final ConfigQueryHedgePolicy m_hedgePolicy;
+  private volatile HashRing m_hashRing;
+
+  public ConfigServiceRouter() {
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_latencyTracker = new ConfigServiceLatencyTracker(m_configUtil.getReadTimeout());
+    m_hedgePolicy = new ConfigQueryHedgePolicy(m_configUtil.getHedgedConfigQueryPercentile());
+  }
+
+  ConfigServiceRouter(ConfigServiceLatencyTracker latencyTracker) {
+    m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    m_latencyTracker = latencyTracker;
+    m_hedgePolicy = new ConfigQueryHedgePolicy(m_configUtil.getHedgedConfigQueryPercentile());
+  }
+
+  /**
+   * Order the config services to query the namespace
+   *
+   * @param services the config services located
+   * @param appId the app id
+   * @param cluster the cluster name
+   * @param namespace the namespace queried by the request
+   * @return the config services ordered, the first one should be tried first
+   */
+  public List<ServiceDTO> route(List<ServiceDTO> services, String appId, String cluster, String namespace) {
+    ConfigServiceRouting routing = getRouting(services);
+    if (routing == ConfigServiceRouting.RANDOM || services.size() <= 1) {
+      return m_latencyTracker.order(services);
+    }
+
+    String routingKey;
+    if (routing == ConfigServiceRouting.APP_ID) {
+      routingKey = appId;
+    } else {
+      routingKey = STRING_JOINER.join(appId, cluster, namespace);
+    }
+
+    List<ServiceDTO> ordered = getHashRing(services).route(routingKey, services);
+    return m_latencyTracker.demoteEjected(demoteOverloaded(ordered));
+  }
+
+  /**
+   * Record a successful request whose latency is meaningful, e.g. a config query
+   */
+  public void onSuccess(ServiceDTO service, long latencyInMillis) {
+    m_latencyTracker.onSuccess(service, latencyInMillis);
+    m_hedgePolicy.recordLatency(latencyInMillis);
+  }
+
+  /**
+   * Record a successful request whose latency is not meaningful, e.g. a long poll
+   */
+  public void onSuccess(ServiceDTO service) {
+    m_latencyTracker.onSuccess(service);
+  }
+
+  public void onFailure(ServiceDTO service) {
+    m_latencyTracker.onFailure(service);
+  }
+
+  ConfigQueryHedgePolicy getHedgePolicy() {
+    return m_hedgePolicy;
+  }
+
+  ConfigServiceRouting getRouting(List<ServiceDTO> services) {
+    String routing = m_configUtil.getConfigServiceRouting();
+    if (Strings.isNullOrEmpty(routing) && !services.isEmpty()) {
+      routing = services.get(0).getRouting();
+    }
+    return ConfigServiceRouting.fromString(routing);
+  }
+
+  /**
+   * move the services loaded beyond the bound to the end, keeping the ring order
+   */
+  private List<ServiceDTO> demoteOverloaded(List<ServiceDTO> services) {
+    long totalLoad = 0;
+    int advertised = 0;
+    for (ServiceDTO service : services) {
+      if (service.getLoad() != null) {
+        totalLoad += service.getLoad();
+        advertised++;
+      }
+    }
+    if (advertised == 0) {
+      return services;
+    }
+
+    long loadBound = (long) Math.ceil(LOAD_BOUND_FACTOR * totalLoad / advertised);
+    List<ServiceDTO> ordered = Lists.newArrayListWithCapacity(services.size());
+    List<ServiceDTO> overloaded = Lists.newArrayList();
+    for (ServiceDTO service : services) {
+      if (service.getLoad() != null && service.getLoad() > loadBound) {
+        overloaded.add(service);
+      } else {
+        ordered.add(service);
+      }
+    }
+    ordered.addAll(overloaded);
+    return ordered;
+  }
+
+  private HashRing getHashRing(List<ServiceDTO> services) {
+    Set<String> serviceUrls = Sets.newHashSet();
+    for (ServiceDTO service : services) {
+      serviceUrls.add(service.getHomepageUrl());
+    }
+    HashRing hashRing = m_hashRing;
+    if (hashRing == null || !hashRing.serviceUrls.equals(serviceUrls)) {
+      //services changed, rebuild the ring
+      hashRing = new HashRing(services, serviceUrls);
+      m_hashRing = hashRing;
+    }
+    return hashRing;
+  }
+
+  private static long hash(String value) {
+    return HASH_FUNCTION.hashString(value, Charsets.UTF_8).asLong();
+  }
+
+  private static class HashRing {
+    private final Set<String> serviceUrls;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    HashRing(List<ServiceDTO> services, Set<String> serviceUrls) {
+      this.serviceUrls = serviceUrls;
+      for (ServiceDTO service : services) {
+        for (int i = 0; i < VIRTUAL_NODES_PER_SERVICE; i++) {
+          ring.put(hash(service.getHomepageUrl() + "#" + i), service.getHomepageUrl());
+        }
+      }
+    }
+
+    /**
+     * walk the ring clockwise from the hash of the routing key, collecting the distinct services
+     *
+     * @param services the services currently advertised, which carry the latest loads
+     */
+    List<ServiceDTO> route(String routingKey, List<ServiceDTO> services) {
+      Map<String, ServiceDTO> servicesByUrl = Maps.newHashMapWithExpectedSize(services.size());
+      for (ServiceDTO service : services) {
+        servicesByUrl.put(service.getHomepageUrl(), service);
+      }
+      long hash = hash(routingKey);
+      List<ServiceDTO> ordered = Lists.newArrayListWithCapacity(serviceUrls.size());
+      collect(ring.tailMap(hash, true).values(), servicesByUrl, ordered);
+      collect(ring.headMap(hash, false).values(), servicesByUrl, ordered);
+      return ordered;
+    }
+
+    private void collect(Collection<String> serviceUrls, Map<String, ServiceDTO> servicesByUrl,
+        List<ServiceDTO> ordered) {
+      for (String serviceUrl : serviceUrls) {
+        if (servicesByUrl.isEmpty()) {
+          return;
+        }
+        ServiceDTO service = servicesByUrl.remove(serviceUrl);
+        if (service != null) {
+          ordered.add(service);
+        }
+      }
+    }
+  }
+}
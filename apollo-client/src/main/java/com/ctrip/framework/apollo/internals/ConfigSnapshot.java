@@ -0,0 +1,403 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An immutable snapshot of the properties of a namespace. It's created once per change and shared by reference from the
+ * repositories down to the configs, instead of being copied at each layer.
+ *
+ * The entries are held in open addressing hash arrays, which take less memory than the entries of {@link
+ * java.util.Hashtable} and are read without locking. It's a {@link Properties} so it could be passed through the
+ * existing interfaces, but:
+ * <ul>
+ *   <li>the mutators throw {@link UnsupportedOperationException}, including the ones added to {@link Map} in Java 8
+ *   and the loading methods of {@link Properties}</li>
+ *   <li>the entries which are not strings are skipped</li>
+ * </ul>
+ */
+public final class ConfigSnapshot extends Properties {
+  private static final long serialVersionUID = -1524374916389125434L;
+  public static final ConfigSnapshot EMPTY = new ConfigSnapshot(new String[2], new String[2], 0);
+
+  private final String[] m_keys;
+  private final String[] m_values;
+  private final int m_size;
+
+  private ConfigSnapshot(String[] keys, String[] values, int size) {
+    m_keys = keys;
+    m_values = values;
+    m_size = size;
+  }
+
+  /**
+   * @return the properties themselves if they are a snapshot already, otherwise a snapshot of them
+   */
+  public static ConfigSnapshot of(Map<?, ?> properties) {
+    if (properties instanceof ConfigSnapshot) {
+      return (ConfigSnapshot) properties;
+    }
+    if (properties.isEmpty()) {
+      return EMPTY;
+    }
+    //keep the load factor no more than 0.5, so the probe sequences are short
+    int capacity = Integer.highestOneBit(properties.size() * 2 - 1) << 1;
+    String[] keys = new String[capacity];
+    String[] values = new String[capacity];
+    int size = 0;
+    for (Map.Entry<?, ?> entry : properties.entrySet()) {
+      if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
+        continue;
+      }
+      int index = indexOf(keys, entry.getKey());
+      if (keys[index] == null) {
+        keys[index] = (String) entry.getKey();
+        size++;
+      }
+      values[index] = (String) entry.getValue();
+    }
+    return new ConfigSnapshot(keys, values, size);
+  }
+
+  /**
+   * @return the index of the key, or the empty slot to put it
+   */
+  private static int indexOf(String[] keys, Object key) {
+    int hash = key.hashCode();
+    int mask = keys.length - 1;
+    int index = (hash ^ (hash >>> 16)) & mask;
+    while (keys[index] != null && !keys[index].equals(key)) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  @Override
+  public String getProperty(String key) {
+    return get(key);
+  }
+
+  @Override
+  public String getProperty(String key, String defaultValue) {
+    String value = get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  @Override
+  public String get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    return m_values[indexOf(m_keys, key)];
+  }
+
+  @Override
+  public Object getOrDefault(Object key, Object defaultValue) {
+    String value = get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    for (String v : m_values) {
+      if (v != null && v.equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean contains(Object value) {
+    return containsValue(value);
+  }
+
+  @Override
+  public int size() {
+    return m_size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return m_size == 0;
+  }
+
+  /**
+   * @return the property names, which are not copied unlike {@link Properties#stringPropertyNames()}
+   */
+  @Override
+  public Set<String> stringPropertyNames() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new SlotIterator<String>() {
+          @Override
+          String get(int slot) {
+            return m_keys[slot];
+          }
+        };
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+
+      @Override
+      public int size() {
+        return m_size;
+      }
+    };
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<Object> keySet() {
+    return (Set<Object>) (Set<?>) stringPropertyNames();
+  }
+
+  @Override
+  public Collection<Object> values() {
+    return new AbstractCollection<Object>() {
+      @Override
+      public Iterator<Object> iterator() {
+        return new SlotIterator<Object>() {
+          @Override
+          Object get(int slot) {
+            return m_values[slot];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return m_size;
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<Object, Object>> entrySet() {
+    return new AbstractSet<Map.Entry<Object, Object>>() {
+      @Override
+      public Iterator<Map.Entry<Object, Object>> iterator() {
+        return new SlotIterator<Map.Entry<Object, Object>>() {
+          @Override
+          Map.Entry<Object, Object> get(int slot) {
+            return new AbstractMap.SimpleImmutableEntry<Object, Object>(m_keys[slot], m_values[slot]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return m_size;
+      }
+    };
+  }
+
+  @Override
+  public Enumeration<Object> keys() {
+    return Collections.enumeration(keySet());
+  }
+
+  @Override
+  public Enumeration<Object> elements() {
+    return Collections.enumeration(values());
+  }
+
+  @Override
+  public Enumeration<?> propertyNames() {
+    return keys();
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super Object, ? super Object> action) {
+    for (int i = 0; i < m_keys.length; i++) {
+      if (m_keys[i] != null) {
+        action.accept(m_keys[i], m_values[i]);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof Map)) {
+      return false;
+    }
+    Map<?, ?> map = (Map<?, ?>) o;
+    if (map.size() != m_size) {
+      return false;
+    }
+    for (int i = 0; i < m_keys.length; i++) {
+      if (m_keys[i] != null && !m_values[i].equals(map.get(m_keys[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    for (int i = 0; i < m_keys.length; i++) {
+      if (m_keys[i] != null) {
+        hashCode += m_keys[i].hashCode() ^ m_values[i].hashCode();
+      }
+    }
+    return hashCode;
+  }
+
+  @Override
+  public Object put(Object key, Object value) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void putAll(Map<?, ?> t) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object remove(Object key) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object setProperty(String key, String value) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void load(Reader reader) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void load(InputStream inStream) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void loadFromXML(InputStream in) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object putIfAbsent(Object key, Object value) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public boolean replace(Object key, Object oldValue, Object newValue) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object replace(Object key, Object value) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object computeIfAbsent(Object key, Function<? super Object, ?> mappingFunction) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  @Override
+  public Object merge(Object key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+  }
+
+  /**
+   * Serialized as plain properties, as the entries are not held by {@link java.util.Hashtable}
+   */
+  private Object writeReplace() {
+    Properties properties = new Properties();
+    for (int i = 0; i < m_keys.length; i++) {
+      if (m_keys[i] != null) {
+        properties.put(m_keys[i], m_values[i]);
+      }
+    }
+    return properties;
+  }
+
+  private abstract class SlotIterator<T> implements Iterator<T> {
+    private int m_next = advance(0);
+
+    private int advance(int slot) {
+      while (slot < m_keys.length && m_keys[slot] == null) {
+        slot++;
+      }
+      return slot;
+    }
+
+    abstract T get(int slot);
+
+    @Override
+    public boolean hasNext() {
+      return m_next < m_keys.length;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T next = get(m_next);
+      m_next = advance(m_next + 1);
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("ConfigSnapshot is immutable");
+    }
+  }
+}
@@ -27,11 +27,13 @@ import com.google.common.util.concurrent.RateLimiter;
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public class DefaultConfig extends AbstractConfig implements RepositoryChangeListener {
+public class DefaultConfig extends AbstractConfig implements RepositoryChangeSetListener {
   private static final Logger logger = LoggerFactory.getLogger(DefaultConfig.class);
   private final String m_namespace;
   private Properties m_resourceProperties;
   private AtomicReference<Properties> m_configProperties;
+  //the fingerprint of the config properties
+  private long m_configFingerprint;
   private ConfigRepository m_configRepository;
   private RateLimiter m_warnLogRateLimiter;
 
@@ -52,7 +54,9 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
 
   private void initialize() {
     try {
-      m_configProperties.set(m_configRepository.getConfig());
+      Properties properties = m_configRepository.getConfig();
+      m_configFingerprint = RepositoryChangeSet.fingerprint(properties);
+      m_configProperties.set(properties);
     } catch (Throwable ex) {
       Tracer.logError(ex);
       logger.warn("Init Apollo Local Config failed - namespace: {}, reason: {}.",
@@ -70,8 +74,9 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     String value = System.getProperty(key);
 
     // step 2: check local cached properties file
-    if (value == null && m_configProperties.get() != null) {
-      value = m_configProperties.get().getProperty(key);
+    Properties properties = m_configProperties.get();
+    if (value == null && properties != null) {
+      value = properties.getProperty(key);
     }
 
     /**
@@ -88,19 +93,28 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
       value = (String) m_resourceProperties.get(key);
     }
 
-    if (value == null && m_configProperties.get() == null && m_warnLogRateLimiter.tryAcquire()) {
+    if (value == null && properties == null && m_warnLogRateLimiter.tryAcquire()) {
       logger.warn("Could not load config for namespace {} from Apollo, please check whether the configs are released in Apollo! Return default value now!", m_namespace);
     }
 
     return value == null ? defaultValue : value;
   }
 
+  @Override
+  public long getStalenessInMillis() {
+    return AbstractConfigRepository.stalenessOf(m_configRepository);
+  }
+
   @Override
   public Set<String> getPropertyNames() {
     Properties properties = m_configProperties.get();
     if (properties == null) {
       return Collections.emptySet();
     }
+    //the names of a snapshot are not copied
+    if (properties instanceof ConfigSnapshot) {
+      return properties.stringPropertyNames();
+    }
 
     return stringPropertyNames(properties);
   }
@@ -119,14 +133,25 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
   }
 
   @Override
-  public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_configProperties.get())) {
+  public void onRepositoryChange(String namespace, Properties newProperties) {
+    onRepositoryChange(namespace, newProperties, null);
+  }
+
+  @Override
+  public synchronized void onRepositoryChange(String namespace, Properties newProperties,
+      RepositoryChangeSet changeSet) {
+    Properties previous = m_configProperties.get();
+    //compare all the properties only if the changed keys are unknown or based on another version
+    if (changeSet == null || !changeSet.isBasedOn(m_configFingerprint)) {
+      changeSet = RepositoryChangeSet.diff(previous, m_configFingerprint, newProperties);
+    }
+    if (previous != null && changeSet.getChangedKeys().isEmpty()) {
       return;
     }
-    Properties newConfigProperties = new Properties();
-    newConfigProperties.putAll(newProperties);
+    //the snapshot is shared with the repository instead of being copied
+    Properties newConfigProperties = ConfigSnapshot.of(newProperties);
 
-    Map<String, ConfigChange> actualChanges = updateAndCalcConfigChanges(newConfigProperties);
+    Map<String, ConfigChange> actualChanges = updateAndCalcConfigChanges(newConfigProperties, changeSet);
 
     //check double checked result
     if (actualChanges.isEmpty()) {
@@ -138,9 +163,10 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     Tracer.logEvent("Apollo.Client.ConfigChanges", m_namespace);
   }
 
-  private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties) {
+  private Map<String, ConfigChange> updateAndCalcConfigChanges(Properties newConfigProperties,
+      RepositoryChangeSet changeSet) {
     List<ConfigChange> configChanges =
-        calcPropertyChanges(m_namespace, m_configProperties.get(), newConfigProperties);
+        calcPropertyChanges(m_namespace, m_configProperties.get(), newConfigProperties, changeSet.getChangedKeys());
 
     ImmutableMap.Builder<String, ConfigChange> actualChanges =
         new ImmutableMap.Builder<>();
@@ -153,6 +179,7 @@ public class DefaultConfig extends AbstractConfig implements RepositoryChangeLis
     }
 
     //2. update m_configProperties
+    m_configFingerprint = changeSet.getFingerprint();
     m_configProperties.set(newConfigProperties);
     clearConfigCache();
 
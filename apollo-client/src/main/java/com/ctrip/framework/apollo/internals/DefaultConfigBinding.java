@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Set;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.bind.ConfigBinding;
+import com.ctrip.framework.apollo.tracer.Tracer;
+
+/**
+ * @param <T> the type of the bound object
+ */
+class DefaultConfigBinding<T> implements ConfigBinding<T> {
+  private final Config m_config;
+  private final ConfigBinder<T> m_binder;
+  private volatile T m_value;
+
+  DefaultConfigBinding(Config config, ConfigBinder<T> binder) {
+    m_config = config;
+    m_binder = binder;
+  }
+
+  @Override
+  public T get() {
+    return m_value;
+  }
+
+  /**
+   * Bind for the first time, if not bound yet
+   */
+  void initialize() {
+    if (m_value == null) {
+      synchronized (this) {
+        if (m_value == null) {
+          m_value = m_binder.bind(m_config);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rebind if any of the bound properties is changed, should be called after the properties are updated
+   *
+   * @return whether it's rebound
+   */
+  boolean rebindIfChanged(Set<String> changedKeys) {
+    if (!isChanged(changedKeys)) {
+      return false;
+    }
+    //synchronized with the initialization, so the object bound to the previous properties is never published later
+    synchronized (this) {
+      m_value = m_binder.bind(m_config);
+    }
+    Tracer.logEvent("Apollo.Client.ConfigRebind", m_binder.type().getName());
+    return true;
+  }
+
+  private boolean isChanged(Set<String> changedKeys) {
+    Set<String> keys = m_binder.keys();
+    Set<String> smaller = changedKeys.size() <= keys.size() ? changedKeys : keys;
+    Set<String> larger = smaller == changedKeys ? keys : changedKeys;
+    for (String key : smaller) {
+      if (larger.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
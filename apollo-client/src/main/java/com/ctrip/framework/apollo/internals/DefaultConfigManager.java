@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigFile;
@@ -18,6 +19,8 @@ public class DefaultConfigManager implements ConfigManager {
 
   private Map<String, Config> m_configs = Maps.newConcurrentMap();
   private Map<String, ConfigFile> m_configFiles = Maps.newConcurrentMap();
+  //the configs of different namespaces could be created concurrently, e.g. when they are prefetched at startup
+  private ConcurrentMap<String, Object> m_creationLocks = Maps.newConcurrentMap();
 
   public DefaultConfigManager() {
     m_factoryManager = ApolloInjector.getInstance(ConfigFactoryManager.class);
@@ -28,7 +31,7 @@ public class DefaultConfigManager implements ConfigManager {
     Config config = m_configs.get(namespace);
 
     if (config == null) {
-      synchronized (this) {
+      synchronized (creationLock(namespace)) {
         config = m_configs.get(namespace);
 
         if (config == null) {
@@ -36,6 +39,8 @@ public class DefaultConfigManager implements ConfigManager {
 
           config = factory.create(namespace);
           m_configs.put(namespace, config);
+          //not needed any more, as the created one is found before the lock is taken
+          m_creationLocks.remove(namespace);
         }
       }
     }
@@ -49,7 +54,7 @@ public class DefaultConfigManager implements ConfigManager {
     ConfigFile configFile = m_configFiles.get(namespaceFileName);
 
     if (configFile == null) {
-      synchronized (this) {
+      synchronized (creationLock(namespaceFileName)) {
         configFile = m_configFiles.get(namespaceFileName);
 
         if (configFile == null) {
@@ -57,10 +62,24 @@ public class DefaultConfigManager implements ConfigManager {
 
           configFile = factory.createConfigFile(namespaceFileName, configFileFormat);
           m_configFiles.put(namespaceFileName, configFile);
+          //not needed any more, as the created one is found before the lock is taken
+          m_creationLocks.remove(namespaceFileName);
         }
       }
     }
 
     return configFile;
   }
+
+  private Object creationLock(String name) {
+    Object lock = m_creationLocks.get(name);
+    if (lock == null) {
+      lock = new Object();
+      Object previous = m_creationLocks.putIfAbsent(name, lock);
+      if (previous != null) {
+        lock = previous;
+      }
+    }
+    return lock;
+  }
 }
@@ -1,6 +1,8 @@
 package com.ctrip.framework.apollo.internals;
 
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.metrics.internals.DefaultMetricsReporter;
+import com.ctrip.framework.apollo.metrics.spi.MetricsReporter;
 import com.ctrip.framework.apollo.spi.ConfigFactory;
 import com.ctrip.framework.apollo.spi.ConfigFactoryManager;
 import com.ctrip.framework.apollo.spi.ConfigRegistry;
@@ -59,7 +61,10 @@ public class DefaultInjector implements Injector {
       bind(ConfigUtil.class).in(Singleton.class);
       bind(HttpUtil.class).in(Singleton.class);
       bind(ConfigServiceLocator.class).in(Singleton.class);
+      bind(ConfigServiceRouter.class).in(Singleton.class);
       bind(RemoteConfigLongPollService.class).in(Singleton.class);
+      bind(RemoteConfigRefreshScheduler.class).in(Singleton.class);
+      bind(MetricsReporter.class).to(DefaultMetricsReporter.class).in(Singleton.class);
     }
   }
 }
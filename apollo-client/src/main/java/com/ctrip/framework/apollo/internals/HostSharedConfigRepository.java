@@ -0,0 +1,419 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.ctrip.framework.apollo.util.ExceptionUtil;
+import com.google.common.base.Joiner;
+
+/**
+ * Share the config of a namespace with the other processes of the app on the same host, through a memory-mapped file.
+ *
+ * The process holding the lock of the namespace is the leader, which syncs the config with the config service by a
+ * {@link RemoteConfigRepository}, and publishes each version to the shared file. The others are followers, which read
+ * the config from the shared file and watch its version, without connecting to the config service. The lock is
+ * released by the OS when the leader dies, and then taken over by one of the followers. The leader renews the synced
+ * time of the shared file as long as it's up to date, so the followers know how stale the shared config is.
+ */
+public class HostSharedConfigRepository extends AbstractConfigRepository implements RepositoryChangeSetListener {
+  private static final Logger logger = LoggerFactory.getLogger(HostSharedConfigRepository.class);
+  private static final String SHARED_CACHE_DIR = "shared-cache";
+  private static final long WATCH_INTERVAL_IN_MILLIS = 1000;
+  private static final long WAIT_INTERVAL_IN_MILLIS = 100;
+  private static final ScheduledExecutorService m_executorService;
+  //takes over the leadership off the watch thread, as the remote repository is synced when it's created
+  private static final ExecutorService m_takeOverExecutorService;
+
+  private final String m_namespace;
+  private final SharedConfigFile m_sharedFile;
+  private final File m_lockFile;
+  private final Object m_leadershipLock = new Object();
+  //guarded by m_leadershipLock, kept open so the lock is held as long as the process is alive
+  private FileChannel m_lockChannel;
+  //guarded by m_leadershipLock, whether the lock of the namespace is held
+  private boolean m_locked;
+  //whether the leadership is being taken over by the take over thread
+  private volatile boolean m_takingOver;
+  private volatile ScheduledFuture<?> m_watchFuture;
+  //false if the lock file is not accessible, then the config is synced with the config service without sharing
+  private volatile boolean m_sharing = true;
+  //non-null if this process is the leader
+  private volatile ConfigRepository m_remoteRepository;
+  private volatile ConfigSnapshot m_config;
+  //guarded by this
+  private long m_configFingerprint;
+  //guarded by this, the version of the shared file read last time
+  private long m_sharedFileVersion;
+  //guarded by this, whether the config is published to the shared file
+  private boolean m_published;
+
+  static {
+    m_executorService = Executors.newScheduledThreadPool(1,
+        ApolloThreadFactory.create("HostSharedConfigRepository", true));
+    m_takeOverExecutorService = Executors.newSingleThreadExecutor(
+        ApolloThreadFactory.create("HostSharedConfigRepositoryTakeOver", true));
+  }
+
+  public HostSharedConfigRepository(String namespace) {
+    this(namespace, assembleSharedFiles(namespace));
+  }
+
+  private HostSharedConfigRepository(String namespace, File[] files) {
+    this(namespace, files[0], files[1]);
+  }
+
+  HostSharedConfigRepository(String namespace, File sharedFile, File lockFile) {
+    m_namespace = namespace;
+    m_sharedFile = new SharedConfigFile(sharedFile);
+    m_lockFile = lockFile;
+    this.waitForLeaderToPublish();
+    this.trySync();
+    this.scheduleWatch();
+  }
+
+  @Override
+  public Properties getConfig() {
+    if (m_config == null) {
+      this.sync();
+    }
+    return m_config;
+  }
+
+  @Override
+  public void setUpstreamRepository(ConfigRepository upstreamConfigRepository) {
+    //the host shared config doesn't need upstream
+  }
+
+  /**
+   * The staleness of the leader is the one of the remote repository, and the staleness of a follower is the age of the
+   * synced time renewed by the leader, which keeps growing once the leader is gone or can't sync any more.
+   */
+  @Override
+  public long getStalenessInMillis() {
+    if (m_config == null) {
+      return Long.MAX_VALUE;
+    }
+    ConfigRepository remoteRepository = m_remoteRepository;
+    if (remoteRepository != null) {
+      return AbstractConfigRepository.stalenessOf(remoteRepository);
+    }
+    long syncedTime;
+    try {
+      syncedTime = m_sharedFile.readSyncedTime();
+    } catch (Throwable ex) {
+      return Long.MAX_VALUE;
+    }
+    if (syncedTime <= 0) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(System.currentTimeMillis() - syncedTime, 0);
+  }
+
+  /**
+   * @return whether this process syncs the namespace with the config service for the host
+   */
+  public boolean isLeader() {
+    return m_remoteRepository != null;
+  }
+
+  @Override
+  protected void sync() {
+    ConfigRepository remoteRepository = m_remoteRepository;
+    if (remoteRepository == null && tryTakeLeadership()) {
+      remoteRepository = m_remoteRepository;
+    }
+    if (remoteRepository != null) {
+      if (m_config == null) {
+        //called without holding the lock of this repository, as the remote repository fires changes with its lock held
+        updateConfig(ConfigSnapshot.of(remoteRepository.getConfig()), null, true);
+      }
+    } else {
+      syncFromSharedFile();
+    }
+
+    if (m_config == null) {
+      throw new ApolloConfigException(
+          String.format("The config of namespace %s is not published to the host shared cache yet", m_namespace));
+    }
+  }
+
+  @Override
+  public void onRepositoryChange(String namespace, Properties newProperties) {
+    onRepositoryChange(namespace, newProperties, null);
+  }
+
+  @Override
+  public void onRepositoryChange(String namespace, Properties newProperties, RepositoryChangeSet changeSet) {
+    updateConfig(ConfigSnapshot.of(newProperties), changeSet, true);
+  }
+
+  /**
+   * Stop watching the shared file, e.g. when the repository is not used any more
+   */
+  public void stopWatching() {
+    ScheduledFuture<?> watchFuture = m_watchFuture;
+    if (watchFuture != null) {
+      watchFuture.cancel(false);
+    }
+  }
+
+  /**
+   * Follow the version of the shared file, or take over the leadership if the leader is gone
+   */
+  void watch() {
+    if (m_remoteRepository != null) {
+      if (!isPublished()) {
+        publishFromRemoteRepository();
+      } else {
+        renewSyncedTime();
+      }
+      return;
+    }
+    try {
+      syncFromSharedFile();
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Read host shared config of namespace {} failed, reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+    }
+    if (!m_takingOver && tryLockLeadership()) {
+      m_takingOver = true;
+      m_takeOverExecutorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          takeOverLeadership();
+        }
+      });
+    }
+  }
+
+  private void takeOverLeadership() {
+    try {
+      if (tryTakeLeadership() && !isPublished()) {
+        publishFromRemoteRepository();
+      }
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Take over host shared config of namespace {} failed, will retry, reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+    } finally {
+      if (m_remoteRepository == null) {
+        m_takingOver = false;
+      }
+    }
+  }
+
+  /**
+   * Publish the config of the remote repository once this process leads, which is loaded before it's listened to
+   */
+  private void publishFromRemoteRepository() {
+    try {
+      //called without holding the lock of this repository, as the remote repository fires changes with its lock held
+      updateConfig(ConfigSnapshot.of(m_remoteRepository.getConfig()), null, true);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Sync host shared config of namespace {} with config service failed, reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+      //keep the followers on the config read from the previous leader, until the remote repository is synced
+      republish();
+    }
+  }
+
+  protected ConfigRepository createRemoteConfigRepository() {
+    return new RemoteConfigRepository(m_namespace);
+  }
+
+  /**
+   * Wait for the leader to publish the config at startup, as long as it takes to load the config from the config service
+   */
+  private void waitForLeaderToPublish() {
+    ConfigUtil configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    long deadline = System.currentTimeMillis() + configUtil.getConnectTimeout() + configUtil.getReadTimeout();
+    while (!tryTakeLeadership() && !trySyncFromSharedFile() && System.currentTimeMillis() < deadline) {
+      try {
+        TimeUnit.MILLISECONDS.sleep(WAIT_INTERVAL_IN_MILLIS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private boolean trySyncFromSharedFile() {
+    try {
+      syncFromSharedFile();
+    } catch (Throwable ex) {
+      //ignore, will retry
+    }
+    return m_config != null;
+  }
+
+  private synchronized void syncFromSharedFile() {
+    SharedConfigFile.Content content;
+    Properties properties;
+    try {
+      content = m_sharedFile.read(m_sharedFileVersion);
+      if (content == null) {
+        return;
+      }
+      properties = BinaryCacheFileFormat.decode(content.getContent());
+    } catch (IOException ex) {
+      //e.g. torn read of a version being written, retry next time
+      throw new ApolloConfigException(String.format("Read host shared config file %s failed",
+          m_sharedFile.getFile().getAbsolutePath()), ex);
+    }
+    m_sharedFileVersion = content.getVersion();
+    updateConfig(ConfigSnapshot.of(properties), null, false);
+  }
+
+  private boolean tryLockLeadership() {
+    synchronized (m_leadershipLock) {
+      return tryLock();
+    }
+  }
+
+  private boolean tryTakeLeadership() {
+    synchronized (m_leadershipLock) {
+      if (m_remoteRepository != null) {
+        return true;
+      }
+      if (!tryLock()) {
+        return false;
+      }
+      logger.info("Lead the host shared config of namespace {}", m_namespace);
+      Tracer.logEvent("Apollo.Client.HostSharedConfigLeader", m_namespace);
+      ConfigRepository remoteRepository = createRemoteConfigRepository();
+      remoteRepository.addChangeListener(this);
+      m_remoteRepository = remoteRepository;
+      return true;
+    }
+  }
+
+  private boolean tryLock() {
+    if (m_locked) {
+      return true;
+    }
+    try {
+      if (m_lockChannel == null) {
+        Files.createDirectories(m_lockFile.getParentFile().toPath());
+        m_lockChannel = new RandomAccessFile(m_lockFile, "rw").getChannel();
+      }
+      m_locked = m_lockChannel.tryLock() != null;
+      return m_locked;
+    } catch (OverlappingFileLockException ex) {
+      //held by another repository of the namespace in this process
+      return false;
+    } catch (Throwable ex) {
+      //lead without sharing, so the config is still synced with the config service
+      m_sharing = false;
+      Tracer.logError(ex);
+      logger.warn("Lock host shared config file {} failed, sync namespace {} with config service directly, reason: {}",
+          m_lockFile.getAbsolutePath(), m_namespace, ExceptionUtil.getDetailMessage(ex));
+      m_locked = true;
+      return true;
+    }
+  }
+
+  private synchronized void updateConfig(ConfigSnapshot config, RepositoryChangeSet changeSet, boolean publish) {
+    if (changeSet == null || !changeSet.isBasedOn(m_configFingerprint)) {
+      changeSet = RepositoryChangeSet.diff(m_config, m_configFingerprint, config);
+    }
+    boolean changed = m_config == null || !changeSet.getChangedKeys().isEmpty();
+    if (changed) {
+      m_config = config;
+      m_configFingerprint = changeSet.getFingerprint();
+    }
+    if (publish && (changed || !m_published)) {
+      publish(config);
+    }
+    if (changed) {
+      this.fireRepositoryChange(m_namespace, config, changeSet);
+    }
+  }
+
+  private synchronized boolean isPublished() {
+    return m_published;
+  }
+
+  private synchronized void republish() {
+    if (!m_published && m_config != null) {
+      publish(m_config);
+    }
+  }
+
+  private synchronized void publish(ConfigSnapshot config) {
+    if (!m_sharing) {
+      return;
+    }
+    try {
+      m_sharedFile.write(BinaryCacheFileFormat.encode(config));
+      m_published = true;
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Publish host shared config of namespace {} failed, will retry, reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+      return;
+    }
+    renewSyncedTime();
+  }
+
+  /**
+   * Renew the synced time of the shared file as long as the remote repository is up to date
+   */
+  private synchronized void renewSyncedTime() {
+    ConfigRepository remoteRepository = m_remoteRepository;
+    if (!m_sharing || !m_published || remoteRepository == null) {
+      return;
+    }
+    long staleness = AbstractConfigRepository.stalenessOf(remoteRepository);
+    if (staleness == Long.MAX_VALUE) {
+      return;
+    }
+    try {
+      m_sharedFile.writeSyncedTime(System.currentTimeMillis() - staleness);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+      logger.warn("Renew host shared config of namespace {} failed, will retry, reason: {}", m_namespace,
+          ExceptionUtil.getDetailMessage(ex));
+    }
+  }
+
+  private void scheduleWatch() {
+    m_watchFuture = m_executorService.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        watch();
+      }
+    }, WATCH_INTERVAL_IN_MILLIS, WATCH_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the shared file and the lock file of the namespace, under the local cache dir of the app
+   */
+  private static File[] assembleSharedFiles(String namespace) {
+    ConfigUtil configUtil = ApolloInjector.getInstance(ConfigUtil.class);
+    File baseDir = new File(configUtil.getDefaultLocalCacheDir(), SHARED_CACHE_DIR);
+    String fileName = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(configUtil.getAppId(), configUtil.getCluster(), namespace);
+    return new File[]{new File(baseDir, fileName + ".mmap"), new File(baseDir, fileName + ".lock")};
+  }
+}
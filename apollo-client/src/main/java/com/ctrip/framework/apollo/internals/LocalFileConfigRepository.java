@@ -1,42 +1,73 @@
 package com.ctrip.framework.apollo.internals;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.metrics.MetricNames;
+import com.ctrip.framework.apollo.metrics.Metrics;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.ctrip.framework.apollo.util.ExceptionUtil;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
 public class LocalFileConfigRepository extends AbstractConfigRepository
-    implements RepositoryChangeListener {
+    implements RepositoryChangeSetListener {
   private static final Logger logger = LoggerFactory.getLogger(LocalFileConfigRepository.class);
   private static final String CONFIG_DIR = "/config-cache";
+  private static final String BINARY_FILE_SUFFIX = ".bin";
+  private static final ExecutorService m_persistExecutorService;
+  //local cache file -> the latest properties not persisted yet
+  private static final ConcurrentMap<File, PendingPersist> m_pendingPersists = Maps.newConcurrentMap();
+  private static final Object m_persistLock = new Object();
   private final String m_namespace;
   private File m_baseDir;
   private final ConfigUtil m_configUtil;
-  private volatile Properties m_fileProperties;
+  private volatile ConfigSnapshot m_fileProperties;
+  //the fingerprint of the file properties
+  private long m_fileFingerprint;
   private volatile ConfigRepository m_upstream;
+  private volatile boolean m_syncedWithUpstream;
+  //the last modified time of the local cache file loaded, -1 means not loaded
+  private volatile long m_localCacheFileTime = -1;
+
+  static {
+    m_persistExecutorService = Executors.newSingleThreadExecutor(
+        ApolloThreadFactory.create("LocalFileConfigRepository", true));
+    //the persist thread is a daemon, so the pending versions are written before the JVM exits
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        flushPendingPersists();
+      }
+    }, "LocalFileConfigRepository-Shutdown"));
+  }
 
   /**
    * Constructor.
@@ -85,9 +116,7 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     if (m_fileProperties == null) {
       sync();
     }
-    Properties result = new Properties();
-    result.putAll(m_fileProperties);
-    return result;
+    return m_fileProperties;
   }
 
   @Override
@@ -104,15 +133,38 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     upstreamConfigRepository.addChangeListener(this);
   }
 
+  /**
+   * The config synced with upstream is considered up to date, otherwise the staleness is the age of the local cache
+   * file, which is touched whenever it's synced with upstream.
+   */
+  @Override
+  public long getStalenessInMillis() {
+    if (m_syncedWithUpstream) {
+      return 0;
+    }
+    long localCacheFileTime = m_localCacheFileTime;
+    if (localCacheFileTime < 0) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(System.currentTimeMillis() - localCacheFileTime, 0);
+  }
+
   @Override
   public void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_fileProperties)) {
+    onRepositoryChange(namespace, newProperties, null);
+  }
+
+  @Override
+  public void onRepositoryChange(String namespace, Properties newProperties, RepositoryChangeSet changeSet) {
+    ConfigSnapshot newFileProperties = ConfigSnapshot.of(newProperties);
+    RepositoryChangeSet fileChangeSet = updateFileProperties(newFileProperties, changeSet);
+    //the upstream is connected, e.g. after the first sync failed and the local cache file is served
+    m_syncedWithUpstream = true;
+    if (fileChangeSet == null) {
+      touchLocalCacheFile(m_baseDir, m_namespace);
       return;
     }
-    Properties newFileProperties = new Properties();
-    newFileProperties.putAll(newProperties);
-    updateFileProperties(newFileProperties);
-    this.fireRepositoryChange(namespace, newProperties);
+    this.fireRepositoryChange(namespace, newFileProperties, fileChangeSet);
   }
 
   @Override
@@ -128,7 +180,10 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     Throwable exception = null;
     try {
       transaction.addData("Basedir", m_baseDir.getAbsolutePath());
-      m_fileProperties = this.loadFromLocalCacheFile(m_baseDir, m_namespace);
+      long start = System.nanoTime();
+      ConfigSnapshot properties = ConfigSnapshot.of(this.loadFromLocalCacheFile(m_baseDir, m_namespace));
+      Metrics.recordLatency(MetricNames.LOCAL_CACHE_FILE_LOAD_LATENCY, m_namespace, System.nanoTime() - start);
+      setFileProperties(properties, RepositoryChangeSet.fingerprint(properties));
       transaction.setStatus(Transaction.SUCCESS);
     } catch (Throwable ex) {
       Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
@@ -150,8 +205,15 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
       return false;
     }
     try {
-      Properties properties = m_upstream.getConfig();
-      updateFileProperties(properties);
+      ConfigSnapshot properties = ConfigSnapshot.of(m_upstream.getConfig());
+      RepositoryChangeSet changeSet = updateFileProperties(properties, null);
+      m_syncedWithUpstream = true;
+      if (changeSet != null) {
+        //e.g. the upstream is connected after the local cache file is served
+        this.fireRepositoryChange(m_namespace, properties, changeSet);
+      } else {
+        touchLocalCacheFile(m_baseDir, m_namespace);
+      }
       return true;
     } catch (Throwable ex) {
       Tracer.logError(ex);
@@ -162,18 +224,43 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     return false;
   }
 
-  private synchronized void updateFileProperties(Properties newProperties) {
-    if (newProperties.equals(m_fileProperties)) {
-      return;
+  /**
+   * @param changeSet the changes from upstream, or null if unknown
+   * @return the changes from the previous file properties, or null if not changed
+   */
+  private synchronized RepositoryChangeSet updateFileProperties(ConfigSnapshot newProperties,
+      RepositoryChangeSet changeSet) {
+    if (changeSet == null || !changeSet.isBasedOn(m_fileFingerprint)) {
+      changeSet = RepositoryChangeSet.diff(m_fileProperties, m_fileFingerprint, newProperties);
     }
-    this.m_fileProperties = newProperties;
+    if (m_fileProperties != null && changeSet.getChangedKeys().isEmpty()) {
+      return null;
+    }
+    setFileProperties(newProperties, changeSet.getFingerprint());
     persistLocalCacheFile(m_baseDir, m_namespace);
+    return changeSet;
+  }
+
+  private synchronized void setFileProperties(ConfigSnapshot properties, long fingerprint) {
+    m_fileProperties = properties;
+    m_fileFingerprint = fingerprint;
   }
 
   private Properties loadFromLocalCacheFile(File baseDir, String namespace) throws IOException {
     Preconditions.checkNotNull(baseDir, "Basedir cannot be null");
 
     File file = assembleLocalCacheFile(baseDir, namespace);
+    //the pending version is newer than the one on the disk
+    flushPendingPersist(file);
+
+    if (m_configUtil.isBinaryLocalCacheFileEnabled()) {
+      Properties properties = loadFromBinaryCacheFile(file);
+      if (properties != null) {
+        m_localCacheFileTime = assembleBinaryCacheFile(file).lastModified();
+        return properties;
+      }
+    }
+
     Properties properties = null;
 
     if (file.isFile() && file.canRead()) {
@@ -184,6 +271,7 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
 
         properties = new Properties();
         properties.load(in);
+        m_localCacheFileTime = file.lastModified();
         logger.debug("Loading local config file {} successfully!", file.getAbsolutePath());
       } catch (IOException ex) {
         Tracer.logError(ex);
@@ -206,19 +294,106 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
     return properties;
   }
 
+  /**
+   * @return null if the binary cache file is missing, not persisted along with the properties file or corrupted
+   */
+  private Properties loadFromBinaryCacheFile(File file) {
+    File binaryFile = assembleBinaryCacheFile(file);
+    if (!binaryFile.isFile() || !binaryFile.canRead()) {
+      return null;
+    }
+    try {
+      byte[] content = Files.readAllBytes(binaryFile.toPath());
+      //the properties file might be modified manually, e.g. to change the config when the config service is down
+      if (file.isFile() && BinaryCacheFileFormat.decodePropertiesFileChecksum(content)
+          != BinaryCacheFileFormat.checksum(Files.readAllBytes(file.toPath()))) {
+        return null;
+      }
+      Properties properties = BinaryCacheFileFormat.decode(content);
+      logger.debug("Loading local binary config file {} successfully!", binaryFile.getAbsolutePath());
+      return properties;
+    } catch (IOException ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("Loading config from local binary cache file %s failed, fall back to %s",
+              binaryFile.getAbsolutePath(), file.getAbsolutePath()), ex));
+      return null;
+    }
+  }
+
+  /**
+   * Persist the current properties asynchronously. The pending versions of the same file are coalesced, so only the
+   * latest one is written.
+   */
   void persistLocalCacheFile(File baseDir, String namespace) {
+    if (baseDir == null) {
+      return;
+    }
+    final File file = assembleLocalCacheFile(baseDir, namespace);
+    PendingPersist pending = new PendingPersist(namespace, m_fileProperties,
+        m_configUtil.isBinaryLocalCacheFileEnabled());
+    if (m_pendingPersists.put(file, pending) != null) {
+      //the pending task of the file would write the latest version
+      return;
+    }
+    m_persistExecutorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        flushPendingPersist(file);
+      }
+    });
+  }
+
+  /**
+   * Mark the local cache file as up to date
+   */
+  private void touchLocalCacheFile(File baseDir, String namespace) {
     if (baseDir == null) {
       return;
     }
     File file = assembleLocalCacheFile(baseDir, namespace);
+    long now = System.currentTimeMillis();
+    synchronized (m_persistLock) {
+      if (file.isFile() && file.setLastModified(now)) {
+        File binaryFile = assembleBinaryCacheFile(file);
+        if (binaryFile.isFile()) {
+          binaryFile.setLastModified(now);
+        }
+      }
+    }
+  }
 
-    OutputStream out = null;
+  private static void flushPendingPersist(File file) {
+    synchronized (m_persistLock) {
+      PendingPersist pending = m_pendingPersists.remove(file);
+      if (pending != null) {
+        doPersistLocalCacheFile(file, pending.m_namespace, pending.m_properties, pending.m_binary);
+      }
+    }
+  }
+
+  /**
+   * Write all the pending local cache files, e.g. when the JVM exits
+   */
+  static void flushPendingPersists() {
+    //also wait for the one being written, which is not pending any more
+    synchronized (m_persistLock) {
+      for (File file : m_pendingPersists.keySet()) {
+        flushPendingPersist(file);
+      }
+    }
+  }
 
+  private static void doPersistLocalCacheFile(File file, String namespace, Properties properties, boolean binary) {
     Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "persistLocalConfigFile");
     transaction.addData("LocalConfigFile", file.getAbsolutePath());
+    long start = System.nanoTime();
+    byte[] content;
     try {
-      out = new FileOutputStream(file);
-      m_fileProperties.store(out, "Persisted by DefaultConfig");
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      properties.store(out, "Persisted by DefaultConfig");
+      content = out.toByteArray();
+      writeAtomically(file, content);
+      Metrics.recordLatency(MetricNames.LOCAL_CACHE_FILE_PERSIST_LATENCY, namespace, System.nanoTime() - start);
       transaction.setStatus(Transaction.SUCCESS);
     } catch (IOException ex) {
       ApolloConfigException exception =
@@ -226,18 +401,57 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
               String.format("Persist local cache file %s failed", file.getAbsolutePath()), ex);
       Tracer.logError(exception);
       transaction.setStatus(exception);
+      Metrics.incrementCounter(MetricNames.LOCAL_CACHE_FILE_PERSIST_FAILURES, namespace);
       logger.warn("Persist local cache file {} failed, reason: {}.", file.getAbsolutePath(),
           ExceptionUtil.getDetailMessage(ex));
+      //skip the binary file, which doesn't match the properties file any more
+      return;
     } finally {
-      if (out != null) {
-        try {
-          out.close();
-        } catch (IOException ex) {
-          //ignore
-        }
-      }
       transaction.complete();
     }
+
+    if (binary) {
+      persistBinaryCacheFile(assembleBinaryCacheFile(file), namespace, properties,
+          BinaryCacheFileFormat.checksum(content));
+    }
+  }
+
+  private static void persistBinaryCacheFile(File binaryFile, String namespace, Properties properties,
+      long propertiesFileChecksum) {
+    try {
+      writeAtomically(binaryFile, BinaryCacheFileFormat.encode(properties, propertiesFileChecksum));
+    } catch (IOException ex) {
+      Tracer.logError(new ApolloConfigException(
+          String.format("Persist local binary cache file %s failed", binaryFile.getAbsolutePath()), ex));
+      Metrics.incrementCounter(MetricNames.LOCAL_CACHE_FILE_PERSIST_FAILURES, namespace);
+      //the properties file is loaded instead
+      binaryFile.delete();
+    }
+  }
+
+  /**
+   * Write the content to a temp file in the same directory and rename it to the target, so the target file is never
+   * partially written.
+   */
+  private static void writeAtomically(File file, byte[] content) throws IOException {
+    File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    try {
+      FileOutputStream out = new FileOutputStream(tempFile);
+      try {
+        out.write(content);
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+      try {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      tempFile.delete();
+    }
   }
 
   private void checkLocalConfigCacheDir(File baseDir) {
@@ -270,4 +484,20 @@ public class LocalFileConfigRepository extends AbstractConfigRepository
             .join(m_configUtil.getAppId(), m_configUtil.getCluster(), namespace));
     return new File(baseDir, fileName);
   }
+
+  private static File assembleBinaryCacheFile(File file) {
+    return new File(file.getParentFile(), file.getName() + BINARY_FILE_SUFFIX);
+  }
+
+  private static class PendingPersist {
+    private final String m_namespace;
+    private final Properties m_properties;
+    private final boolean m_binary;
+
+    PendingPersist(String namespace, Properties properties, boolean binary) {
+      m_namespace = namespace;
+      m_properties = properties;
+      m_binary = binary;
+    }
+  }
 }
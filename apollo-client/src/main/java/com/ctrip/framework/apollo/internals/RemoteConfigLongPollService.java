@@ -7,6 +7,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
 import com.google.common.escape.Escaper;
 import com.google.common.net.UrlEscapers;
 import com.google.common.reflect.TypeToken;
@@ -19,10 +20,12 @@ import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
-import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
+import com.ctrip.framework.apollo.core.schedule.DecorrelatedJitterSchedulePolicy;
 import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.metrics.MetricNames;
+import com.ctrip.framework.apollo.metrics.Metrics;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
@@ -57,7 +60,7 @@ public class RemoteConfigLongPollService {
   private static final int LONG_POLLING_READ_TIMEOUT = 90 * 1000;
   private final ExecutorService m_longPollingService;
   private final AtomicBoolean m_longPollingStopped;
-  private SchedulePolicy m_longPollFailSchedulePolicyInSecond;
+  private SchedulePolicy m_longPollFailSchedulePolicyInMillis;
   private RateLimiter m_longPollRateLimiter;
   private final AtomicBoolean m_longPollStarted;
   private final Multimap<String, RemoteConfigRepository> m_longPollNamespaces;
@@ -68,12 +71,13 @@ public class RemoteConfigLongPollService {
   private ConfigUtil m_configUtil;
   private HttpUtil m_httpUtil;
   private ConfigServiceLocator m_serviceLocator;
+  private ConfigServiceRouter m_serviceRouter;
 
   /**
    * Constructor.
    */
   public RemoteConfigLongPollService() {
-    m_longPollFailSchedulePolicyInSecond = new ExponentialSchedulePolicy(1, 120); //in second
+    m_longPollFailSchedulePolicyInMillis = new DecorrelatedJitterSchedulePolicy(1000, 120000); //in millisecond
     m_longPollingStopped = new AtomicBoolean(false);
     m_longPollingService = Executors.newSingleThreadExecutor(
         ApolloThreadFactory.create("RemoteConfigLongPollService", true));
@@ -88,6 +92,7 @@ public class RemoteConfigLongPollService {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    m_serviceRouter = ApolloInjector.getInstance(ConfigServiceRouter.class);
     m_longPollRateLimiter = RateLimiter.create(m_configUtil.getLongPollQPS());
   }
 
@@ -140,6 +145,8 @@ public class RemoteConfigLongPollService {
   private void doLongPollingRefresh(String appId, String cluster, String dataCenter) {
     final Random random = new Random();
     ServiceDTO lastServiceDto = null;
+    //fail over to the next config service routed after each failure
+    int failedTimes = 0;
     while (!m_longPollingStopped.get() && !Thread.currentThread().isInterrupted()) {
       if (!m_longPollRateLimiter.tryAcquire(5, TimeUnit.SECONDS)) {
         //wait at most 5 seconds
@@ -149,11 +156,14 @@ public class RemoteConfigLongPollService {
         }
       }
       Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "pollNotification");
+      long start = System.nanoTime();
       String url = null;
       try {
         if (lastServiceDto == null) {
-          List<ServiceDTO> configServices = getConfigServices();
-          lastServiceDto = configServices.get(random.nextInt(configServices.size()));
+          //routed by the first namespace, so the long poll goes to the config service queried for it
+          List<ServiceDTO> configServices = m_serviceRouter.route(getConfigServices(), appId, cluster,
+              Ordering.natural().min(m_notifications.keySet()));
+          lastServiceDto = configServices.get(failedTimes % configServices.size());
         }
 
         url =
@@ -168,6 +178,7 @@ public class RemoteConfigLongPollService {
 
         final HttpResponse<List<ApolloConfigNotification>> response =
             m_httpUtil.doGet(request, m_responseType);
+        m_serviceRouter.onSuccess(lastServiceDto);
 
         logger.debug("Long polling response: {}, url: {}", response.getStatusCode(), url);
         if (response.getStatusCode() == 200 && response.getBody() != null) {
@@ -182,19 +193,27 @@ public class RemoteConfigLongPollService {
           lastServiceDto = null;
         }
 
-        m_longPollFailSchedulePolicyInSecond.success();
+        m_longPollFailSchedulePolicyInMillis.success();
+        failedTimes = 0;
+        Metrics.recordLatency(MetricNames.LONG_POLL_CYCLE_TIME, String.valueOf(response.getStatusCode()),
+            System.nanoTime() - start);
         transaction.addData("StatusCode", response.getStatusCode());
         transaction.setStatus(Transaction.SUCCESS);
       } catch (Throwable ex) {
+        if (lastServiceDto != null) {
+          m_serviceRouter.onFailure(lastServiceDto);
+        }
         lastServiceDto = null;
+        failedTimes++;
+        Metrics.recordLatency(MetricNames.LONG_POLL_CYCLE_TIME, "error", System.nanoTime() - start);
         Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
         transaction.setStatus(ex);
-        long sleepTimeInSecond = m_longPollFailSchedulePolicyInSecond.fail();
+        long sleepTimeInMillis = m_longPollFailSchedulePolicyInMillis.fail();
         logger.warn(
-            "Long polling failed, will retry in {} seconds. appId: {}, cluster: {}, namespaces: {}, long polling url: {}, reason: {}",
-            sleepTimeInSecond, appId, cluster, assembleNamespaces(), url, ExceptionUtil.getDetailMessage(ex));
+            "Long polling failed, will retry in {} ms. appId: {}, cluster: {}, namespaces: {}, long polling url: {}, reason: {}",
+            sleepTimeInMillis, appId, cluster, assembleNamespaces(), url, ExceptionUtil.getDetailMessage(ex));
         try {
-          TimeUnit.SECONDS.sleep(sleepTimeInSecond);
+          TimeUnit.MILLISECONDS.sleep(sleepTimeInMillis);
         } catch (InterruptedException ie) {
           //ignore
         }
@@ -210,6 +229,7 @@ public class RemoteConfigLongPollService {
     }
     for (ApolloConfigNotification notification : notifications) {
       String namespaceName = notification.getNamespaceName();
+      Metrics.incrementCounter(MetricNames.LONG_POLL_NOTIFICATIONS, namespaceName);
       //create a new list to avoid ConcurrentModificationException
       List<RemoteConfigRepository> toBeNotified =
           Lists.newArrayList(m_longPollNamespaces.get(namespaceName));
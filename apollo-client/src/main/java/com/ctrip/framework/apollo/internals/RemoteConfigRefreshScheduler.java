@@ -0,0 +1,118 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.ctrip.framework.apollo.Apollo;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Refresh all the remote config repositories periodically in one cycle, instead of one schedule per namespace.
+ *
+ * The first cycle starts at a random point of the refresh interval, and the following cycles are jittered as well,
+ * so the instances started together don't refresh at the same time. The namespaces synced by a long poll notification
+ * within the refresh interval are skipped, as they are known to be up to date.
+ */
+class RemoteConfigRefreshScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(RemoteConfigRefreshScheduler.class);
+  //the interval between cycles is in [interval * (1 - ratio), interval * (1 + ratio))
+  private static final double JITTER_RATIO = 0.1;
+  //repository -> the ticker time when it's synced by a long poll notification, -1 means never
+  private final ConcurrentMap<RemoteConfigRepository, Long> m_repositories = Maps.newConcurrentMap();
+  private final AtomicBoolean m_started = new AtomicBoolean(false);
+  private final ScheduledExecutorService m_executorService;
+  private final Ticker m_ticker;
+  private final long m_refreshIntervalInNanos;
+  private final Random m_random;
+
+  public RemoteConfigRefreshScheduler() {
+    this(Ticker.systemTicker(), refreshIntervalInNanos(ApolloInjector.getInstance(ConfigUtil.class)),
+        new Random());
+  }
+
+  RemoteConfigRefreshScheduler(Ticker ticker, long refreshIntervalInNanos, Random random) {
+    m_ticker = ticker;
+    m_refreshIntervalInNanos = refreshIntervalInNanos;
+    m_random = random;
+    m_executorService = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("RemoteConfigRefreshScheduler", true));
+  }
+
+  void register(RemoteConfigRepository repository) {
+    m_repositories.putIfAbsent(repository, -1L);
+    if (m_started.compareAndSet(false, true)) {
+      long initialDelay = (long) (m_random.nextDouble() * m_refreshIntervalInNanos);
+      logger.debug("Schedule periodic refresh with interval: {} ms, first refresh in {} ms",
+          TimeUnit.NANOSECONDS.toMillis(m_refreshIntervalInNanos), TimeUnit.NANOSECONDS.toMillis(initialDelay));
+      scheduleRefresh(initialDelay);
+    }
+  }
+
+  /**
+   * Called when the repository is synced successfully for a long poll notification
+   */
+  void onLongPollSynced(RemoteConfigRepository repository) {
+    m_repositories.replace(repository, m_ticker.read());
+  }
+
+  /**
+   * Refresh the repositories not synced by a long poll notification within the refresh interval
+   *
+   * @return the number of repositories refreshed
+   */
+  int refresh() {
+    int refreshed = 0;
+    int skipped = 0;
+    for (Map.Entry<RemoteConfigRepository, Long> entry : m_repositories.entrySet()) {
+      long lastLongPollSynced = entry.getValue();
+      if (lastLongPollSynced >= 0 && m_ticker.read() - lastLongPollSynced < m_refreshIntervalInNanos) {
+        skipped++;
+        continue;
+      }
+      entry.getKey().trySync();
+      refreshed++;
+    }
+    logger.debug("Periodic refresh done, refreshed: {}, skipped: {}", refreshed, skipped);
+    Tracer.logEvent("Apollo.ConfigService", String.format("periodicRefresh: %d namespaces", refreshed));
+    Tracer.logEvent("Apollo.Client.Version", Apollo.VERSION);
+    return refreshed;
+  }
+
+  long nextRefreshDelay() {
+    double jitter = (m_random.nextDouble() * 2 - 1) * JITTER_RATIO;
+    return (long) (m_refreshIntervalInNanos * (1 + jitter));
+  }
+
+  private void scheduleRefresh(long delayInNanos) {
+    m_executorService.schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          refresh();
+        } catch (Throwable ex) {
+          Tracer.logError(ex);
+          logger.warn("Periodic refresh failed", ex);
+        } finally {
+          scheduleRefresh(nextRefreshDelay());
+        }
+      }
+    }, delayInNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static long refreshIntervalInNanos(ConfigUtil configUtil) {
+    return configUtil.getRefreshIntervalTimeUnit().toNanos(configUtil.getRefreshInterval());
+  }
+}
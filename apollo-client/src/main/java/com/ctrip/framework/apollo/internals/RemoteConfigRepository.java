@@ -1,11 +1,18 @@
 package com.ctrip.framework.apollo.internals;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -13,17 +20,18 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ctrip.framework.apollo.Apollo;
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
-import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
+import com.ctrip.framework.apollo.core.schedule.DecorrelatedJitterSchedulePolicy;
 import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.metrics.MetricNames;
+import com.ctrip.framework.apollo.metrics.Metrics;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.ctrip.framework.apollo.util.ConfigUtil;
@@ -33,8 +41,10 @@ import com.ctrip.framework.apollo.util.http.HttpResponse;
 import com.ctrip.framework.apollo.util.http.HttpUtil;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.escape.Escaper;
 import com.google.common.net.UrlEscapers;
 import com.google.common.util.concurrent.RateLimiter;
@@ -48,17 +58,27 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
   private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
   private ConfigServiceLocator m_serviceLocator;
+  private ConfigServiceRouter m_serviceRouter;
   private HttpUtil m_httpUtil;
   private ConfigUtil m_configUtil;
   private RemoteConfigLongPollService remoteConfigLongPollService;
+  private RemoteConfigRefreshScheduler m_refreshScheduler;
   private volatile AtomicReference<ApolloConfig> m_configCache;
+  //the configurations of the config cache, shared with the listeners
+  private volatile ConfigSnapshot m_configSnapshot;
+  //the fingerprint of the configurations in the config cache
+  private long m_configFingerprint;
   private final String m_namespace;
   private final static ScheduledExecutorService m_executorService;
+  //runs the hedged queries and their hedges, the ones beyond the max threads run on the calling threads
+  private final static ThreadPoolExecutor m_hedgeExecutorService;
+  private final static int MAX_HEDGE_THREADS = 8;
   private AtomicReference<ServiceDTO> m_longPollServiceDto;
   private AtomicReference<ApolloNotificationMessages> m_remoteMessages;
   private RateLimiter m_loadConfigRateLimiter;
   private AtomicBoolean m_configNeedForceRefresh;
   private SchedulePolicy m_loadConfigFailSchedulePolicy;
+  private SchedulePolicy m_forceRefreshFailSchedulePolicy;
   private Gson gson;
   private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
   private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
@@ -66,6 +86,9 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   static {
     m_executorService = Executors.newScheduledThreadPool(1,
         ApolloThreadFactory.create("RemoteConfigRepository", true));
+    m_hedgeExecutorService = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), ApolloThreadFactory.create("RemoteConfigHedge", true),
+        new ThreadPoolExecutor.CallerRunsPolicy());
   }
 
   /**
@@ -79,13 +102,20 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
     m_httpUtil = ApolloInjector.getInstance(HttpUtil.class);
     m_serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    m_serviceRouter = ApolloInjector.getInstance(ConfigServiceRouter.class);
     remoteConfigLongPollService = ApolloInjector.getInstance(RemoteConfigLongPollService.class);
+    m_refreshScheduler = ApolloInjector.getInstance(RemoteConfigRefreshScheduler.class);
     m_longPollServiceDto = new AtomicReference<>();
     m_remoteMessages = new AtomicReference<>();
     m_loadConfigRateLimiter = RateLimiter.create(m_configUtil.getLoadConfigQPS());
     m_configNeedForceRefresh = new AtomicBoolean(true);
-    m_loadConfigFailSchedulePolicy = new ExponentialSchedulePolicy(m_configUtil.getOnErrorRetryInterval(),
-        m_configUtil.getOnErrorRetryInterval() * 8);
+    long onErrorRetryIntervalInMillis = m_configUtil.getOnErrorRetryIntervalTimeUnit()
+        .toMillis(m_configUtil.getOnErrorRetryInterval());
+    m_loadConfigFailSchedulePolicy = new DecorrelatedJitterSchedulePolicy(onErrorRetryIntervalInMillis,
+        onErrorRetryIntervalInMillis * 8);
+    //retry in half to one on error retry interval, so the clients failed at the same time don't retry together
+    m_forceRefreshFailSchedulePolicy = new DecorrelatedJitterSchedulePolicy(onErrorRetryIntervalInMillis / 2,
+        onErrorRetryIntervalInMillis);
     gson = new Gson();
     this.trySync();
     this.schedulePeriodicRefresh();
@@ -97,7 +127,7 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     if (m_configCache.get() == null) {
       this.sync();
     }
-    return transformApolloConfigToProperties(m_configCache.get());
+    return m_configSnapshot;
   }
 
   @Override
@@ -105,20 +135,13 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     //remote config doesn't need upstream
   }
 
+  @Override
+  public long getStalenessInMillis() {
+    return m_configCache.get() == null ? Long.MAX_VALUE : 0;
+  }
+
   private void schedulePeriodicRefresh() {
-    logger.debug("Schedule periodic refresh with interval: {} {}",
-        m_configUtil.getRefreshInterval(), m_configUtil.getRefreshIntervalTimeUnit());
-    m_executorService.scheduleAtFixedRate(
-        new Runnable() {
-          @Override
-          public void run() {
-            Tracer.logEvent("Apollo.ConfigService", String.format("periodicRefresh: %s", m_namespace));
-            logger.debug("refresh config for namespace: {}", m_namespace);
-            trySync();
-            Tracer.logEvent("Apollo.Client.Version", Apollo.VERSION);
-          }
-        }, m_configUtil.getRefreshInterval(), m_configUtil.getRefreshInterval(),
-        m_configUtil.getRefreshIntervalTimeUnit());
+    m_refreshScheduler.register(this);
   }
 
   @Override
@@ -132,8 +155,16 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
       //reference equals means HTTP 304
       if (previous != current) {
         logger.debug("Remote Config refreshed!");
-        m_configCache.set(current);
-        this.fireRepositoryChange(m_namespace, this.getConfig());
+        //the configurations are compared here only once, the listeners calculate the changes of the changed keys
+        ConfigSnapshot snapshot = transformApolloConfigToSnapshot(current);
+        RepositoryChangeSet changeSet = RepositoryChangeSet.diff(m_configSnapshot, m_configFingerprint, snapshot);
+        boolean changed = snapshot != null && (m_configSnapshot == null || !changeSet.getChangedKeys().isEmpty());
+        m_configFingerprint = changeSet.getFingerprint();
+        m_configSnapshot = snapshot;
+        m_configCache.set(transformApolloConfigToRelease(current));
+        if (changed) {
+          this.fireRepositoryChange(m_namespace, snapshot, changeSet);
+        }
       }
 
       if (current != null) {
@@ -150,10 +181,23 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     }
   }
 
-  private Properties transformApolloConfigToProperties(ApolloConfig apolloConfig) {
-    Properties result = new Properties();
-    result.putAll(apolloConfig.getConfigurations());
-    return result;
+  private ConfigSnapshot transformApolloConfigToSnapshot(ApolloConfig apolloConfig) {
+    if (apolloConfig == null) {
+      return null;
+    }
+    Map<String, String> configurations = apolloConfig.getConfigurations();
+    return configurations == null ? ConfigSnapshot.EMPTY : ConfigSnapshot.of(configurations);
+  }
+
+  /**
+   * The configurations are held by the snapshot only, the config cache keeps the release info for the next query
+   */
+  private ApolloConfig transformApolloConfigToRelease(ApolloConfig apolloConfig) {
+    if (apolloConfig == null) {
+      return null;
+    }
+    return new ApolloConfig(apolloConfig.getAppId(), apolloConfig.getCluster(), apolloConfig.getNamespaceName(),
+        apolloConfig.getReleaseKey());
   }
 
   private ApolloConfig loadApolloConfig() {
@@ -175,21 +219,27 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     List<ServiceDTO> configServices = getConfigServices();
     String url = null;
     for (int i = 0; i < maxRetries; i++) {
-      List<ServiceDTO> randomConfigServices = Lists.newLinkedList(configServices);
-      Collections.shuffle(randomConfigServices);
+      List<ServiceDTO> routedConfigServices = m_serviceRouter.route(configServices, appId, cluster, m_namespace);
       //Access the server which notifies the client first
       if (m_longPollServiceDto.get() != null) {
-        randomConfigServices.add(0, m_longPollServiceDto.getAndSet(null));
+        routedConfigServices.add(0, m_longPollServiceDto.getAndSet(null));
       }
+      //the config services queried by the hedges in this round
+      Set<String> hedgedServices = Sets.newHashSet();
+
+      for (int j = 0; j < routedConfigServices.size(); j++) {
+        ServiceDTO configService = routedConfigServices.get(j);
+        if (hedgedServices.contains(configService.getHomepageUrl())) {
+          continue;
+        }
 
-      for (ServiceDTO configService : randomConfigServices) {
         if (onErrorSleepTime > 0) {
           logger.warn(
-              "Load config failed, will retry in {} {}. appId: {}, cluster: {}, namespaces: {}",
-              onErrorSleepTime, m_configUtil.getOnErrorRetryIntervalTimeUnit(), appId, cluster, m_namespace);
+              "Load config failed, will retry in {} ms. appId: {}, cluster: {}, namespaces: {}",
+              onErrorSleepTime, appId, cluster, m_namespace);
 
           try {
-            m_configUtil.getOnErrorRetryIntervalTimeUnit().sleep(onErrorSleepTime);
+            TimeUnit.MILLISECONDS.sleep(onErrorSleepTime);
           } catch (InterruptedException e) {
             //ignore
           }
@@ -197,20 +247,20 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
 
         url = assembleQueryConfigUrl(configService.getHomepageUrl(), appId, cluster, m_namespace,
                 dataCenter, m_remoteMessages.get(), m_configCache.get());
+        ServiceDTO hedgeService = findHedgeService(routedConfigServices, j);
 
-        logger.debug("Loading config from {}", url);
-        HttpRequest request = new HttpRequest(url);
-
-        Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfig");
-        transaction.addData("Url", url);
         try {
-
-          HttpResponse<ApolloConfig> response = m_httpUtil.doGet(request, ApolloConfig.class);
+          HttpResponse<ApolloConfig> response;
+          if (hedgeService == null) {
+            response = queryConfig(configService, url);
+          } else {
+            String hedgeUrl = assembleQueryConfigUrl(hedgeService.getHomepageUrl(), appId, cluster, m_namespace,
+                dataCenter, m_remoteMessages.get(), m_configCache.get());
+            response = queryConfigWithHedge(configService, url, hedgeService, hedgeUrl, hedgedServices);
+          }
           m_configNeedForceRefresh.set(false);
           m_loadConfigFailSchedulePolicy.success();
-
-          transaction.addData("StatusCode", response.getStatusCode());
-          transaction.setStatus(Transaction.SUCCESS);
+          m_forceRefreshFailSchedulePolicy.success();
 
           if (response.getStatusCode() == 304) {
             logger.debug("Config server responds with 304 HTTP status code.");
@@ -222,30 +272,12 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
           logger.debug("Loaded config for {}: {}", m_namespace, result);
 
           return result;
-        } catch (ApolloConfigStatusCodeException ex) {
-          ApolloConfigStatusCodeException statusCodeException = ex;
-          //config not found
-          if (ex.getStatusCode() == 404) {
-            String message = String.format(
-                "Could not find config for namespace - appId: %s, cluster: %s, namespace: %s, " +
-                    "please check whether the configs are released in Apollo!",
-                appId, cluster, m_namespace);
-            statusCodeException = new ApolloConfigStatusCodeException(ex.getStatusCode(),
-                message);
-          }
-          Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(statusCodeException));
-          transaction.setStatus(statusCodeException);
-          exception = statusCodeException;
         } catch (Throwable ex) {
-          Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
-          transaction.setStatus(ex);
           exception = ex;
-        } finally {
-          transaction.complete();
         }
 
         // if force refresh, do normal sleep, if normal config load, do exponential sleep
-        onErrorSleepTime = m_configNeedForceRefresh.get() ? m_configUtil.getOnErrorRetryInterval() :
+        onErrorSleepTime = m_configNeedForceRefresh.get() ? m_forceRefreshFailSchedulePolicy.fail() :
             m_loadConfigFailSchedulePolicy.fail();
       }
 
@@ -256,6 +288,146 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
     throw new ApolloConfigException(message, exception);
   }
 
+  /**
+   * @return the next config service to hedge the query to the config service at the index with, or null if the
+   * query is not hedged
+   */
+  private ServiceDTO findHedgeService(List<ServiceDTO> routedConfigServices, int index) {
+    if (!m_configUtil.isHedgedConfigQueryEnabled()) {
+      return null;
+    }
+    String homepageUrl = routedConfigServices.get(index).getHomepageUrl();
+    for (int i = index + 1; i < routedConfigServices.size(); i++) {
+      //e.g. the config service which notifies the client is routed as well
+      if (!routedConfigServices.get(i).getHomepageUrl().equals(homepageUrl)) {
+        return routedConfigServices.get(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Query the config service, and if it doesn't respond within the hedge delay, query the hedge service as well if the
+   * hedge budget allows, then take whichever responds first successfully and cancel the other. Both queries run on the
+   * hedge threads, so the calling thread only waits for the first response.
+   */
+  private HttpResponse<ApolloConfig> queryConfigWithHedge(ServiceDTO configService, String url,
+      ServiceDTO hedgeService, String hedgeUrl, Set<String> hedgedServices) {
+    ConfigQueryHedgePolicy hedgePolicy = m_serviceRouter.getHedgePolicy();
+    hedgePolicy.onQuery();
+    CompletionService<HttpResponse<ApolloConfig>> completionService =
+        new ExecutorCompletionService<>(m_hedgeExecutorService);
+    Future<HttpResponse<ApolloConfig>> query = completionService.submit(assembleQueryTask(configService, url));
+    Future<HttpResponse<ApolloConfig>> hedge = null;
+    try {
+      Future<HttpResponse<ApolloConfig>> completed =
+          completionService.poll(hedgePolicy.getHedgeDelayInMillis(), TimeUnit.MILLISECONDS);
+      if (completed != null || !hedgePolicy.tryAcquireHedge()) {
+        //a failure is thrown, so the hedge service is queried next in turn
+        return query.get();
+      }
+      logger.debug("Config service {} doesn't respond in time, hedge with {}", configService.getHomepageUrl(),
+          hedgeService.getHomepageUrl());
+      Tracer.logEvent("Apollo.Client.HedgedConfigQuery", hedgeService.getHomepageUrl());
+      Metrics.incrementCounter(MetricNames.REMOTE_CONFIG_HEDGES, m_namespace);
+      hedgedServices.add(hedgeService.getHomepageUrl());
+      hedge = completionService.submit(assembleQueryTask(hedgeService, hedgeUrl));
+      return awaitFirstSuccess(completionService, hedge);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ApolloConfigException("Query config interrupted", ex);
+    } catch (ExecutionException ex) {
+      throw Throwables.propagate(ex.getCause());
+    } finally {
+      //the loser is cancelled, it has no effect if the query is completed already
+      query.cancel(true);
+      if (hedge != null) {
+        hedge.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * @return the first successful response of the query and its hedge
+   * @throws ExecutionException the failure of the one completed last, if both of them fail
+   */
+  private HttpResponse<ApolloConfig> awaitFirstSuccess(CompletionService<HttpResponse<ApolloConfig>> completionService,
+      Future<HttpResponse<ApolloConfig>> hedge) throws InterruptedException, ExecutionException {
+    ExecutionException failure = null;
+    for (int i = 0; i < 2; i++) {
+      Future<HttpResponse<ApolloConfig>> completed = completionService.take();
+      try {
+        HttpResponse<ApolloConfig> response = completed.get();
+        if (completed == hedge) {
+          Metrics.incrementCounter(MetricNames.REMOTE_CONFIG_HEDGE_WINS, m_namespace);
+        }
+        return response;
+      } catch (ExecutionException ex) {
+        failure = ex;
+      }
+    }
+    throw failure;
+  }
+
+  private Callable<HttpResponse<ApolloConfig>> assembleQueryTask(final ServiceDTO configService, final String url) {
+    return new Callable<HttpResponse<ApolloConfig>>() {
+      @Override
+      public HttpResponse<ApolloConfig> call() throws Exception {
+        return queryConfig(configService, url);
+      }
+    };
+  }
+
+  /**
+   * Query the config from the config service, and track the config service with the result
+   */
+  private HttpResponse<ApolloConfig> queryConfig(ServiceDTO configService, String url) {
+    logger.debug("Loading config from {}", url);
+    HttpRequest request = new HttpRequest(url);
+
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigService", "queryConfig");
+    transaction.addData("Url", url);
+    long start = System.nanoTime();
+    try {
+
+      HttpResponse<ApolloConfig> response = m_httpUtil.doGet(request, ApolloConfig.class);
+      long latency = System.nanoTime() - start;
+      m_serviceRouter.onSuccess(configService, TimeUnit.NANOSECONDS.toMillis(latency));
+      Metrics.recordLatency(MetricNames.REMOTE_CONFIG_LOAD_LATENCY, m_namespace, latency);
+
+      transaction.addData("StatusCode", response.getStatusCode());
+      transaction.setStatus(Transaction.SUCCESS);
+      return response;
+    } catch (ApolloConfigStatusCodeException ex) {
+      ApolloConfigStatusCodeException statusCodeException = ex;
+      //config not found
+      if (ex.getStatusCode() == 404) {
+        //the config service is healthy, it's just the config not released
+        m_serviceRouter.onSuccess(configService, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        String message = String.format(
+            "Could not find config for namespace - appId: %s, cluster: %s, namespace: %s, " +
+                "please check whether the configs are released in Apollo!",
+            m_configUtil.getAppId(), m_configUtil.getCluster(), m_namespace);
+        statusCodeException = new ApolloConfigStatusCodeException(ex.getStatusCode(),
+            message);
+      } else {
+        m_serviceRouter.onFailure(configService);
+      }
+      Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(statusCodeException));
+      Metrics.incrementCounter(MetricNames.REMOTE_CONFIG_LOAD_FAILURES, m_namespace);
+      transaction.setStatus(statusCodeException);
+      throw statusCodeException;
+    } catch (Throwable ex) {
+      m_serviceRouter.onFailure(configService);
+      Metrics.incrementCounter(MetricNames.REMOTE_CONFIG_LOAD_FAILURES, m_namespace);
+      Tracer.logEvent("ApolloConfigException", ExceptionUtil.getDetailMessage(ex));
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      transaction.complete();
+    }
+  }
+
   String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace,
                                 String dataCenter, ApolloNotificationMessages remoteMessages, ApolloConfig previousConfig) {
 
@@ -300,11 +472,16 @@ public class RemoteConfigRepository extends AbstractConfigRepository {
   public void onLongPollNotified(ServiceDTO longPollNotifiedServiceDto, ApolloNotificationMessages remoteMessages) {
     m_longPollServiceDto.set(longPollNotifiedServiceDto);
     m_remoteMessages.set(remoteMessages);
+    final long notifiedTime = System.nanoTime();
     m_executorService.submit(new Runnable() {
       @Override
       public void run() {
         m_configNeedForceRefresh.set(true);
-        trySync();
+        if (trySync()) {
+          Metrics.recordLatency(MetricNames.REMOTE_CONFIG_NOTIFICATION_LAG, m_namespace,
+              System.nanoTime() - notifiedTime);
+          m_refreshScheduler.onLongPollSynced(RemoteConfigRepository.this);
+        }
       }
     });
   }
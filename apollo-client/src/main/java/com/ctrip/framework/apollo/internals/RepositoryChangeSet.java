@@ -0,0 +1,115 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * The keys changed between two versions of the properties of a repository, so the listeners could calculate the
+ * changes in O(changed keys) instead of comparing all the properties.
+ *
+ * The versions are identified by the fingerprints of their content, i.e. the sum of the hashes of all the entries, which
+ * is updated with the changed entries only. A listener should only rely on the changed keys if its properties are at
+ * the previous version, see {@link #isBasedOn(long)}, e.g. it might have missed a change before it's registered.
+ */
+public class RepositoryChangeSet {
+  private static final HashFunction ENTRY_HASH_FUNCTION = Hashing.murmur3_128();
+  private final long m_previousFingerprint;
+  private final long m_fingerprint;
+  private final Set<String> m_changedKeys;
+
+  public RepositoryChangeSet(long previousFingerprint, long fingerprint, Set<String> changedKeys) {
+    m_previousFingerprint = previousFingerprint;
+    m_fingerprint = fingerprint;
+    m_changedKeys = changedKeys;
+  }
+
+  /**
+   * @return the keys added, modified or deleted
+   */
+  public Set<String> getChangedKeys() {
+    return m_changedKeys;
+  }
+
+  /**
+   * @return the fingerprint of the properties after the change
+   */
+  public long getFingerprint() {
+    return m_fingerprint;
+  }
+
+  /**
+   * @return true if the change is from the properties with the fingerprint
+   */
+  public boolean isBasedOn(long fingerprint) {
+    return m_previousFingerprint == fingerprint;
+  }
+
+  /**
+   * @return the fingerprint of the properties, 0 for null or empty properties
+   */
+  public static long fingerprint(Map<?, ?> properties) {
+    long fingerprint = 0;
+    if (properties == null) {
+      return fingerprint;
+    }
+    for (Map.Entry<?, ?> entry : properties.entrySet()) {
+      fingerprint += hash(entry.getKey(), entry.getValue());
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Compare all the properties to find the changed keys, and calculate the fingerprint with the changed entries only.
+   *
+   * @param previous            the previous properties, null means empty
+   * @param previousFingerprint the fingerprint of the previous properties
+   * @param current             the current properties, null means empty
+   */
+  public static RepositoryChangeSet diff(Map<?, ?> previous, long previousFingerprint, Map<?, ?> current) {
+    if (previous == null) {
+      previous = Collections.emptyMap();
+    }
+    if (current == null) {
+      current = Collections.emptyMap();
+    }
+
+    ImmutableSet.Builder<String> changedKeys = ImmutableSet.builder();
+    long fingerprint = previousFingerprint;
+
+    for (Map.Entry<?, ?> entry : current.entrySet()) {
+      Object previousValue = previous.get(entry.getKey());
+      if (Objects.equal(previousValue, entry.getValue())) {
+        continue;
+      }
+      changedKeys.add(String.valueOf(entry.getKey()));
+      if (previousValue != null) {
+        fingerprint -= hash(entry.getKey(), previousValue);
+      }
+      fingerprint += hash(entry.getKey(), entry.getValue());
+    }
+
+    for (Map.Entry<?, ?> entry : previous.entrySet()) {
+      if (!current.containsKey(entry.getKey())) {
+        changedKeys.add(String.valueOf(entry.getKey()));
+        fingerprint -= hash(entry.getKey(), entry.getValue());
+      }
+    }
+
+    return new RepositoryChangeSet(previousFingerprint, fingerprint, changedKeys.build());
+  }
+
+  private static long hash(Object key, Object value) {
+    String keyString = String.valueOf(key);
+    return ENTRY_HASH_FUNCTION.newHasher()
+        .putInt(keyString.length())
+        .putUnencodedChars(keyString)
+        .putUnencodedChars(String.valueOf(value))
+        .hash().asLong();
+  }
+}
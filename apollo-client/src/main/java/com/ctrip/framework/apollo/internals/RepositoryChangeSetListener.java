@@ -0,0 +1,18 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.util.Properties;
+
+/**
+ * A repository change listener which is notified with the keys changed, so it doesn't need to compare all the
+ * properties when it's at the previous version of the change set. The other listeners are notified with the
+ * properties only.
+ */
+public interface RepositoryChangeSetListener extends RepositoryChangeListener {
+  /**
+   * Invoked when config repository changes, instead of {@link #onRepositoryChange(String, Properties)}.
+   * @param namespace the namespace of this repository change
+   * @param newProperties the properties after change
+   * @param changeSet the keys changed from the previous version of the properties notified
+   */
+  public void onRepositoryChange(String namespace, Properties newProperties, RepositoryChangeSet changeSet);
+}
@@ -0,0 +1,171 @@
+package com.ctrip.framework.apollo.internals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A memory-mapped file holding the latest content published by one process, and read by the other processes on the
+ * same host.
+ *
+ * Layout: magic(int) | version(long) | content length(int) | synced time(long) | content. The version is odd while the
+ * content is being written, so a reader retries later if the version is odd or changed during the read. The synced time
+ * is when the content was last known to be up to date with the config service, which is renewed by the writer without
+ * changing the version. The content is expected to carry
+ * its own checksum, e.g. {@link BinaryCacheFileFormat}, as the writes of another process might be observed out of
+ * order. The file only grows, so the mappings of the readers stay valid.
+ */
+class SharedConfigFile {
+  private static final int MAGIC = 0x41504c53; //APLS
+  private static final int VERSION_OFFSET = 4;
+  private static final int LENGTH_OFFSET = 12;
+  private static final int SYNCED_TIME_OFFSET = 16;
+  static final int HEADER_LENGTH = 24;
+  static final int MIN_CAPACITY = 64 * 1024;
+
+  private final File m_file;
+  //guarded by this
+  private MappedByteBuffer m_buffer;
+  //guarded by this
+  private boolean m_writable;
+
+  SharedConfigFile(File file) {
+    m_file = file;
+  }
+
+  /**
+   * Publish the content as a new version
+   */
+  synchronized void write(byte[] content) throws IOException {
+    int required = HEADER_LENGTH + content.length;
+    if (!m_writable || m_buffer.capacity() < required) {
+      map(true, required);
+    }
+    if (m_buffer.getInt(0) != MAGIC) {
+      m_buffer.putLong(VERSION_OFFSET, 0);
+      m_buffer.putLong(SYNCED_TIME_OFFSET, 0);
+      m_buffer.putInt(0, MAGIC);
+    }
+
+    long version = m_buffer.getLong(VERSION_OFFSET);
+    //the previous writer might have died in the middle of a write
+    long writingVersion = (version & 1) == 0 ? version + 1 : version + 2;
+    m_buffer.putLong(VERSION_OFFSET, writingVersion);
+    m_buffer.putInt(LENGTH_OFFSET, content.length);
+    ByteBuffer buffer = m_buffer.duplicate();
+    buffer.position(HEADER_LENGTH);
+    buffer.put(content);
+    m_buffer.putLong(VERSION_OFFSET, writingVersion + 1);
+  }
+
+  /**
+   * @param knownVersion the version read last time
+   * @return the content, or null if there is no new version, or it's being written
+   */
+  synchronized Content read(long knownVersion) throws IOException {
+    if (m_buffer == null && !map(false, 0)) {
+      return null;
+    }
+    if (m_buffer.getInt(0) != MAGIC) {
+      return null;
+    }
+    long version = m_buffer.getLong(VERSION_OFFSET);
+    if (version == 0 || version == knownVersion || (version & 1) != 0) {
+      return null;
+    }
+    int length = m_buffer.getInt(LENGTH_OFFSET);
+    if (length < 0) {
+      return null;
+    }
+    //the file is grown by the writer
+    if (HEADER_LENGTH + length > m_buffer.capacity()) {
+      map(m_writable, 0);
+      if (HEADER_LENGTH + length > m_buffer.capacity()) {
+        return null;
+      }
+    }
+
+    byte[] content = new byte[length];
+    ByteBuffer buffer = m_buffer.duplicate();
+    buffer.position(HEADER_LENGTH);
+    buffer.get(content);
+    if (m_buffer.getLong(VERSION_OFFSET) != version) {
+      return null;
+    }
+    return new Content(version, content);
+  }
+
+  /**
+   * Renew the time the published content is known to be up to date
+   */
+  synchronized void writeSyncedTime(long syncedTime) throws IOException {
+    if (!m_writable) {
+      map(true, HEADER_LENGTH);
+    }
+    if (m_buffer.getInt(0) == MAGIC) {
+      m_buffer.putLong(SYNCED_TIME_OFFSET, syncedTime);
+    }
+  }
+
+  /**
+   * @return the time the content was last known to be up to date, or 0 if unknown
+   */
+  synchronized long readSyncedTime() throws IOException {
+    if (m_buffer == null && !map(false, 0)) {
+      return 0;
+    }
+    if (m_buffer.getInt(0) != MAGIC) {
+      return 0;
+    }
+    return m_buffer.getLong(SYNCED_TIME_OFFSET);
+  }
+
+  /**
+   * @return false if the file doesn't exist or is too short to read
+   */
+  private boolean map(boolean writable, int required) throws IOException {
+    if (!writable && !m_file.exists()) {
+      return false;
+    }
+    try (RandomAccessFile file = new RandomAccessFile(m_file, writable ? "rw" : "r")) {
+      long length = file.length();
+      if (writable && length < required) {
+        length = Math.max(required + required / 2, MIN_CAPACITY);
+        file.setLength(length);
+      }
+      if (length < HEADER_LENGTH) {
+        return false;
+      }
+      //the mapping stays valid after the file is closed
+      m_buffer = file.getChannel().map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+          length);
+      m_writable = writable;
+      return true;
+    }
+  }
+
+  File getFile() {
+    return m_file;
+  }
+
+  static class Content {
+    private final long m_version;
+    private final byte[] m_content;
+
+    Content(long version, byte[] content) {
+      m_version = version;
+      m_content = content;
+    }
+
+    long getVersion() {
+      return m_version;
+    }
+
+    byte[] getContent() {
+      return m_content;
+    }
+  }
+}
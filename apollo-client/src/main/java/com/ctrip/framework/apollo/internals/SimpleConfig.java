@@ -19,11 +19,13 @@ import com.google.common.collect.Maps;
 /**
  * @author Jason Song(song_s@ctrip.com)
  */
-public class SimpleConfig extends AbstractConfig implements RepositoryChangeListener {
+public class SimpleConfig extends AbstractConfig implements RepositoryChangeSetListener {
   private static final Logger logger = LoggerFactory.getLogger(SimpleConfig.class);
   private final String m_namespace;
   private final ConfigRepository m_configRepository;
   private volatile Properties m_configProperties;
+  //the fingerprint of the config properties
+  private long m_configFingerprint;
 
   /**
    * Constructor.
@@ -39,7 +41,9 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
 
   private void initialize() {
     try {
-      m_configProperties = m_configRepository.getConfig();
+      Properties properties = m_configRepository.getConfig();
+      m_configFingerprint = RepositoryChangeSet.fingerprint(properties);
+      m_configProperties = properties;
     } catch (Throwable ex) {
       Tracer.logError(ex);
       logger.warn("Init Apollo Simple Config failed - namespace: {}, reason: {}", m_namespace,
@@ -60,6 +64,11 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
     return this.m_configProperties.getProperty(key, defaultValue);
   }
 
+  @Override
+  public long getStalenessInMillis() {
+    return AbstractConfigRepository.stalenessOf(m_configRepository);
+  }
+
   @Override
   public Set<String> getPropertyNames() {
     if (m_configProperties == null) {
@@ -70,16 +79,24 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
   }
 
   @Override
-  public synchronized void onRepositoryChange(String namespace, Properties newProperties) {
-    if (newProperties.equals(m_configProperties)) {
+  public void onRepositoryChange(String namespace, Properties newProperties) {
+    onRepositoryChange(namespace, newProperties, null);
+  }
+
+  @Override
+  public synchronized void onRepositoryChange(String namespace, Properties newProperties,
+      RepositoryChangeSet changeSet) {
+    if (changeSet == null || !changeSet.isBasedOn(m_configFingerprint)) {
+      changeSet = RepositoryChangeSet.diff(m_configProperties, m_configFingerprint, newProperties);
+    }
+    if (m_configProperties != null && changeSet.getChangedKeys().isEmpty()) {
       return;
     }
-    Properties newConfigProperties = new Properties();
-    newConfigProperties.putAll(newProperties);
+    Properties newConfigProperties = ConfigSnapshot.of(newProperties);
 
     List<ConfigChange>
         changes =
-        calcPropertyChanges(namespace, m_configProperties, newConfigProperties);
+        calcPropertyChanges(namespace, m_configProperties, newConfigProperties, changeSet.getChangedKeys());
     Map<String, ConfigChange> changeMap = Maps.uniqueIndex(changes,
         new Function<ConfigChange, String>() {
           @Override
@@ -88,6 +105,7 @@ public class SimpleConfig extends AbstractConfig implements RepositoryChangeList
           }
         });
 
+    m_configFingerprint = changeSet.getFingerprint();
     m_configProperties = newConfigProperties;
     clearConfigCache();
 
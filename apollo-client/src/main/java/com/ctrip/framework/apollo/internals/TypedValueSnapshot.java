@@ -0,0 +1,146 @@
+package com.ctrip.framework.apollo.internals;
+
+import com.google.common.collect.Maps;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The typed values parsed from one version of a config, e.g. the integers, longs and arrays.
+ *
+ * A snapshot is never cleared, it's replaced as a whole when the config changes, so reading a typed value is a
+ * volatile read of the current snapshot plus a hash lookup. The values are parsed and put in lazily.
+ *
+ * Each value expires on its own after it's put, so the values overridden by system properties etc. are picked up
+ * eventually, without reparsing all the values at once. When any kind of values is full, the expired values are
+ * purged, and the new values of the kind are not cached until there is room again.
+ */
+class TypedValueSnapshot {
+  static final int INTEGER = 0;
+  static final int LONG = 1;
+  static final int SHORT = 2;
+  static final int FLOAT = 3;
+  static final int DOUBLE = 4;
+  static final int BYTE = 5;
+  static final int BOOLEAN = 6;
+  static final int DATE = 7;
+  static final int DURATION = 8;
+  private static final int TYPES = 9;
+
+  private final ConcurrentMap<String, Entry>[] m_values;
+  //delimiter -> key -> array
+  private final ConcurrentMap<String, ConcurrentMap<String, Entry>> m_arrays;
+  private final long m_maxSize;
+  private final long m_expireTimeInNanos;
+  //purge the expired values at most once per expire time, as it scans all the values
+  private volatile long m_nextPurgeAtInNanos;
+
+  @SuppressWarnings("unchecked")
+  TypedValueSnapshot(long maxSize, long expireTimeInNanos, long nowInNanos) {
+    m_values = new ConcurrentMap[TYPES];
+    for (int i = 0; i < TYPES; i++) {
+      m_values[i] = Maps.newConcurrentMap();
+    }
+    m_arrays = Maps.newConcurrentMap();
+    m_maxSize = maxSize;
+    m_expireTimeInNanos = expireTimeInNanos;
+    //nothing expires before then
+    m_nextPurgeAtInNanos = nowInNanos + expireTimeInNanos;
+  }
+
+  /**
+   * @return the value, or null if it's not cached or expired
+   */
+  @SuppressWarnings("unchecked")
+  <T> T get(int type, String key, long nowInNanos) {
+    return (T) get(m_values[type], key, nowInNanos);
+  }
+
+  /**
+   * @return false if the values of the type is full, then the value is not cached
+   */
+  boolean put(int type, String key, Object value, long nowInNanos) {
+    return put(m_values[type], key, value, nowInNanos);
+  }
+
+  String[] getArray(String delimiter, String key, long nowInNanos) {
+    ConcurrentMap<String, Entry> arrays = m_arrays.get(delimiter);
+    return arrays == null ? null : (String[]) get(arrays, key, nowInNanos);
+  }
+
+  /**
+   * @return false if the arrays of the delimiter is full, then the array is not cached
+   */
+  boolean putArray(String delimiter, String key, String[] value, long nowInNanos) {
+    ConcurrentMap<String, Entry> arrays = m_arrays.get(delimiter);
+    if (arrays == null) {
+      arrays = Maps.newConcurrentMap();
+      ConcurrentMap<String, Entry> previous = m_arrays.putIfAbsent(delimiter, arrays);
+      if (previous != null) {
+        arrays = previous;
+      }
+    }
+    return put(arrays, key, value, nowInNanos);
+  }
+
+  private Object get(ConcurrentMap<String, Entry> values, String key, long nowInNanos) {
+    Entry entry = values.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.isExpired(nowInNanos)) {
+      values.remove(key, entry);
+      return null;
+    }
+    return entry.value;
+  }
+
+  private boolean put(ConcurrentMap<String, Entry> values, String key, Object value, long nowInNanos) {
+    if (values.size() >= m_maxSize && !values.containsKey(key) && !purgeExpired(values, nowInNanos)) {
+      return false;
+    }
+    values.put(key, new Entry(value, nowInNanos + m_expireTimeInNanos));
+    return true;
+  }
+
+  /**
+   * Purge the expired values of all kinds
+   *
+   * @return whether there is room for the values after purging
+   */
+  private boolean purgeExpired(ConcurrentMap<String, Entry> values, long nowInNanos) {
+    if (nowInNanos - m_nextPurgeAtInNanos < 0) {
+      return false;
+    }
+    m_nextPurgeAtInNanos = nowInNanos + m_expireTimeInNanos;
+    for (ConcurrentMap<String, Entry> typedValues : m_values) {
+      purgeExpired(typedValues.values().iterator(), nowInNanos);
+    }
+    for (ConcurrentMap<String, Entry> arrays : m_arrays.values()) {
+      purgeExpired(arrays.values().iterator(), nowInNanos);
+    }
+    return values.size() < m_maxSize;
+  }
+
+  private void purgeExpired(Iterator<Entry> iterator, long nowInNanos) {
+    while (iterator.hasNext()) {
+      if (iterator.next().isExpired(nowInNanos)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static class Entry {
+    private final Object value;
+    private final long expireAtInNanos;
+
+    Entry(Object value, long expireAtInNanos) {
+      this.value = value;
+      this.expireAtInNanos = expireAtInNanos;
+    }
+
+    boolean isExpired(long nowInNanos) {
+      return nowInNanos - expireAtInNanos >= 0;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.ctrip.framework.apollo.metrics;
+
+/**
+ * The names of the metrics reported by the apollo client
+ */
+public final class MetricNames {
+  /**
+   * The latency of loading the config of a namespace from the config service, tagged by the namespace
+   */
+  public static final String REMOTE_CONFIG_LOAD_LATENCY = "Apollo.Client.RemoteConfig.LoadLatency";
+  /**
+   * The failures of loading the config of a namespace from the config service, tagged by the namespace
+   */
+  public static final String REMOTE_CONFIG_LOAD_FAILURES = "Apollo.Client.RemoteConfig.LoadFailures";
+  /**
+   * The lag from a long poll notification to the config being applied, tagged by the namespace
+   */
+  public static final String REMOTE_CONFIG_NOTIFICATION_LAG = "Apollo.Client.RemoteConfig.NotificationLag";
+  /**
+   * The queries of a namespace hedged with another config service, tagged by the namespace
+   */
+  public static final String REMOTE_CONFIG_HEDGES = "Apollo.Client.RemoteConfig.Hedges";
+  /**
+   * The hedged queries of a namespace answered by the hedge first, tagged by the namespace
+   */
+  public static final String REMOTE_CONFIG_HEDGE_WINS = "Apollo.Client.RemoteConfig.HedgeWins";
+  /**
+   * The time of a long poll cycle, tagged by the status code, or error
+   */
+  public static final String LONG_POLL_CYCLE_TIME = "Apollo.Client.LongPoll.CycleTime";
+  /**
+   * The notifications received by long polling, tagged by the namespace
+   */
+  public static final String LONG_POLL_NOTIFICATIONS = "Apollo.Client.LongPoll.Notifications";
+  /**
+   * The latency of loading the local cache file of a namespace, tagged by the namespace
+   */
+  public static final String LOCAL_CACHE_FILE_LOAD_LATENCY = "Apollo.Client.LocalCacheFile.LoadLatency";
+  /**
+   * The latency of persisting the local cache file of a namespace, tagged by the namespace
+   */
+  public static final String LOCAL_CACHE_FILE_PERSIST_LATENCY = "Apollo.Client.LocalCacheFile.PersistLatency";
+  /**
+   * The failures of persisting the local cache files of a namespace, tagged by the namespace
+   */
+  public static final String LOCAL_CACHE_FILE_PERSIST_FAILURES = "Apollo.Client.LocalCacheFile.PersistFailures";
+  /**
+   * The time of a change listener handling a change event, tagged by the listener class
+   */
+  public static final String CHANGE_LISTENER_LATENCY = "Apollo.Client.ChangeListener.Latency";
+  /**
+   * The change events merged into the pending ones of the busy listeners, tagged by the listener class
+   */
+  public static final String CHANGE_LISTENER_COALESCED_EVENTS = "Apollo.Client.ChangeListener.CoalescedEvents";
+  /**
+   * The change events taking a listener more than 1 second, tagged by the listener class
+   */
+  public static final String CHANGE_LISTENER_SLOW_INVOCATIONS = "Apollo.Client.ChangeListener.SlowInvocations";
+
+  public static final String NO_TAG = "";
+
+  private MetricNames() {
+  }
+}
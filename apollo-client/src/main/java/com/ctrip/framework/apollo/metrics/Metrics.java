@@ -0,0 +1,53 @@
+package com.ctrip.framework.apollo.metrics;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.metrics.internals.NullMetricsReporter;
+import com.ctrip.framework.apollo.metrics.spi.MetricsReporter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Report the metrics to the {@link MetricsReporter} loaded by {@link ApolloInjector}, or drop them if there is no
+ * reporter available.
+ */
+public abstract class Metrics {
+  private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+  private static final MetricsReporter NULL_METRICS_REPORTER = new NullMetricsReporter();
+  private static volatile MetricsReporter s_reporter;
+
+  private static MetricsReporter getReporter() {
+    MetricsReporter reporter = s_reporter;
+    if (reporter != null) {
+      return reporter;
+    }
+    try {
+      reporter = ApolloInjector.getInstance(MetricsReporter.class);
+    } catch (Throwable ex) {
+      logger.warn("Failed to initialize metrics reporter, use null metrics reporter.", ex);
+      reporter = NULL_METRICS_REPORTER;
+    }
+    //the injector might not be ready yet, e.g. in unit tests
+    if (reporter == null) {
+      return NULL_METRICS_REPORTER;
+    }
+    s_reporter = reporter;
+    return reporter;
+  }
+
+  public static void recordLatency(String name, String tag, long latencyInNanos) {
+    try {
+      getReporter().recordLatency(name, tag, latencyInNanos);
+    } catch (Throwable ex) {
+      logger.warn("Failed to record latency for metric: {}, tag: {}", name, tag, ex);
+    }
+  }
+
+  public static void incrementCounter(String name, String tag) {
+    try {
+      getReporter().incrementCounter(name, tag);
+    } catch (Throwable ex) {
+      logger.warn("Failed to increment counter for metric: {}, tag: {}", name, tag, ex);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import com.ctrip.framework.apollo.metrics.spi.MetricsReporter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keep the metrics in memory with lock-free histograms and counters, and expose them via JMX as
+ * {@value #OBJECT_NAME}.
+ */
+public class DefaultMetricsReporter implements MetricsReporter, MetricsMXBean {
+  private static final Logger logger = LoggerFactory.getLogger(DefaultMetricsReporter.class);
+  static final String OBJECT_NAME = "com.ctrip.framework.apollo:type=Metrics";
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  //name -> tag -> metric, so the metrics are looked up without building the keys
+  private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> m_latencies = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> m_counters = Maps.newConcurrentMap();
+
+  public DefaultMetricsReporter() {
+    registerMBean();
+  }
+
+  @Override
+  public void recordLatency(String name, String tag, long latencyInNanos) {
+    ConcurrentMap<String, Histogram> histograms = getOrCreate(m_latencies, name);
+    tag = Strings.nullToEmpty(tag);
+    Histogram histogram = histograms.get(tag);
+    if (histogram == null) {
+      histogram = new Histogram();
+      Histogram previous = histograms.putIfAbsent(tag, histogram);
+      if (previous != null) {
+        histogram = previous;
+      }
+    }
+    histogram.record(latencyInNanos);
+  }
+
+  @Override
+  public void incrementCounter(String name, String tag) {
+    ConcurrentMap<String, AtomicLong> counters = getOrCreate(m_counters, name);
+    tag = Strings.nullToEmpty(tag);
+    AtomicLong counter = counters.get(tag);
+    if (counter == null) {
+      counter = new AtomicLong();
+      AtomicLong previous = counters.putIfAbsent(tag, counter);
+      if (previous != null) {
+        counter = previous;
+      }
+    }
+    counter.incrementAndGet();
+  }
+
+  @Override
+  public Map<String, Long> getCounters() {
+    Map<String, Long> counters = Maps.newTreeMap();
+    for (Map.Entry<String, ConcurrentMap<String, AtomicLong>> named : m_counters.entrySet()) {
+      for (Map.Entry<String, AtomicLong> tagged : named.getValue().entrySet()) {
+        counters.put(assembleKey(named.getKey(), tagged.getKey()), tagged.getValue().get());
+      }
+    }
+    return counters;
+  }
+
+  @Override
+  public Map<String, HistogramSnapshot> getLatencies() {
+    Map<String, HistogramSnapshot> latencies = Maps.newTreeMap();
+    for (Map.Entry<String, ConcurrentMap<String, Histogram>> named : m_latencies.entrySet()) {
+      for (Map.Entry<String, Histogram> tagged : named.getValue().entrySet()) {
+        latencies.put(assembleKey(named.getKey(), tagged.getKey()), tagged.getValue().snapshot(NANOS_PER_MILLI));
+      }
+    }
+    return latencies;
+  }
+
+  private static <T> ConcurrentMap<String, T> getOrCreate(ConcurrentMap<String, ConcurrentMap<String, T>> metrics,
+      String name) {
+    ConcurrentMap<String, T> tagged = metrics.get(name);
+    if (tagged == null) {
+      tagged = Maps.newConcurrentMap();
+      ConcurrentMap<String, T> previous = metrics.putIfAbsent(name, tagged);
+      if (previous != null) {
+        tagged = previous;
+      }
+    }
+    return tagged;
+  }
+
+  private static String assembleKey(String name, String tag) {
+    return Strings.isNullOrEmpty(tag) ? name : name + "[" + tag + "]";
+  }
+
+  private void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException ex) {
+      //e.g. the client is loaded by multiple class loaders
+      logger.debug("Apollo metrics MBean {} is already registered", OBJECT_NAME);
+    } catch (Throwable ex) {
+      logger.warn("Failed to register apollo metrics MBean {}", OBJECT_NAME, ex);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, e.g. latencies in nanoseconds.
+ *
+ * The values are counted in log-linear buckets, i.e. each power of 2 is split into 8 buckets, so the percentiles are
+ * within 12.5% of the exact ones, with a few kilobytes per histogram. The values above 2^41 are counted as 2^41.
+ */
+class Histogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final long MAX_VALUE = (1L << 41) - 1;
+
+  private final AtomicLongArray m_buckets = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+  private final AtomicLong m_sum = new AtomicLong();
+  private final AtomicLong m_max = new AtomicLong();
+
+  void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    m_buckets.incrementAndGet(bucketIndex(Math.min(value, MAX_VALUE)));
+    m_sum.addAndGet(value);
+    long max = m_max.get();
+    while (value > max && !m_max.compareAndSet(max, value)) {
+      max = m_max.get();
+    }
+  }
+
+  /**
+   * The snapshot is not atomic, the values recorded meanwhile might be counted partially
+   */
+  HistogramSnapshot snapshot(double unitInNanos) {
+    long[] buckets = new long[m_buckets.length()];
+    long count = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = m_buckets.get(i);
+      count += buckets[i];
+    }
+    long max = m_max.get();
+    double mean = count == 0 ? 0 : m_sum.get() / (double) count;
+    return new HistogramSnapshot(count, mean / unitInNanos, max / unitInNanos,
+        percentile(buckets, count, max, 0.5) / unitInNanos, percentile(buckets, count, max, 0.9) / unitInNanos,
+        percentile(buckets, count, max, 0.99) / unitInNanos, percentile(buckets, count, max, 0.999) / unitInNanos);
+  }
+
+  private static long percentile(long[] buckets, long count, long max, double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(percentile * count);
+    long counted = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      counted += buckets[i];
+      if (counted >= rank) {
+        return Math.min(bucketUpperBound(i), max);
+      }
+    }
+    return max;
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the max value counted in the bucket
+   */
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,61 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The snapshot of a histogram exposed via JMX, the values are in milliseconds
+ */
+public class HistogramSnapshot {
+  private final long count;
+  private final double mean;
+  private final double max;
+  private final double p50;
+  private final double p90;
+  private final double p99;
+  private final double p999;
+
+  @ConstructorProperties({"count", "mean", "max", "p50", "p90", "p99", "p999"})
+  public HistogramSnapshot(long count, double mean, double max, double p50, double p90, double p99, double p999) {
+    this.count = count;
+    this.mean = mean;
+    this.max = max;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.p999 = p999;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public double getP50() {
+    return p50;
+  }
+
+  public double getP90() {
+    return p90;
+  }
+
+  public double getP99() {
+    return p99;
+  }
+
+  public double getP999() {
+    return p999;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("HistogramSnapshot{count=%d, mean=%.3f, max=%.3f, p50=%.3f, p90=%.3f, p99=%.3f, p999=%.3f}",
+        count, mean, max, p50, p90, p99, p999);
+  }
+}
@@ -0,0 +1,15 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import java.util.Map;
+
+/**
+ * The metrics of the apollo client exposed via JMX, the metrics are keyed by name[tag]
+ */
+public interface MetricsMXBean {
+  Map<String, Long> getCounters();
+
+  /**
+   * @return the histograms of the latencies in milliseconds
+   */
+  Map<String, HistogramSnapshot> getLatencies();
+}
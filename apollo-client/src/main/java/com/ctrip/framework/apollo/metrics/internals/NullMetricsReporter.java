@@ -0,0 +1,13 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import com.ctrip.framework.apollo.metrics.spi.MetricsReporter;
+
+public class NullMetricsReporter implements MetricsReporter {
+  @Override
+  public void recordLatency(String name, String tag, long latencyInNanos) {
+  }
+
+  @Override
+  public void incrementCounter(String name, String tag) {
+  }
+}
@@ -0,0 +1,27 @@
+package com.ctrip.framework.apollo.metrics.spi;
+
+/**
+ * The SPI to report the metrics of the apollo client, which is loaded by {@link
+ * com.ctrip.framework.apollo.build.ApolloInjector}, so it could be replaced by a customized injector, e.g. to report to
+ * the monitoring system of the application.
+ *
+ * The methods are called on the hot paths of the client, so they should be cheap and never block.
+ */
+public interface MetricsReporter {
+  /**
+   * Record the latency of an operation.
+   *
+   * @param name the metric name, see {@link com.ctrip.framework.apollo.metrics.MetricNames}
+   * @param tag the tag of the metric, e.g. the namespace, empty if there is no tag
+   * @param latencyInNanos the latency in nanoseconds
+   */
+  public void recordLatency(String name, String tag, long latencyInNanos);
+
+  /**
+   * Increase a counter by one.
+   *
+   * @param name the metric name, see {@link com.ctrip.framework.apollo.metrics.MetricNames}
+   * @param tag the tag of the metric, e.g. the namespace, empty if there is no tag
+   */
+  public void incrementCounter(String name, String tag);
+}
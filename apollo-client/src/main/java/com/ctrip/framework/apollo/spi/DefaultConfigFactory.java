@@ -1,5 +1,8 @@
 package com.ctrip.framework.apollo.spi;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,8 +10,10 @@ import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigFile;
 import com.ctrip.framework.apollo.build.ApolloInjector;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.internals.ConfigRepository;
 import com.ctrip.framework.apollo.internals.DefaultConfig;
+import com.ctrip.framework.apollo.internals.HostSharedConfigRepository;
 import com.ctrip.framework.apollo.internals.JsonConfigFile;
 import com.ctrip.framework.apollo.internals.LocalFileConfigRepository;
 import com.ctrip.framework.apollo.internals.PropertiesConfigFile;
@@ -16,6 +21,7 @@ import com.ctrip.framework.apollo.internals.RemoteConfigRepository;
 import com.ctrip.framework.apollo.internals.XmlConfigFile;
 import com.ctrip.framework.apollo.internals.YamlConfigFile;
 import com.ctrip.framework.apollo.internals.YmlConfigFile;
+import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 
 /**
@@ -23,14 +29,27 @@ import com.ctrip.framework.apollo.util.ConfigUtil;
  */
 public class DefaultConfigFactory implements ConfigFactory {
   private static final Logger logger = LoggerFactory.getLogger(DefaultConfigFactory.class);
+  private static final ExecutorService m_executorService;
   private ConfigUtil m_configUtil;
 
+  static {
+    m_executorService = Executors.newCachedThreadPool(ApolloThreadFactory.create("DefaultConfigFactory", true));
+  }
+
   public DefaultConfigFactory() {
     m_configUtil = ApolloInjector.getInstance(ConfigUtil.class);
   }
 
   @Override
   public Config create(String namespace) {
+    LocalFileConfigRepository offlineConfigRepository = createOfflineFirstConfigRepository(namespace);
+    if (offlineConfigRepository != null) {
+      DefaultConfig defaultConfig = new DefaultConfig(namespace, offlineConfigRepository);
+      //connect after the config listens to the repository, so the changes from remote are not missed
+      connectRemoteConfigRepositoryInBackground(namespace, offlineConfigRepository);
+      return defaultConfig;
+    }
+
     DefaultConfig defaultConfig =
         new DefaultConfig(namespace, createLocalConfigRepository(namespace));
     return defaultConfig;
@@ -38,7 +57,18 @@ public class DefaultConfigFactory implements ConfigFactory {
 
   @Override
   public ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat) {
-    ConfigRepository configRepository = createLocalConfigRepository(namespace);
+    LocalFileConfigRepository offlineConfigRepository = createOfflineFirstConfigRepository(namespace);
+    if (offlineConfigRepository != null) {
+      ConfigFile configFile = createConfigFile(namespace, configFileFormat, offlineConfigRepository);
+      connectRemoteConfigRepositoryInBackground(namespace, offlineConfigRepository);
+      return configFile;
+    }
+
+    return createConfigFile(namespace, configFileFormat, createLocalConfigRepository(namespace));
+  }
+
+  private ConfigFile createConfigFile(String namespace, ConfigFileFormat configFileFormat,
+      ConfigRepository configRepository) {
     switch (configFileFormat) {
       case Properties:
         return new PropertiesConfigFile(namespace, configRepository);
@@ -62,7 +92,57 @@ public class DefaultConfigFactory implements ConfigFactory {
           namespace);
       return new LocalFileConfigRepository(namespace);
     }
-    return new LocalFileConfigRepository(namespace, createRemoteConfigRepository(namespace));
+    return new LocalFileConfigRepository(namespace, createUpstreamConfigRepository(namespace));
+  }
+
+  /**
+   * Create the repository serving the local cache file only, if the offline-first startup is enabled and the local
+   * cache file is fresh enough
+   *
+   * @return the repository, or null if the config should be loaded from the config service at startup
+   */
+  LocalFileConfigRepository createOfflineFirstConfigRepository(String namespace) {
+    if (!m_configUtil.isOfflineFirstStartupEnabled() || m_configUtil.isInLocalMode()) {
+      return null;
+    }
+    LocalFileConfigRepository localConfigRepository = new LocalFileConfigRepository(namespace);
+    long staleness = localConfigRepository.getStalenessInMillis();
+    long maxStaleness = m_configUtil.getOfflineFirstMaxStalenessTimeUnit()
+        .toMillis(m_configUtil.getOfflineFirstMaxStaleness());
+    if (staleness > maxStaleness) {
+      logger.info("Local cache file of namespace {} is missing or too stale, load it from the config service",
+          namespace);
+      return null;
+    }
+    logger.debug("Serve namespace {} from local cache file with staleness {} ms", namespace, staleness);
+    Tracer.logEvent("Apollo.Client.OfflineFirstStartup", namespace);
+    return localConfigRepository;
+  }
+
+  private void connectRemoteConfigRepositoryInBackground(final String namespace,
+      final LocalFileConfigRepository localConfigRepository) {
+    m_executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          //the change events are fired once the config is synced
+          localConfigRepository.setUpstreamRepository(createUpstreamConfigRepository(namespace));
+        } catch (Throwable ex) {
+          Tracer.logError(ex);
+          logger.warn("Connect namespace {} to the config service failed", namespace, ex);
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the repository syncing with the config service, directly or through the host shared cache
+   */
+  ConfigRepository createUpstreamConfigRepository(String namespace) {
+    if (m_configUtil.isHostSharedCacheEnabled()) {
+      return new HostSharedConfigRepository(namespace);
+    }
+    return createRemoteConfigRepository(namespace);
   }
 
   RemoteConfigRepository createRemoteConfigRepository(String namespace) {
@@ -3,10 +3,13 @@ package com.ctrip.framework.apollo.spring.annotation;
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.Configs;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Set;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.util.ReflectionUtils;
 
@@ -58,10 +61,21 @@ public class ApolloAnnotationProcessor extends ApolloProcessor {
       }
     };
 
+    String[] annotatedInterestedKeys = annotation.interestedKeys();
+    String[] annotatedInterestedKeyPrefixes = annotation.interestedKeyPrefixes();
+    Set<String> interestedKeys =
+        annotatedInterestedKeys.length > 0 ? Sets.newHashSet(annotatedInterestedKeys) : null;
+    Set<String> interestedKeyPrefixes =
+        annotatedInterestedKeyPrefixes.length > 0 ? Sets.newHashSet(annotatedInterestedKeyPrefixes) : null;
+
     for (String namespace : namespaces) {
       Config config = ConfigService.getConfig(namespace);
 
-      config.addChangeListener(configChangeListener);
+      if (interestedKeys == null && interestedKeyPrefixes == null) {
+        config.addChangeListener(configChangeListener);
+      } else {
+        Configs.addChangeListener(config, configChangeListener, interestedKeys, interestedKeyPrefixes);
+      }
     }
   }
 }
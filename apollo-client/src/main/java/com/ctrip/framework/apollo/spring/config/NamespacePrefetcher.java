@@ -0,0 +1,67 @@
+package com.ctrip.framework.apollo.spring.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ctrip.framework.apollo.ConfigService;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Load the configs of the namespaces concurrently, so the first sync of each namespace doesn't wait for the others.
+ *
+ * The configs are created and cached by {@link ConfigService} as usual, so the property sources could be assembled in
+ * order afterwards without waiting for the remote config service.
+ */
+public class NamespacePrefetcher {
+  private static final Logger logger = LoggerFactory.getLogger(NamespacePrefetcher.class);
+
+  public static void prefetch(Collection<String> namespaces) {
+    Set<String> distinctNamespaces = Sets.newLinkedHashSet(namespaces);
+    if (distinctNamespaces.size() <= 1) {
+      return;
+    }
+
+    int parallelism = Math.min(distinctNamespaces.size(),
+        ApolloInjector.getInstance(ConfigUtil.class).getNamespacePrefetchParallelism());
+    ExecutorService executorService = Executors.newFixedThreadPool(parallelism,
+        ApolloThreadFactory.create("NamespacePrefetcher", true));
+
+    try {
+      List<Future<?>> futures = Lists.newArrayListWithCapacity(distinctNamespaces.size());
+      for (final String namespace : distinctNamespaces) {
+        futures.add(executorService.submit(new Runnable() {
+          @Override
+          public void run() {
+            ConfigService.getConfig(namespace);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          //the namespace is loaded again when its property source is assembled
+          Tracer.logError(ex.getCause());
+          logger.warn("Prefetch namespace failed", ex.getCause());
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}
@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.spring.util.SpringInjector;
 import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
 import com.ctrip.framework.apollo.Config;
@@ -67,6 +68,14 @@ public class PropertySourcesProcessor implements BeanFactoryPostProcessor, Envir
 
     //sort by order asc
     ImmutableSortedSet<Integer> orders = ImmutableSortedSet.copyOf(NAMESPACE_NAMES.keySet());
+
+    //load all the namespaces concurrently, and then assemble the property sources by order
+    List<String> namespaces = Lists.newArrayList();
+    for (Integer order : orders) {
+      namespaces.addAll(NAMESPACE_NAMES.get(order));
+    }
+    NamespacePrefetcher.prefetch(namespaces);
+
     Iterator<Integer> iterator = orders.iterator();
 
     while (iterator.hasNext()) {
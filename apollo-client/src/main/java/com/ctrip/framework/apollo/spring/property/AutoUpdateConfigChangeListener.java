@@ -5,12 +5,12 @@ import com.ctrip.framework.apollo.enums.PropertyChangeType;
 import com.ctrip.framework.apollo.model.ConfigChange;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.util.SpringInjector;
-import com.google.gson.Gson;
+import com.google.common.collect.Maps;
 import java.lang.reflect.Field;
-import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.TypeConverter;
@@ -31,7 +31,8 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
   private final TypeConverter typeConverter;
   private final PlaceholderHelper placeholderHelper;
   private final SpringValueRegistry springValueRegistry;
-  private final Gson gson;
+  //spring value -> the updater compiled, the spring values are compared by identity
+  private final ConcurrentMap<SpringValue, SpringValueUpdater> updaters = Maps.newConcurrentMap();
 
   public AutoUpdateConfigChangeListener(Environment environment, ConfigurableListableBeanFactory beanFactory){
     this.typeConverterHasConvertIfNecessaryWithFieldParameter = testTypeConverterHasConvertIfNecessaryWithFieldParameter();
@@ -40,7 +41,6 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
     this.environment = environment;
     this.placeholderHelper = SpringInjector.getInstance(PlaceholderHelper.class);
     this.springValueRegistry = SpringInjector.getInstance(SpringValueRegistry.class);
-    this.gson = new Gson();
   }
 
   @Override
@@ -87,8 +87,7 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
 
   private void updateSpringValue(SpringValue springValue) {
     try {
-      Object value = resolvePropertyValue(springValue);
-      springValue.update(value);
+      Object value = getUpdater(springValue).update();
 
       logger.info("Auto update apollo changed value successfully, new value: {}, {}", value,
           springValue);
@@ -98,41 +97,19 @@ public class AutoUpdateConfigChangeListener implements ConfigChangeListener{
   }
 
   /**
-   * Logic transplanted from DefaultListableBeanFactory
-   * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
+   * The updater is compiled when the spring value is updated for the first time
    */
-  private Object resolvePropertyValue(SpringValue springValue) {
-    // value will never be null, as @Value and @ApolloJsonValue will not allow that
-    Object value = placeholderHelper
-        .resolvePropertyValue(beanFactory, springValue.getBeanName(), springValue.getPlaceholder());
-
-    if (springValue.isJson()) {
-      value = parseJsonValue((String)value, springValue.getGenericType());
-    } else {
-      if (springValue.isField()) {
-        // org.springframework.beans.TypeConverter#convertIfNecessary(java.lang.Object, java.lang.Class, java.lang.reflect.Field) is available from Spring 3.2.0+
-        if (typeConverterHasConvertIfNecessaryWithFieldParameter) {
-          value = this.typeConverter
-              .convertIfNecessary(value, springValue.getTargetType(), springValue.getField());
-        } else {
-          value = this.typeConverter.convertIfNecessary(value, springValue.getTargetType());
-        }
-      } else {
-        value = this.typeConverter.convertIfNecessary(value, springValue.getTargetType(),
-            springValue.getMethodParameter());
+  private SpringValueUpdater getUpdater(SpringValue springValue) {
+    SpringValueUpdater updater = updaters.get(springValue);
+    if (updater == null) {
+      updater = new SpringValueUpdater(springValue, beanFactory, environment, typeConverter,
+          typeConverterHasConvertIfNecessaryWithFieldParameter, placeholderHelper);
+      SpringValueUpdater previous = updaters.putIfAbsent(springValue, updater);
+      if (previous != null) {
+        updater = previous;
       }
     }
-
-    return value;
-  }
-
-  private Object parseJsonValue(String json, Type targetType) {
-    try {
-      return gson.fromJson(json, targetType);
-    } catch (Throwable ex) {
-      logger.error("Parsing json '{}' to type {} failed!", json, targetType, ex);
-      throw ex;
-    }
+    return updater;
   }
 
   private boolean testTypeConverterHasConvertIfNecessaryWithFieldParameter() {
@@ -1,8 +1,12 @@
 package com.ctrip.framework.apollo.spring.property;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import org.springframework.core.MethodParameter;
 
@@ -13,6 +17,20 @@ import org.springframework.core.MethodParameter;
  * @since 2018/2/6.
  */
 public class SpringValue {
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class);
+  private static final MethodHandle REFLECTIVE_FIELD_SETTER;
+  private static final MethodHandle REFLECTIVE_METHOD_INVOKER;
+
+  static {
+    try {
+      REFLECTIVE_FIELD_SETTER = MethodHandles.lookup().findVirtual(Field.class, "set",
+          MethodType.methodType(void.class, Object.class, Object.class));
+      REFLECTIVE_METHOD_INVOKER = MethodHandles.lookup().findVirtual(Method.class, "invoke",
+          MethodType.methodType(Object.class, Object.class, Object[].class));
+    } catch (ReflectiveOperationException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
 
   private MethodParameter methodParameter;
   private Field field;
@@ -23,6 +41,8 @@ public class SpringValue {
   private Class<?> targetType;
   private Type genericType;
   private boolean isJson;
+  //the setter bound to the bean, i.e. (Object)void
+  private MethodHandle setter;
 
   public SpringValue(String key, String placeholder, Object bean, String beanName, Field field, boolean isJson) {
     this.bean = bean;
@@ -35,6 +55,7 @@ public class SpringValue {
     if(isJson){
       this.genericType = field.getGenericType();
     }
+    this.setter = compileFieldSetter(bean, field);
   }
 
   public SpringValue(String key, String placeholder, Object bean, String beanName, Method method, boolean isJson) {
@@ -49,26 +70,42 @@ public class SpringValue {
     if(isJson){
       this.genericType = method.getGenericParameterTypes()[0];
     }
+    this.setter = compileMethodSetter(bean, method);
   }
 
-  public void update(Object newVal) throws IllegalAccessException, InvocationTargetException {
-    if (isField()) {
-      injectField(newVal);
-    } else {
-      injectMethod(newVal);
+  private static MethodHandle compileFieldSetter(Object bean, Field field) {
+    field.setAccessible(true);
+    try {
+      MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+      if (!Modifier.isStatic(field.getModifiers())) {
+        setter = setter.bindTo(bean);
+      }
+      return setter.asType(SETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      //e.g. final fields, which could only be set by reflection
+      return REFLECTIVE_FIELD_SETTER.bindTo(field).bindTo(bean);
     }
   }
 
-  private void injectField(Object newVal) throws IllegalAccessException {
-    boolean accessible = field.isAccessible();
-    field.setAccessible(true);
-    field.set(bean, newVal);
-    field.setAccessible(accessible);
+  private static MethodHandle compileMethodSetter(Object bean, Method method) {
+    method.setAccessible(true);
+    try {
+      MethodHandle setter = MethodHandles.lookup().unreflect(method);
+      if (!Modifier.isStatic(method.getModifiers())) {
+        setter = setter.bindTo(bean);
+      }
+      return setter.asType(SETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      return REFLECTIVE_METHOD_INVOKER.bindTo(method).bindTo(bean).asCollector(Object[].class, 1).asType(SETTER_TYPE);
+    }
   }
 
-  private void injectMethod(Object newVal)
-      throws InvocationTargetException, IllegalAccessException {
-    methodParameter.getMethod().invoke(bean, newVal);
+  public void update(Object newVal) throws IllegalAccessException, InvocationTargetException {
+    try {
+      setter.invokeExact(newVal);
+    } catch (Throwable ex) {
+      throw new InvocationTargetException(ex);
+    }
   }
 
   public String getBeanName() {
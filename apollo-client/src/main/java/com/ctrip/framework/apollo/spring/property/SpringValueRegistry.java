@@ -1,17 +1,35 @@
 package com.ctrip.framework.apollo.spring.property;
 
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Maps;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * The spring values indexed by the keys, which are registered while the beans are initialized and read by the config
+ * change threads concurrently.
+ */
 public class SpringValueRegistry {
-  private final Multimap<String, SpringValue> registry = LinkedListMultimap.create();
+  private final ConcurrentMap<String, Collection<SpringValue>> registry = Maps.newConcurrentMap();
 
   public void register(String key, SpringValue springValue) {
-    registry.put(key, springValue);
+    Collection<SpringValue> springValues = registry.get(key);
+    if (springValues == null) {
+      springValues = new ConcurrentLinkedQueue<>();
+      Collection<SpringValue> previous = registry.putIfAbsent(key, springValues);
+      if (previous != null) {
+        springValues = previous;
+      }
+    }
+    springValues.add(springValue);
   }
 
+  /**
+   * @return the spring values of the key in the registration order, which are iterated without copying
+   */
   public Collection<SpringValue> get(String key) {
-    return registry.get(key);
+    Collection<SpringValue> springValues = registry.get(key);
+    return springValues == null ? Collections.<SpringValue>emptyList() : springValues;
   }
 }
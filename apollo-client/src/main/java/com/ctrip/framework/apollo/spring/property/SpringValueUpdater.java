@@ -0,0 +1,176 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import com.google.gson.Gson;
+import java.lang.reflect.Type;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.PropertyEditorRegistry;
+import org.springframework.beans.TypeConverter;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.core.env.Environment;
+
+/**
+ * The update of a {@link SpringValue} compiled once, so a config change only resolves and converts the new value:
+ * <ul>
+ * <li>a simple placeholder, i.e. ${key} or ${key:defaultValue}, is parsed once and resolved by the environment
+ * directly, if it's resolved to the same value as the bean factory when compiled</li>
+ * <li>the conversion of a string value to a string field is skipped, unless there are custom editors</li>
+ * <li>the value is set by the method handle of the spring value</li>
+ * </ul>
+ */
+class SpringValueUpdater {
+  private static final Logger logger = LoggerFactory.getLogger(SpringValueUpdater.class);
+  private static final Gson gson = new Gson();
+  private static final String PLACEHOLDER_PREFIX = "${";
+  private static final String PLACEHOLDER_SUFFIX = "}";
+  private static final String VALUE_SEPARATOR = ":";
+  private static final String EXPRESSION_PREFIX = "#{";
+
+  private final SpringValue springValue;
+  private final ConfigurableBeanFactory beanFactory;
+  private final Environment environment;
+  private final TypeConverter typeConverter;
+  private final boolean typeConverterHasConvertIfNecessaryWithFieldParameter;
+  private final PlaceholderHelper placeholderHelper;
+  private final boolean skipConversion;
+  //the key of the simple placeholder, null if it's resolved by the bean factory
+  private final String placeholderKey;
+  private final String placeholderDefaultValue;
+
+  SpringValueUpdater(SpringValue springValue, ConfigurableBeanFactory beanFactory, Environment environment,
+      TypeConverter typeConverter, boolean typeConverterHasConvertIfNecessaryWithFieldParameter,
+      PlaceholderHelper placeholderHelper) {
+    this.springValue = springValue;
+    this.beanFactory = beanFactory;
+    this.environment = environment;
+    this.typeConverter = typeConverter;
+    this.typeConverterHasConvertIfNecessaryWithFieldParameter = typeConverterHasConvertIfNecessaryWithFieldParameter;
+    this.placeholderHelper = placeholderHelper;
+    this.skipConversion = !springValue.isJson() && isStringWithoutCustomEditor(springValue.getTargetType());
+
+    String[] simplePlaceholder = parseSimplePlaceholder(springValue.getPlaceholder());
+    if (simplePlaceholder != null && resolvedByEnvironment(simplePlaceholder[0], simplePlaceholder[1])) {
+      this.placeholderKey = simplePlaceholder[0];
+      this.placeholderDefaultValue = simplePlaceholder[1];
+    } else {
+      this.placeholderKey = null;
+      this.placeholderDefaultValue = null;
+    }
+  }
+
+  /**
+   * @return the new value set
+   */
+  Object update() throws Exception {
+    Object value = resolvePropertyValue();
+    springValue.update(value);
+    return value;
+  }
+
+  /**
+   * Logic transplanted from DefaultListableBeanFactory
+   * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#doResolveDependency(org.springframework.beans.factory.config.DependencyDescriptor, java.lang.String, java.util.Set, org.springframework.beans.TypeConverter)
+   */
+  private Object resolvePropertyValue() {
+    // value will never be null, as @Value and @ApolloJsonValue will not allow that
+    Object value = resolvePlaceholder();
+
+    if (springValue.isJson()) {
+      return parseJsonValue((String) value, springValue.getGenericType());
+    }
+    if (skipConversion && value instanceof String) {
+      return value;
+    }
+    //the type converter and its property editors are not thread safe
+    synchronized (typeConverter) {
+      if (springValue.isField()) {
+        // org.springframework.beans.TypeConverter#convertIfNecessary(java.lang.Object, java.lang.Class, java.lang.reflect.Field) is available from Spring 3.2.0+
+        if (typeConverterHasConvertIfNecessaryWithFieldParameter) {
+          return typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getField());
+        }
+        return typeConverter.convertIfNecessary(value, springValue.getTargetType());
+      }
+      return typeConverter.convertIfNecessary(value, springValue.getTargetType(), springValue.getMethodParameter());
+    }
+  }
+
+  private Object resolvePlaceholder() {
+    if (placeholderKey != null) {
+      String value = resolveSimplePlaceholder(placeholderKey, placeholderDefaultValue);
+      //e.g. the key is deleted and there is no default value
+      if (value != null && !value.contains(EXPRESSION_PREFIX)) {
+        return value;
+      }
+    }
+    return placeholderHelper.resolvePropertyValue(beanFactory, springValue.getBeanName(), springValue.getPlaceholder());
+  }
+
+  private String resolveSimplePlaceholder(String key, String defaultValue) {
+    try {
+      String value = environment.getProperty(key);
+      return value == null ? defaultValue : value;
+    } catch (IllegalArgumentException ex) {
+      //unresolvable nested placeholders, which might be ignored by the bean factory
+      return null;
+    }
+  }
+
+  /**
+   * Compare with the bean factory once, e.g. the placeholder configurer might have local properties or another value
+   * separator
+   */
+  private boolean resolvedByEnvironment(String key, String defaultValue) {
+    try {
+      Object value = placeholderHelper.resolvePropertyValue(beanFactory, springValue.getBeanName(),
+          springValue.getPlaceholder());
+      return value instanceof String && Objects.equals(value, resolveSimplePlaceholder(key, defaultValue));
+    } catch (Throwable ex) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the key and the default value of ${key:defaultValue}, null if the placeholder is nested or an expression
+   */
+  private static String[] parseSimplePlaceholder(String placeholder) {
+    if (!placeholder.startsWith(PLACEHOLDER_PREFIX) || !placeholder.endsWith(PLACEHOLDER_SUFFIX)) {
+      return null;
+    }
+    String content = placeholder.substring(PLACEHOLDER_PREFIX.length(),
+        placeholder.length() - PLACEHOLDER_SUFFIX.length());
+    if (content.isEmpty() || content.contains(PLACEHOLDER_PREFIX) || content.contains(PLACEHOLDER_SUFFIX)
+        || content.contains(EXPRESSION_PREFIX)) {
+      return null;
+    }
+    int separatorIndex = content.indexOf(VALUE_SEPARATOR);
+    if (separatorIndex == -1) {
+      return new String[]{content, null};
+    }
+    return new String[]{content.substring(0, separatorIndex),
+        content.substring(separatorIndex + VALUE_SEPARATOR.length())};
+  }
+
+  private boolean isStringWithoutCustomEditor(Class<?> targetType) {
+    if (targetType != String.class && targetType != Object.class) {
+      return false;
+    }
+    //e.g. StringTrimmerEditor registered by CustomEditorConfigurer
+    return typeConverter instanceof PropertyEditorRegistry
+        && ((PropertyEditorRegistry) typeConverter).findCustomEditor(targetType, null) == null;
+  }
+
+  private Object parseJsonValue(String json, Type targetType) {
+    try {
+      return gson.fromJson(json, targetType);
+    } catch (Throwable ex) {
+      logger.error("Parsing json '{}' to type {} failed!", json, targetType, ex);
+      throw ex;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return springValue.toString();
+  }
+}
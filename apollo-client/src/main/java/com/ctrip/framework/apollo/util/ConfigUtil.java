@@ -35,6 +35,15 @@ public class ConfigUtil {
   private TimeUnit configCacheExpireTimeUnit = TimeUnit.MINUTES;//1 minute
   private long longPollingInitialDelayInMills = 2000;//2 seconds
   private boolean autoUpdateInjectedSpringProperties = true;
+  private String configServiceRouting;
+  private boolean binaryLocalCacheFile = false;
+  private int namespacePrefetchParallelism = 8;
+  private boolean offlineFirstStartup = false;
+  private long offlineFirstMaxStaleness = 24 * 60;//1 day
+  private TimeUnit offlineFirstMaxStalenessTimeUnit = TimeUnit.MINUTES;//1 day
+  private boolean hostSharedCache = false;
+  private boolean hedgedConfigQuery = true;
+  private double hedgedConfigQueryPercentile = 95;
 
   public ConfigUtil() {
     initRefreshInterval();
@@ -45,6 +54,12 @@ public class ConfigUtil {
     initMaxConfigCacheSize();
     initLongPollingInitialDelayInMills();
     initAutoUpdateInjectedSpringProperties();
+    initConfigServiceRouting();
+    initBinaryLocalCacheFile();
+    initNamespacePrefetchParallelism();
+    initOfflineFirstStartup();
+    initHostSharedCache();
+    initHedgedConfigQuery();
   }
 
   /**
@@ -303,4 +318,167 @@ public class ConfigUtil {
   public boolean isAutoUpdateInjectedSpringPropertiesEnabled() {
     return autoUpdateInjectedSpringProperties;
   }
+
+  private void initConfigServiceRouting() {
+    // 1. Get from System Property
+    configServiceRouting = System.getProperty("apollo.configServiceRouting");
+    if (Strings.isNullOrEmpty(configServiceRouting)) {
+      // 2. Get from app.properties
+      configServiceRouting = Foundation.app().getProperty("apollo.configServiceRouting", null);
+    }
+  }
+
+  /**
+   * Get the config service routing customized in client side, which overrides the one advertised by meta service
+   *
+   * @return the customized routing, or null if not customized
+   * @see com.ctrip.framework.apollo.core.enums.ConfigServiceRouting
+   */
+  public String getConfigServiceRouting() {
+    return configServiceRouting;
+  }
+
+  private void initBinaryLocalCacheFile() {
+    // 1. Get from System Property
+    String binaryLocalCacheFile = System.getProperty("apollo.binaryLocalCacheFile");
+    if (Strings.isNullOrEmpty(binaryLocalCacheFile)) {
+      // 2. Get from app.properties
+      binaryLocalCacheFile = Foundation.app().getProperty("apollo.binaryLocalCacheFile", null);
+    }
+    if (!Strings.isNullOrEmpty(binaryLocalCacheFile)) {
+      this.binaryLocalCacheFile = Boolean.parseBoolean(binaryLocalCacheFile.trim());
+    }
+  }
+
+  /**
+   * Whether to persist the local cache files in binary format as well, which loads faster than the properties format
+   */
+  public boolean isBinaryLocalCacheFileEnabled() {
+    return binaryLocalCacheFile;
+  }
+
+  private void initNamespacePrefetchParallelism() {
+    // 1. Get from System Property
+    String customizedParallelism = System.getProperty("apollo.namespacePrefetchParallelism");
+    if (Strings.isNullOrEmpty(customizedParallelism)) {
+      // 2. Get from app.properties
+      customizedParallelism = Foundation.app().getProperty("apollo.namespacePrefetchParallelism", null);
+    }
+    if (!Strings.isNullOrEmpty(customizedParallelism)) {
+      try {
+        namespacePrefetchParallelism = Math.max(Integer.parseInt(customizedParallelism.trim()), 1);
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.namespacePrefetchParallelism is invalid: {}", customizedParallelism);
+      }
+    }
+  }
+
+  /**
+   * The max number of namespaces loaded concurrently when they are prefetched at startup
+   */
+  public int getNamespacePrefetchParallelism() {
+    return namespacePrefetchParallelism;
+  }
+
+  private void initOfflineFirstStartup() {
+    // 1. Get from System Property
+    String enableOfflineFirstStartup = System.getProperty("apollo.offlineFirstStartup");
+    if (Strings.isNullOrEmpty(enableOfflineFirstStartup)) {
+      // 2. Get from app.properties
+      enableOfflineFirstStartup = Foundation.app().getProperty("apollo.offlineFirstStartup", null);
+    }
+    if (!Strings.isNullOrEmpty(enableOfflineFirstStartup)) {
+      offlineFirstStartup = Boolean.parseBoolean(enableOfflineFirstStartup.trim());
+    }
+
+    String customizedMaxStaleness = System.getProperty("apollo.offlineFirstMaxStaleness");
+    if (Strings.isNullOrEmpty(customizedMaxStaleness)) {
+      customizedMaxStaleness = Foundation.app().getProperty("apollo.offlineFirstMaxStaleness", null);
+    }
+    if (!Strings.isNullOrEmpty(customizedMaxStaleness)) {
+      try {
+        offlineFirstMaxStaleness = Long.parseLong(customizedMaxStaleness.trim());
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.offlineFirstMaxStaleness is invalid: {}", customizedMaxStaleness);
+      }
+    }
+  }
+
+  /**
+   * Whether to serve the local cache files at startup without waiting for the config service, and sync with the
+   * config service in background. Only the local cache files not staler than {@link #getOfflineFirstMaxStaleness()}
+   * are served.
+   */
+  public boolean isOfflineFirstStartupEnabled() {
+    return offlineFirstStartup;
+  }
+
+  public long getOfflineFirstMaxStaleness() {
+    return offlineFirstMaxStaleness;
+  }
+
+  public TimeUnit getOfflineFirstMaxStalenessTimeUnit() {
+    return offlineFirstMaxStalenessTimeUnit;
+  }
+
+  private void initHostSharedCache() {
+    // 1. Get from System Property
+    String enableHostSharedCache = System.getProperty("apollo.hostSharedCache");
+    if (Strings.isNullOrEmpty(enableHostSharedCache)) {
+      // 2. Get from app.properties
+      enableHostSharedCache = Foundation.app().getProperty("apollo.hostSharedCache", null);
+    }
+    if (!Strings.isNullOrEmpty(enableHostSharedCache)) {
+      hostSharedCache = Boolean.parseBoolean(enableHostSharedCache.trim());
+    }
+  }
+
+  /**
+   * Whether to share the configs with the other processes of the app on the same host, so only one of them syncs a
+   * namespace with the config service, and the others read it from a memory-mapped file under the local cache dir.
+   */
+  public boolean isHostSharedCacheEnabled() {
+    return hostSharedCache;
+  }
+
+  private void initHedgedConfigQuery() {
+    // 1. Get from System Property
+    String enableHedgedConfigQuery = System.getProperty("apollo.hedgedConfigQuery");
+    if (Strings.isNullOrEmpty(enableHedgedConfigQuery)) {
+      // 2. Get from app.properties
+      enableHedgedConfigQuery = Foundation.app().getProperty("apollo.hedgedConfigQuery", null);
+    }
+    if (!Strings.isNullOrEmpty(enableHedgedConfigQuery)) {
+      hedgedConfigQuery = Boolean.parseBoolean(enableHedgedConfigQuery.trim());
+    }
+
+    String customizedPercentile = System.getProperty("apollo.hedgedConfigQueryPercentile");
+    if (Strings.isNullOrEmpty(customizedPercentile)) {
+      customizedPercentile = Foundation.app().getProperty("apollo.hedgedConfigQueryPercentile", null);
+    }
+    if (!Strings.isNullOrEmpty(customizedPercentile)) {
+      try {
+        double percentile = Double.parseDouble(customizedPercentile.trim());
+        if (percentile > 0 && percentile <= 100) {
+          hedgedConfigQueryPercentile = percentile;
+        } else {
+          logger.error("Config for apollo.hedgedConfigQueryPercentile is out of (0, 100]: {}", customizedPercentile);
+        }
+      } catch (Throwable ex) {
+        logger.error("Config for apollo.hedgedConfigQueryPercentile is invalid: {}", customizedPercentile);
+      }
+    }
+  }
+
+  /**
+   * Whether to hedge a config query with the next config service, if the first one doesn't respond within
+   * {@link #getHedgedConfigQueryPercentile()} of the recent query latencies
+   */
+  public boolean isHedgedConfigQueryEnabled() {
+    return hedgedConfigQuery;
+  }
+
+  public double getHedgedConfigQueryPercentile() {
+    return hedgedConfigQueryPercentile;
+  }
 }
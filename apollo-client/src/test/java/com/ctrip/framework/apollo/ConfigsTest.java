@@ -0,0 +1,65 @@
+package com.ctrip.framework.apollo;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ctrip.framework.apollo.enums.PropertyChangeType;
+import com.ctrip.framework.apollo.model.ConfigChange;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+public class ConfigsTest {
+  private String someNamespace = "someNamespace";
+
+  @Test
+  public void testAddChangeListenerWithInterestedKeysToOtherConfig() throws Exception {
+    Config someConfig = mock(Config.class);
+    ConfigChangeListener someListener = mock(ConfigChangeListener.class);
+
+    Configs.addChangeListener(someConfig, someListener, Sets.newHashSet("someKey"), Sets.newHashSet("somePrefix."));
+
+    ArgumentCaptor<ConfigChangeListener> captor = ArgumentCaptor.forClass(ConfigChangeListener.class);
+    verify(someConfig).addChangeListener(captor.capture());
+    ConfigChangeListener filteringListener = captor.getValue();
+
+    filteringListener.onChange(assembleChangeEvent("anotherKey"));
+
+    verify(someListener, never()).onChange(any(ConfigChangeEvent.class));
+
+    filteringListener.onChange(assembleChangeEvent("someKey", "somePrefix.someKey", "anotherKey"));
+
+    ArgumentCaptor<ConfigChangeEvent> eventCaptor = ArgumentCaptor.forClass(ConfigChangeEvent.class);
+    verify(someListener).onChange(eventCaptor.capture());
+    assertEquals(Sets.newHashSet("someKey", "somePrefix.someKey"), eventCaptor.getValue().changedKeys());
+  }
+
+  @Test
+  public void testAddChangeListenerWithoutInterestedKeysToOtherConfig() throws Exception {
+    Config someConfig = mock(Config.class);
+    ConfigChangeListener someListener = mock(ConfigChangeListener.class);
+
+    Configs.addChangeListener(someConfig, someListener, null);
+
+    verify(someConfig).addChangeListener(someListener);
+  }
+
+  @Test
+  public void testGetStalenessOfOtherConfig() throws Exception {
+    assertEquals(0, Configs.getStalenessInMillis(mock(Config.class)));
+  }
+
+  private ConfigChangeEvent assembleChangeEvent(String... keys) {
+    ImmutableMap.Builder<String, ConfigChange> changes = ImmutableMap.builder();
+    for (String key : keys) {
+      changes.put(key, new ConfigChange(someNamespace, key, null, "someValue", PropertyChangeType.ADDED));
+    }
+    return new ConfigChangeEvent(someNamespace, changes.build());
+  }
+}
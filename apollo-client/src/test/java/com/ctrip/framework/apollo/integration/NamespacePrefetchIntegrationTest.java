@@ -0,0 +1,167 @@
+package com.ctrip.framework.apollo.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ReflectionUtils;
+
+import com.ctrip.framework.apollo.BaseIntegrationTest;
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.utils.ClassLoaderUtil;
+import com.ctrip.framework.apollo.internals.RemoteConfigLongPollService;
+import com.ctrip.framework.apollo.spring.annotation.EnableApolloConfig;
+import com.ctrip.framework.apollo.spring.config.PropertySourcesProcessor;
+import com.ctrip.framework.apollo.spring.property.SpringValueDefinitionProcessor;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
+
+/**
+ * Start a spring context with many namespaces against a slow config service
+ */
+public class NamespacePrefetchIntegrationTest extends BaseIntegrationTest {
+  private static final long CONFIG_SERVICE_DELAY_IN_MS = 300;
+  private static final String SOME_KEY = "someKey";
+  private static final String HIGHEST_PRECEDENCE_NAMESPACE = "highestPrecedenceNamespace";
+  private static final Set<String> NAMESPACES = ImmutableSet.of("namespace1", "namespace2", "namespace3", "namespace4",
+      "namespace5", "namespace6", "namespace7", "namespace8", "namespace9", HIGHEST_PRECEDENCE_NAMESPACE);
+
+  private File configDir;
+  private Multiset<String> configRequests;
+  private volatile long firstConfigRequestTime;
+
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    invokeStaticReset(PropertySourcesProcessor.class);
+    invokeStaticReset(SpringValueDefinitionProcessor.class);
+
+    configDir = new File(ClassLoaderUtil.getClassPath() + "config-cache");
+    configDir.mkdirs();
+    configRequests = ConcurrentHashMultiset.create();
+  }
+
+  @Override
+  @After
+  public void tearDown() throws Exception {
+    ReflectionTestUtils.invokeMethod(ApolloInjector.getInstance(RemoteConfigLongPollService.class),
+        "stopLongPollingRefresh");
+    recursiveDelete(configDir);
+    super.tearDown();
+  }
+
+  @Test
+  public void testStartWithManyNamespaces() throws Exception {
+    startServerWithHandlers(mockSlowConfigServerHandler());
+
+    AnnotationConfigApplicationContext context =
+        new AnnotationConfigApplicationContext(AppConfig.class, HighestPrecedenceAppConfig.class);
+    //exclude the time to bootstrap the spring context and apollo client, e.g. locating the config service
+    long loadTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstConfigRequestTime);
+
+    TestBean bean = context.getBean(TestBean.class);
+
+    //the namespace with the highest precedence wins
+    assertEquals(HIGHEST_PRECEDENCE_NAMESPACE, bean.someValue);
+    //each namespace is loaded once
+    assertEquals(NAMESPACES, configRequests.elementSet());
+    assertEquals(NAMESPACES.size(), configRequests.size());
+    //much faster than loading the namespaces one by one
+    long serialLoadTime = NAMESPACES.size() * CONFIG_SERVICE_DELAY_IN_MS;
+    assertTrue(String.format("Loaded in %d ms, serial load takes at least %d ms", loadTime, serialLoadTime),
+        loadTime < serialLoadTime / 2);
+
+    context.close();
+  }
+
+  private ContextHandler mockSlowConfigServerHandler() {
+    ContextHandler context = new ContextHandler("/configs/*");
+    context.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, Request baseRequest, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException, ServletException {
+        String uri = request.getRequestURI();
+        String namespace = uri.substring(uri.lastIndexOf('/') + 1);
+        //the repositories of other tests might be still refreshing
+        if (NAMESPACES.contains(namespace) && configRequests.add(namespace, 1) == 0 && firstConfigRequestTime == 0) {
+          firstConfigRequestTime = System.nanoTime();
+        }
+        try {
+          TimeUnit.MILLISECONDS.sleep(CONFIG_SERVICE_DELAY_IN_MS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        ApolloConfig apolloConfig = new ApolloConfig(someAppId, someClusterName, namespace, "someReleaseKey");
+        apolloConfig.setConfigurations(ImmutableMap.of(SOME_KEY, namespace));
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.getWriter().println(gson.toJson(apolloConfig));
+        baseRequest.setHandled(true);
+      }
+    });
+    return context;
+  }
+
+  private static void invokeStaticReset(Class<?> clazz) throws NoSuchMethodException {
+    Method reset = clazz.getDeclaredMethod("reset");
+    ReflectionUtils.makeAccessible(reset);
+    ReflectionUtils.invokeMethod(reset, null);
+  }
+
+  private void recursiveDelete(File file) {
+    if (!file.exists()) {
+      return;
+    }
+    if (file.isDirectory()) {
+      for (File f : file.listFiles()) {
+        recursiveDelete(f);
+      }
+    }
+    file.delete();
+  }
+
+  @Configuration
+  @EnableApolloConfig({"namespace1", "namespace2", "namespace3", "namespace4", "namespace5", "namespace6",
+      "namespace7", "namespace8", "namespace9"})
+  static class AppConfig {
+    @Bean
+    TestBean testBean() {
+      return new TestBean();
+    }
+  }
+
+  @Configuration
+  @EnableApolloConfig(value = HIGHEST_PRECEDENCE_NAMESPACE, order = Ordered.HIGHEST_PRECEDENCE)
+  static class HighestPrecedenceAppConfig {
+  }
+
+  static class TestBean {
+    @Value("${someKey}")
+    private String someValue;
+  }
+}
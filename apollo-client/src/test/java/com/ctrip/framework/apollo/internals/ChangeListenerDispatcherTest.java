@@ -0,0 +1,147 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class ChangeListenerDispatcherTest {
+  private ExecutorService executorService;
+  private ListDispatcher dispatcher;
+
+  @Before
+  public void setUp() throws Exception {
+    executorService = Executors.newFixedThreadPool(4);
+    dispatcher = new ListDispatcher();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testDispatchInOrder() throws Exception {
+    int someEvents = 1000;
+    final List<Integer> received = Collections.synchronizedList(Lists.<Integer>newArrayList());
+    final AtomicBoolean concurrentlyInvoked = new AtomicBoolean();
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicBoolean running = new AtomicBoolean();
+    final int lastEvent = someEvents - 1;
+    SomeListener someListener = new SomeListener() {
+      @Override
+      public void onChange(List<Integer> event) {
+        if (!running.compareAndSet(false, true)) {
+          concurrentlyInvoked.set(true);
+        }
+        received.addAll(event);
+        running.set(false);
+        if (event.contains(lastEvent)) {
+          done.countDown();
+        }
+      }
+    };
+
+    for (int i = 0; i < someEvents; i++) {
+      dispatcher.dispatch(Collections.singletonList(someListener), ImmutableList.of(i));
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertFalse(concurrentlyInvoked.get());
+    assertEquals(someEvents, received.size());
+    for (int i = 0; i < someEvents; i++) {
+      assertEquals(i, (int) received.get(i));
+    }
+  }
+
+  @Test
+  public void testCoalesceEventsWhenListenerIsBusy() throws Exception {
+    final CountDownLatch firstEventReceived = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(2);
+    final List<List<Integer>> received = Collections.synchronizedList(Lists.<List<Integer>>newArrayList());
+    SomeListener someListener = new SomeListener() {
+      @Override
+      public void onChange(List<Integer> event) {
+        received.add(event);
+        firstEventReceived.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      }
+    };
+    List<SomeListener> listeners = Collections.singletonList(someListener);
+
+    dispatcher.dispatch(listeners, ImmutableList.of(1));
+    assertTrue(firstEventReceived.await(5, TimeUnit.SECONDS));
+    dispatcher.dispatch(listeners, ImmutableList.of(2));
+    dispatcher.dispatch(listeners, ImmutableList.of(3));
+    dispatcher.dispatch(listeners, ImmutableList.of(4));
+    release.countDown();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(ImmutableList.of(ImmutableList.of(1), ImmutableList.of(2, 3, 4)), received);
+
+    ChangeListenerDispatcher.ListenerMetrics metrics = dispatcher.getListenerMetrics().get(0);
+    assertEquals(2, metrics.getCoalescedEvents());
+  }
+
+  @Test
+  public void testFailedListenerNotBlockingOthers() throws Exception {
+    final CountDownLatch done = new CountDownLatch(2);
+    SomeListener someListener = new SomeListener() {
+      @Override
+      public void onChange(List<Integer> event) {
+        done.countDown();
+        throw new RuntimeException("some exception");
+      }
+    };
+    SomeListener anotherListener = new SomeListener() {
+      @Override
+      public void onChange(List<Integer> event) {
+        done.countDown();
+      }
+    };
+
+    dispatcher.dispatch(Lists.newArrayList(someListener, anotherListener), ImmutableList.of(1));
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  private interface SomeListener {
+    void onChange(List<Integer> event);
+  }
+
+  private class ListDispatcher extends ChangeListenerDispatcher<SomeListener, List<Integer>> {
+    ListDispatcher() {
+      super("someTransactionType", executorService);
+    }
+
+    @Override
+    protected List<Integer> merge(List<Integer> pending, List<Integer> event) {
+      return ImmutableList.<Integer>builder().addAll(pending).addAll(event).build();
+    }
+
+    @Override
+    protected void onChange(SomeListener listener, List<Integer> event) {
+      listener.onChange(event);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.bind.BindKey;
+import com.ctrip.framework.apollo.bind.ConfigBinding;
+import com.ctrip.framework.apollo.bind.ConfigBindings;
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class ConfigBinderTest {
+  private String someNamespace;
+  private ConfigRepository configRepository;
+  private Properties someProperties;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new ConfigUtil());
+
+    someNamespace = "someName";
+    someProperties = new Properties();
+    configRepository = mock(ConfigRepository.class);
+    when(configRepository.getConfig()).thenReturn(someProperties);
+  }
+
+  @Test
+  public void testBind() throws Exception {
+    someProperties.setProperty("server.name", "someName");
+    someProperties.setProperty("server.port", "8080");
+    someProperties.setProperty("server.enabled", "true");
+    someProperties.setProperty("server.mode", "FAST");
+    someProperties.setProperty("server.read-timeout", "1M30S");
+    someProperties.setProperty("server.hosts", "host1, host2,,host3");
+    someProperties.setProperty("server.weights", "1;2");
+    someProperties.setProperty("server.pool.maxSize", "10");
+
+    DefaultConfig config = new DefaultConfig(someNamespace, configRepository);
+
+    ServerProperties server = config.bind("server.", ServerProperties.class).get();
+
+    assertEquals("someName", server.name);
+    assertEquals(8080, server.port);
+    assertEquals(true, server.enabled);
+    assertEquals(Mode.FAST, server.mode);
+    assertEquals(TimeUnit.SECONDS.toMillis(90), server.readTimeoutInMillis);
+    assertEquals(Lists.newArrayList("host1", "host2", "host3"), server.hosts);
+    assertEquals(Lists.newArrayList(1, 2), server.weights);
+    assertEquals(10, server.pool.maxSize);
+    assertEquals(1, server.pool.minSize);
+  }
+
+  @Test
+  public void testBindWithMissingAndInvalidProperties() throws Exception {
+    someProperties.setProperty("port", "notANumber");
+    someProperties.setProperty("mode", "UNKNOWN");
+
+    DefaultConfig config = new DefaultConfig(someNamespace, configRepository);
+
+    ServerProperties server = config.bind(ServerProperties.class).get();
+
+    assertNull(server.name);
+    assertEquals(80, server.port);
+    assertEquals(Mode.SLOW, server.mode);
+    assertEquals(1000, server.readTimeoutInMillis);
+    assertEquals(1, server.pool.minSize);
+  }
+
+  @Test
+  public void testBindWithConfigBindings() throws Exception {
+    someProperties.setProperty("server.port", "8080");
+
+    Config config = new DefaultConfig(someNamespace, configRepository);
+    ConfigBinding<ServerProperties> binding = ConfigBindings.bind(config, "server.", ServerProperties.class);
+
+    assertEquals(8080, binding.get().port);
+    assertSame(binding, ((DefaultConfig) config).bind("server.", ServerProperties.class));
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testBindWithConfigBindingsNotSupported() throws Exception {
+    ConfigBindings.bind(mock(Config.class), "server.", ServerProperties.class);
+  }
+
+  @Test
+  public void testRebindOnlyWhenBoundPropertiesChange() throws Exception {
+    someProperties.setProperty("server.port", "8080");
+    someProperties.setProperty("someOtherKey", "someValue");
+
+    DefaultConfig config = new DefaultConfig(someNamespace, configRepository);
+    ConfigBinding<ServerProperties> binding = config.bind("server.", ServerProperties.class);
+    ServerProperties server = binding.get();
+
+    assertSame(binding, config.bind("server.", ServerProperties.class));
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.putAll(someProperties);
+    anotherProperties.setProperty("someOtherKey", "anotherValue");
+    config.onRepositoryChange(someNamespace, anotherProperties);
+
+    assertSame(server, binding.get());
+
+    Properties yetAnotherProperties = new Properties();
+    yetAnotherProperties.putAll(anotherProperties);
+    yetAnotherProperties.setProperty("server.pool.maxSize", "20");
+    config.onRepositoryChange(someNamespace, yetAnotherProperties);
+
+    ServerProperties newServer = binding.get();
+    assertNotSame(server, newServer);
+    assertEquals(8080, newServer.port);
+    assertEquals(20, newServer.pool.maxSize);
+    assertEquals(8, server.pool.maxSize);
+  }
+
+  @Test
+  public void testKeys() throws Exception {
+    ConfigBinder<ServerProperties> binder = ConfigBinder.compile("server.", ServerProperties.class);
+
+    assertEquals(ImmutableSet.of("server.name", "server.port", "server.enabled", "server.mode",
+        "server.read-timeout", "server.hosts", "server.weights", "server.pool.maxSize", "server.pool.minSize"),
+        binder.keys());
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testBindWithoutNoArgConstructor() throws Exception {
+    ConfigBinder.compile("", WithoutNoArgConstructor.class);
+  }
+
+  @Test(expected = ApolloConfigException.class)
+  public void testBindNestedInItself() throws Exception {
+    ConfigBinder.compile("", NestedInItself.class);
+  }
+
+  private enum Mode {
+    FAST, SLOW
+  }
+
+  private static class ServerProperties {
+    private static final String SOME_CONSTANT = "someConstant";
+    private String name;
+    private int port = 80;
+    private Boolean enabled;
+    private Mode mode = Mode.SLOW;
+    @BindKey(value = "read-timeout", duration = true)
+    private long readTimeoutInMillis = 1000;
+    private List<String> hosts;
+    @BindKey(delimiter = ";")
+    private List<Integer> weights;
+    private PoolProperties pool;
+    private transient int someTransientField;
+  }
+
+  private static class PoolProperties {
+    private int maxSize = 8;
+    private int minSize = 1;
+  }
+
+  private static class WithoutNoArgConstructor {
+    private int someField;
+
+    WithoutNoArgConstructor(int someField) {
+      this.someField = someField;
+    }
+  }
+
+  private static class NestedInItself {
+    private NestedInItself next;
+  }
+}
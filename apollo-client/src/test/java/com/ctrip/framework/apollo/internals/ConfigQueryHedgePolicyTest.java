@@ -0,0 +1,48 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConfigQueryHedgePolicyTest {
+
+  @Test
+  public void testHedgeDelay() throws Exception {
+    ConfigQueryHedgePolicy hedgePolicy = new ConfigQueryHedgePolicy(95);
+
+    assertEquals(ConfigQueryHedgePolicy.DEFAULT_HEDGE_DELAY_IN_MILLIS, hedgePolicy.getHedgeDelayInMillis());
+
+    for (int i = 1; i <= 100; i++) {
+      hedgePolicy.recordLatency(i);
+    }
+    assertEquals(95, hedgePolicy.getHedgeDelayInMillis());
+
+    //the oldest samples are replaced
+    for (int i = 0; i < 100; i++) {
+      hedgePolicy.recordLatency(10);
+    }
+    assertEquals(10, hedgePolicy.getHedgeDelayInMillis());
+  }
+
+  @Test
+  public void testHedgeBudget() throws Exception {
+    ConfigQueryHedgePolicy hedgePolicy = new ConfigQueryHedgePolicy(95);
+
+    for (int i = 0; i < ConfigQueryHedgePolicy.MAX_BUDGET; i++) {
+      assertTrue(hedgePolicy.tryAcquireHedge());
+    }
+    assertFalse(hedgePolicy.tryAcquireHedge());
+
+    //a hedge is earned by every 10 queries
+    for (int i = 0; i < 9; i++) {
+      hedgePolicy.onQuery();
+    }
+    assertFalse(hedgePolicy.tryAcquireHedge());
+    hedgePolicy.onQuery();
+    hedgePolicy.onQuery();
+    assertTrue(hedgePolicy.tryAcquireHedge());
+    assertFalse(hedgePolicy.tryAcquireHedge());
+  }
+}
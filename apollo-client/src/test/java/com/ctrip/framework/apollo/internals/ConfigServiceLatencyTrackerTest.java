@@ -0,0 +1,194 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigServiceLatencyTrackerTest {
+  private ConfigServiceLatencyTracker latencyTracker;
+  private FakeTicker ticker;
+  private long baseEjectionInNanos;
+  private long failureLatencyInMillis;
+  private ServiceDTO someService;
+  private ServiceDTO anotherService;
+  private ServiceDTO yetAnotherService;
+
+  @Before
+  public void setUp() throws Exception {
+    ticker = new FakeTicker();
+    baseEjectionInNanos = TimeUnit.SECONDS.toNanos(10);
+    failureLatencyInMillis = 5000;
+    latencyTracker = new ConfigServiceLatencyTracker(ticker, baseEjectionInNanos, failureLatencyInMillis);
+
+    someService = assembleService("http://10.0.0.1:8080/");
+    anotherService = assembleService("http://10.0.0.2:8080/");
+    yetAnotherService = assembleService("http://10.0.0.3:8080/");
+  }
+
+  @Test
+  public void testPreferFasterService() throws Exception {
+    List<ServiceDTO> services = Lists.newArrayList(someService, anotherService);
+    latencyTracker.onSuccess(someService, 10);
+    latencyTracker.onSuccess(anotherService, 30);
+
+    //with two services, power of two choices always compares both of them
+    for (int i = 0; i < 20; i++) {
+      assertEquals(someService, latencyTracker.order(services).get(0));
+    }
+  }
+
+  @Test
+  public void testPreferReliableService() throws Exception {
+    List<ServiceDTO> services = Lists.newArrayList(someService, anotherService);
+    //a single error, far below the ejection threshold
+    latencyTracker.onSuccess(someService, 10);
+    latencyTracker.onFailure(someService);
+    latencyTracker.onSuccess(anotherService, 1600);
+
+    assertFalse(latencyTracker.isEjected(someService));
+    assertTrue(latencyTracker.getLatency(someService) < latencyTracker.getLatency(anotherService));
+    for (int i = 0; i < 20; i++) {
+      assertEquals(anotherService, latencyTracker.order(services).get(0));
+    }
+  }
+
+  @Test
+  public void testPreferUnprobedService() throws Exception {
+    List<ServiceDTO> services = Lists.newArrayList(someService, anotherService);
+    latencyTracker.onSuccess(someService, 10);
+
+    assertEquals(anotherService, latencyTracker.order(services).get(0));
+  }
+
+  @Test
+  public void testEwmaLatencyAndErrorRate() throws Exception {
+    latencyTracker.onSuccess(someService, 100);
+    latencyTracker.onSuccess(someService, 200);
+
+    assertEquals(130, latencyTracker.getLatency(someService), 0.001);
+    assertEquals(0, latencyTracker.getErrorRate(someService), 0.001);
+
+    latencyTracker.onFailure(someService);
+
+    assertEquals(130 + 0.3 * (failureLatencyInMillis - 130), latencyTracker.getLatency(someService), 0.001);
+    assertEquals(0.3, latencyTracker.getErrorRate(someService), 0.001);
+
+    //long poll success does not affect the latency
+    latencyTracker.onSuccess(someService);
+
+    assertEquals(130 + 0.3 * (failureLatencyInMillis - 130), latencyTracker.getLatency(someService), 0.001);
+    assertEquals(0.21, latencyTracker.getErrorRate(someService), 0.001);
+  }
+
+  @Test
+  public void testEjectAfterConsecutiveFailures() throws Exception {
+    List<ServiceDTO> services = Lists.newArrayList(someService, anotherService, yetAnotherService);
+
+    latencyTracker.onFailure(someService);
+    latencyTracker.onFailure(someService);
+    latencyTracker.onSuccess(someService, 10);
+    latencyTracker.onFailure(someService);
+    latencyTracker.onFailure(someService);
+
+    assertFalse(latencyTracker.isEjected(someService));
+
+    latencyTracker.onFailure(someService);
+
+    assertTrue(latencyTracker.isEjected(someService));
+    for (int i = 0; i < 20; i++) {
+      List<ServiceDTO> ordered = latencyTracker.order(services);
+      //ejected service is tried last, but never excluded
+      assertEquals(services.size(), ordered.size());
+      assertEquals(someService, ordered.get(services.size() - 1));
+    }
+
+    ticker.advance(baseEjectionInNanos);
+
+    assertFalse(latencyTracker.isEjected(someService));
+  }
+
+  @Test
+  public void testEjectionBackoff() throws Exception {
+    failTimes(someService, 3);
+    ticker.advance(baseEjectionInNanos);
+
+    assertFalse(latencyTracker.isEjected(someService));
+
+    //ejected again, for twice as long
+    failTimes(someService, 3);
+    ticker.advance(baseEjectionInNanos);
+
+    assertTrue(latencyTracker.isEjected(someService));
+
+    ticker.advance(baseEjectionInNanos);
+
+    assertFalse(latencyTracker.isEjected(someService));
+  }
+
+  @Test
+  public void testEjectLatencyOutlier() throws Exception {
+    latencyTracker.onSuccess(anotherService, 50);
+    latencyTracker.onSuccess(yetAnotherService, 60);
+    latencyTracker.onSuccess(someService, 150);
+
+    assertFalse(latencyTracker.isEjected(someService));
+
+    latencyTracker.onSuccess(someService, 1000);
+
+    assertTrue(latencyTracker.isEjected(someService));
+    assertFalse(latencyTracker.isEjected(anotherService));
+  }
+
+  @Test
+  public void testNeverEjectTheOnlyHealthyServiceForLatency() throws Exception {
+    latencyTracker.onSuccess(someService, 3000);
+
+    assertFalse(latencyTracker.isEjected(someService));
+  }
+
+  @Test
+  public void testDemoteEjectedKeepsOrder() throws Exception {
+    List<ServiceDTO> services = Lists.newArrayList(someService, anotherService, yetAnotherService);
+    failTimes(anotherService, 3);
+
+    assertEquals(Lists.newArrayList(someService, yetAnotherService, anotherService),
+        latencyTracker.demoteEjected(services));
+    assertEquals(Sets.newHashSet(services), Sets.newHashSet(latencyTracker.order(services)));
+  }
+
+  private void failTimes(ServiceDTO service, int times) {
+    for (int i = 0; i < times; i++) {
+      latencyTracker.onFailure(service);
+    }
+  }
+
+  private ServiceDTO assembleService(String homepageUrl) {
+    ServiceDTO service = new ServiceDTO();
+    service.setHomepageUrl(homepageUrl);
+    return service;
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long nanosToAdvance) {
+      nanos += nanosToAdvance;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigServiceRouterTest {
+  private ConfigServiceRouter configServiceRouter;
+  private MockConfigUtil configUtil;
+  private String someCluster;
+
+  @Before
+  public void setUp() throws Exception {
+    MockInjector.reset();
+    configUtil = new MockConfigUtil();
+    MockInjector.setInstance(ConfigUtil.class, configUtil);
+
+    configServiceRouter = new ConfigServiceRouter();
+    someCluster = "someCluster";
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    MockInjector.reset();
+  }
+
+  @Test
+  public void testRandomRouting() throws Exception {
+    List<ServiceDTO> services = assembleServices(5, ConfigServiceRouting.RANDOM);
+
+    List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", someCluster,
+        "application");
+
+    assertEquals(Sets.newHashSet(services), Sets.newHashSet(routed));
+  }
+
+  @Test
+  public void testAppIdRouting() throws Exception {
+    List<ServiceDTO> services = assembleServices(5, ConfigServiceRouting.APP_ID);
+    String someAppId = "someAppId";
+
+    List<ServiceDTO> routed = configServiceRouter.route(services, someAppId, someCluster,
+        "application");
+    List<ServiceDTO> anotherRouted = configServiceRouter.route(services, someAppId, someCluster,
+        "anotherNamespace");
+    List<ServiceDTO> routedFromAnotherClient = new ConfigServiceRouter().route(Lists.reverse(services), someAppId,
+        someCluster, "application");
+
+    //primary first, then all the fallback replicas
+    assertEquals(services.size(), routed.size());
+    assertEquals(Sets.newHashSet(services), Sets.newHashSet(routed));
+    assertEquals(routed, anotherRouted);
+    assertEquals(routed, routedFromAnotherClient);
+  }
+
+  @Test
+  public void testNamespaceRouting() throws Exception {
+    List<ServiceDTO> services = assembleServices(5, ConfigServiceRouting.NAMESPACE);
+    String someAppId = "someAppId";
+
+    List<ServiceDTO> routed = configServiceRouter.route(services, someAppId, someCluster, "someNamespace");
+    List<ServiceDTO> routedFromAnotherClient = new ConfigServiceRouter().route(Lists.reverse(services), someAppId,
+        someCluster, "someNamespace");
+
+    assertEquals(routed, routedFromAnotherClient);
+
+    Set<ServiceDTO> primaries = Sets.newHashSet();
+    for (int i = 0; i < 100; i++) {
+      primaries.add(new ConfigServiceRouter().route(services, someAppId, someCluster,
+          "namespace" + i).get(0));
+    }
+    //different namespaces are spread among the config services
+    assertTrue(primaries.size() > 1);
+  }
+
+  @Test
+  public void testRoutingIndependentOfHistory() throws Exception {
+    List<ServiceDTO> services = assembleServices(4, ConfigServiceRouting.NAMESPACE);
+    ConfigServiceRouter anotherRouter = new ConfigServiceRouter();
+
+    //the routers have routed different namespaces before
+    for (int i = 0; i < 100; i++) {
+      configServiceRouter.route(services, "someAppId", someCluster, "namespace" + i);
+      anotherRouter.route(services, "someAppId", someCluster, "anotherNamespace" + i);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(configServiceRouter.route(services, "someAppId", someCluster, "namespace" + i),
+          anotherRouter.route(services, "someAppId", someCluster, "namespace" + i));
+    }
+  }
+
+  @Test
+  public void testServiceRemoved() throws Exception {
+    List<ServiceDTO> services = assembleServices(5, ConfigServiceRouting.APP_ID);
+    int keyCount = 200;
+    List<ServiceDTO> primaries = Lists.newArrayList();
+    for (int i = 0; i < keyCount; i++) {
+      primaries.add(new ConfigServiceRouter().route(services, "app" + i, someCluster,
+          "application").get(0));
+    }
+
+    ServiceDTO removed = services.remove(0);
+    int moved = 0;
+    for (int i = 0; i < keyCount; i++) {
+      ServiceDTO primary = new ConfigServiceRouter().route(services, "app" + i, someCluster,
+          "application").get(0);
+      assertNotEquals(removed, primary);
+      if (primaries.get(i) != removed && primaries.get(i) != primary) {
+        moved++;
+      }
+    }
+
+    //only the apps on the removed service are moved
+    assertEquals(0, moved);
+  }
+
+  @Test
+  public void testBoundedLoad() throws Exception {
+    List<ServiceDTO> services = assembleServices(4, ConfigServiceRouting.NAMESPACE);
+    List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", someCluster, "someNamespace");
+
+    //a hot routing key has piled up on the primary
+    for (ServiceDTO service : services) {
+      service.setLoad(service == routed.get(0) ? 100 : 10);
+    }
+
+    List<ServiceDTO> balanced = configServiceRouter.route(services, "someAppId", someCluster, "someNamespace");
+    List<ServiceDTO> balancedFromAnotherClient = new ConfigServiceRouter().route(Lists.reverse(services),
+        "someAppId", someCluster, "someNamespace");
+
+    //the overloaded primary is tried after the fallback replicas
+    assertEquals(routed.subList(1, routed.size()), balanced.subList(0, balanced.size() - 1));
+    assertEquals(routed.get(0), balanced.get(balanced.size() - 1));
+    assertEquals(balanced, balancedFromAnotherClient);
+  }
+
+  @Test
+  public void testLoadWithinBound() throws Exception {
+    List<ServiceDTO> services = assembleServices(4, ConfigServiceRouting.NAMESPACE);
+    List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", someCluster, "someNamespace");
+
+    for (ServiceDTO service : services) {
+      service.setLoad(service == routed.get(0) ? 12 : 10);
+    }
+
+    assertEquals(routed, configServiceRouter.route(services, "someAppId", someCluster, "someNamespace"));
+  }
+
+  @Test
+  public void testRoutingCustomizedInClient() throws Exception {
+    List<ServiceDTO> services = assembleServices(5, ConfigServiceRouting.RANDOM);
+    configUtil.routing = ConfigServiceRouting.APP_ID.getValue();
+
+    assertEquals(ConfigServiceRouting.APP_ID, configServiceRouter.getRouting(services));
+
+    List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", someCluster,
+        "application");
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(routed, configServiceRouter.route(services, "someAppId", someCluster,
+          "application"));
+    }
+  }
+
+  private List<ServiceDTO> assembleServices(int count, ConfigServiceRouting routing) {
+    List<ServiceDTO> services = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      ServiceDTO service = new ServiceDTO();
+      service.setHomepageUrl(String.format("http://10.0.0.%d:8080/", i));
+      service.setRouting(routing.getValue());
+      services.add(service);
+    }
+    return services;
+  }
+
+  private static class MockConfigUtil extends ConfigUtil {
+    private String routing;
+
+    @Override
+    public String getConfigServiceRouting() {
+      return routing;
+    }
+  }
+}
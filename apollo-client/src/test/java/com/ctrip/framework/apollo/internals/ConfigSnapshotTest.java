@@ -0,0 +1,250 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ConfigSnapshotTest {
+  private static final BiFunction<Object, Object, Object> ANOTHER_VALUE = new BiFunction<Object, Object, Object>() {
+    @Override
+    public Object apply(Object key, Object value) {
+      return "anotherValue";
+    }
+  };
+  private Properties someProperties;
+
+  @Before
+  public void setUp() throws Exception {
+    someProperties = new Properties();
+    for (int i = 0; i < 100; i++) {
+      someProperties.setProperty("someKey" + i, "someValue" + i);
+    }
+  }
+
+  @Test
+  public void testGetProperty() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    assertEquals(someProperties.size(), snapshot.size());
+    for (String key : someProperties.stringPropertyNames()) {
+      assertEquals(someProperties.getProperty(key), snapshot.getProperty(key));
+      assertTrue(snapshot.containsKey(key));
+    }
+    assertNull(snapshot.getProperty("someMissingKey"));
+    assertEquals("someDefaultValue", snapshot.getProperty("someMissingKey", "someDefaultValue"));
+    assertFalse(snapshot.containsKey("someMissingKey"));
+    assertEquals(someProperties.stringPropertyNames(), snapshot.stringPropertyNames());
+  }
+
+  @Test
+  public void testEqualsToProperties() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    assertEquals(someProperties, snapshot);
+    assertEquals(snapshot, someProperties);
+    assertEquals(someProperties.hashCode(), snapshot.hashCode());
+  }
+
+  @Test
+  public void testOfSnapshot() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    assertSame(snapshot, ConfigSnapshot.of(snapshot));
+    assertSame(ConfigSnapshot.EMPTY, ConfigSnapshot.of(new Properties()));
+    assertTrue(ConfigSnapshot.EMPTY.isEmpty());
+  }
+
+  @Test
+  public void testCopyAndStore() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    Properties copy = new Properties();
+    copy.putAll(snapshot);
+    assertEquals(someProperties, copy);
+
+    StringWriter writer = new StringWriter();
+    snapshot.store(writer, null);
+    Properties loaded = new Properties();
+    loaded.load(new StringReader(writer.toString()));
+    assertEquals(someProperties, loaded);
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(ConfigSnapshot.of(someProperties));
+    out.close();
+
+    Object deserialized = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+    assertEquals(someProperties, deserialized);
+  }
+
+  @Test
+  public void testSkipNonStringEntries() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(ImmutableMap.of("someKey", "someValue", "anotherKey", 1));
+
+    assertEquals(1, snapshot.size());
+    assertEquals("someValue", snapshot.getProperty("someKey"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutable() throws Exception {
+    ConfigSnapshot.of(someProperties).setProperty("someKey", "anotherValue");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableKeySet() throws Exception {
+    ConfigSnapshot.of(someProperties).keySet().remove("someKey1");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutablePut() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.put("someKey", "anotherValue");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutablePutAll() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.putAll(ImmutableMap.of("someKey", "anotherValue"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableRemove() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.remove("someKey1");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableRemoveValue() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.remove("someKey1", "someValue1");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableClear() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.clear();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableLoad() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.load(new StringReader("someKey=anotherValue"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableLoadInputStream() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.load(new ByteArrayInputStream("someKey=anotherValue".getBytes()));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableLoadFromXML() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.loadFromXML(new ByteArrayInputStream(new byte[0]));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutablePutIfAbsent() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.putIfAbsent("someKey", "anotherValue");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableReplace() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.replace("someKey1", "anotherValue");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableReplaceValue() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.replace("someKey1", "someValue1", "anotherValue");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableReplaceAll() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.replaceAll(ANOTHER_VALUE);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableCompute() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.compute("someKey1", ANOTHER_VALUE);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableComputeIfAbsent() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.computeIfAbsent("someKey", new Function<Object, Object>() {
+      @Override
+      public Object apply(Object key) {
+        return "anotherValue";
+      }
+    });
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableComputeIfPresent() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.computeIfPresent("someKey1", ANOTHER_VALUE);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testImmutableMerge() throws Exception {
+    ConfigSnapshot snapshot = ConfigSnapshot.of(someProperties);
+
+    snapshot.merge("someKey1", "anotherValue", ANOTHER_VALUE);
+  }
+
+  @Test
+  public void testForEach() throws Exception {
+    final Properties properties = new Properties();
+
+    ConfigSnapshot.of(someProperties).forEach(new BiConsumer<Object, Object>() {
+      @Override
+      public void accept(Object key, Object value) {
+        properties.put(key, value);
+      }
+    });
+
+    assertEquals(someProperties, properties);
+  }
+}
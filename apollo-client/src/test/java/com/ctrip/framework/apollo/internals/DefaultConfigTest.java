@@ -2,6 +2,7 @@ package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -30,6 +31,7 @@ import com.ctrip.framework.apollo.util.ConfigUtil;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import com.google.common.util.concurrent.SettableFuture;
 
@@ -212,14 +214,48 @@ public class DefaultConfigTest {
 
     verify(someProperties, times(1)).getProperty(someKey);
 
+    //not cached as the cache is full
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
     assertEquals(anotherValue, defaultConfig.getIntProperty(anotherKey, someDefaultValue));
 
-    verify(someProperties, times(1)).getProperty(anotherKey);
+    verify(someProperties, times(2)).getProperty(anotherKey);
 
+    //the value cached is kept
     assertEquals(someValue, defaultConfig.getIntProperty(someKey, someDefaultValue));
 
-    verify(someProperties, times(2)).getProperty(someKey);
+    verify(someProperties, times(1)).getProperty(someKey);
+  }
+
+  @Test
+  public void testGetArrayPropertyMultipleTimesWithSmallCache() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    String someDelimiter = ",";
+
+    String[] someDefaultValue = new String[]{"1", "2"};
+
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtilWithSmallCache());
+
+    //set up config repo
+    someProperties = mock(Properties.class);
+    when(someProperties.getProperty(someKey)).thenReturn("a,b");
+    when(someProperties.getProperty(anotherKey)).thenReturn("c,d");
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig =
+        new DefaultConfig(someNamespace, configRepository);
+
+    assertArrayEquals(new String[]{"a", "b"}, defaultConfig.getArrayProperty(someKey, someDelimiter,
+        someDefaultValue));
+    assertArrayEquals(new String[]{"c", "d"}, defaultConfig.getArrayProperty(anotherKey, someDelimiter,
+        someDefaultValue));
+    assertArrayEquals(new String[]{"c", "d"}, defaultConfig.getArrayProperty(anotherKey, someDelimiter,
+        someDefaultValue));
+    assertArrayEquals(new String[]{"a", "b"}, defaultConfig.getArrayProperty(someKey, someDelimiter,
+        someDefaultValue));
+
+    verify(someProperties, times(1)).getProperty(someKey);
+    verify(someProperties, times(2)).getProperty(anotherKey);
   }
 
   @Test
@@ -647,6 +683,83 @@ public class DefaultConfigTest {
     assertEquals(PropertyChangeType.ADDED, newKeyChange.getChangeType());
   }
 
+  @Test
+  public void testOnRepositoryChangeWithChangeSet() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    String anotherKey = "anotherKey";
+    String anotherValue = "anotherValue";
+    String someNewValue = "someNewValue";
+
+    someProperties = new Properties();
+    someProperties.putAll(ImmutableMap.of(someKey, someValue, anotherKey, anotherValue));
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    final SettableFuture<ConfigChangeEvent> configChangeFuture = SettableFuture.create();
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        configChangeFuture.set(changeEvent);
+      }
+    });
+
+    Properties newProperties = new Properties();
+    newProperties.putAll(ImmutableMap.of(someKey, someNewValue, anotherKey, anotherValue));
+    long someFingerprint = RepositoryChangeSet.fingerprint(someProperties);
+    RepositoryChangeSet changeSet = new RepositoryChangeSet(someFingerprint,
+        RepositoryChangeSet.fingerprint(newProperties), Collections.singleton(someKey));
+
+    defaultConfig.onRepositoryChange(someNamespace, newProperties, changeSet);
+
+    ConfigChangeEvent changeEvent = configChangeFuture.get(500, TimeUnit.MILLISECONDS);
+
+    assertEquals(Collections.singleton(someKey), changeEvent.changedKeys());
+    assertEquals(someValue, changeEvent.getChange(someKey).getOldValue());
+    assertEquals(someNewValue, changeEvent.getChange(someKey).getNewValue());
+    assertEquals(someNewValue, defaultConfig.getProperty(someKey, null));
+  }
+
+  @Test
+  public void testOnRepositoryChangeWithChangeSetBasedOnAnotherVersion() throws Exception {
+    String someKey = "someKey";
+    String someValue = "someValue";
+    String anotherKey = "anotherKey";
+    String anotherValue = "anotherValue";
+    String someNewValue = "someNewValue";
+    String anotherNewValue = "anotherNewValue";
+
+    someProperties = new Properties();
+    someProperties.putAll(ImmutableMap.of(someKey, someValue, anotherKey, anotherValue));
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    final SettableFuture<ConfigChangeEvent> configChangeFuture = SettableFuture.create();
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        configChangeFuture.set(changeEvent);
+      }
+    });
+
+    //the config missed the change of anotherKey, so the change set is not based on its version
+    Properties intermediateProperties = new Properties();
+    intermediateProperties.putAll(ImmutableMap.of(someKey, someValue, anotherKey, anotherNewValue));
+    Properties newProperties = new Properties();
+    newProperties.putAll(ImmutableMap.of(someKey, someNewValue, anotherKey, anotherNewValue));
+    RepositoryChangeSet changeSet = RepositoryChangeSet.diff(intermediateProperties,
+        RepositoryChangeSet.fingerprint(intermediateProperties), newProperties);
+
+    defaultConfig.onRepositoryChange(someNamespace, newProperties, changeSet);
+
+    ConfigChangeEvent changeEvent = configChangeFuture.get(500, TimeUnit.MILLISECONDS);
+
+    assertEquals(Sets.newHashSet(someKey, anotherKey), changeEvent.changedKeys());
+    assertEquals(anotherNewValue, defaultConfig.getProperty(anotherKey, null));
+  }
+
   @Test
   public void testGetPropertyNames() {
     String someKeyPrefix = "someKey";
@@ -680,6 +793,94 @@ public class DefaultConfigTest {
     assertEquals(Collections.emptySet(), propertyNames);
   }
 
+  @Test
+  public void testOnRepositoryChangeWithInterestedKeys() throws Exception {
+    someProperties = new Properties();
+    someProperties.putAll(ImmutableMap.of("someKey", "someValue", "redis.host", "someHost", "redis.port", "6379",
+        "anotherKey", "anotherValue"));
+    when(configRepository.getConfig()).thenReturn(someProperties);
+
+    DefaultConfig defaultConfig = new DefaultConfig(someNamespace, configRepository);
+
+    final SettableFuture<ConfigChangeEvent> someListenerFuture = SettableFuture.create();
+    final SettableFuture<ConfigChangeEvent> anotherListenerFuture = SettableFuture.create();
+    final SettableFuture<ConfigChangeEvent> yetAnotherListenerFuture = SettableFuture.create();
+    final SettableFuture<ConfigChangeEvent> notInterestedListenerFuture = SettableFuture.create();
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        someListenerFuture.set(changeEvent);
+      }
+    }, Sets.newHashSet("someKey"));
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        anotherListenerFuture.set(changeEvent);
+      }
+    }, Sets.newHashSet("someKey"), Sets.newHashSet("redis."));
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        yetAnotherListenerFuture.set(changeEvent);
+      }
+    });
+    defaultConfig.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent changeEvent) {
+        notInterestedListenerFuture.set(changeEvent);
+      }
+    }, Sets.newHashSet("anotherKey", "redis"), Sets.newHashSet("mysql."));
+
+    Properties newProperties = new Properties();
+    newProperties.putAll(ImmutableMap.of("someKey", "someNewValue", "redis.host", "anotherHost", "redis.port", "6379",
+        "anotherKey", "anotherValue", "redis.password", "somePassword"));
+
+    defaultConfig.onRepositoryChange(someNamespace, newProperties);
+
+    ConfigChangeEvent someEvent = someListenerFuture.get(500, TimeUnit.MILLISECONDS);
+    assertEquals(Sets.newHashSet("someKey"), someEvent.changedKeys());
+    assertEquals("someNewValue", someEvent.getChange("someKey").getNewValue());
+
+    ConfigChangeEvent anotherEvent = anotherListenerFuture.get(500, TimeUnit.MILLISECONDS);
+    assertEquals(Sets.newHashSet("someKey", "redis.host", "redis.password"), anotherEvent.changedKeys());
+    assertEquals(PropertyChangeType.ADDED, anotherEvent.getChange("redis.password").getChangeType());
+
+    ConfigChangeEvent yetAnotherEvent = yetAnotherListenerFuture.get(500, TimeUnit.MILLISECONDS);
+    assertEquals(Sets.newHashSet("someKey", "redis.host", "redis.password"), yetAnotherEvent.changedKeys());
+
+    Thread.sleep(100);
+    assertFalse(notInterestedListenerFuture.isDone());
+  }
+
+  @Test
+  public void testMergeConfigChanges() throws Exception {
+    String someKey = "someKey";
+    String anotherKey = "anotherKey";
+    String yetAnotherKey = "yetAnotherKey";
+
+    ConfigChangeEvent pending = new ConfigChangeEvent(someNamespace, ImmutableMap.of(
+        someKey, new ConfigChange(someNamespace, someKey, "someValue", "anotherValue", PropertyChangeType.MODIFIED),
+        anotherKey, new ConfigChange(someNamespace, anotherKey, null, "someValue", PropertyChangeType.ADDED)));
+    ConfigChangeEvent event = new ConfigChangeEvent(someNamespace, ImmutableMap.of(
+        someKey, new ConfigChange(someNamespace, someKey, "anotherValue", null, PropertyChangeType.DELETED),
+        anotherKey, new ConfigChange(someNamespace, anotherKey, "someValue", null, PropertyChangeType.DELETED),
+        yetAnotherKey, new ConfigChange(someNamespace, yetAnotherKey, "someValue", "anotherValue",
+            PropertyChangeType.MODIFIED)));
+
+    ConfigChangeEvent merged = AbstractConfig.mergeConfigChanges(pending, event);
+
+    assertEquals(Sets.newHashSet(someKey, yetAnotherKey), merged.changedKeys());
+    assertEquals("someValue", merged.getChange(someKey).getOldValue());
+    assertEquals(null, merged.getChange(someKey).getNewValue());
+    assertEquals(PropertyChangeType.DELETED, merged.getChange(someKey).getChangeType());
+    assertEquals(PropertyChangeType.MODIFIED, merged.getChange(yetAnotherKey).getChangeType());
+
+    ConfigChangeEvent revert = new ConfigChangeEvent(someNamespace, ImmutableMap.of(
+        someKey, new ConfigChange(someNamespace, someKey, "anotherValue", "someValue", PropertyChangeType.MODIFIED)));
+    assertEquals(null, AbstractConfig.mergeConfigChanges(
+        new ConfigChangeEvent(someNamespace, ImmutableMap.of(someKey, pending.getChange(someKey))), revert));
+  }
+
   private void checkDatePropertyWithFormat(Config config, Date expected, String propertyName, String format, Date
       defaultValue) {
     assertEquals(expected, config.getDateProperty(propertyName, format, defaultValue));
@@ -0,0 +1,210 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class HostSharedConfigRepositoryTest {
+  private File someBaseDir;
+  private File someSharedFile;
+  private File someLockFile;
+  private String someNamespace;
+  private Properties someProperties;
+  private List<HostSharedConfigRepository> repositories;
+
+  @Before
+  public void setUp() throws Exception {
+    someBaseDir = Files.createTempDir();
+    someSharedFile = new File(someBaseDir, "someApp+someCluster+someNamespace.mmap");
+    someLockFile = new File(someBaseDir, "someApp+someCluster+someNamespace.lock");
+    someNamespace = "someNamespace";
+    someProperties = new Properties();
+    someProperties.setProperty("someKey", "someValue");
+    repositories = Lists.newArrayList();
+
+    MockInjector.reset();
+    MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (HostSharedConfigRepository repository : repositories) {
+      repository.stopWatching();
+    }
+    MockInjector.reset();
+    File[] files = someBaseDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    someBaseDir.delete();
+  }
+
+  @Test
+  public void testFollowerReadsConfigPublishedByLeader() throws Exception {
+    ConfigRepository someRemoteRepository = mockRemoteRepository(someProperties);
+    ConfigRepository anotherRemoteRepository = mockRemoteRepository(new Properties());
+
+    HostSharedConfigRepository leader = createRepository(someRemoteRepository);
+    //the lock of the namespace is held by the leader
+    HostSharedConfigRepository follower = createRepository(anotherRemoteRepository);
+
+    assertTrue(leader.isLeader());
+    assertFalse(follower.isLeader());
+    assertEquals(someProperties, leader.getConfig());
+    assertEquals(someProperties, follower.getConfig());
+    verify(someRemoteRepository, times(1)).addChangeListener(leader);
+    verify(anotherRemoteRepository, times(0)).getConfig();
+  }
+
+  @Test
+  public void testFollowerWatchesVersionOfSharedFile() throws Exception {
+    HostSharedConfigRepository leader = createRepository(mockRemoteRepository(someProperties));
+    HostSharedConfigRepository follower = createRepository(mockRemoteRepository(new Properties()));
+    RepositoryChangeSetListener someListener = mock(RepositoryChangeSetListener.class);
+    follower.addChangeListener(someListener);
+
+    Properties newProperties = new Properties();
+    newProperties.setProperty("someKey", "someValue");
+    newProperties.setProperty("anotherKey", "anotherValue");
+    leader.onRepositoryChange(someNamespace, newProperties);
+    follower.watch();
+
+    assertEquals(newProperties, follower.getConfig());
+    ArgumentCaptor<RepositoryChangeSet> changeSetCaptor = ArgumentCaptor.forClass(RepositoryChangeSet.class);
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), eq(newProperties), changeSetCaptor.capture());
+    assertEquals(ImmutableSet.of("anotherKey"), changeSetCaptor.getValue().getChangedKeys());
+
+    //no new version
+    follower.watch();
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), any(Properties.class),
+        any(RepositoryChangeSet.class));
+  }
+
+  @Test
+  public void testTakeOverLeadershipWhenLeaderIsGone() throws Exception {
+    //another process leads, and has published the config
+    FileChannel leaderChannel = new RandomAccessFile(someLockFile, "rw").getChannel();
+    FileLock leaderLock = leaderChannel.lock();
+    new SharedConfigFile(someSharedFile).write(BinaryCacheFileFormat.encode(someProperties));
+
+    Properties newProperties = new Properties();
+    newProperties.setProperty("someKey", "anotherValue");
+    ConfigRepository someRemoteRepository = mockRemoteRepository(newProperties);
+    HostSharedConfigRepository repository = createRepository(someRemoteRepository);
+    RepositoryChangeSetListener someListener = mock(RepositoryChangeSetListener.class);
+    repository.addChangeListener(someListener);
+    assertFalse(repository.isLeader());
+    assertEquals(someProperties, repository.getConfig());
+
+    //the lock is released by the OS when the leader dies
+    leaderLock.release();
+    leaderChannel.close();
+    repository.watch();
+
+    //taken over on another thread, and published before the change is fired
+    verify(someListener, timeout(5000)).onRepositoryChange(eq(someNamespace), eq(newProperties),
+        any(RepositoryChangeSet.class));
+    assertTrue(repository.isLeader());
+    assertEquals(newProperties, repository.getConfig());
+    SharedConfigFile.Content content = new SharedConfigFile(someSharedFile).read(0);
+    assertEquals(newProperties, BinaryCacheFileFormat.decode(content.getContent()));
+  }
+
+  @Test
+  public void testFollowerStalenessIsAgeOfSyncedTime() throws Exception {
+    HostSharedConfigRepository leader = createRepository(mockRemoteRepository(someProperties));
+    HostSharedConfigRepository follower = createRepository(mockRemoteRepository(new Properties()));
+
+    assertEquals(0, leader.getStalenessInMillis());
+    assertTrue(follower.getStalenessInMillis() < TimeUnit.MINUTES.toMillis(1));
+
+    //the leader is gone or can't sync any more, so the synced time is not renewed
+    long staleness = TimeUnit.MINUTES.toMillis(10);
+    new SharedConfigFile(someSharedFile).writeSyncedTime(System.currentTimeMillis() - staleness);
+    assertTrue(follower.getStalenessInMillis() >= staleness);
+
+    //renewed by the leader
+    leader.watch();
+    assertTrue(follower.getStalenessInMillis() < TimeUnit.MINUTES.toMillis(1));
+  }
+
+  @Test
+  public void testSharedFileGrowsForLargeContent() throws Exception {
+    SharedConfigFile writer = new SharedConfigFile(someSharedFile);
+    SharedConfigFile reader = new SharedConfigFile(someSharedFile);
+    assertNull(reader.read(0));
+
+    byte[] someContent = new byte[]{1, 2, 3};
+    writer.write(someContent);
+    SharedConfigFile.Content content = reader.read(0);
+    assertArrayEquals(someContent, content.getContent());
+    assertNull(reader.read(content.getVersion()));
+
+    byte[] largeContent = new byte[SharedConfigFile.MIN_CAPACITY * 2];
+    largeContent[largeContent.length - 1] = 1;
+    writer.write(largeContent);
+    SharedConfigFile.Content anotherContent = reader.read(content.getVersion());
+    assertArrayEquals(largeContent, anotherContent.getContent());
+    assertTrue(anotherContent.getVersion() > content.getVersion());
+  }
+
+  private HostSharedConfigRepository createRepository(final ConfigRepository remoteRepository) {
+    HostSharedConfigRepository repository = new HostSharedConfigRepository(someNamespace, someSharedFile,
+        someLockFile) {
+      @Override
+      protected ConfigRepository createRemoteConfigRepository() {
+        return remoteRepository;
+      }
+    };
+    repositories.add(repository);
+    return repository;
+  }
+
+  private ConfigRepository mockRemoteRepository(Properties properties) {
+    ConfigRepository remoteRepository = mock(ConfigRepository.class);
+    when(remoteRepository.getConfig()).thenReturn(properties);
+    return remoteRepository;
+  }
+
+  public static class MockConfigUtil extends ConfigUtil {
+    @Override
+    public int getConnectTimeout() {
+      return 100;
+    }
+
+    @Override
+    public int getReadTimeout() {
+      return 100;
+    }
+  }
+}
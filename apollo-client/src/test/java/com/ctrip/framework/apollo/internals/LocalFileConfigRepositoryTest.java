@@ -3,6 +3,8 @@ package com.ctrip.framework.apollo.internals;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -10,6 +12,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
@@ -58,6 +61,7 @@ public class LocalFileConfigRepositoryTest {
 
   @After
   public void tearDown() throws Exception {
+    LocalFileConfigRepository.flushPendingPersists();
     recursiveDelete(someBaseDir);
   }
 
@@ -151,7 +155,7 @@ public class LocalFileConfigRepositoryTest {
 
   @Test
   public void testOnRepositoryChange() throws Exception {
-    RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
+    RepositoryChangeSetListener someListener = mock(RepositoryChangeSetListener.class);
 
     LocalFileConfigRepository localFileConfigRepository =
         new LocalFileConfigRepository(someNamespace, upstreamRepo);
@@ -167,12 +171,151 @@ public class LocalFileConfigRepositoryTest {
 
     final ArgumentCaptor<Properties> captor = ArgumentCaptor.forClass(Properties.class);
 
-    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture());
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture(),
+        any(RepositoryChangeSet.class));
 
     assertEquals(anotherProperties, captor.getValue());
 
   }
 
+  @Test
+  public void testOnRepositoryChangeWithoutChangeSet() throws Exception {
+    RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
+
+    LocalFileConfigRepository localFileConfigRepository =
+        new LocalFileConfigRepository(someNamespace, upstreamRepo);
+    localFileConfigRepository.setLocalCacheDir(someBaseDir, true);
+    localFileConfigRepository.addChangeListener(someListener);
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.put("anotherKey", "anotherValue");
+
+    localFileConfigRepository.onRepositoryChange(someNamespace, anotherProperties);
+
+    verify(someListener, times(1)).onRepositoryChange(someNamespace, anotherProperties);
+  }
+
+  @Test
+  public void testPersistLatestVersionOfLocalCacheFile() throws Exception {
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace, upstreamRepo);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+
+    Properties latestProperties = null;
+    for (int i = 0; i < 10; i++) {
+      latestProperties = new Properties();
+      latestProperties.setProperty(defaultKey, "value" + i);
+      localRepo.onRepositoryChange(someNamespace, latestProperties);
+    }
+    LocalFileConfigRepository.flushPendingPersists();
+
+    assertEquals(latestProperties, loadLocalCachePropertyFile());
+    assertEquals(1, someBaseDir.listFiles().length);
+  }
+
+  @Test
+  public void testLoadConfigWithBinaryLocalFile() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockBinaryConfigUtil());
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty("anotherKey", "anotherValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace, upstreamRepo);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+    localRepo.onRepositoryChange(someNamespace, anotherProperties);
+    LocalFileConfigRepository.flushPendingPersists();
+
+    File binaryFile = new File(someBaseDir, assembleLocalCacheFileName() + ".bin");
+    assertTrue(binaryFile.isFile());
+
+    //the binary file is loaded as long as the properties file is the one persisted along with it, whatever its time
+    File file = new File(someBaseDir, assembleLocalCacheFileName());
+    file.setLastModified(binaryFile.lastModified() + 1000);
+    byte[] content = BinaryCacheFileFormat.encode(withProperty(anotherProperties, "binaryOnly", "true"),
+        BinaryCacheFileFormat.checksum(Files.toByteArray(file)));
+    Files.write(content, binaryFile);
+
+    LocalFileConfigRepository anotherLocalRepo = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals("true", anotherLocalRepo.getConfig().getProperty("binaryOnly"));
+  }
+
+  @Test
+  public void testLoadConfigWithManuallyModifiedLocalFile() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockBinaryConfigUtil());
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty("anotherKey", "anotherValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace, upstreamRepo);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+    localRepo.onRepositoryChange(someNamespace, anotherProperties);
+    LocalFileConfigRepository.flushPendingPersists();
+
+    File binaryFile = new File(someBaseDir, assembleLocalCacheFileName() + ".bin");
+    assertTrue(binaryFile.isFile());
+
+    //the modified properties file is loaded even if it's not newer than the binary file
+    File file = createLocalCachePropertyFile(someProperties);
+    file.setLastModified(binaryFile.lastModified() - 1000);
+
+    LocalFileConfigRepository anotherLocalRepo = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(someProperties, anotherLocalRepo.getConfig());
+  }
+
+  private Properties withProperty(Properties properties, String key, String value) {
+    Properties result = new Properties();
+    result.putAll(properties);
+    result.setProperty(key, value);
+    return result;
+  }
+
+  @Test
+  public void testLoadConfigWithCorruptedBinaryLocalFile() throws Exception {
+    MockInjector.setInstance(ConfigUtil.class, new MockBinaryConfigUtil());
+
+    Properties anotherProperties = new Properties();
+    anotherProperties.setProperty("anotherKey", "anotherValue");
+
+    LocalFileConfigRepository localRepo = new LocalFileConfigRepository(someNamespace, upstreamRepo);
+    localRepo.setLocalCacheDir(someBaseDir, true);
+    localRepo.onRepositoryChange(someNamespace, anotherProperties);
+    LocalFileConfigRepository.flushPendingPersists();
+
+    File binaryFile = new File(someBaseDir, assembleLocalCacheFileName() + ".bin");
+    byte[] content = Files.toByteArray(binaryFile);
+    content[content.length / 2] ^= 1;
+    Files.write(content, binaryFile);
+
+    LocalFileConfigRepository anotherLocalRepo = new LocalFileConfigRepository(someNamespace);
+    anotherLocalRepo.setLocalCacheDir(someBaseDir, true);
+
+    assertEquals(anotherProperties, anotherLocalRepo.getConfig());
+  }
+
+  @Test
+  public void testBinaryCacheFileFormat() throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("someKey", "someValue\nxxx\n中文");
+    properties.setProperty("", "");
+
+    assertEquals(properties, BinaryCacheFileFormat.decode(BinaryCacheFileFormat.encode(properties)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testBinaryCacheFileFormatWithPropertiesContent() throws Exception {
+    BinaryCacheFileFormat.decode((defaultKey + "=" + defaultValue).getBytes(Charsets.UTF_8));
+  }
+
+  public static class MockBinaryConfigUtil extends MockConfigUtil {
+    @Override
+    public boolean isBinaryLocalCacheFileEnabled() {
+      return true;
+    }
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
@@ -185,6 +328,17 @@ public class LocalFileConfigRepositoryTest {
     }
   }
 
+  private Properties loadLocalCachePropertyFile() throws IOException {
+    Properties properties = new Properties();
+    FileInputStream in = new FileInputStream(new File(someBaseDir, assembleLocalCacheFileName()));
+    try {
+      properties.load(in);
+    } finally {
+      in.close();
+    }
+    return properties;
+  }
+
   private File createLocalCachePropertyFile(Properties properties) throws IOException {
     File file = new File(someBaseDir, assembleLocalCacheFileName());
     FileOutputStream in = null;
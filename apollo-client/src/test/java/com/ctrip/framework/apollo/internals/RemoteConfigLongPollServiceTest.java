@@ -75,6 +75,7 @@ public class RemoteConfigLongPollServiceTest {
     MockInjector.setInstance(ConfigServiceLocator.class, configServiceLocator);
 
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
+    MockInjector.setInstance(ConfigServiceRouter.class, new ConfigServiceRouter());
 
     remoteConfigLongPollService = new RemoteConfigLongPollService();
 
@@ -0,0 +1,104 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.base.Ticker;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemoteConfigRefreshSchedulerTest {
+  private RemoteConfigRefreshScheduler refreshScheduler;
+  private FakeTicker ticker;
+  private long refreshIntervalInNanos;
+  @Mock
+  private RemoteConfigRepository someRepository;
+  @Mock
+  private RemoteConfigRepository anotherRepository;
+
+  @Before
+  public void setUp() throws Exception {
+    ticker = new FakeTicker();
+    //long enough that the scheduled cycle never runs in the tests
+    refreshIntervalInNanos = TimeUnit.DAYS.toNanos(1);
+    refreshScheduler = new RemoteConfigRefreshScheduler(ticker, refreshIntervalInNanos, new Random());
+  }
+
+  @Test
+  public void testRefreshAllRepositoriesInOneCycle() throws Exception {
+    refreshScheduler.register(someRepository);
+    refreshScheduler.register(anotherRepository);
+    refreshScheduler.register(someRepository);
+
+    assertEquals(2, refreshScheduler.refresh());
+
+    verify(someRepository, times(1)).trySync();
+    verify(anotherRepository, times(1)).trySync();
+  }
+
+  @Test
+  public void testSkipRepositoriesSyncedByLongPoll() throws Exception {
+    refreshScheduler.register(someRepository);
+    refreshScheduler.register(anotherRepository);
+
+    refreshScheduler.onLongPollSynced(someRepository);
+    ticker.advance(refreshIntervalInNanos - 1);
+
+    assertEquals(1, refreshScheduler.refresh());
+
+    verify(someRepository, never()).trySync();
+    verify(anotherRepository, times(1)).trySync();
+
+    ticker.advance(1);
+
+    assertEquals(2, refreshScheduler.refresh());
+
+    verify(someRepository, times(1)).trySync();
+  }
+
+  @Test
+  public void testLongPollSyncedBeforeRegisteredIsIgnored() throws Exception {
+    refreshScheduler.onLongPollSynced(someRepository);
+
+    assertEquals(0, refreshScheduler.refresh());
+  }
+
+  @Test
+  public void testRefreshDelayIsJittered() throws Exception {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < 1000; i++) {
+      long delay = refreshScheduler.nextRefreshDelay();
+      min = Math.min(min, delay);
+      max = Math.max(max, delay);
+    }
+
+    assertTrue(min >= refreshIntervalInNanos * 0.9);
+    assertTrue(max < refreshIntervalInNanos * 1.1);
+    assertTrue(max > min);
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long nanosToAdvance) {
+      nanos += nanosToAdvance;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.internals;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.any;
@@ -8,6 +9,7 @@ import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -16,7 +18,9 @@ import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -62,6 +66,8 @@ public class RemoteConfigRepositoryTest {
   @Mock
   private static HttpResponse<List<ApolloConfigNotification>> pollResponse;
   private RemoteConfigLongPollService remoteConfigLongPollService;
+  @Mock
+  private RemoteConfigRefreshScheduler refreshScheduler;
 
   @Before
   public void setUp() throws Exception {
@@ -72,6 +78,7 @@ public class RemoteConfigRepositoryTest {
     MockInjector.reset();
     configUtil = new MockConfigUtil();
     MockInjector.setInstance(ConfigUtil.class, configUtil);
+    MockInjector.setInstance(ConfigServiceRouter.class, new ConfigServiceRouter());
 
     someServerUrl = "http://someServer";
 
@@ -87,6 +94,7 @@ public class RemoteConfigRepositoryTest {
     remoteConfigLongPollService = new RemoteConfigLongPollService();
 
     MockInjector.setInstance(RemoteConfigLongPollService.class, remoteConfigLongPollService);
+    MockInjector.setInstance(RemoteConfigRefreshScheduler.class, refreshScheduler);
   }
 
   @Test
@@ -105,9 +113,89 @@ public class RemoteConfigRepositoryTest {
     Properties config = remoteConfigRepository.getConfig();
 
     assertEquals(configurations, config);
+    verify(refreshScheduler, times(1)).register(remoteConfigRepository);
     remoteConfigLongPollService.stopLongPollingRefresh();
   }
 
+  @Test
+  public void testLoadConfigWithHedge() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(assembleApolloConfig(configurations));
+
+    ServiceDTO someServiceDTO = mock(ServiceDTO.class);
+    when(someServiceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    ServiceDTO anotherServiceDTO = mock(ServiceDTO.class);
+    when(anotherServiceDTO.getHomepageUrl()).thenReturn("http://anotherServer");
+    when(configServiceLocator.getConfigServices()).thenReturn(Lists.newArrayList(someServiceDTO, anotherServiceDTO));
+    final AtomicBoolean firstQuery = new AtomicBoolean(true);
+    final CountDownLatch hedgeQueried = new CountDownLatch(1);
+    doAnswer(new Answer<HttpResponse<ApolloConfig>>() {
+      @Override
+      public HttpResponse<ApolloConfig> answer(InvocationOnMock invocation) throws Throwable {
+        //the config service queried first doesn't respond until it's hedged, then fails
+        if (firstQuery.getAndSet(false)) {
+          hedgeQueried.await();
+          throw new ApolloConfigException("some exception");
+        }
+        hedgeQueried.countDown();
+        return someResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+    assertEquals(configurations, remoteConfigRepository.getConfig());
+    final ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    verify(httpUtil, times(2)).doGet(httpRequestArgumentCaptor.capture(), eq(ApolloConfig.class));
+    assertNotEquals(httpRequestArgumentCaptor.getAllValues().get(0).getUrl(),
+        httpRequestArgumentCaptor.getAllValues().get(1).getUrl());
+  }
+
+  @Test
+  public void testLoadConfigWithHedgeAnsweredFirst() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    when(someResponse.getStatusCode()).thenReturn(200);
+    when(someResponse.getBody()).thenReturn(assembleApolloConfig(configurations));
+    final HttpResponse<ApolloConfig> anotherResponse = mock(HttpResponse.class);
+    when(anotherResponse.getStatusCode()).thenReturn(200);
+    when(anotherResponse.getBody()).thenReturn(assembleApolloConfig(ImmutableMap.of("someKey", "anotherValue")));
+
+    ServiceDTO someServiceDTO = mock(ServiceDTO.class);
+    when(someServiceDTO.getHomepageUrl()).thenReturn(someServerUrl);
+    ServiceDTO anotherServiceDTO = mock(ServiceDTO.class);
+    when(anotherServiceDTO.getHomepageUrl()).thenReturn("http://anotherServer");
+    when(configServiceLocator.getConfigServices()).thenReturn(Lists.newArrayList(someServiceDTO, anotherServiceDTO));
+    final AtomicBoolean firstQuery = new AtomicBoolean(true);
+    final CountDownLatch hedgeAnswered = new CountDownLatch(1);
+    final CountDownLatch firstQueryCancelled = new CountDownLatch(1);
+    doAnswer(new Answer<HttpResponse<ApolloConfig>>() {
+      @Override
+      public HttpResponse<ApolloConfig> answer(InvocationOnMock invocation) throws Throwable {
+        //the config service queried first is slow but succeeds, unless it's cancelled once the hedge answers
+        if (firstQuery.getAndSet(false)) {
+          hedgeAnswered.await();
+          try {
+            TimeUnit.SECONDS.sleep(5);
+          } catch (InterruptedException ex) {
+            firstQueryCancelled.countDown();
+          }
+          return anotherResponse;
+        }
+        hedgeAnswered.countDown();
+        return someResponse;
+      }
+    }).when(httpUtil).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+
+    RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
+
+    remoteConfigLongPollService.stopLongPollingRefresh();
+    assertEquals(configurations, remoteConfigRepository.getConfig());
+    assertTrue(firstQueryCancelled.await(5, TimeUnit.SECONDS));
+    verify(httpUtil, times(2)).doGet(any(HttpRequest.class), eq(ApolloConfig.class));
+  }
+
   @Test(expected = ApolloConfigException.class)
   public void testGetRemoteConfigWithServerError() throws Exception {
 
@@ -129,7 +217,7 @@ public class RemoteConfigRepositoryTest {
     when(someResponse.getStatusCode()).thenReturn(200);
     when(someResponse.getBody()).thenReturn(someApolloConfig);
 
-    RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
+    RepositoryChangeSetListener someListener = mock(RepositoryChangeSetListener.class);
     RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
     remoteConfigRepository.addChangeListener(someListener);
     final ArgumentCaptor<Properties> captor = ArgumentCaptor.forClass(Properties.class);
@@ -141,7 +229,8 @@ public class RemoteConfigRepositoryTest {
 
     remoteConfigRepository.sync();
 
-    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture());
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture(),
+        any(RepositoryChangeSet.class));
 
     assertEquals(newConfigurations, captor.getValue());
 
@@ -157,7 +246,7 @@ public class RemoteConfigRepositoryTest {
     when(someResponse.getBody()).thenReturn(someApolloConfig);
 
     final SettableFuture<Boolean> longPollFinished = SettableFuture.create();
-    RepositoryChangeListener someListener = mock(RepositoryChangeListener.class);
+    RepositoryChangeSetListener someListener = mock(RepositoryChangeSetListener.class);
     doAnswer(new Answer<Void>() {
 
       @Override
@@ -166,7 +255,8 @@ public class RemoteConfigRepositoryTest {
         return null;
       }
 
-    }).when(someListener).onRepositoryChange(any(String.class), any(Properties.class));
+    }).when(someListener).onRepositoryChange(any(String.class), any(Properties.class),
+        any(RepositoryChangeSet.class));
 
     RemoteConfigRepository remoteConfigRepository = new RemoteConfigRepository(someNamespace);
     remoteConfigRepository.addChangeListener(someListener);
@@ -192,7 +282,8 @@ public class RemoteConfigRepositoryTest {
 
     remoteConfigLongPollService.stopLongPollingRefresh();
 
-    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture());
+    verify(someListener, times(1)).onRepositoryChange(eq(someNamespace), captor.capture(),
+        any(RepositoryChangeSet.class));
     assertEquals(newConfigurations, captor.getValue());
 
     final ArgumentCaptor<HttpRequest> httpRequestArgumentCaptor = ArgumentCaptor.forClass(HttpRequest.class);
@@ -201,6 +292,9 @@ public class RemoteConfigRepositoryTest {
     HttpRequest request = httpRequestArgumentCaptor.getValue();
 
     assertTrue(request.getUrl().contains("messages=%7B%22details%22%3A%7B%22someKey%22%3A1%7D%7D"));
+
+    //the periodic refresh is skipped for a while
+    verify(refreshScheduler, timeout(500)).onLongPollSynced(remoteConfigRepository);
   }
 
   @Test
@@ -0,0 +1,68 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+public class RepositoryChangeSetTest {
+
+  @Test
+  public void testDiff() throws Exception {
+    Properties previous = new Properties();
+    previous.putAll(ImmutableMap.of("someKey", "someValue", "anotherKey", "anotherValue", "deletedKey", "value"));
+    Properties current = new Properties();
+    current.putAll(ImmutableMap.of("someKey", "someValue", "anotherKey", "anotherNewValue", "addedKey", "value"));
+    long previousFingerprint = RepositoryChangeSet.fingerprint(previous);
+
+    RepositoryChangeSet changeSet = RepositoryChangeSet.diff(previous, previousFingerprint, current);
+
+    assertEquals(Sets.newHashSet("anotherKey", "deletedKey", "addedKey"), changeSet.getChangedKeys());
+    assertEquals(RepositoryChangeSet.fingerprint(current), changeSet.getFingerprint());
+    assertTrue(changeSet.isBasedOn(previousFingerprint));
+    assertFalse(changeSet.isBasedOn(changeSet.getFingerprint()));
+  }
+
+  @Test
+  public void testDiffWithNoChanges() throws Exception {
+    Properties previous = new Properties();
+    previous.setProperty("someKey", "someValue");
+    Properties current = new Properties();
+    current.setProperty("someKey", "someValue");
+    long previousFingerprint = RepositoryChangeSet.fingerprint(previous);
+
+    RepositoryChangeSet changeSet = RepositoryChangeSet.diff(previous, previousFingerprint, current);
+
+    assertTrue(changeSet.getChangedKeys().isEmpty());
+    assertEquals(previousFingerprint, changeSet.getFingerprint());
+  }
+
+  @Test
+  public void testDiffFromNull() throws Exception {
+    Properties current = new Properties();
+    current.setProperty("someKey", "someValue");
+
+    RepositoryChangeSet changeSet = RepositoryChangeSet.diff(null, RepositoryChangeSet.fingerprint(null), current);
+
+    assertEquals(Collections.singleton("someKey"), changeSet.getChangedKeys());
+    assertEquals(RepositoryChangeSet.fingerprint(current), changeSet.getFingerprint());
+  }
+
+  @Test
+  public void testFingerprintDependsOnEntries() throws Exception {
+    assertEquals(0, RepositoryChangeSet.fingerprint(new Properties()));
+    assertEquals(RepositoryChangeSet.fingerprint(ImmutableMap.of("a", "b", "c", "d")),
+        RepositoryChangeSet.fingerprint(ImmutableMap.of("c", "d", "a", "b")));
+    assertFalse(RepositoryChangeSet.fingerprint(ImmutableMap.of("ab", "c"))
+        == RepositoryChangeSet.fingerprint(ImmutableMap.of("a", "bc")));
+    assertFalse(RepositoryChangeSet.fingerprint(ImmutableMap.of("a", "b"))
+        == RepositoryChangeSet.fingerprint(ImmutableMap.of("a", "c")));
+  }
+}
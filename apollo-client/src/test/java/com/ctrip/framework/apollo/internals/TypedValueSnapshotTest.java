@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.internals;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TypedValueSnapshotTest {
+  private static final long SOME_EXPIRE_TIME = 100;
+
+  @Test
+  public void testPutAndGet() throws Exception {
+    TypedValueSnapshot snapshot = new TypedValueSnapshot(10, SOME_EXPIRE_TIME, 0);
+
+    assertTrue(snapshot.put(TypedValueSnapshot.INTEGER, "someKey", 1, 0));
+    assertTrue(snapshot.put(TypedValueSnapshot.LONG, "someKey", 2L, 0));
+    assertTrue(snapshot.putArray(",", "someKey", new String[]{"a", "b"}, 0));
+
+    assertEquals(1, (int) snapshot.<Integer>get(TypedValueSnapshot.INTEGER, "someKey", 0));
+    assertEquals(2L, (long) snapshot.<Long>get(TypedValueSnapshot.LONG, "someKey", 0));
+    assertNull(snapshot.get(TypedValueSnapshot.SHORT, "someKey", 0));
+    assertArrayEquals(new String[]{"a", "b"}, snapshot.getArray(",", "someKey", 0));
+    assertNull(snapshot.getArray(";", "someKey", 0));
+  }
+
+  @Test
+  public void testPutWhenFull() throws Exception {
+    TypedValueSnapshot snapshot = new TypedValueSnapshot(1, SOME_EXPIRE_TIME, 0);
+
+    assertTrue(snapshot.put(TypedValueSnapshot.INTEGER, "someKey", 1, 0));
+    assertFalse(snapshot.put(TypedValueSnapshot.INTEGER, "anotherKey", 2, 0));
+    //the existing key and other types are not affected
+    assertTrue(snapshot.put(TypedValueSnapshot.INTEGER, "someKey", 1, 0));
+    assertTrue(snapshot.put(TypedValueSnapshot.LONG, "anotherKey", 2L, 0));
+
+    assertTrue(snapshot.putArray(",", "someKey", new String[]{"a"}, 0));
+    assertFalse(snapshot.putArray(",", "anotherKey", new String[]{"b"}, 0));
+    assertTrue(snapshot.putArray(";", "anotherKey", new String[]{"b"}, 0));
+
+    //the values cached are kept
+    assertEquals(1, (int) snapshot.<Integer>get(TypedValueSnapshot.INTEGER, "someKey", 0));
+    assertNull(snapshot.get(TypedValueSnapshot.INTEGER, "anotherKey", 0));
+    assertArrayEquals(new String[]{"a"}, snapshot.getArray(",", "someKey", 0));
+  }
+
+  @Test
+  public void testPutWhenFullWithExpiredValues() throws Exception {
+    TypedValueSnapshot snapshot = new TypedValueSnapshot(1, SOME_EXPIRE_TIME, 0);
+
+    assertTrue(snapshot.put(TypedValueSnapshot.INTEGER, "someKey", 1, 0));
+    assertFalse(snapshot.put(TypedValueSnapshot.INTEGER, "anotherKey", 2, SOME_EXPIRE_TIME - 1));
+    //the expired one is purged
+    assertTrue(snapshot.put(TypedValueSnapshot.INTEGER, "anotherKey", 2, SOME_EXPIRE_TIME));
+
+    assertEquals(2, (int) snapshot.<Integer>get(TypedValueSnapshot.INTEGER, "anotherKey", SOME_EXPIRE_TIME));
+  }
+
+  @Test
+  public void testExpiredPerValue() throws Exception {
+    long someTime = 10;
+    TypedValueSnapshot snapshot = new TypedValueSnapshot(10, SOME_EXPIRE_TIME, 0);
+
+    snapshot.put(TypedValueSnapshot.INTEGER, "someKey", 1, 0);
+    snapshot.put(TypedValueSnapshot.INTEGER, "anotherKey", 2, someTime);
+    snapshot.putArray(",", "someKey", new String[]{"a"}, someTime);
+
+    assertEquals(1, (int) snapshot.<Integer>get(TypedValueSnapshot.INTEGER, "someKey", SOME_EXPIRE_TIME - 1));
+    assertNull(snapshot.get(TypedValueSnapshot.INTEGER, "someKey", SOME_EXPIRE_TIME));
+    //the values put later are not expired yet
+    assertEquals(2, (int) snapshot.<Integer>get(TypedValueSnapshot.INTEGER, "anotherKey", SOME_EXPIRE_TIME));
+    assertArrayEquals(new String[]{"a"}, snapshot.getArray(",", "someKey", SOME_EXPIRE_TIME));
+    assertNull(snapshot.getArray(",", "someKey", someTime + SOME_EXPIRE_TIME));
+  }
+}
@@ -0,0 +1,113 @@
+package com.ctrip.framework.apollo.metrics.internals;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultMetricsReporterTest {
+  private static final String SOME_NAME = "someName";
+  private static final String SOME_TAG = "someTag";
+
+  private DefaultMetricsReporter metricsReporter;
+
+  @Before
+  public void setUp() throws Exception {
+    metricsReporter = new DefaultMetricsReporter();
+  }
+
+  @Test
+  public void testRecordLatency() throws Exception {
+    for (int i = 1; i <= 1000; i++) {
+      metricsReporter.recordLatency(SOME_NAME, SOME_TAG, TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    metricsReporter.recordLatency(SOME_NAME, "", TimeUnit.MILLISECONDS.toNanos(1));
+
+    Map<String, HistogramSnapshot> latencies = metricsReporter.getLatencies();
+
+    assertEquals(2, latencies.size());
+    HistogramSnapshot snapshot = latencies.get(SOME_NAME + "[" + SOME_TAG + "]");
+    assertEquals(1000, snapshot.getCount());
+    assertEquals(500.5, snapshot.getMean(), 0.001);
+    assertEquals(1000, snapshot.getMax(), 0.001);
+    assertWithinPrecision(500, snapshot.getP50());
+    assertWithinPrecision(900, snapshot.getP90());
+    assertWithinPrecision(990, snapshot.getP99());
+    assertWithinPrecision(999, snapshot.getP999());
+    assertEquals(1, latencies.get(SOME_NAME).getCount());
+  }
+
+  @Test
+  public void testIncrementCounterConcurrently() throws Exception {
+    int someThreads = 4;
+    final int someIncrements = 10000;
+    ExecutorService executorService = Executors.newFixedThreadPool(someThreads);
+    final CountDownLatch done = new CountDownLatch(someThreads);
+    for (int i = 0; i < someThreads; i++) {
+      executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < someIncrements; j++) {
+            metricsReporter.incrementCounter(SOME_NAME, SOME_TAG);
+            metricsReporter.recordLatency(SOME_NAME, SOME_TAG, j);
+          }
+          done.countDown();
+        }
+      });
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    executorService.shutdown();
+
+    String someKey = SOME_NAME + "[" + SOME_TAG + "]";
+    assertEquals(someThreads * someIncrements, (long) metricsReporter.getCounters().get(someKey));
+    assertEquals(someThreads * someIncrements, metricsReporter.getLatencies().get(someKey).getCount());
+  }
+
+  @Test
+  public void testBuckets() throws Exception {
+    long previousUpperBound = -1;
+    for (int i = 0; i <= Histogram.bucketIndex(Histogram.MAX_VALUE); i++) {
+      long upperBound = Histogram.bucketUpperBound(i);
+      assertTrue(upperBound > previousUpperBound);
+      assertEquals(i, Histogram.bucketIndex(previousUpperBound + 1));
+      assertEquals(i, Histogram.bucketIndex(upperBound));
+      previousUpperBound = upperBound;
+    }
+    assertEquals(Histogram.MAX_VALUE, previousUpperBound);
+  }
+
+  @Test
+  public void testExposedViaJmx() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(DefaultMetricsReporter.OBJECT_NAME);
+    assertTrue(server.isRegistered(objectName));
+
+    Object counters = server.getAttribute(objectName, "Counters");
+    Object latencies = server.getAttribute(objectName, "Latencies");
+
+    assertTrue(counters instanceof TabularData);
+    assertTrue(latencies instanceof TabularData);
+    for (Object row : ((TabularData) latencies).values()) {
+      assertTrue(((CompositeData) ((CompositeData) row).get("value")).containsKey("p99"));
+    }
+  }
+
+  private void assertWithinPrecision(double expected, double actual) {
+    assertTrue(String.format("expected: %f, actual: %f", expected, actual),
+        actual >= expected && actual <= expected * 1.125);
+  }
+}
@@ -5,30 +5,51 @@ import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import com.ctrip.framework.apollo.Config;
+import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.ConfigFile;
+import com.ctrip.framework.apollo.Configs;
 import com.ctrip.framework.apollo.build.MockInjector;
+import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.core.enums.Env;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
 import com.ctrip.framework.apollo.internals.DefaultConfig;
 import com.ctrip.framework.apollo.internals.JsonConfigFile;
 import com.ctrip.framework.apollo.internals.LocalFileConfigRepository;
 import com.ctrip.framework.apollo.internals.PropertiesConfigFile;
+import com.ctrip.framework.apollo.internals.RemoteConfigRepository;
+import com.ctrip.framework.apollo.internals.RepositoryChangeListener;
 import com.ctrip.framework.apollo.internals.XmlConfigFile;
 import com.ctrip.framework.apollo.internals.YamlConfigFile;
 import com.ctrip.framework.apollo.internals.YmlConfigFile;
+import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.util.ConfigUtil;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.SettableFuture;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -37,11 +58,15 @@ public class DefaultConfigFactoryTest {
   private DefaultConfigFactory defaultConfigFactory;
   private static String someAppId;
   private static Env someEnv;
+  private static boolean offlineFirstStartup;
+  private static File someCacheDir;
 
   @Before
   public void setUp() throws Exception {
     someAppId = "someId";
     someEnv = Env.DEV;
+    offlineFirstStartup = false;
+    someCacheDir = Files.createTempDir();
     MockInjector.reset();
     MockInjector.setInstance(ConfigUtil.class, new MockConfigUtil());
     defaultConfigFactory = spy(new DefaultConfigFactory());
@@ -67,6 +92,112 @@ public class DefaultConfigFactoryTest {
     assertEquals(someValue, result.getProperty(someKey, null));
   }
 
+  @After
+  public void tearDown() throws Exception {
+    recursiveDelete(someCacheDir);
+  }
+
+  @Test
+  public void testCreateWithOfflineFirstStartup() throws Exception {
+    offlineFirstStartup = true;
+    String someNamespace = "someName";
+    String someKey = "someKey";
+    String someLocalValue = "someLocalValue";
+    String someRemoteValue = "someRemoteValue";
+    long someStaleness = TimeUnit.HOURS.toMillis(1);
+    createLocalCacheFile(someNamespace, someKey, someLocalValue, someStaleness);
+
+    final CountDownLatch remoteConnected = new CountDownLatch(1);
+    final RemoteConfigRepository someRemoteConfigRepo = mock(RemoteConfigRepository.class);
+    when(someRemoteConfigRepo.getConfig()).thenReturn(assembleProperties(someKey, someRemoteValue));
+    doAnswer(new Answer<RemoteConfigRepository>() {
+      @Override
+      public RemoteConfigRepository answer(InvocationOnMock invocation) throws Throwable {
+        remoteConnected.await();
+        return someRemoteConfigRepo;
+      }
+    }).when(defaultConfigFactory).createRemoteConfigRepository(someNamespace);
+
+    Config config = defaultConfigFactory.create(someNamespace);
+
+    assertEquals(someLocalValue, config.getProperty(someKey, null));
+    assertTrue(Configs.getStalenessInMillis(config) >= someStaleness);
+
+    final SettableFuture<ConfigChangeEvent> changeEvent = SettableFuture.create();
+    config.addChangeListener(new ConfigChangeListener() {
+      @Override
+      public void onChange(ConfigChangeEvent event) {
+        changeEvent.set(event);
+      }
+    });
+
+    remoteConnected.countDown();
+
+    assertEquals(someRemoteValue, changeEvent.get(5, TimeUnit.SECONDS).getChange(someKey).getNewValue());
+    assertEquals(someRemoteValue, config.getProperty(someKey, null));
+    assertEquals(0, Configs.getStalenessInMillis(config));
+  }
+
+  @Test
+  public void testCreateWithOfflineFirstStartupAndFirstRemoteSyncFailed() throws Exception {
+    offlineFirstStartup = true;
+    final String someNamespace = "someName";
+    String someKey = "someKey";
+    String someValue = "someValue";
+    long someStaleness = TimeUnit.HOURS.toMillis(1);
+    createLocalCacheFile(someNamespace, someKey, someValue, someStaleness);
+
+    final SettableFuture<RepositoryChangeListener> upstreamListener = SettableFuture.create();
+    RemoteConfigRepository someRemoteConfigRepo = mock(RemoteConfigRepository.class);
+    when(someRemoteConfigRepo.getConfig()).thenThrow(new ApolloConfigException("some exception"));
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        upstreamListener.set((RepositoryChangeListener) invocation.getArguments()[0]);
+        return null;
+      }
+    }).when(someRemoteConfigRepo).addChangeListener(any(RepositoryChangeListener.class));
+    doReturn(someRemoteConfigRepo).when(defaultConfigFactory).createRemoteConfigRepository(someNamespace);
+
+    Config config = defaultConfigFactory.create(someNamespace);
+    RepositoryChangeListener listener = upstreamListener.get(5, TimeUnit.SECONDS);
+
+    assertEquals(someValue, config.getProperty(someKey, null));
+    assertTrue(Configs.getStalenessInMillis(config) >= someStaleness);
+
+    //the upstream confirms the same content later
+    listener.onRepositoryChange(someNamespace, assembleProperties(someKey, someValue));
+
+    assertEquals(someValue, config.getProperty(someKey, null));
+    assertEquals(0, Configs.getStalenessInMillis(config));
+  }
+
+  @Test
+  public void testCreateWithOfflineFirstStartupAndStaleLocalCache() throws Exception {
+    offlineFirstStartup = true;
+    String someNamespace = "someName";
+    String someKey = "someKey";
+    String someRemoteValue = "someRemoteValue";
+    createLocalCacheFile(someNamespace, someKey, "someLocalValue", TimeUnit.DAYS.toMillis(2));
+
+    RemoteConfigRepository someRemoteConfigRepo = mock(RemoteConfigRepository.class);
+    when(someRemoteConfigRepo.getConfig()).thenReturn(assembleProperties(someKey, someRemoteValue));
+    doReturn(someRemoteConfigRepo).when(defaultConfigFactory).createRemoteConfigRepository(someNamespace);
+
+    Config config = defaultConfigFactory.create(someNamespace);
+
+    assertEquals(someRemoteValue, config.getProperty(someKey, null));
+    assertEquals(0, Configs.getStalenessInMillis(config));
+  }
+
+  @Test
+  public void testCreateWithOfflineFirstStartupAndNoLocalCache() throws Exception {
+    offlineFirstStartup = true;
+    String someNamespace = "someName";
+
+    assertNull(defaultConfigFactory.createOfflineFirstConfigRepository(someNamespace));
+  }
+
   @Test
   public void testCreateLocalConfigRepositoryInLocalDev() throws Exception {
     String someNamespace = "someName";
@@ -125,12 +256,54 @@ public class DefaultConfigFactoryTest {
 
   }
 
+  private Properties assembleProperties(String key, String value) {
+    Properties properties = new Properties();
+    properties.setProperty(key, value);
+    return properties;
+  }
+
+  private void createLocalCacheFile(String namespace, String key, String value, long staleness) throws IOException {
+    File cacheDir = new File(someCacheDir, "config-cache");
+    cacheDir.mkdirs();
+    File file = new File(cacheDir, String.format("%s.properties", Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR)
+        .join(someAppId, ConfigConsts.CLUSTER_NAME_DEFAULT, namespace)));
+    Files.write(key + "=" + value, file, Charsets.UTF_8);
+    file.setLastModified(System.currentTimeMillis() - staleness);
+  }
+
+  private void recursiveDelete(File file) {
+    if (!file.exists()) {
+      return;
+    }
+    if (file.isDirectory()) {
+      for (File f : file.listFiles()) {
+        recursiveDelete(f);
+      }
+    }
+    file.delete();
+  }
+
   public static class MockConfigUtil extends ConfigUtil {
     @Override
     public String getAppId() {
       return someAppId;
     }
 
+    @Override
+    public String getCluster() {
+      return ConfigConsts.CLUSTER_NAME_DEFAULT;
+    }
+
+    @Override
+    public String getDefaultLocalCacheDir() {
+      return someCacheDir.getAbsolutePath();
+    }
+
+    @Override
+    public boolean isOfflineFirstStartupEnabled() {
+      return offlineFirstStartup;
+    }
+
     @Override
     public Env getApolloEnv() {
       return someEnv;
@@ -2,8 +2,11 @@ package com.ctrip.framework.apollo.spring;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import java.util.List;
 
@@ -18,11 +21,13 @@ import org.springframework.context.annotation.Configuration;
 import com.ctrip.framework.apollo.Config;
 import com.ctrip.framework.apollo.ConfigChangeListener;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.internals.AbstractConfig;
 import com.ctrip.framework.apollo.model.ConfigChangeEvent;
 import com.ctrip.framework.apollo.spring.annotation.ApolloConfig;
 import com.ctrip.framework.apollo.spring.annotation.ApolloConfigChangeListener;
 import com.ctrip.framework.apollo.spring.annotation.EnableApolloConfig;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -125,6 +130,20 @@ public class JavaConfigAnnotationTest extends AbstractSpringIntegrationTest {
     assertEquals(anotherEvent, bean.getChangeEvent3());
   }
 
+  @Test
+  public void testApolloConfigChangeListenerWithInterestedKeys() throws Exception {
+    AbstractConfig applicationConfig = mock(AbstractConfig.class);
+
+    mockConfig(ConfigConsts.NAMESPACE_APPLICATION, applicationConfig);
+
+    getBean(TestApolloConfigChangeListenerWithInterestedKeysBean.class, AppConfig8.class);
+
+    verify(applicationConfig).addChangeListener(any(ConfigChangeListener.class),
+        eq(Sets.newHashSet("someKey", "anotherKey")), eq(Sets.newHashSet("someKeyPrefix.")));
+    verify(applicationConfig).addChangeListener(any(ConfigChangeListener.class), anySetOf(String.class),
+        eq(Sets.newHashSet("anotherKeyPrefix.")));
+  }
+
   @Test(expected = BeanCreationException.class)
   public void testApolloConfigChangeListenerWithWrongParamType() throws Exception {
     Config applicationConfig = mock(Config.class);
@@ -269,6 +288,15 @@ public class JavaConfigAnnotationTest extends AbstractSpringIntegrationTest {
     }
   }
 
+  @Configuration
+  @EnableApolloConfig
+  static class AppConfig8 {
+    @Bean
+    public TestApolloConfigChangeListenerWithInterestedKeysBean bean() {
+      return new TestApolloConfigChangeListenerWithInterestedKeysBean();
+    }
+  }
+
   static class TestApolloConfigBean1 {
     @ApolloConfig
     private Config config;
@@ -365,4 +393,15 @@ public class JavaConfigAnnotationTest extends AbstractSpringIntegrationTest {
       return someChangeEvent;
     }
   }
+
+  static class TestApolloConfigChangeListenerWithInterestedKeysBean {
+
+    @ApolloConfigChangeListener(interestedKeys = {"someKey", "anotherKey"}, interestedKeyPrefixes = {"someKeyPrefix."})
+    private void someOnChange(ConfigChangeEvent changeEvent) {
+    }
+
+    @ApolloConfigChangeListener(interestedKeyPrefixes = {"anotherKeyPrefix."})
+    private void anotherOnChange(ConfigChangeEvent changeEvent) {
+    }
+  }
 }
@@ -0,0 +1,135 @@
+package com.ctrip.framework.apollo.spring.property;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import com.google.common.collect.Maps;
+
+public class SpringValueUpdaterTest {
+  private static final String SOME_KEY = "someKey";
+  private static final String SOME_BEAN_NAME = "someBean";
+
+  private Map<String, Object> someSource;
+  private StandardEnvironment environment;
+  private DefaultListableBeanFactory beanFactory;
+  private PropertySourcesPlaceholderConfigurer placeholderConfigurer;
+  private SomeBean someBean;
+
+  @Before
+  public void setUp() throws Exception {
+    someSource = Maps.newHashMap();
+    environment = new StandardEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource("someSource", someSource));
+    beanFactory = new DefaultListableBeanFactory();
+    placeholderConfigurer = new PropertySourcesPlaceholderConfigurer();
+    placeholderConfigurer.setEnvironment(environment);
+    someBean = new SomeBean();
+  }
+
+  @Test
+  public void testUpdateWithSimplePlaceholder() throws Exception {
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+    someSource.put(SOME_KEY, "someValue");
+
+    SpringValueUpdater updater = assembleUpdater("${someKey:someDefaultValue}", "someString");
+    updater.update();
+    assertEquals("someValue", someBean.someString);
+
+    someSource.put(SOME_KEY, "anotherValue");
+    updater.update();
+    assertEquals("anotherValue", someBean.someString);
+
+    someSource.remove(SOME_KEY);
+    updater.update();
+    assertEquals("someDefaultValue", someBean.someString);
+  }
+
+  @Test
+  public void testUpdateWithConversion() throws Exception {
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+    someSource.put(SOME_KEY, "1");
+
+    SpringValueUpdater updater = assembleUpdater("${someKey}", "someInt");
+    updater.update();
+    assertEquals(1, someBean.someInt);
+
+    someSource.put(SOME_KEY, "2");
+    updater.update();
+    assertEquals(2, someBean.someInt);
+  }
+
+  @Test
+  public void testUpdateWithSetter() throws Exception {
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+    someSource.put(SOME_KEY, "1");
+
+    Method setter = SomeBean.class.getDeclaredMethod("setSomeLong", long.class);
+    SpringValueUpdater updater = new SpringValueUpdater(
+        new SpringValue(SOME_KEY, "${someKey}", someBean, SOME_BEAN_NAME, setter, false), beanFactory, environment,
+        beanFactory.getTypeConverter(), true, new PlaceholderHelper());
+
+    updater.update();
+    assertEquals(1L, someBean.someLong);
+  }
+
+  @Test
+  public void testUpdateWithLocalOverrideOfPlaceholderConfigurer() throws Exception {
+    Properties localProperties = new Properties();
+    localProperties.setProperty(SOME_KEY, "someLocalValue");
+    placeholderConfigurer.setProperties(localProperties);
+    placeholderConfigurer.setLocalOverride(true);
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+    someSource.put(SOME_KEY, "someValue");
+
+    SpringValueUpdater updater = assembleUpdater("${someKey}", "someString");
+    updater.update();
+    assertEquals("someLocalValue", someBean.someString);
+
+    //the placeholder is still resolved by the bean factory, instead of the environment
+    someSource.put(SOME_KEY, "anotherValue");
+    updater.update();
+    assertEquals("someLocalValue", someBean.someString);
+  }
+
+  @Test
+  public void testUpdateWithNestedPlaceholder() throws Exception {
+    placeholderConfigurer.postProcessBeanFactory(beanFactory);
+    someSource.put(SOME_KEY, "someValue");
+    someSource.put("anotherKey", "anotherValue");
+
+    SpringValueUpdater updater = assembleUpdater("${someKey}.${anotherKey}", "someString");
+    updater.update();
+    assertEquals("someValue.anotherValue", someBean.someString);
+
+    someSource.put("anotherKey", "yetAnotherValue");
+    updater.update();
+    assertEquals("someValue.yetAnotherValue", someBean.someString);
+  }
+
+  private SpringValueUpdater assembleUpdater(String placeholder, String fieldName) throws Exception {
+    SpringValue springValue = new SpringValue(SOME_KEY, placeholder, someBean, SOME_BEAN_NAME,
+        SomeBean.class.getDeclaredField(fieldName), false);
+    return new SpringValueUpdater(springValue, beanFactory, environment, beanFactory.getTypeConverter(), true,
+        new PlaceholderHelper());
+  }
+
+  private static class SomeBean {
+    private String someString;
+    private int someInt;
+    private long someLong;
+
+    private void setSomeLong(long someLong) {
+      this.someLong = someLong;
+    }
+  }
+}
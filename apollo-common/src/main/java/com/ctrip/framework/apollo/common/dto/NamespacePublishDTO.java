@@ -0,0 +1,62 @@
+package com.ctrip.framework.apollo.common.dto;
+
+/**
+ * one namespace to publish in a batch publish request
+ */
+public class NamespacePublishDTO {
+
+  private String appId;
+  private String clusterName;
+  private String namespaceName;
+  private String releaseName;
+  private String releaseComment;
+  private boolean isEmergencyPublish;
+
+  public String getAppId() {
+    return appId;
+  }
+
+  public void setAppId(String appId) {
+    this.appId = appId;
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  public void setClusterName(String clusterName) {
+    this.clusterName = clusterName;
+  }
+
+  public String getNamespaceName() {
+    return namespaceName;
+  }
+
+  public void setNamespaceName(String namespaceName) {
+    this.namespaceName = namespaceName;
+  }
+
+  public String getReleaseName() {
+    return releaseName;
+  }
+
+  public void setReleaseName(String releaseName) {
+    this.releaseName = releaseName;
+  }
+
+  public String getReleaseComment() {
+    return releaseComment;
+  }
+
+  public void setReleaseComment(String releaseComment) {
+    this.releaseComment = releaseComment;
+  }
+
+  public boolean isEmergencyPublish() {
+    return isEmergencyPublish;
+  }
+
+  public void setEmergencyPublish(boolean emergencyPublish) {
+    isEmergencyPublish = emergencyPublish;
+  }
+}
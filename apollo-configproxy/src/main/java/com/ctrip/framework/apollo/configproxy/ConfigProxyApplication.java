@@ -0,0 +1,24 @@
+package com.ctrip.framework.apollo.configproxy;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring boot application entry point
+ *
+ * The config proxy is deployed near the clients, e.g. in a remote data center, and the clients are pointed to it with
+ * apollo.meta or apollo.configService. The upstream config services are located the same way as an apollo client does,
+ * i.e. with apollo.meta, apollo.configService or apollo-env.properties.
+ */
+@EnableAutoConfiguration
+@Configuration
+@ComponentScan(basePackageClasses = ConfigProxyApplication.class)
+public class ConfigProxyApplication {
+
+  public static void main(String[] args) throws Exception {
+    new SpringApplicationBuilder(ConfigProxyApplication.class).run(args);
+  }
+
+}
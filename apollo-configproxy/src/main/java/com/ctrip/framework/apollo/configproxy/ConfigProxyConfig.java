@@ -0,0 +1,59 @@
+package com.ctrip.framework.apollo.configproxy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the config proxy, read from the spring environment, e.g. application.yml or -D options
+ */
+@Component
+public class ConfigProxyConfig {
+  private static final long DEFAULT_LONG_POLL_TIMEOUT_IN_MILLI = 60 * 1000;//60 seconds
+  //should be longer than the long poll timeout of config service
+  private static final int DEFAULT_UPSTREAM_LONG_POLL_READ_TIMEOUT_IN_MILLI = 90 * 1000;//90 seconds
+  private static final long DEFAULT_SUBSCRIPTION_IDLE_TIMEOUT_IN_MILLI = 10 * 60 * 1000;//10 minutes
+  private static final long DEFAULT_RELEASE_CACHE_MAX_SIZE = 10000;
+  private static final int DEFAULT_UPSTREAM_LONG_POLL_MAX_THREADS = 200;
+
+  @Autowired
+  private Environment environment;
+
+  /**
+   * How long the long polls from clients are held
+   */
+  public long longPollTimeoutInMilli() {
+    return environment.getProperty("configproxy.long-poll.timeout-in-milli", Long.class,
+        DEFAULT_LONG_POLL_TIMEOUT_IN_MILLI);
+  }
+
+  public int upstreamLongPollReadTimeoutInMilli() {
+    return environment.getProperty("configproxy.upstream.long-poll.read-timeout-in-milli", Integer.class,
+        DEFAULT_UPSTREAM_LONG_POLL_READ_TIMEOUT_IN_MILLI);
+  }
+
+  /**
+   * Max number of threads long polling upstream, each upstream subscription runs at most 2 long polls, and the
+   * subscriptions take turns on the threads if there are more of them
+   */
+  public int upstreamLongPollMaxThreads() {
+    return environment.getProperty("configproxy.upstream.long-poll.max-threads", Integer.class,
+        DEFAULT_UPSTREAM_LONG_POLL_MAX_THREADS);
+  }
+
+  /**
+   * The upstream subscription of an app is closed if no client queries or polls it for so long
+   */
+  public long subscriptionIdleTimeoutInMilli() {
+    return environment.getProperty("configproxy.subscription.idle-timeout-in-milli", Long.class,
+        DEFAULT_SUBSCRIPTION_IDLE_TIMEOUT_IN_MILLI);
+  }
+
+  /**
+   * Max number of namespaces cached
+   */
+  public long releaseCacheMaxSize() {
+    return environment.getProperty("configproxy.release-cache.max-size", Long.class,
+        DEFAULT_RELEASE_CACHE_MAX_SIZE);
+  }
+}
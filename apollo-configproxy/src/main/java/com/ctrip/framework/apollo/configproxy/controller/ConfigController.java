@@ -0,0 +1,83 @@
+package com.ctrip.framework.apollo.configproxy.controller;
+
+import com.ctrip.framework.apollo.configproxy.service.NotificationSubscriptionService;
+import com.ctrip.framework.apollo.configproxy.service.ReleaseCache;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Same protocol as the configs api of config service, the configs are served from {@link ReleaseCache}
+ */
+@RestController
+@RequestMapping("/configs")
+public class ConfigController {
+  private static final Splitter X_FORWARDED_FOR_SPLITTER = Splitter.on(",").omitEmptyStrings()
+      .trimResults();
+
+  @Autowired
+  private ReleaseCache releaseCache;
+
+  @Autowired
+  private NotificationSubscriptionService notificationSubscriptionService;
+
+  @RequestMapping(value = "/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
+  public ApolloConfig queryConfig(@PathVariable String appId, @PathVariable String clusterName,
+                                  @PathVariable String namespace,
+                                  @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                  @RequestParam(value = "releaseKey", defaultValue = "-1") String clientSideReleaseKey,
+                                  @RequestParam(value = "ip", required = false) String clientIp,
+                                  @RequestParam(value = "messages", required = false) String messagesAsString,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ApolloConfig apolloConfig = queryConfig(appId, clusterName, namespace, dataCenter, clientIp, messagesAsString,
+        request);
+
+    if (apolloConfig == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND,
+          String.format("Could not load configurations with appId: %s, clusterName: %s, namespace: %s",
+              appId, clusterName, namespace));
+      return null;
+    }
+
+    if (apolloConfig.getReleaseKey().equals(clientSideReleaseKey)) {
+      // Client side configuration is the same with server side, return 304
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return null;
+    }
+
+    return apolloConfig;
+  }
+
+  ApolloConfig queryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                           String clientIp, String messagesAsString, HttpServletRequest request) {
+    if (Strings.isNullOrEmpty(clientIp)) {
+      clientIp = tryToGetClientIp(request);
+    }
+
+    //so that the cache would be invalidated when the namespace changes
+    boolean cacheable = notificationSubscriptionService.watch(appId, clusterName, dataCenter, namespace);
+
+    return releaseCache.loadConfig(appId, clusterName, namespace, dataCenter, clientIp, messagesAsString,
+        cacheable);
+  }
+
+  private String tryToGetClientIp(HttpServletRequest request) {
+    String forwardedFor = request.getHeader("X-FORWARDED-FOR");
+    if (!Strings.isNullOrEmpty(forwardedFor)) {
+      return X_FORWARDED_FOR_SPLITTER.splitToList(forwardedFor).get(0);
+    }
+    return request.getRemoteAddr();
+  }
+}
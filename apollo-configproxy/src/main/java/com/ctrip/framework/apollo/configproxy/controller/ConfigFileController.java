@@ -0,0 +1,80 @@
+package com.ctrip.framework.apollo.configproxy.controller;
+
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.utils.PropertiesUtil;
+import com.google.gson.Gson;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Same protocol as the configfiles api of config service
+ */
+@RestController
+@RequestMapping("/configfiles")
+public class ConfigFileController {
+  private static final Gson gson = new Gson();
+  private final HttpHeaders propertiesResponseHeaders;
+  private final HttpHeaders jsonResponseHeaders;
+  private final ResponseEntity<String> NOT_FOUND_RESPONSE;
+
+  @Autowired
+  private ConfigController configController;
+
+  public ConfigFileController() {
+    propertiesResponseHeaders = new HttpHeaders();
+    propertiesResponseHeaders.add("Content-Type", "text/plain;charset=UTF-8");
+    jsonResponseHeaders = new HttpHeaders();
+    jsonResponseHeaders.add("Content-Type", "application/json;charset=UTF-8");
+    NOT_FOUND_RESPONSE = new ResponseEntity<>(HttpStatus.NOT_FOUND);
+  }
+
+  @RequestMapping(value = "/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
+  public ResponseEntity<String> queryConfigAsProperties(@PathVariable String appId,
+                                                        @PathVariable String clusterName,
+                                                        @PathVariable String namespace,
+                                                        @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                                        @RequestParam(value = "ip", required = false) String clientIp,
+                                                        HttpServletRequest request) throws IOException {
+    ApolloConfig apolloConfig = configController.queryConfig(appId, clusterName, namespace, dataCenter, clientIp,
+        null, request);
+
+    if (apolloConfig == null || apolloConfig.getConfigurations() == null) {
+      return NOT_FOUND_RESPONSE;
+    }
+
+    Properties properties = new Properties();
+    properties.putAll(apolloConfig.getConfigurations());
+
+    return new ResponseEntity<>(PropertiesUtil.toString(properties), propertiesResponseHeaders, HttpStatus.OK);
+  }
+
+  @RequestMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
+  public ResponseEntity<String> queryConfigAsJson(@PathVariable String appId,
+                                                  @PathVariable String clusterName,
+                                                  @PathVariable String namespace,
+                                                  @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                                  @RequestParam(value = "ip", required = false) String clientIp,
+                                                  HttpServletRequest request) throws IOException {
+    ApolloConfig apolloConfig = configController.queryConfig(appId, clusterName, namespace, dataCenter, clientIp,
+        null, request);
+
+    if (apolloConfig == null || apolloConfig.getConfigurations() == null) {
+      return NOT_FOUND_RESPONSE;
+    }
+
+    return new ResponseEntity<>(gson.toJson(apolloConfig.getConfigurations()), jsonResponseHeaders, HttpStatus.OK);
+  }
+}
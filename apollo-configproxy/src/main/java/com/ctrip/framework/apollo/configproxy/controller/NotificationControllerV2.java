@@ -0,0 +1,86 @@
+package com.ctrip.framework.apollo.configproxy.controller;
+
+import com.ctrip.framework.apollo.configproxy.ConfigProxyConfig;
+import com.ctrip.framework.apollo.configproxy.service.NotificationSubscriptionService;
+import com.ctrip.framework.apollo.configproxy.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.CollectionUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same protocol as the notifications/v2 of config service, the long polls are served by
+ * {@link NotificationSubscriptionService}
+ */
+@RestController
+@RequestMapping("/notifications/v2")
+public class NotificationControllerV2 {
+  private static final Type notificationsTypeReference = new TypeToken<List<ApolloConfigNotification>>() {
+  }.getType();
+  private static final Gson gson = new Gson();
+
+  @Autowired
+  private NotificationSubscriptionService notificationSubscriptionService;
+
+  @Autowired
+  private ConfigProxyConfig configProxyConfig;
+
+  @RequestMapping(method = RequestMethod.GET)
+  public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> pollNotification(
+      @RequestParam(value = "appId") String appId,
+      @RequestParam(value = "cluster") String cluster,
+      @RequestParam(value = "notifications") String notificationsAsString,
+      @RequestParam(value = "dataCenter", required = false) String dataCenter,
+      @RequestParam(value = "ip", required = false) String clientIp) {
+    List<ApolloConfigNotification> notifications = null;
+
+    try {
+      notifications = gson.fromJson(notificationsAsString, notificationsTypeReference);
+    } catch (Throwable ex) {
+      Tracer.logError(ex);
+    }
+
+    if (CollectionUtils.isEmpty(notifications)) {
+      throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+    }
+
+    Map<String, Long> clientSideNotifications = Maps.newHashMap();
+    for (ApolloConfigNotification notification : notifications) {
+      String namespace = notification.getNamespaceName();
+      if (Strings.isNullOrEmpty(namespace)) {
+        continue;
+      }
+      //let the smaller one have the chance to update its notification id
+      Long notificationId = clientSideNotifications.get(namespace);
+      if (notificationId == null || notificationId > notification.getNotificationId()) {
+        clientSideNotifications.put(namespace, notification.getNotificationId());
+      }
+    }
+
+    if (clientSideNotifications.isEmpty()) {
+      throw new BadRequestException("Invalid format of notifications: " + notificationsAsString);
+    }
+
+    DeferredResultWrapper deferredResultWrapper =
+        new DeferredResultWrapper(clientSideNotifications, configProxyConfig.longPollTimeoutInMilli());
+
+    notificationSubscriptionService.poll(appId, cluster, dataCenter, deferredResultWrapper);
+
+    return deferredResultWrapper.getResult();
+  }
+}
@@ -0,0 +1,36 @@
+package com.ctrip.framework.apollo.configproxy.controller;
+
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.collect.Lists;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Meta service of the config proxy, so that the clients could use the config proxy as apollo.meta as well. The config
+ * proxy itself is returned as the only config service.
+ */
+@RestController
+@RequestMapping("/services")
+public class ServiceController {
+
+  @RequestMapping(value = "/config", method = RequestMethod.GET)
+  public List<ServiceDTO> getConfigService(
+      @RequestParam(value = "appId", defaultValue = "") String appId,
+      @RequestParam(value = "ip", required = false) String clientIp) {
+    String homepageUrl = ServletUriComponentsBuilder.fromCurrentContextPath().path("/").toUriString();
+
+    ServiceDTO service = new ServiceDTO();
+    service.setAppName(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+    service.setInstanceId(homepageUrl);
+    service.setHomepageUrl(homepageUrl);
+
+    return Lists.newArrayList(service);
+  }
+}
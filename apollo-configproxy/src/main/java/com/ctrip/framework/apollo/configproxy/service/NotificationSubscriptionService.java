@@ -0,0 +1,376 @@
+package com.ctrip.framework.apollo.configproxy.service;
+
+import com.ctrip.framework.apollo.configproxy.ConfigProxyConfig;
+import com.ctrip.framework.apollo.configproxy.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.schedule.ExponentialSchedulePolicy;
+import com.ctrip.framework.apollo.core.schedule.SchedulePolicy;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Aggregate the long polls from clients into upstream subscriptions.
+ *
+ * There is one upstream subscription per app id + cluster + data center, which long polls upstream for all the
+ * namespaces watched by the clients, no matter how many clients are watching. When the upstream notifies a change,
+ * the cached configs of the namespace are invalidated and the clients watching it are notified.
+ *
+ * A subscription is closed if no client queries or polls it for a while.
+ *
+ * The upstream long polls run on a bounded pool, one round per task: a long poll is resubmitted after upstream
+ * returns, and after a failure it's resubmitted when the retry delay elapses rather than sleeping on the pool. So the
+ * subscriptions take turns on the threads when there are more of them than threads, and a warning is logged when
+ * the long polls start to queue up, as the notifications are delayed then.
+ *
+ * A subscription restarts its long poll when namespaces are added, so that they are notified at once, and the
+ * superseded long poll stops after it returns. Thus a subscription runs at most 2 long polls, and a namespace added
+ * while both are busy is picked up by whichever returns first.
+ */
+@Service
+public class NotificationSubscriptionService implements InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(NotificationSubscriptionService.class);
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  private static final int MAX_LONG_POLLS_PER_SUBSCRIPTION = 2;
+
+  //subscription key -> subscription
+  private final ConcurrentMap<String, Subscription> subscriptions = Maps.newConcurrentMap();
+  //watch key -> client long polls
+  private final Multimap<String, DeferredResultWrapper> deferredResults =
+      Multimaps.synchronizedSetMultimap(HashMultimap.create());
+  private ThreadPoolExecutor longPollExecutorService;
+  //resubmits the failed long polls after the retry delay
+  private ScheduledExecutorService retryExecutorService;
+  private final AtomicBoolean longPollsQueued = new AtomicBoolean();
+  private volatile boolean stopped;
+
+  @Autowired
+  private UpstreamConfigService upstreamConfigService;
+
+  @Autowired
+  private ReleaseCache releaseCache;
+
+  @Autowired
+  private ConfigProxyConfig configProxyConfig;
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    //each long poll holds a thread while waiting for upstream
+    int maxThreads = configProxyConfig.upstreamLongPollMaxThreads();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), ApolloThreadFactory.create("ConfigProxyLongPoll", true));
+    executor.allowCoreThreadTimeOut(true);
+    longPollExecutorService = executor;
+    retryExecutorService = Executors.newSingleThreadScheduledExecutor(
+        ApolloThreadFactory.create("ConfigProxyLongPollRetry", true));
+  }
+
+  /**
+   * Make sure the namespace is subscribed from upstream, so that its cache would be invalidated on changes
+   *
+   * @return true if the upstream already responded with the notification id of the namespace, i.e. the configs
+   * queried from now on would be invalidated on changes and are safe to cache
+   */
+  public boolean watch(String appId, String cluster, String dataCenter, String namespace) {
+    return subscribe(appId, cluster, dataCenter, Lists.newArrayList(namespace)).getNotification(namespace) != null;
+  }
+
+  /**
+   * Register the long poll of a client. The result is set immediately if the client is behind the notifications
+   * known, otherwise it's set when the upstream notifies a change.
+   */
+  public void poll(String appId, String cluster, String dataCenter, DeferredResultWrapper deferredResultWrapper) {
+    Collection<String> namespaces = deferredResultWrapper.getClientSideNotifications().keySet();
+    Subscription subscription = subscribe(appId, cluster, dataCenter, namespaces);
+
+    List<String> watchKeys = Lists.newArrayListWithCapacity(namespaces.size());
+    for (String namespace : namespaces) {
+      watchKeys.add(assembleWatchKey(appId, cluster, dataCenter, namespace));
+    }
+
+    deferredResultWrapper.onCompletion(() -> unregister(watchKeys, deferredResultWrapper));
+
+    //register before checking, so that no notification is missed in between
+    for (String watchKey : watchKeys) {
+      deferredResults.put(watchKey, deferredResultWrapper);
+    }
+
+    List<ApolloConfigNotification> newNotifications = Lists.newArrayList();
+    for (String namespace : namespaces) {
+      ApolloConfigNotification notification = subscription.getNotification(namespace);
+      if (notification != null
+          && notification.getNotificationId() > deferredResultWrapper.getClientSideNotificationId(namespace)) {
+        newNotifications.add(notification);
+      }
+    }
+
+    if (!newNotifications.isEmpty()) {
+      unregister(watchKeys, deferredResultWrapper);
+      deferredResultWrapper.setResult(newNotifications);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    stopped = true;
+    retryExecutorService.shutdownNow();
+    longPollExecutorService.shutdownNow();
+  }
+
+  private void submitLongPoll(Subscription subscription, int generation, SchedulePolicy failSchedulePolicy) {
+    if (longPollExecutorService.getActiveCount() >= longPollExecutorService.getMaximumPoolSize()) {
+      if (longPollsQueued.compareAndSet(false, true)) {
+        logger.warn("Upstream long polls are queued as all the {} threads are busy, the notifications are delayed. "
+            + "Please consider increasing configproxy.upstream.long-poll.max-threads",
+            longPollExecutorService.getMaximumPoolSize());
+      }
+      Tracer.logEvent("ConfigProxy.LongPoll.Queued", subscription.key);
+    } else {
+      longPollsQueued.set(false);
+    }
+
+    try {
+      longPollExecutorService.execute(() -> subscription.doLongPoll(generation, failSchedulePolicy));
+    } catch (RejectedExecutionException ex) {
+      //the service is destroyed
+      subscription.stopLongPoll();
+    }
+  }
+
+  private void retryLongPoll(Subscription subscription, int generation, SchedulePolicy failSchedulePolicy,
+      long delayInSeconds) {
+    try {
+      retryExecutorService.schedule(() -> submitLongPoll(subscription, generation, failSchedulePolicy),
+          delayInSeconds, TimeUnit.SECONDS);
+    } catch (RejectedExecutionException ex) {
+      //the service is destroyed
+      subscription.stopLongPoll();
+    }
+  }
+
+  private Subscription subscribe(String appId, String cluster, String dataCenter, Collection<String> namespaces) {
+    String subscriptionKey = assembleSubscriptionKey(appId, cluster, dataCenter);
+    while (true) {
+      Subscription subscription = subscriptions.get(subscriptionKey);
+      if (subscription == null) {
+        subscription = new Subscription(subscriptionKey, appId, cluster, dataCenter);
+        Subscription previous = subscriptions.putIfAbsent(subscriptionKey, subscription);
+        if (previous != null) {
+          subscription = previous;
+        }
+      }
+      //the subscription might be closed concurrently, then try with a new one
+      if (subscription.watch(namespaces)) {
+        return subscription;
+      }
+    }
+  }
+
+  private void unregister(Collection<String> watchKeys, DeferredResultWrapper deferredResultWrapper) {
+    for (String watchKey : watchKeys) {
+      deferredResults.remove(watchKey, deferredResultWrapper);
+    }
+  }
+
+  private void onNotification(Subscription subscription, ApolloConfigNotification notification) {
+    String namespace = notification.getNamespaceName();
+    String watchKey = assembleWatchKey(subscription.appId, subscription.cluster, subscription.dataCenter, namespace);
+    Tracer.logEvent("ConfigProxy.LongPoll.Notification", watchKey);
+
+    //invalidate the cache before notifying the clients, so that they would query the new config
+    releaseCache.invalidate(subscription.appId, subscription.cluster, namespace, subscription.dataCenter);
+
+    //create a new list to avoid ConcurrentModificationException
+    List<DeferredResultWrapper> results;
+    synchronized (deferredResults) {
+      results = Lists.newArrayList(deferredResults.get(watchKey));
+    }
+
+    logger.debug("Notify {} clients for key {}", results.size(), watchKey);
+    for (DeferredResultWrapper result : results) {
+      if (notification.getNotificationId() > result.getClientSideNotificationId(namespace)) {
+        result.setResult(notification);
+      }
+    }
+  }
+
+  private String assembleSubscriptionKey(String appId, String cluster, String dataCenter) {
+    return Strings.isNullOrEmpty(dataCenter) ? STRING_JOINER.join(appId, cluster) :
+        STRING_JOINER.join(appId, cluster, dataCenter);
+  }
+
+  private String assembleWatchKey(String appId, String cluster, String dataCenter, String namespace) {
+    return STRING_JOINER.join(assembleSubscriptionKey(appId, cluster, dataCenter), namespace);
+  }
+
+  private class Subscription {
+    private final String key;
+    private final String appId;
+    private final String cluster;
+    private final String dataCenter;
+    //namespace -> latest notification from upstream, the notification id is -1 before the upstream responds
+    private final Map<String, ApolloConfigNotification> notifications = Maps.newHashMap();
+    private long lastAccessTime;
+    //increased whenever a namespace is added, a long poll of an older generation stops or takes over after it returns
+    private int generation;
+    //the generation of the long poll started last
+    private int latestLongPollGeneration;
+    private int longPolls;
+    private boolean closed;
+
+    Subscription(String key, String appId, String cluster, String dataCenter) {
+      this.key = key;
+      this.appId = appId;
+      this.cluster = cluster;
+      this.dataCenter = dataCenter;
+    }
+
+    /**
+     * @return false if the subscription is already closed
+     */
+    synchronized boolean watch(Collection<String> namespaces) {
+      if (closed) {
+        return false;
+      }
+      lastAccessTime = System.currentTimeMillis();
+
+      boolean added = false;
+      for (String namespace : namespaces) {
+        if (!notifications.containsKey(namespace)) {
+          notifications.put(namespace,
+              new ApolloConfigNotification(namespace, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER));
+          added = true;
+        }
+      }
+
+      if (added) {
+        final int currentGeneration = ++generation;
+        //otherwise the namespaces are picked up by the long poll returning first
+        if (longPolls < MAX_LONG_POLLS_PER_SUBSCRIPTION) {
+          longPolls++;
+          latestLongPollGeneration = currentGeneration;
+          submitLongPoll(this, currentGeneration, new ExponentialSchedulePolicy(1, 120));
+        }
+      }
+      return true;
+    }
+
+    synchronized ApolloConfigNotification getNotification(String namespace) {
+      ApolloConfigNotification notification = notifications.get(namespace);
+      if (notification == null || notification.getNotificationId() == ConfigConsts.NOTIFICATION_ID_PLACEHOLDER) {
+        return null;
+      }
+      return notification;
+    }
+
+    /**
+     * Long poll upstream for one round, then resubmit the long poll
+     */
+    private void doLongPoll(int currentGeneration, SchedulePolicy failSchedulePolicy) {
+      int generation = nextLongPoll(currentGeneration);
+      if (generation < 0) {
+        return;
+      }
+      Map<String, Long> notificationIds = prepareLongPoll();
+
+      try {
+        List<ApolloConfigNotification> changed =
+            upstreamConfigService.pollNotifications(appId, cluster, dataCenter, notificationIds);
+        failSchedulePolicy.success();
+        for (ApolloConfigNotification notification : changed) {
+          if (update(notification)) {
+            onNotification(this, notification);
+          }
+        }
+      } catch (Throwable ex) {
+        long sleepTimeInSecond = failSchedulePolicy.fail();
+        logger.warn("Long polling upstream failed, will retry in {} seconds. subscription: {}, reason: {}",
+            sleepTimeInSecond, key, ex.getMessage());
+        Tracer.logEvent("ConfigProxy.LongPoll.Failed", key);
+        retryLongPoll(this, generation, failSchedulePolicy, sleepTimeInSecond);
+        return;
+      }
+      submitLongPoll(this, generation, failSchedulePolicy);
+    }
+
+    /**
+     * @return the generation to long poll with, or -1 if the long poll should stop
+     */
+    private synchronized int nextLongPoll(int currentGeneration) {
+      if (!closed && System.currentTimeMillis() - lastAccessTime > configProxyConfig.subscriptionIdleTimeoutInMilli()) {
+        close();
+      }
+      if (stopped || Thread.currentThread().isInterrupted() || closed
+          || (currentGeneration != generation && latestLongPollGeneration == generation)) {
+        //stopped, closed, or superseded by the long poll of the latest generation
+        longPolls--;
+        return -1;
+      }
+      //take over the namespaces added while both long polls were busy
+      if (currentGeneration != generation) {
+        latestLongPollGeneration = generation;
+      }
+      return generation;
+    }
+
+    private synchronized void stopLongPoll() {
+      longPolls--;
+    }
+
+    private synchronized Map<String, Long> prepareLongPoll() {
+      Map<String, Long> notificationIds = Maps.newHashMapWithExpectedSize(notifications.size());
+      for (ApolloConfigNotification notification : notifications.values()) {
+        notificationIds.put(notification.getNamespaceName(), notification.getNotificationId());
+      }
+      return notificationIds;
+    }
+
+    /**
+     * @return true if the notification is newer than the known one
+     */
+    private synchronized boolean update(ApolloConfigNotification notification) {
+      ApolloConfigNotification known = notifications.get(notification.getNamespaceName());
+      if (known == null || known.getNotificationId() >= notification.getNotificationId()) {
+        return false;
+      }
+      notifications.put(notification.getNamespaceName(), notification);
+      return true;
+    }
+
+    private void close() {
+      closed = true;
+      subscriptions.remove(key, this);
+      //no more invalidation for the namespaces
+      for (String namespace : notifications.keySet()) {
+        releaseCache.invalidate(appId, cluster, namespace, dataCenter);
+      }
+      logger.info("Upstream subscription {} closed as it's idle", key);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.ctrip.framework.apollo.configproxy.service;
+
+import com.ctrip.framework.apollo.configproxy.ConfigProxyConfig;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local cache of the configs queried from upstream.
+ *
+ * The gray release rules are matched by client ip in upstream, so the configs are cached per client ip. The upstream
+ * is queried with the latest release key of the namespace known by any client, so a release is only transferred
+ * once, the other clients only get a 304 from upstream and share the same config instance.
+ *
+ * The cache of a namespace is invalidated when the upstream notifies a new release of it, see
+ * {@link NotificationSubscriptionService}.
+ */
+@Service
+public class ReleaseCache implements InitializingBean {
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+  //in case the invalidation is missed, e.g. the upstream long poll failed for a long time
+  private static final long EXPIRE_AFTER_WRITE = 30;
+
+  private Cache<String, CachedNamespace> cache;
+
+  @Autowired
+  private UpstreamConfigService upstreamConfigService;
+
+  @Autowired
+  private ConfigProxyConfig configProxyConfig;
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(configProxyConfig.releaseCacheMaxSize())
+        .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
+        .build();
+  }
+
+  /**
+   * @param cacheable whether the config loaded could be cached, i.e. the namespace is already subscribed from upstream
+   * @return the config, or null if the config is not found in upstream
+   */
+  public ApolloConfig loadConfig(String appId, String cluster, String namespace, String dataCenter,
+                                 String clientIp, String messages, boolean cacheable) {
+    String cacheKey = assembleCacheKey(appId, cluster, namespace, dataCenter);
+    CachedNamespace cachedNamespace = cache.getIfPresent(cacheKey);
+    if (cachedNamespace == null) {
+      cachedNamespace = new CachedNamespace(null);
+      CachedNamespace previous = cache.asMap().putIfAbsent(cacheKey, cachedNamespace);
+      if (previous != null) {
+        cachedNamespace = previous;
+      }
+    }
+
+    ApolloConfig config = cachedNamespace.configs.get(clientIp);
+    if (config != null) {
+      Tracer.logEvent("ConfigProxy.Cache.Hit", cacheKey);
+      return config;
+    }
+
+    Tracer.logEvent("ConfigProxy.Cache.Miss", cacheKey);
+    ApolloConfig latest = cachedNamespace.latest;
+    try {
+      config = upstreamConfigService.loadConfig(appId, cluster, namespace, dataCenter, clientIp,
+          latest == null ? null : latest.getReleaseKey(), messages);
+    } catch (ApolloConfigStatusCodeException ex) {
+      if (ex.getStatusCode() == 404) {
+        return null;
+      }
+      throw ex;
+    }
+
+    //not modified, share the config with the other clients
+    if (config == null) {
+      config = latest;
+      if (config == null) {
+        return null;
+      }
+    }
+
+    //if the namespace is invalidated during loading, the config is put into the stale instance and dropped with it
+    cachedNamespace.latest = config;
+    if (cacheable) {
+      cachedNamespace.configs.put(clientIp, config);
+    }
+
+    return config;
+  }
+
+  public void invalidate(String appId, String cluster, String namespace, String dataCenter) {
+    String cacheKey = assembleCacheKey(appId, cluster, namespace, dataCenter);
+    //keep the latest config, so that the next query could still get a 304 from upstream if nothing changed for it
+    if (cache.asMap().computeIfPresent(cacheKey, (key, stale) -> new CachedNamespace(stale.latest)) != null) {
+      Tracer.logEvent("ConfigProxy.Cache.Invalidate", cacheKey);
+    }
+  }
+
+  String assembleCacheKey(String appId, String cluster, String namespace, String dataCenter) {
+    List<String> keyParts = Lists.newArrayList(appId, cluster, namespace);
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      keyParts.add(dataCenter);
+    }
+    return STRING_JOINER.join(keyParts);
+  }
+
+  private static class CachedNamespace {
+    //client ip -> config
+    private final ConcurrentMap<String, ApolloConfig> configs = Maps.newConcurrentMap();
+    private volatile ApolloConfig latest;
+
+    CachedNamespace(ApolloConfig latest) {
+      this.latest = latest;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.ctrip.framework.apollo.configproxy.service;
+
+import com.ctrip.framework.apollo.build.ApolloInjector;
+import com.ctrip.framework.apollo.configproxy.ConfigProxyConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigException;
+import com.ctrip.framework.apollo.exceptions.ApolloConfigStatusCodeException;
+import com.ctrip.framework.apollo.internals.ConfigServiceLocator;
+import com.ctrip.framework.apollo.internals.ConfigServiceRouter;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.ctrip.framework.apollo.util.http.HttpRequest;
+import com.ctrip.framework.apollo.util.http.HttpResponse;
+import com.ctrip.framework.apollo.util.http.HttpUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query the upstream config services with the client transport, i.e. the config services are located by
+ * {@link ConfigServiceLocator}, ordered by {@link ConfigServiceRouter} and queried by {@link HttpUtil}
+ */
+@Service
+public class UpstreamConfigService {
+  private static final Joiner.MapJoiner MAP_JOINER = Joiner.on("&").withKeyValueSeparator("=");
+  private static final Escaper pathEscaper = UrlEscapers.urlPathSegmentEscaper();
+  private static final Escaper queryParamEscaper = UrlEscapers.urlFormParameterEscaper();
+  private static final Type notificationsResponseType = new TypeToken<List<ApolloConfigNotification>>() {
+  }.getType();
+  private static final Gson gson = new Gson();
+
+  private final ConfigServiceLocator serviceLocator;
+  private final ConfigServiceRouter serviceRouter;
+  private final HttpUtil httpUtil;
+
+  @Autowired
+  private ConfigProxyConfig configProxyConfig;
+
+  public UpstreamConfigService() {
+    serviceLocator = ApolloInjector.getInstance(ConfigServiceLocator.class);
+    serviceRouter = ApolloInjector.getInstance(ConfigServiceRouter.class);
+    httpUtil = ApolloInjector.getInstance(HttpUtil.class);
+  }
+
+  /**
+   * Query the config from upstream, the config services are tried one by one until one of them responds
+   *
+   * @param releaseKey the release key already known, could be null
+   * @return the config, or null if the config is not modified compared with the release key
+   * @throws ApolloConfigStatusCodeException with status code 404 if the config is not found
+   */
+  public ApolloConfig loadConfig(String appId, String cluster, String namespace, String dataCenter,
+                                 String clientIp, String releaseKey, String messages) {
+    List<ServiceDTO> services = route(appId, cluster, namespace);
+    Throwable exception = null;
+
+    for (ServiceDTO service : services) {
+      String url = assembleQueryConfigUrl(service.getHomepageUrl(), appId, cluster, namespace, dataCenter,
+          clientIp, releaseKey, messages);
+
+      Transaction transaction = Tracer.newTransaction("Apollo.ConfigProxy.Upstream", "queryConfig");
+      transaction.addData("Url", url);
+      long start = System.nanoTime();
+      try {
+        HttpResponse<ApolloConfig> response = httpUtil.doGet(new HttpRequest(url), ApolloConfig.class);
+        serviceRouter.onSuccess(service, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        transaction.addData("StatusCode", response.getStatusCode());
+        transaction.setStatus(Transaction.SUCCESS);
+
+        return response.getStatusCode() == 304 ? null : response.getBody();
+      } catch (ApolloConfigStatusCodeException ex) {
+        //config not found, no need to try the other config services
+        if (ex.getStatusCode() == 404) {
+          serviceRouter.onSuccess(service, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+          transaction.setStatus(Transaction.SUCCESS);
+          throw ex;
+        }
+        serviceRouter.onFailure(service);
+        transaction.setStatus(ex);
+        exception = ex;
+      } catch (Throwable ex) {
+        serviceRouter.onFailure(service);
+        transaction.setStatus(ex);
+        exception = ex;
+      } finally {
+        transaction.complete();
+      }
+    }
+
+    throw new ApolloConfigException(
+        String.format("Load config from upstream failed, appId: %s, cluster: %s, namespace: %s", appId, cluster,
+            namespace), exception);
+  }
+
+  /**
+   * Long poll the upstream for the notifications of the namespaces
+   *
+   * @param notifications namespace -> notification id known
+   * @return the notifications of the namespaces changed, empty if no change during the long poll
+   */
+  public List<ApolloConfigNotification> pollNotifications(String appId, String cluster, String dataCenter,
+                                                          Map<String, Long> notifications) {
+    //routed by the first namespace, so the long poll goes to the config service queried for it
+    List<ServiceDTO> services = route(appId, cluster, Ordering.natural().min(notifications.keySet()));
+    ServiceDTO service = services.get(0);
+    String url = assembleLongPollUrl(service.getHomepageUrl(), appId, cluster, dataCenter, notifications);
+
+    HttpRequest request = new HttpRequest(url);
+    request.setReadTimeout(configProxyConfig.upstreamLongPollReadTimeoutInMilli());
+
+    Transaction transaction = Tracer.newTransaction("Apollo.ConfigProxy.Upstream", "pollNotification");
+    transaction.addData("Url", url);
+    try {
+      HttpResponse<List<ApolloConfigNotification>> response = httpUtil.doGet(request, notificationsResponseType);
+      serviceRouter.onSuccess(service);
+      transaction.addData("StatusCode", response.getStatusCode());
+      transaction.setStatus(Transaction.SUCCESS);
+
+      if (response.getStatusCode() == 200 && response.getBody() != null) {
+        return response.getBody();
+      }
+      return Collections.emptyList();
+    } catch (RuntimeException ex) {
+      serviceRouter.onFailure(service);
+      transaction.setStatus(ex);
+      throw ex;
+    } finally {
+      transaction.complete();
+    }
+  }
+
+  private List<ServiceDTO> route(String appId, String cluster, String namespace) {
+    List<ServiceDTO> services = serviceLocator.getConfigServices();
+    if (services.isEmpty()) {
+      throw new ApolloConfigException("No available upstream config service");
+    }
+    return serviceRouter.route(services, appId, cluster, namespace);
+  }
+
+  String assembleQueryConfigUrl(String uri, String appId, String cluster, String namespace, String dataCenter,
+                                String clientIp, String releaseKey, String messages) {
+    Map<String, String> queryParams = Maps.newHashMap();
+    if (!Strings.isNullOrEmpty(releaseKey)) {
+      queryParams.put("releaseKey", queryParamEscaper.escape(releaseKey));
+    }
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+    }
+    //the gray release rules are matched by client ip in upstream
+    if (!Strings.isNullOrEmpty(clientIp)) {
+      queryParams.put("ip", queryParamEscaper.escape(clientIp));
+    }
+    if (!Strings.isNullOrEmpty(messages)) {
+      queryParams.put("messages", queryParamEscaper.escape(messages));
+    }
+
+    String path = String.format("configs/%s/%s/%s", pathEscaper.escape(appId), pathEscaper.escape(cluster),
+        pathEscaper.escape(namespace));
+
+    return appendPath(uri, path, queryParams);
+  }
+
+  String assembleLongPollUrl(String uri, String appId, String cluster, String dataCenter,
+                             Map<String, Long> notificationsMap) {
+    List<ApolloConfigNotification> notifications = Lists.newArrayList();
+    for (Map.Entry<String, Long> entry : notificationsMap.entrySet()) {
+      notifications.add(new ApolloConfigNotification(entry.getKey(), entry.getValue()));
+    }
+
+    Map<String, String> queryParams = Maps.newHashMap();
+    queryParams.put("appId", queryParamEscaper.escape(appId));
+    queryParams.put("cluster", queryParamEscaper.escape(cluster));
+    queryParams.put("notifications", queryParamEscaper.escape(gson.toJson(notifications)));
+    if (!Strings.isNullOrEmpty(dataCenter)) {
+      queryParams.put("dataCenter", queryParamEscaper.escape(dataCenter));
+    }
+
+    return appendPath(uri, "notifications/v2", queryParams);
+  }
+
+  private String appendPath(String uri, String path, Map<String, String> queryParams) {
+    if (!uri.endsWith("/")) {
+      uri += "/";
+    }
+    String url = uri + path;
+    if (!queryParams.isEmpty()) {
+      url += "?" + MAP_JOINER.join(queryParams);
+    }
+    return url;
+  }
+}
@@ -0,0 +1,57 @@
+package com.ctrip.framework.apollo.configproxy.wrapper;
+
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long poll from client, with the notification ids the client already knows
+ */
+public class DeferredResultWrapper {
+  private static final ResponseEntity<List<ApolloConfigNotification>>
+      NOT_MODIFIED_RESPONSE_LIST = new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+
+  private final Map<String, Long> clientSideNotifications;
+  private final DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> result;
+
+  /**
+   * @param clientSideNotifications namespace -> notification id of the client
+   * @param timeoutInMilli how long the long poll is held
+   */
+  public DeferredResultWrapper(Map<String, Long> clientSideNotifications, long timeoutInMilli) {
+    this.clientSideNotifications = clientSideNotifications;
+    result = new DeferredResult<>(timeoutInMilli, NOT_MODIFIED_RESPONSE_LIST);
+  }
+
+  public Map<String, Long> getClientSideNotifications() {
+    return clientSideNotifications;
+  }
+
+  public long getClientSideNotificationId(String namespace) {
+    Long notificationId = clientSideNotifications.get(namespace);
+    return notificationId == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER : notificationId;
+  }
+
+  public void onCompletion(Runnable completionCallback) {
+    result.onCompletion(completionCallback);
+  }
+
+  public void setResult(ApolloConfigNotification notification) {
+    setResult(Lists.newArrayList(notification));
+  }
+
+  public void setResult(List<ApolloConfigNotification> notifications) {
+    result.setResult(new ResponseEntity<>(notifications, HttpStatus.OK));
+  }
+
+  public DeferredResult<ResponseEntity<List<ApolloConfigNotification>>> getResult() {
+    return result;
+  }
+}
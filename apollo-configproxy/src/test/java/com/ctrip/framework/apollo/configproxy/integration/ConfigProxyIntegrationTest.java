@@ -0,0 +1,330 @@
+package com.ctrip.framework.apollo.configproxy.integration;
+
+import static org.junit.Assert.assertEquals;
+
+import com.ctrip.framework.apollo.configproxy.ConfigProxyApplication;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Run the config proxy against an embedded upstream config service
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = ConfigProxyApplication.class)
+@WebIntegrationTest(randomPort = true, value = "configproxy.long-poll.timeout-in-milli=10000")
+public class ConfigProxyIntegrationTest {
+  private static final int UPSTREAM_PORT = findFreePort();
+  private static final long UPSTREAM_LONG_POLL_TIMEOUT_IN_MILLI = 1000;
+  private static final Gson gson = new Gson();
+  private static final Type notificationsType = new TypeToken<List<ApolloConfigNotification>>() {
+  }.getType();
+  private static MockUpstream upstream;
+  private static Server server;
+
+  private final RestTemplate restTemplate = new TestRestTemplate();
+  private final String someCluster = "default";
+  private final String someNamespace = "application";
+  private final String someIp = "1.1.1.1";
+  private final String anotherIp = "2.2.2.2";
+
+  @Value("${local.server.port}")
+  private int port;
+
+  static {
+    //the upstream is located the same way as apollo client
+    System.setProperty("apollo.configService", "http://localhost:" + UPSTREAM_PORT);
+  }
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    upstream = new MockUpstream();
+    server = new Server(UPSTREAM_PORT);
+    ContextHandlerCollection contexts = new ContextHandlerCollection();
+    contexts.setHandlers(new ContextHandler[]{upstream.configsHandler(), upstream.notificationsHandler()});
+    server.setHandler(contexts);
+    server.start();
+  }
+
+  @AfterClass
+  public static void afterClass() throws Exception {
+    server.stop();
+    System.clearProperty("apollo.configService");
+  }
+
+  @Test
+  public void testQueryConfigFromCache() throws Exception {
+    String someAppId = "someAppId";
+    upstream.publish(someAppId, someNamespace, ImmutableMap.of("k1", "v1"));
+    //wait for the upstream subscription, the configs are cached after that
+    pollNotification(someAppId, -1);
+
+    ApolloConfig config = queryConfig(someAppId, someIp, "-1").getBody();
+    ApolloConfig sameConfig = queryConfig(someAppId, someIp, "-1").getBody();
+    ApolloConfig anotherClientConfig = queryConfig(someAppId, anotherIp, "-1").getBody();
+    ResponseEntity<ApolloConfig> notModified = queryConfig(someAppId, someIp, config.getReleaseKey());
+
+    assertEquals("v1", config.getConfigurations().get("k1"));
+    assertEquals(config.getReleaseKey(), sameConfig.getReleaseKey());
+    assertEquals(config.getReleaseKey(), anotherClientConfig.getReleaseKey());
+    assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+    //the other client is queried from upstream with the release key known, and gets a 304
+    assertEquals(2, upstream.queryCount(someAppId));
+    assertEquals(1, upstream.notModifiedCount(someAppId));
+  }
+
+  @Test
+  public void testQueryConfigNotFound() throws Exception {
+    ResponseEntity<ApolloConfig> response = queryConfig("someNotExistingAppId", someIp, "-1");
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
+  @Test
+  public void testQueryConfigFile() throws Exception {
+    String someAppId = "someConfigFileAppId";
+    upstream.publish(someAppId, someNamespace, ImmutableMap.of("k1", "v1"));
+
+    ResponseEntity<String> response = restTemplate.getForEntity(
+        "{baseurl}/configfiles/json/{appId}/{clusterName}/{namespace}?ip={ip}", String.class, getHostUrl(),
+        someAppId, someCluster, someNamespace, someIp);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("{\"k1\":\"v1\"}", response.getBody());
+  }
+
+  @Test
+  public void testLongPollReturnsImmediatelyIfClientIsBehind() throws Exception {
+    String someAppId = "someBehindAppId";
+    long notificationId = upstream.publish(someAppId, someNamespace, ImmutableMap.of("k1", "v1"));
+
+    ResponseEntity<List<ApolloConfigNotification>> response = pollNotification(someAppId, -1);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(1, response.getBody().size());
+    assertEquals(someNamespace, response.getBody().get(0).getNamespaceName());
+    assertEquals(notificationId, response.getBody().get(0).getNotificationId());
+  }
+
+  @Test
+  public void testLongPollAggregatedAndCacheInvalidated() throws Exception {
+    String someAppId = "someAggregatedAppId";
+    int clients = 5;
+    long notificationId = upstream.publish(someAppId, someNamespace, ImmutableMap.of("k1", "v1"));
+    assertEquals("v1", queryConfig(someAppId, someIp, "-1").getBody().getConfigurations().get("k1"));
+
+    ExecutorService executorService = Executors.newFixedThreadPool(clients);
+    List<Future<ResponseEntity<List<ApolloConfigNotification>>>> futures = Lists.newArrayList();
+    for (int i = 0; i < clients; i++) {
+      futures.add(executorService.submit(() -> pollNotification(someAppId, notificationId)));
+    }
+
+    //make sure the long polls are held
+    TimeUnit.MILLISECONDS.sleep(500);
+    long newNotificationId = upstream.publish(someAppId, someNamespace, ImmutableMap.of("k1", "v2"));
+
+    for (Future<ResponseEntity<List<ApolloConfigNotification>>> future : futures) {
+      ResponseEntity<List<ApolloConfigNotification>> response = future.get(5, TimeUnit.SECONDS);
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      assertEquals(newNotificationId, response.getBody().get(0).getNotificationId());
+    }
+    executorService.shutdown();
+
+    //only one upstream long poll for all the clients
+    assertEquals(1, upstream.maxPollsInFlight(someAppId));
+    assertEquals("v2", queryConfig(someAppId, someIp, "-1").getBody().getConfigurations().get("k1"));
+  }
+
+  private ResponseEntity<ApolloConfig> queryConfig(String appId, String ip, String releaseKey) {
+    return restTemplate.getForEntity(
+        "{baseurl}/configs/{appId}/{clusterName}/{namespace}?ip={ip}&releaseKey={releaseKey}", ApolloConfig.class,
+        getHostUrl(), appId, someCluster, someNamespace, ip, releaseKey);
+  }
+
+  private ResponseEntity<List<ApolloConfigNotification>> pollNotification(String appId, long notificationId) {
+    return restTemplate.exchange(
+        "{baseurl}/notifications/v2?appId={appId}&cluster={clusterName}&notifications={notifications}",
+        HttpMethod.GET, null, new ParameterizedTypeReference<List<ApolloConfigNotification>>() {
+        }, getHostUrl(), appId, someCluster,
+        gson.toJson(Lists.newArrayList(new ApolloConfigNotification(someNamespace, notificationId))));
+  }
+
+  private String getHostUrl() {
+    return "http://localhost:" + port;
+  }
+
+  private static int findFreePort() {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * A config service with the configs of default cluster only
+   */
+  private static class MockUpstream {
+    private final AtomicInteger notificationIdGenerator = new AtomicInteger();
+    //appId+namespace -> config
+    private final Map<String, ApolloConfig> configs = Maps.newConcurrentMap();
+    private final Map<String, Long> notificationIds = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicInteger> queryCounts = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicInteger> notModifiedCounts = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicInteger> pollsInFlight = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicInteger> maxPollsInFlight = Maps.newConcurrentMap();
+
+    synchronized long publish(String appId, String namespace, Map<String, String> configurations) {
+      long notificationId = notificationIdGenerator.incrementAndGet();
+      ApolloConfig config = new ApolloConfig(appId, "default", namespace, "releaseKey-" + notificationId);
+      config.setConfigurations(configurations);
+      configs.put(appId + namespace, config);
+      notificationIds.put(appId + namespace, notificationId);
+      notifyAll();
+      return notificationId;
+    }
+
+    int queryCount(String appId) {
+      return counter(queryCounts, appId).get();
+    }
+
+    int notModifiedCount(String appId) {
+      return counter(notModifiedCounts, appId).get();
+    }
+
+    int maxPollsInFlight(String appId) {
+      return counter(maxPollsInFlight, appId).get();
+    }
+
+    ContextHandler configsHandler() {
+      ContextHandler context = new ContextHandler("/configs");
+      context.setHandler(new AbstractHandler() {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+          //target is /{appId}/{cluster}/{namespace}
+          String[] paths = target.split("/");
+          String appId = paths[1];
+          String namespace = paths[3];
+          counter(queryCounts, appId).incrementAndGet();
+
+          ApolloConfig config = configs.get(appId + namespace);
+          if (config == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+          } else if (config.getReleaseKey().equals(request.getParameter("releaseKey"))) {
+            counter(notModifiedCounts, appId).incrementAndGet();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          } else {
+            response.setContentType("application/json;charset=UTF-8");
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getWriter().println(gson.toJson(config));
+          }
+          baseRequest.setHandled(true);
+        }
+      });
+      return context;
+    }
+
+    ContextHandler notificationsHandler() {
+      ContextHandler context = new ContextHandler("/notifications/v2");
+      context.setHandler(new AbstractHandler() {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+          String appId = request.getParameter("appId");
+          List<ApolloConfigNotification> notifications =
+              gson.fromJson(request.getParameter("notifications"), notificationsType);
+
+          int inFlight = counter(pollsInFlight, appId).incrementAndGet();
+          AtomicInteger max = counter(maxPollsInFlight, appId);
+          max.set(Math.max(max.get(), inFlight));
+          try {
+            List<ApolloConfigNotification> changed = waitForChanges(appId, notifications);
+            if (changed.isEmpty()) {
+              response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            } else {
+              response.setContentType("application/json;charset=UTF-8");
+              response.setStatus(HttpServletResponse.SC_OK);
+              response.getWriter().println(gson.toJson(changed));
+            }
+          } finally {
+            counter(pollsInFlight, appId).decrementAndGet();
+          }
+          baseRequest.setHandled(true);
+        }
+      });
+      return context;
+    }
+
+    private synchronized List<ApolloConfigNotification> waitForChanges(String appId,
+                                                                    List<ApolloConfigNotification> notifications) {
+      long deadline = System.currentTimeMillis() + UPSTREAM_LONG_POLL_TIMEOUT_IN_MILLI;
+      while (true) {
+        List<ApolloConfigNotification> changed = Lists.newArrayList();
+        for (ApolloConfigNotification notification : notifications) {
+          Long notificationId = notificationIds.get(appId + notification.getNamespaceName());
+          if (notificationId != null && notificationId > notification.getNotificationId()) {
+            changed.add(new ApolloConfigNotification(notification.getNamespaceName(), notificationId));
+          }
+        }
+        long waitTime = deadline - System.currentTimeMillis();
+        if (!changed.isEmpty() || waitTime <= 0) {
+          return changed;
+        }
+        try {
+          wait(waitTime);
+        } catch (InterruptedException ex) {
+          return changed;
+        }
+      }
+    }
+
+    private AtomicInteger counter(ConcurrentMap<String, AtomicInteger> counters, String appId) {
+      AtomicInteger counter = counters.get(appId);
+      if (counter == null) {
+        counters.putIfAbsent(appId, new AtomicInteger());
+        counter = counters.get(appId);
+      }
+      return counter;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.ctrip.framework.apollo.configproxy.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.ctrip.framework.apollo.configproxy.ConfigProxyConfig;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationSubscriptionServiceTest {
+  private static final long UPSTREAM_LONG_POLL_TIMEOUT_IN_MILLI = 100;
+  private NotificationSubscriptionService notificationSubscriptionService;
+  @Mock
+  private UpstreamConfigService upstreamConfigService;
+  @Mock
+  private ReleaseCache releaseCache;
+  @Mock
+  private ConfigProxyConfig configProxyConfig;
+  private String someCluster;
+  private String someDataCenter;
+  private String someNamespace;
+
+  @Before
+  public void setUp() throws Exception {
+    notificationSubscriptionService = new NotificationSubscriptionService();
+    ReflectionTestUtils.setField(notificationSubscriptionService, "upstreamConfigService", upstreamConfigService);
+    ReflectionTestUtils.setField(notificationSubscriptionService, "releaseCache", releaseCache);
+    ReflectionTestUtils.setField(notificationSubscriptionService, "configProxyConfig", configProxyConfig);
+
+    when(configProxyConfig.upstreamLongPollMaxThreads()).thenReturn(2);
+    when(configProxyConfig.subscriptionIdleTimeoutInMilli()).thenReturn(TimeUnit.MINUTES.toMillis(10));
+
+    someCluster = "someCluster";
+    someDataCenter = "someDC";
+    someNamespace = "someNamespace";
+
+    //the upstream responds at once to the namespaces it's not notified of yet, otherwise it holds the long poll
+    when(upstreamConfigService.pollNotifications(anyString(), anyString(), anyString(),
+        anyMapOf(String.class, Long.class))).thenAnswer(invocation -> {
+      Map<String, Long> notificationIds = (Map<String, Long>) invocation.getArguments()[3];
+      List<ApolloConfigNotification> changed = Lists.newArrayList();
+      for (Map.Entry<String, Long> entry : notificationIds.entrySet()) {
+        if (entry.getValue() == ConfigConsts.NOTIFICATION_ID_PLACEHOLDER) {
+          changed.add(new ApolloConfigNotification(entry.getKey(), 1));
+        }
+      }
+      if (changed.isEmpty()) {
+        TimeUnit.MILLISECONDS.sleep(UPSTREAM_LONG_POLL_TIMEOUT_IN_MILLI);
+      }
+      return changed;
+    });
+
+    notificationSubscriptionService.afterPropertiesSet();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    notificationSubscriptionService.destroy();
+  }
+
+  @Test
+  public void testMoreSubscriptionsThanThreads() throws Exception {
+    int subscriptionCount = 5;
+
+    for (int i = 0; i < subscriptionCount; i++) {
+      assertFalse(notificationSubscriptionService.watch("app" + i, someCluster, someDataCenter, someNamespace));
+    }
+
+    //the subscriptions take turns on the 2 threads, so all of them are notified by upstream
+    for (int i = 0; i < subscriptionCount; i++) {
+      assertTrue(waitForWatched("app" + i, 5000));
+    }
+  }
+
+  private boolean waitForWatched(String appId, long timeoutInMilli) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutInMilli;
+    while (System.currentTimeMillis() < deadline) {
+      if (notificationSubscriptionService.watch(appId, someCluster, someDataCenter, someNamespace)) {
+        return true;
+      }
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    return false;
+  }
+}
@@ -1,6 +1,7 @@
 package com.ctrip.framework.apollo.configservice;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.datasource.ReplicaRoutingDataSource;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
 import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
@@ -53,10 +54,16 @@ public class ConfigServiceAutoConfiguration {
     private ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
     @Autowired
     private ConfigService configService;
+    @Autowired(required = false)
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
 
     @Bean
     public ReleaseMessageScanner releaseMessageScanner() {
       ReleaseMessageScanner releaseMessageScanner = new ReleaseMessageScanner();
+      //skip the replicas behind the message before the caches are reloaded
+      if (replicaRoutingDataSource != null) {
+        releaseMessageScanner.addMessageListener(replicaRoutingDataSource);
+      }
       //0. handle release message cache
       releaseMessageScanner.addMessageListener(releaseMessageServiceWithCache);
       //1. handle gray release rule
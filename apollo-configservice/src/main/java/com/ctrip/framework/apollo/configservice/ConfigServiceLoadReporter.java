@@ -0,0 +1,67 @@
+package com.ctrip.framework.apollo.configservice;
+
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.netflix.appinfo.ApplicationInfoManager;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish the load of this config service, i.e. the long polls it holds, in its eureka metadata.
+ *
+ * The meta service advertises the load with the config service, so that all the clients bound the load of the config
+ * services on the same figures, see {@link DiscoveryService#getLoad(com.netflix.appinfo.InstanceInfo)}. The metadata
+ * is replicated to eureka with the instance info, so the load advertised lags behind by the replication interval.
+ */
+@Component
+public class ConfigServiceLoadReporter implements InitializingBean {
+  private static final long REPORT_INTERVAL_IN_SECONDS = 10;
+
+  @Autowired
+  private ApplicationInfoManager applicationInfoManager;
+
+  @Autowired
+  private NotificationControllerV2 notificationController;
+
+  private final ScheduledExecutorService executorService;
+  private volatile int lastReportedLoad = -1;
+
+  public ConfigServiceLoadReporter() {
+    executorService = Executors.newSingleThreadScheduledExecutor(ApolloThreadFactory
+        .create("ConfigServiceLoadReporter", true));
+  }
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    executorService.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          report();
+        } catch (Throwable ex) {
+          Tracer.logError(ex);
+        }
+      }
+    }, 0, REPORT_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+  }
+
+  void report() {
+    int load = notificationController.getPendingLongPolls();
+    if (load == lastReportedLoad) {
+      return;
+    }
+    //marks the instance info dirty, so it's registered again with the metadata
+    applicationInfoManager.registerAppMetadata(
+        Collections.singletonMap(DiscoveryService.LOAD_METADATA_KEY, String.valueOf(load)));
+    lastReportedLoad = load;
+  }
+}
@@ -0,0 +1,86 @@
+package com.ctrip.framework.apollo.configservice;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.ConfigurableEmbeddedServletContainer;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Serve the long polls without pinning the server threads, enabled by apollo.long-polling.non-blocking.enabled.
+ *
+ * The long poll registration is in memory (see
+ * {@link com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2}), so:
+ * <ul>
+ * <li>no entity manager is opened for the notification requests, which would otherwise be held until the long poll
+ * completes</li>
+ * <li>on the NIO connector of the embedded tomcat, a parked long poll only holds a socket, and the connections,
+ * threads and accept queue are bounded by apollo.long-polling.max-connections, apollo.long-polling.max-threads and
+ * apollo.long-polling.accept-count</li>
+ * </ul>
+ *
+ * The connector is configured from the environment rather than
+ * {@link com.ctrip.framework.apollo.biz.config.BizConfig}, as it's started before BizConfig is loaded from ConfigDB.
+ */
+@Configuration
+@ConditionalOnProperty(name = "apollo.long-polling.non-blocking.enabled", havingValue = "true")
+public class NonBlockingLongPollingConfiguration extends WebMvcConfigurerAdapter {
+  private static final Logger logger = LoggerFactory.getLogger(NonBlockingLongPollingConfiguration.class);
+  private static final String[] LONG_POLLING_PATHS = {"/notifications", "/notifications/**"};
+  private static final int DEFAULT_MAX_CONNECTIONS = 20000;
+  private static final int DEFAULT_MAX_THREADS = 200;
+  private static final int DEFAULT_ACCEPT_COUNT = 100;
+
+  @Autowired
+  private Environment environment;
+
+  /**
+   * Replaces the one registered for all the requests by spring boot
+   */
+  @Bean
+  public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+    return new OpenEntityManagerInViewInterceptor();
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor()).excludePathPatterns(LONG_POLLING_PATHS);
+  }
+
+  @Bean
+  public EmbeddedServletContainerCustomizer longPollingServletContainerCustomizer() {
+    int maxConnections = environment.getProperty("apollo.long-polling.max-connections", Integer.class,
+        DEFAULT_MAX_CONNECTIONS);
+    int maxThreads = environment.getProperty("apollo.long-polling.max-threads", Integer.class, DEFAULT_MAX_THREADS);
+    int acceptCount = environment.getProperty("apollo.long-polling.accept-count", Integer.class,
+        DEFAULT_ACCEPT_COUNT);
+
+    return (ConfigurableEmbeddedServletContainer container) -> {
+      if (!(container instanceof TomcatEmbeddedServletContainerFactory)) {
+        return;
+      }
+      TomcatEmbeddedServletContainerFactory tomcat = (TomcatEmbeddedServletContainerFactory) container;
+      tomcat.addConnectorCustomizers(connector -> {
+        ProtocolHandler handler = connector.getProtocolHandler();
+        if (handler instanceof AbstractProtocol) {
+          AbstractProtocol<?> protocol = (AbstractProtocol<?>) handler;
+          protocol.setMaxConnections(maxConnections);
+          protocol.setMaxThreads(maxThreads);
+          protocol.setBacklog(acceptCount);
+        }
+        logger.info("Non-blocking long polling enabled, max connections: {}, max threads: {}, accept count: {}",
+            maxConnections, maxThreads, acceptCount);
+      });
+    };
+  }
+}
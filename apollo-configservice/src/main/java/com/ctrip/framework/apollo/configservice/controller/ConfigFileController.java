@@ -14,6 +14,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.gson.Gson;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
@@ -59,10 +60,14 @@ public class ConfigFileController implements ReleaseMessageListener {
       .trimResults();
   private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
   private static final long EXPIRE_AFTER_WRITE = 30;
+  private static final Splitter ENTITY_TAG_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+  private static final String WEAK_ENTITY_TAG_PREFIX = "W/";
+  private static final String GRAY_RELEASE_CACHE_CONTROL = "private, no-cache";
+  private static final String DEFAULT_CACHE_CONTROL = "no-cache";
   private final HttpHeaders propertiesResponseHeaders;
   private final HttpHeaders jsonResponseHeaders;
   private final ResponseEntity<String> NOT_FOUND_RESPONSE;
-  private Cache<String, String> localCache;
+  private Cache<String, ConfigFile> localCache;
   private final Multimap<String, String>
       watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
   private final Multimap<String, String>
@@ -81,19 +86,22 @@ public class ConfigFileController implements ReleaseMessageListener {
   @Autowired
   private GrayReleaseRulesHolder grayReleaseRulesHolder;
 
+  @Autowired
+  private BizConfig bizConfig;
+
   public ConfigFileController() {
     localCache = CacheBuilder.newBuilder()
         .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
-        .weigher(new Weigher<String, String>() {
+        .weigher(new Weigher<String, ConfigFile>() {
           @Override
-          public int weigh(String key, String value) {
-            return value == null ? 0 : value.length();
+          public int weigh(String key, ConfigFile value) {
+            return value == null || value.content == null ? 0 : value.content.length();
           }
         })
         .maximumWeight(MAX_CACHE_SIZE)
-        .removalListener(new RemovalListener<String, String>() {
+        .removalListener(new RemovalListener<String, ConfigFile>() {
           @Override
-          public void onRemoval(RemovalNotification<String, String> notification) {
+          public void onRemoval(RemovalNotification<String, ConfigFile> notification) {
             String cacheKey = notification.getKey();
             logger.debug("removing cache key: {}", cacheKey);
             if (!cacheKey2WatchedKeys.containsKey(cacheKey)) {
@@ -126,15 +134,8 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                         HttpServletResponse response)
       throws IOException {
 
-    String result =
-        queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
-            clientIp, request, response);
-
-    if (result == null) {
-      return NOT_FOUND_RESPONSE;
-    }
-
-    return new ResponseEntity<>(result, propertiesResponseHeaders, HttpStatus.OK);
+    return queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
+        clientIp, request, response);
   }
 
   @RequestMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}", method = RequestMethod.GET)
@@ -146,21 +147,14 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                   HttpServletRequest request,
                                                   HttpServletResponse response) throws IOException {
 
-    String result =
-        queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
-            clientIp, request, response);
-
-    if (result == null) {
-      return NOT_FOUND_RESPONSE;
-    }
-
-    return new ResponseEntity<>(result, jsonResponseHeaders, HttpStatus.OK);
+    return queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
+        clientIp, request, response);
   }
 
-  String queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
-                     String namespace, String dataCenter, String clientIp,
-                     HttpServletRequest request,
-                     HttpServletResponse response) throws IOException {
+  ResponseEntity<String> queryConfig(ConfigFileOutputFormat outputFormat, String appId,
+                                     String clusterName, String namespace, String dataCenter,
+                                     String clientIp, HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
     //strip out .properties suffix
     namespace = namespaceUtil.filterNamespaceName(namespace);
     //fix the character case issue, such as FX.apollo <-> fx.apollo
@@ -176,58 +170,98 @@ public class ConfigFileController implements ReleaseMessageListener {
 
     String cacheKey = assembleCacheKey(outputFormat, appId, clusterName, namespace, dataCenter);
 
-    //2. try to load gray release and return
+    //2. if the client (or a proxy) already has a version, check whether it's modified before loading the content
+    String clientSideReleaseKey = extractReleaseKey(request.getHeader(HttpHeaders.IF_NONE_MATCH));
+    if (clientSideReleaseKey != null) {
+      ConfigFile configFile = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter,
+          clientIp, clientSideReleaseKey, request, response);
+
+      if (configFile == null) {
+        if (response.getStatus() != HttpServletResponse.SC_NOT_MODIFIED) {
+          return NOT_FOUND_RESPONSE;
+        }
+        Tracer.logEvent("ConfigFile.NotModified", cacheKey);
+        return buildResponse(outputFormat, HttpStatus.NOT_MODIFIED, clientSideReleaseKey, null,
+            hasGrayReleaseRule);
+      }
+
+      if (!hasGrayReleaseRule) {
+        tryCache(cacheKey, configFile, appId, clusterName, namespace, dataCenter, clientIp);
+      }
+      return buildResponse(outputFormat, HttpStatus.OK, configFile.releaseKey, configFile.content,
+          hasGrayReleaseRule);
+    }
+
+    //3. try to load gray release and return
     if (hasGrayReleaseRule) {
       Tracer.logEvent("ConfigFile.Cache.GrayRelease", cacheKey);
-      return loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
-          request, response);
+      return buildResponse(outputFormat, loadConfig(outputFormat, appId, clusterName, namespace,
+          dataCenter, clientIp, "-1", request, response), true);
     }
 
-    //3. if not gray release, check weather cache exists, if exists, return
-    String result = localCache.getIfPresent(cacheKey);
+    //4. if not gray release, check weather cache exists, if exists, return
+    ConfigFile configFile = localCache.getIfPresent(cacheKey);
 
-    //4. if not exists, load from ConfigController
-    if (Strings.isNullOrEmpty(result)) {
+    //5. if not exists, load from ConfigController
+    if (configFile == null) {
       Tracer.logEvent("ConfigFile.Cache.Miss", cacheKey);
-      result = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
-          request, response);
+      configFile = loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
+          "-1", request, response);
 
-      if (result == null) {
-        return null;
+      if (configFile == null) {
+        return NOT_FOUND_RESPONSE;
       }
-      //5. Double check if this client needs to load gray release, if yes, load from db again
-      //This step is mainly to avoid cache pollution
-      if (grayReleaseRulesHolder.hasGrayReleaseRule(appId, clientIp, namespace)) {
-        Tracer.logEvent("ConfigFile.Cache.GrayReleaseConflict", cacheKey);
-        return loadConfig(outputFormat, appId, clusterName, namespace, dataCenter, clientIp,
-            request, response);
+
+      if (!tryCache(cacheKey, configFile, appId, clusterName, namespace, dataCenter, clientIp)) {
+        return buildResponse(outputFormat, loadConfig(outputFormat, appId, clusterName, namespace,
+            dataCenter, clientIp, "-1", request, response), true);
       }
+    } else {
+      Tracer.logEvent("ConfigFile.Cache.Hit", cacheKey);
+    }
 
-      localCache.put(cacheKey, result);
-      logger.debug("adding cache for key: {}", cacheKey);
+    return buildResponse(outputFormat, configFile, false);
+  }
 
-      Set<String> watchedKeys =
-          watchKeysUtil.assembleAllWatchKeys(appId, clusterName, namespace, dataCenter);
+  /**
+   * Cache the config file unless the client turns out to have gray release rules
+   *
+   * @return false if the client needs to load gray release
+   */
+  private boolean tryCache(String cacheKey, ConfigFile configFile, String appId,
+                           String clusterName, String namespace, String dataCenter,
+                           String clientIp) {
+    //Double check if this client needs to load gray release, if yes, load from db again
+    //This step is mainly to avoid cache pollution
+    if (grayReleaseRulesHolder.hasGrayReleaseRule(appId, clientIp, namespace)) {
+      Tracer.logEvent("ConfigFile.Cache.GrayReleaseConflict", cacheKey);
+      return false;
+    }
 
-      for (String watchedKey : watchedKeys) {
-        watchedKeys2CacheKey.put(watchedKey, cacheKey);
-      }
+    localCache.put(cacheKey, configFile);
+    logger.debug("adding cache for key: {}", cacheKey);
 
-      cacheKey2WatchedKeys.putAll(cacheKey, watchedKeys);
-      logger.debug("added cache for key: {}", cacheKey);
-    } else {
-      Tracer.logEvent("ConfigFile.Cache.Hit", cacheKey);
+    Set<String> watchedKeys =
+        watchKeysUtil.assembleAllWatchKeys(appId, clusterName, namespace, dataCenter);
+
+    for (String watchedKey : watchedKeys) {
+      watchedKeys2CacheKey.put(watchedKey, cacheKey);
     }
 
-    return result;
+    cacheKey2WatchedKeys.putAll(cacheKey, watchedKeys);
+    logger.debug("added cache for key: {}", cacheKey);
+    return true;
   }
 
-  private String loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
-                            String namespace, String dataCenter, String clientIp,
-                            HttpServletRequest request,
-                            HttpServletResponse response) throws IOException {
+  /**
+   * @return the config file, or null if it's not found or not modified compared with the client side release key
+   */
+  private ConfigFile loadConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
+                                String namespace, String dataCenter, String clientIp,
+                                String clientSideReleaseKey, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
     ApolloConfig apolloConfig = configController.queryConfig(appId, clusterName, namespace,
-        dataCenter, "-1", clientIp, null, request, response);
+        dataCenter, clientSideReleaseKey, clientIp, null, request, response);
 
     if (apolloConfig == null || apolloConfig.getConfigurations() == null) {
       return null;
@@ -246,7 +280,71 @@ public class ConfigFileController implements ReleaseMessageListener {
         break;
     }
 
-    return result;
+    return new ConfigFile(apolloConfig.getReleaseKey(), result);
+  }
+
+  private ResponseEntity<String> buildResponse(ConfigFileOutputFormat outputFormat,
+                                               ConfigFile configFile, boolean hasGrayReleaseRule) {
+    if (configFile == null) {
+      return NOT_FOUND_RESPONSE;
+    }
+    return buildResponse(outputFormat, HttpStatus.OK, configFile.releaseKey, configFile.content,
+        hasGrayReleaseRule);
+  }
+
+  private ResponseEntity<String> buildResponse(ConfigFileOutputFormat outputFormat, HttpStatus status,
+                                               String releaseKey, String content,
+                                               boolean hasGrayReleaseRule) {
+    HttpHeaders headers = new HttpHeaders();
+    if (status == HttpStatus.OK) {
+      headers.putAll(outputFormat == ConfigFileOutputFormat.JSON ? jsonResponseHeaders :
+          propertiesResponseHeaders);
+    }
+    //the release key changes whenever the content changes, so it's a strong entity tag
+    if (!Strings.isNullOrEmpty(releaseKey)) {
+      headers.setETag("\"" + releaseKey + "\"");
+    }
+    headers.setCacheControl(assembleCacheControl(hasGrayReleaseRule));
+    return new ResponseEntity<>(content, headers, status);
+  }
+
+  /**
+   * Gray releases are matched by client ip, so they must not be stored by shared caches. Other responses could be
+   * stored by reverse proxies, which revalidate with the entity tag unless a max-age is configured.
+   */
+  private String assembleCacheControl(boolean hasGrayReleaseRule) {
+    if (hasGrayReleaseRule) {
+      return GRAY_RELEASE_CACHE_CONTROL;
+    }
+    int maxAge = bizConfig.configFileCacheMaxAgeInSeconds();
+    return maxAge > 0 ? "public, max-age=" + maxAge : DEFAULT_CACHE_CONTROL;
+  }
+
+  /**
+   * Extract the release key from the If-None-Match header, only the first entity tag is considered
+   *
+   * @return the release key, or null if the header is absent
+   */
+  String extractReleaseKey(String ifNoneMatch) {
+    if (Strings.isNullOrEmpty(ifNoneMatch)) {
+      return null;
+    }
+    List<String> entityTags = ENTITY_TAG_SPLITTER.splitToList(ifNoneMatch);
+    if (entityTags.isEmpty()) {
+      return null;
+    }
+    String entityTag = entityTags.get(0);
+    if (entityTag.startsWith(WEAK_ENTITY_TAG_PREFIX)) {
+      entityTag = entityTag.substring(WEAK_ENTITY_TAG_PREFIX.length());
+    }
+    if (entityTag.length() >= 2 && entityTag.startsWith("\"") && entityTag.endsWith("\"")) {
+      entityTag = entityTag.substring(1, entityTag.length() - 1);
+    }
+    //* matches any version, but there is no cheaper way to tell whether the config exists
+    if (Strings.isNullOrEmpty(entityTag) || "*".equals(entityTag)) {
+      return null;
+    }
+    return entityTag;
   }
 
   String assembleCacheKey(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
@@ -296,6 +394,16 @@ public class ConfigFileController implements ReleaseMessageListener {
     }
   }
 
+  static class ConfigFile {
+    private final String releaseKey;
+    private final String content;
+
+    ConfigFile(String releaseKey, String content) {
+      this.releaseKey = releaseKey;
+      this.content = content;
+    }
+  }
+
   private String tryToGetClientIp(HttpServletRequest request) {
     String forwardedFor = request.getHeader("X-FORWARDED-FOR");
     if (!Strings.isNullOrEmpty(forwardedFor)) {
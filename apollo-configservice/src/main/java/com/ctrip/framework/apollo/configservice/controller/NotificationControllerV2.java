@@ -47,6 +47,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -67,6 +68,10 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
    */
   private final Multimap<String, DeferredResultWrapper> deferredResults =
       Multimaps.synchronizedSetMultimap(HashMultimap.create());
+  /**
+   * The long polls held by this config service, advertised as its load, see ConfigServiceLoadReporter
+   */
+  private final AtomicInteger pendingLongPolls = new AtomicInteger();
   private static final Splitter STRING_SPLITTER =
       Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
   private static final Type notificationsTypeReference =
@@ -170,6 +175,31 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     // 生成 Watch Key 集合
     Set<String> watchedKeys = Sets.newHashSet(watchedKeysMap.values());
 
+    /**
+     * The registration is in memory: the watch keys are registered before checking the release messages cached by
+     * ReleaseMessageServiceWithCache, so a release message handled in between is never missed, and no db access is
+     * needed on the request thread.
+     */
+    // 注册超时事件
+    deferredResultWrapper
+        .onTimeout(() -> logWatchedKeys(watchedKeys, "Apollo.LongPoll.TimeOutKeys"));
+
+    pendingLongPolls.incrementAndGet();
+    // 注册结束事件
+    deferredResultWrapper.onCompletion(() -> {
+      pendingLongPolls.decrementAndGet();
+      // 移除 Watch Key + DeferredResultWrapper 出 `deferredResults`
+      //unregister all keys
+      unregister(watchedKeys, deferredResultWrapper);
+      logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
+    });
+
+    // 注册 Watch Key + DeferredResultWrapper 到 `deferredResults` 中，等待配置发生变化后通知。详见 `#handleMessage(...)` 方法。
+    //register all keys
+    for (String key : watchedKeys) {
+      this.deferredResults.put(key, deferredResultWrapper);
+    }
+
     // 获得 Watch Key 集合中，每个 Watch Key 对应的 ReleaseMessage 记录。
     List<ReleaseMessage> latestReleaseMessages =
         releaseMessageService.findLatestReleaseMessagesGroupByMessages(watchedKeys);
@@ -184,6 +214,7 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
     // 因为对于 async 请求，Spring 在请求完成之前不会这样做
     // 这是不可接受的，因为正在做长轮询——意味着 db 连接将被保留很长时间。
     // 实际上，下面的过程，已经不需要 db 连接，因此进行关闭。
+    // 在 non-blocking 模式下，不会为长轮询请求打开 EntityManager ，此处无操作。
     entityManagerUtil.closeEntityManager();
 
     // 获得新的 ApolloConfigNotification 通知数组
@@ -191,35 +222,11 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         getApolloConfigNotifications(namespaces, clientSideNotifications, watchedKeysMap,
             latestReleaseMessages);
 
-    /**
-     * 在 notifications/v2 中，当请求的 Namespace 暂无新通知时，会将该 Namespace 对应的 Watch Key 们，注册到 deferredResults 中。
-     * 等到 Namespace 配置发生变更时，在 #handleMessage(...) 中，进行通知。
-     */
     // 若有新的通知，直接设置结果。
     if (!CollectionUtils.isEmpty(newNotifications)) {
+      unregister(watchedKeys, deferredResultWrapper);
       deferredResultWrapper.setResult(newNotifications);
     } else {
-      // 若无新的通知，
-      // 注册超时事件
-      deferredResultWrapper
-          .onTimeout(() -> logWatchedKeys(watchedKeys, "Apollo.LongPoll.TimeOutKeys"));
-
-      // 注册结束事件
-      deferredResultWrapper.onCompletion(() -> {
-        // 移除 Watch Key + DeferredResultWrapper 出 `deferredResults`
-        //unregister all keys
-        for (String key : watchedKeys) {
-          deferredResults.remove(key, deferredResultWrapper);
-        }
-        logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
-      });
-
-      // 注册 Watch Key + DeferredResultWrapper 到 `deferredResults` 中，等待配置发生变化后通知。详见 `#handleMessage(...)` 方法。
-      //register all keys
-      for (String key : watchedKeys) {
-        this.deferredResults.put(key, deferredResultWrapper);
-      }
-
       logWatchedKeys(watchedKeys, "Apollo.LongPoll.RegisteredKeys");
       logger.debug("Listening {} from appId: {}, cluster: {}, namespace: {}, datacenter: {}",
           watchedKeys, appId, cluster, namespaces, dataCenter);
@@ -422,6 +429,19 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         return keys.get(2);
       };
 
+  /**
+   * @return the number of long polls held by this config service
+   */
+  public int getPendingLongPolls() {
+    return pendingLongPolls.get();
+  }
+
+  private void unregister(Set<String> watchedKeys, DeferredResultWrapper deferredResultWrapper) {
+    for (String key : watchedKeys) {
+      deferredResults.remove(key, deferredResultWrapper);
+    }
+  }
+
   private void logWatchedKeys(Set<String> watchedKeys, String eventName) {
     for (String watchedKey : watchedKeys) {
       Tracer.logEvent(eventName, watchedKey);
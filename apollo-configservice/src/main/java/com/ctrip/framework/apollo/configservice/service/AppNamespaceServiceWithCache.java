@@ -10,6 +10,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.datasource.ReplicaReadContext;
 import com.ctrip.framework.apollo.biz.repository.AppNamespaceRepository;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -231,8 +232,8 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     while (hasMore && !Thread.currentThread().isInterrupted()) {
       //current batch is 500
       // 获得大于 maxIdScanned 的 500 条 AppNamespace 记录，按照 id 升序
-      List<AppNamespace> appNamespaces = appNamespaceRepository
-          .findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+      List<AppNamespace> appNamespaces = ReplicaReadContext.read(() -> appNamespaceRepository
+          .findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned));
       if (CollectionUtils.isEmpty(appNamespaces)) {
         break;
       }
@@ -274,7 +275,7 @@ public class AppNamespaceServiceWithCache implements InitializingBean {
     // 每 500 一批，从数据库中查询最新的 AppNamespace 信息
     List<List<Long>> partitionIds = Lists.partition(ids, 500);
     for (List<Long> toRebuild : partitionIds) {
-      Iterable<AppNamespace> appNamespaces = appNamespaceRepository.findAll(toRebuild);
+      Iterable<AppNamespace> appNamespaces = ReplicaReadContext.read(() -> appNamespaceRepository.findAll(toRebuild));
 
       if (appNamespaces == null) {
         continue;
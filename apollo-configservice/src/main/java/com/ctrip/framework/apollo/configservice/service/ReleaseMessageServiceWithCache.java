@@ -5,6 +5,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.datasource.ReplicaReadContext;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
@@ -17,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -36,12 +38,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, InitializingBean {
   private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageServiceWithCache
       .class);
+  private static final int BOOTSTRAP_BATCH = 500;
   @Autowired
   private ReleaseMessageRepository releaseMessageRepository;
 
   @Autowired
   private BizConfig bizConfig;
 
+  @Autowired
+  private ReleaseSnapshotStore releaseSnapshotStore;
+
   /**
    * 扫描周期
    */
@@ -158,7 +164,19 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     // 初始拉取 ReleaseMessage 到缓存
     //block the startup process until load finished
     //this should happen before ReleaseMessageScanner due to autowire
-    loadReleaseMessages(0);
+    try {
+      loadReleaseMessages(bootstrapReleaseMessages());
+    } catch (Throwable ex) {
+      // DB 访问失败，从快照初始化缓存，之后由增量拉取任务补齐
+      List<ReleaseMessage> snapshotMessages = releaseSnapshotStore.findLatestReleaseMessages();
+      if (snapshotMessages.isEmpty()) {
+        throw ex;
+      }
+      logger.error("Load release messages failed, load {} release messages from snapshot instead",
+          snapshotMessages.size(), ex);
+      Tracer.logError(ex);
+      snapshotMessages.forEach(this::mergeReleaseMessage);
+    }
 
     // 创建定时任务，增量拉取 ReleaseMessage 到缓存，用以处理初始化期间，产生的 ReleaseMessage 遗漏的问题。
     /**
@@ -199,6 +217,44 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     });
   }
 
+  /**
+   * 初始化时，仅加载每个 message 最新的 ReleaseMessage ，而不是遍历整张表，按 message 分批加载。
+   * 之后从返回的编号开始增量拉取。
+   *
+   * @return the max release message id loaded
+   */
+  private long bootstrapReleaseMessages() {
+    // 获得当前最大的编号，作为本次加载的上限，之后的 ReleaseMessage 由增量拉取加载
+    ReleaseMessage latestReleaseMessage = ReplicaReadContext.read(releaseMessageRepository::findTopByOrderByIdDesc);
+    if (latestReleaseMessage == null) {
+      return 0;
+    }
+    long maxId = latestReleaseMessage.getId();
+    String lastMessage = "";
+    int loaded = 0;
+    boolean hasMore = true;
+    while (hasMore && !Thread.currentThread().isInterrupted()) {
+      String lastMessageLoaded = lastMessage;
+      List<Object[]> latestMessages = ReplicaReadContext.read(() -> releaseMessageRepository
+          .findLatestReleaseMessagesGroupByMessagesAfter(lastMessageLoaded, maxId, new PageRequest(0, BOOTSTRAP_BATCH)));
+      if (CollectionUtils.isEmpty(latestMessages)) {
+        break;
+      }
+      for (Object[] latestMessage : latestMessages) {
+        ReleaseMessage releaseMessage = new ReleaseMessage((String) latestMessage[0]);
+        releaseMessage.setId((Long) latestMessage[1]);
+        mergeReleaseMessage(releaseMessage);
+      }
+      loaded += latestMessages.size();
+      lastMessage = (String) latestMessages.get(latestMessages.size() - 1)[0];
+      hasMore = latestMessages.size() == BOOTSTRAP_BATCH;
+    }
+    // 合并的顺序不是按编号升序，重置 maxIdScanned
+    maxIdScanned = maxId;
+    logger.info("Bootstrapped {} release messages with maxId {}", loaded, maxId);
+    return maxId;
+  }
+
   /**
    * 合并到 ReleaseMessage 缓存中
    * @param releaseMessage
@@ -210,6 +266,8 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     if (old == null || releaseMessage.getId() > old.getId()) {
       releaseMessageCache.put(releaseMessage.getMessage(), releaseMessage);
       maxIdScanned = releaseMessage.getId();
+      // 保存到快照
+      releaseSnapshotStore.saveReleaseMessage(releaseMessage);
     }
   }
 
@@ -223,8 +281,9 @@ public class ReleaseMessageServiceWithCache implements ReleaseMessageListener, I
     while (hasMore && !Thread.currentThread().isInterrupted()) {
       //current batch is 500
       // 获得大于 maxIdScanned 的 500 条 ReleaseMessage 记录，按照 id 升序
-      List<ReleaseMessage> releaseMessages = releaseMessageRepository
-          .findFirst500ByIdGreaterThanOrderByIdAsc(startId);
+      long lastIdLoaded = startId;
+      List<ReleaseMessage> releaseMessages = ReplicaReadContext.read(() -> releaseMessageRepository
+          .findFirst500ByIdGreaterThanOrderByIdAsc(lastIdLoaded));
       if (CollectionUtils.isEmpty(releaseMessages)) {
         break;
       }
@@ -0,0 +1,643 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Local, persistent serving snapshot of the config service, so that configs could still be served when ConfigDB
+ * is unavailable or slow.
+ *
+ * The snapshot is an append-only key-value file, each record is [length][crc32][payload], holding:
+ * 1. the latest active release of each watch key, with the notification id it was loaded with
+ * 2. releases loaded by id, e.g. gray releases, only the latest one of each namespace is kept
+ * 3. the latest release message id of each message
+ *
+ * Only the file offsets of the releases are kept in memory, the release content is read from the file on demand.
+ * Abandoned releases, e.g. rolled back gray releases, are removed, so they are not served when ConfigDB is down.
+ * The file is compacted once the stale records outnumber the live ones.
+ */
+@Service
+public class ReleaseSnapshotStore implements InitializingBean, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(ReleaseSnapshotStore.class);
+  private static final byte TYPE_WATCH_KEY = 1;
+  private static final byte TYPE_RELEASE = 2;
+  private static final byte TYPE_MESSAGE = 3;
+  private static final byte TYPE_RELEASE_REMOVED = 4;
+  //the layout of the release in the records, bumped when the fields change
+  private static final byte RELEASE_FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 8;
+  private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+  private static final int COMPACT_MIN_RECORDS = 10000;
+  private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+
+  @Autowired
+  private BizConfig bizConfig;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * KEY：Watch Key ReleaseMessage#message
+   */
+  private final Map<String, Location> watchKeyIndex = Maps.newHashMap();
+  /**
+   * KEY：Release 编号
+   */
+  private final Map<Long, Location> releaseIndex = Maps.newHashMap();
+  /**
+   * KEY：appId+clusterName+namespaceName of the release
+   * VALUE：the latest Release 编号 in releaseIndex
+   */
+  private final Map<String, Long> releaseNamespaceIndex = Maps.newHashMap();
+  /**
+   * KEY：`ReleaseMessage.message`
+   * VALUE：最新的 ReleaseMessage 编号
+   */
+  private final Map<String, Long> messageIndex = Maps.newHashMap();
+
+  private Path path;
+  private FileChannel channel;
+  private long recordCount;
+  private volatile boolean enabled;
+
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    if (!bizConfig.isConfigServiceSnapshotEnabled()) {
+      return;
+    }
+    open(new File(bizConfig.configServiceSnapshotPath()).toPath());
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    lock.writeLock().lock();
+    try {
+      enabled = false;
+      if (channel != null) {
+        channel.force(false);
+        channel.close();
+        channel = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void open(Path path) throws IOException {
+    lock.writeLock().lock();
+    try {
+      this.path = path;
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      load();
+      enabled = true;
+      logger.info("Release snapshot loaded from {}, {} watch keys, {} releases, {} messages", path,
+          watchKeyIndex.size(), releaseIndex.size(), messageIndex.size());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * 获得 Watch Key 对应的最新的，并且有效的 Release 快照
+   *
+   * @return the snapshot, or null if the watch key is not in the snapshot
+   */
+  public ReleaseSnapshot findLatestActiveRelease(String watchKey) {
+    if (!enabled) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      Location location = watchKeyIndex.get(watchKey);
+      if (location == null) {
+        return null;
+      }
+      DataInputStream in = read(location.offset);
+      in.readByte();
+      in.readUTF();
+      long notificationId = in.readLong();
+      Release release = readRelease(in);
+      if (release != null && release.isAbandoned()) {
+        return null;
+      }
+      return new ReleaseSnapshot(notificationId, release);
+    } catch (Throwable ex) {
+      logger.error("Read release snapshot of {} failed", watchKey, ex);
+      Tracer.logError(ex);
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void saveLatestActiveRelease(String watchKey, long notificationId, Release release) {
+    if (!enabled) {
+      return;
+    }
+    long releaseId = release == null ? 0 : release.getId();
+    lock.writeLock().lock();
+    try {
+      Location old = watchKeyIndex.get(watchKey);
+      if (old != null && old.notificationId == notificationId && old.releaseId == releaseId) {
+        return;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(TYPE_WATCH_KEY);
+      out.writeUTF(watchKey);
+      out.writeLong(notificationId);
+      writeRelease(out, release);
+      watchKeyIndex.put(watchKey, new Location(append(bytes.toByteArray()), notificationId, releaseId));
+      compactIfNecessary();
+    } catch (Throwable ex) {
+      logger.error("Save release snapshot of {} failed", watchKey, ex);
+      Tracer.logError(ex);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 获得指定编号，并且有效的 Release 快照
+   *
+   * @return the release, or null if the release is not in the snapshot
+   */
+  public Release findActiveRelease(long releaseId) {
+    if (!enabled) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      Location location = releaseIndex.get(releaseId);
+      if (location == null) {
+        return null;
+      }
+      DataInputStream in = read(location.offset);
+      in.readByte();
+      in.readLong();
+      Release release = readRelease(in);
+      return release == null || release.isAbandoned() ? null : release;
+    } catch (Throwable ex) {
+      logger.error("Read release snapshot of id {} failed", releaseId, ex);
+      Tracer.logError(ex);
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void saveActiveRelease(Release release) {
+    if (!enabled || release == null) {
+      return;
+    }
+    if (release.isAbandoned()) {
+      removeActiveRelease(release.getId());
+      return;
+    }
+    String namespaceKey = assembleNamespaceKey(release);
+    lock.writeLock().lock();
+    try {
+      //an active release is immutable, so no need to write it again
+      if (releaseIndex.containsKey(release.getId())) {
+        return;
+      }
+      //superseded by a newer release of the namespace
+      Long latestReleaseId = releaseNamespaceIndex.get(namespaceKey);
+      if (latestReleaseId != null && latestReleaseId > release.getId()) {
+        return;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(TYPE_RELEASE);
+      out.writeLong(release.getId());
+      writeRelease(out, release);
+      indexRelease(namespaceKey, release.getId(), append(bytes.toByteArray()));
+      compactIfNecessary();
+    } catch (Throwable ex) {
+      logger.error("Save release snapshot of id {} failed", release.getId(), ex);
+      Tracer.logError(ex);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove the release loaded by id, e.g. when it's abandoned, so that it's no longer served from the snapshot
+   */
+  public void removeActiveRelease(long releaseId) {
+    if (!enabled) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      if (!releaseIndex.containsKey(releaseId)) {
+        return;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(TYPE_RELEASE_REMOVED);
+      out.writeLong(releaseId);
+      append(bytes.toByteArray());
+      unindexRelease(releaseId);
+      compactIfNecessary();
+    } catch (Throwable ex) {
+      logger.error("Remove release snapshot of id {} failed", releaseId, ex);
+      Tracer.logError(ex);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 获得快照中的所有 ReleaseMessage ，每个 message 仅有最新的一条
+   */
+  public List<ReleaseMessage> findLatestReleaseMessages() {
+    if (!enabled) {
+      return Lists.newArrayList();
+    }
+    lock.readLock().lock();
+    try {
+      List<ReleaseMessage> releaseMessages = Lists.newArrayListWithCapacity(messageIndex.size());
+      for (Map.Entry<String, Long> entry : messageIndex.entrySet()) {
+        ReleaseMessage releaseMessage = new ReleaseMessage(entry.getKey());
+        releaseMessage.setId(entry.getValue());
+        releaseMessages.add(releaseMessage);
+      }
+      releaseMessages.sort((m1, m2) -> Long.compare(m1.getId(), m2.getId()));
+      return releaseMessages;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void saveReleaseMessage(ReleaseMessage releaseMessage) {
+    if (!enabled) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      Long old = messageIndex.get(releaseMessage.getMessage());
+      if (old != null && old >= releaseMessage.getId()) {
+        return;
+      }
+      append(encodeMessage(releaseMessage.getMessage(), releaseMessage.getId()));
+      messageIndex.put(releaseMessage.getMessage(), releaseMessage.getId());
+      compactIfNecessary();
+    } catch (Throwable ex) {
+      logger.error("Save release message snapshot {} failed", releaseMessage, ex);
+      Tracer.logError(ex);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load() throws IOException {
+    watchKeyIndex.clear();
+    releaseIndex.clear();
+    releaseNamespaceIndex.clear();
+    messageIndex.clear();
+    recordCount = 0;
+
+    long size = channel.size();
+    long position = 0;
+    while (position < size) {
+      byte[] payload;
+      try {
+        payload = readPayload(position);
+      } catch (IOException ex) {
+        //the tail is corrupted, e.g. the process crashed while writing, discard it
+        logger.warn("Release snapshot {} is corrupted at {}, truncating", path, position, ex);
+        channel.truncate(position);
+        break;
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+      byte type = in.readByte();
+      switch (type) {
+        case TYPE_WATCH_KEY: {
+          String watchKey = in.readUTF();
+          long notificationId = in.readLong();
+          long releaseId = in.readBoolean() ? in.readLong() : 0;
+          watchKeyIndex.put(watchKey, new Location(position, notificationId, releaseId));
+          break;
+        }
+        case TYPE_RELEASE: {
+          long releaseId = in.readLong();
+          Release release;
+          try {
+            release = readRelease(in);
+          } catch (IOException ex) {
+            logger.warn("Unreadable release {} in release snapshot {}, skipped", releaseId, path, ex);
+            break;
+          }
+          String namespaceKey = assembleNamespaceKey(release);
+          Long latestReleaseId = releaseNamespaceIndex.get(namespaceKey);
+          if (latestReleaseId == null || latestReleaseId <= releaseId) {
+            indexRelease(namespaceKey, releaseId, position);
+          }
+          break;
+        }
+        case TYPE_RELEASE_REMOVED:
+          unindexRelease(in.readLong());
+          break;
+        case TYPE_MESSAGE:
+          messageIndex.put(in.readUTF(), in.readLong());
+          break;
+        default:
+          logger.warn("Unknown record type {} in release snapshot {}, skipped", type, path);
+      }
+      recordCount++;
+      position += HEADER_SIZE + payload.length;
+    }
+  }
+
+  /**
+   * index the release as the latest one of its namespace, and drop the one it supersedes
+   */
+  private void indexRelease(String namespaceKey, long releaseId, long position) {
+    Long previousReleaseId = releaseNamespaceIndex.put(namespaceKey, releaseId);
+    if (previousReleaseId != null && previousReleaseId != releaseId) {
+      releaseIndex.remove(previousReleaseId);
+    }
+    releaseIndex.put(releaseId, new Location(position, 0, releaseId));
+  }
+
+  private void unindexRelease(long releaseId) {
+    releaseIndex.remove(releaseId);
+    releaseNamespaceIndex.values().remove(releaseId);
+  }
+
+  private String assembleNamespaceKey(Release release) {
+    return STRING_JOINER.join(release.getAppId(), release.getClusterName(), release.getNamespaceName());
+  }
+
+  private DataInputStream read(long position) throws IOException {
+    return new DataInputStream(new ByteArrayInputStream(readPayload(position)));
+  }
+
+  private byte[] readPayload(long position) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(header, position);
+    header.flip();
+    int length = header.getInt();
+    long checksum = header.getLong();
+    if (length <= 0 || length > MAX_RECORD_SIZE) {
+      throw new IOException(String.format("Invalid record length %d at %d", length, position));
+    }
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    readFully(payload, position + HEADER_SIZE);
+    byte[] bytes = payload.array();
+    CRC32 crc32 = new CRC32();
+    crc32.update(bytes);
+    if (crc32.getValue() != checksum) {
+      throw new IOException(String.format("Checksum mismatch of record at %d", position));
+    }
+    return bytes;
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException(String.format("Unexpected end of file at %d", position));
+      }
+    }
+  }
+
+  private long append(byte[] payload) throws IOException {
+    long position = writeRecord(channel, channel.size(), payload);
+    recordCount++;
+    return position;
+  }
+
+  /**
+   * should be called after the index is updated, so that the record just appended is kept
+   */
+  private void compactIfNecessary() {
+    long liveRecords = watchKeyIndex.size() + releaseIndex.size() + messageIndex.size();
+    if (recordCount <= COMPACT_MIN_RECORDS || recordCount <= 2 * liveRecords) {
+      return;
+    }
+    try {
+      compact();
+    } catch (Throwable ex) {
+      //the store is left as it was, will retry with the next record
+      logger.warn("Compact release snapshot {} failed", path, ex);
+      Tracer.logError(ex);
+    }
+  }
+
+  private long writeRecord(FileChannel target, long position, byte[] payload) throws IOException {
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+    buffer.putInt(payload.length);
+    buffer.putLong(crc32.getValue());
+    buffer.put(payload);
+    buffer.flip();
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      offset += target.write(buffer, offset);
+    }
+    return position;
+  }
+
+  /**
+   * Rewrite the live records into a new file and replace the old one atomically.
+   *
+   * The new file is written and moved in place through its own channel, the channel and the indexes are switched only
+   * after the move succeeds, so that a failure leaves the store on the old file and the old indexes.
+   */
+  private void compact() throws IOException {
+    Path tmp = path.resolveSibling(path.getFileName() + ".compacting");
+    Map<String, Location> newWatchKeyIndex = Maps.newHashMap();
+    Map<Long, Location> newReleaseIndex = Maps.newHashMap();
+    FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long position = 0;
+      for (Map.Entry<String, Location> entry : watchKeyIndex.entrySet()) {
+        Location location = entry.getValue();
+        byte[] payload = readPayload(location.offset);
+        newWatchKeyIndex.put(entry.getKey(), new Location(position, location.notificationId, location.releaseId));
+        writeRecord(target, position, payload);
+        position += HEADER_SIZE + payload.length;
+      }
+      for (Map.Entry<Long, Location> entry : releaseIndex.entrySet()) {
+        byte[] payload = readPayload(entry.getValue().offset);
+        newReleaseIndex.put(entry.getKey(), new Location(position, 0, entry.getKey()));
+        writeRecord(target, position, payload);
+        position += HEADER_SIZE + payload.length;
+      }
+      for (Map.Entry<String, Long> entry : messageIndex.entrySet()) {
+        byte[] payload = encodeMessage(entry.getKey(), entry.getValue());
+        writeRecord(target, position, payload);
+        position += HEADER_SIZE + payload.length;
+      }
+      target.force(true);
+      //the open channel follows the file being moved
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (Throwable ex) {
+      target.close();
+      Files.deleteIfExists(tmp);
+      throw ex;
+    }
+
+    FileChannel oldChannel = channel;
+    channel = target;
+    watchKeyIndex.clear();
+    watchKeyIndex.putAll(newWatchKeyIndex);
+    releaseIndex.clear();
+    releaseIndex.putAll(newReleaseIndex);
+    recordCount = watchKeyIndex.size() + releaseIndex.size() + messageIndex.size();
+    try {
+      oldChannel.close();
+    } catch (IOException ex) {
+      logger.warn("Close the old release snapshot {} failed", path, ex);
+    }
+    logger.info("Release snapshot {} compacted, {} records left", path, recordCount);
+  }
+
+  private byte[] encodeMessage(String message, long id) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(TYPE_MESSAGE);
+    out.writeUTF(message);
+    out.writeLong(id);
+    return bytes.toByteArray();
+  }
+
+  private void writeRelease(DataOutputStream out, Release release) throws IOException {
+    out.writeBoolean(release != null);
+    if (release == null) {
+      return;
+    }
+    out.writeByte(RELEASE_FORMAT_VERSION);
+    out.writeLong(release.getId());
+    writeString(out, release.getReleaseKey());
+    writeString(out, release.getName());
+    writeString(out, release.getAppId());
+    writeString(out, release.getClusterName());
+    writeString(out, release.getNamespaceName());
+    writeString(out, release.getConfigurations());
+    writeString(out, release.getComment());
+    out.writeBoolean(release.isAbandoned());
+  }
+
+  private Release readRelease(DataInputStream in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    byte version = in.readByte();
+    if (version != RELEASE_FORMAT_VERSION) {
+      throw new IOException(String.format("Unsupported release format version %d", version));
+    }
+    Release release = new Release();
+    release.setId(in.readLong());
+    release.setReleaseKey(readString(in));
+    release.setName(readString(in));
+    release.setAppId(readString(in));
+    release.setClusterName(readString(in));
+    release.setNamespaceName(readString(in));
+    release.setConfigurations(readString(in));
+    release.setComment(readString(in));
+    release.setAbandoned(in.readBoolean());
+    return release;
+  }
+
+  //DataOutputStream#writeUTF is limited to 64KB, which is not enough for configurations
+  private void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static class Location {
+    private final long offset;
+    private final long notificationId;
+    private final long releaseId;
+
+    Location(long offset, long notificationId, long releaseId) {
+      this.offset = offset;
+      this.notificationId = notificationId;
+      this.releaseId = releaseId;
+    }
+  }
+
+  public static class ReleaseSnapshot {
+    /**
+     * 通知编号
+     */
+    private final long notificationId;
+    /**
+     * Release 对象
+     */
+    private final Release release;
+
+    public ReleaseSnapshot(long notificationId, Release release) {
+      this.notificationId = notificationId;
+      this.release = release;
+    }
+
+    public long getNotificationId() {
+      return notificationId;
+    }
+
+    public Release getRelease() {
+      return release;
+    }
+  }
+}
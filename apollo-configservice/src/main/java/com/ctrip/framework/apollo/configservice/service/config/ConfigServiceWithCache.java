@@ -7,14 +7,18 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 
+import com.ctrip.framework.apollo.biz.datasource.ReplicaReadContext;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.configservice.service.ReleaseSnapshotStore;
+import com.ctrip.framework.apollo.configservice.service.ReleaseSnapshotStore.ReleaseSnapshot;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 
@@ -25,6 +29,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
@@ -45,6 +52,17 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   private static final String TRACER_EVENT_CACHE_LOAD_ID = "ConfigCache.LoadFromDBById";
   private static final String TRACER_EVENT_CACHE_GET = "ConfigCache.Get";
   private static final String TRACER_EVENT_CACHE_GET_ID = "ConfigCache.GetById";
+  private static final String TRACER_EVENT_CACHE_LOAD_SNAPSHOT = "ConfigCache.LoadFromSnapshot";
+  private static final String TRACER_EVENT_CACHE_LOAD_SNAPSHOT_ID = "ConfigCache.LoadFromSnapshotById";
+  private static final String TRACER_EVENT_SNAPSHOT_WRITE_DISCARDED = "ConfigCache.SnapshotWriteDiscarded";
+  /**
+   * DB 访问失败后，直接从快照读取的时长，单位：毫秒
+   */
+  private static final long DB_UNAVAILABLE_BACKOFF_IN_MILLIS = 10000;//10s
+  /**
+   * 待写入快照的最大数量，超出时丢弃，快照仅用于兜底
+   */
+  private static final int SNAPSHOT_WRITE_QUEUE_SIZE = 10000;
   private static final Splitter STRING_SPLITTER =
       Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
 
@@ -54,6 +72,9 @@ public class ConfigServiceWithCache extends AbstractConfigService {
   @Autowired
   private ReleaseMessageService releaseMessageService;
 
+  @Autowired
+  private ReleaseSnapshotStore releaseSnapshotStore;
+
   /**
    * ConfigCacheEntry 缓存
    *
@@ -73,8 +94,21 @@ public class ConfigServiceWithCache extends AbstractConfigService {
    */
   private ConfigCacheEntry nullConfigCacheEntry;
 
+  /**
+   * 在此时间之前，不访问 DB ，直接从快照读取，避免 DB 不可用时，每次加载都要等待超时
+   */
+  private volatile long dbUnavailableUntil;
+
+  /**
+   * 写入快照的线程池，避免在缓存加载时同步写文件
+   */
+  private final ExecutorService snapshotExecutorService;
+
   public ConfigServiceWithCache() {
     nullConfigCacheEntry = new ConfigCacheEntry(ConfigConsts.NOTIFICATION_ID_PLACEHOLDER, null);
+    snapshotExecutorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(SNAPSHOT_WRITE_QUEUE_SIZE), ApolloThreadFactory.create("ConfigSnapshot", true),
+        (task, executor) -> Tracer.logEvent(TRACER_EVENT_SNAPSHOT_WRITE_DISCARDED, "queue full"));
   }
 
   /**
@@ -96,14 +130,22 @@ public class ConfigServiceWithCache extends AbstractConfigService {
               return nullConfigCacheEntry;
             }
 
+            //serve from the snapshot directly when the db is known to be unavailable
+            if (isDbUnavailable()) {
+              ConfigCacheEntry snapshotEntry = loadFromSnapshot(key);
+              if (snapshotEntry != null) {
+                return snapshotEntry;
+              }
+            }
+
             Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_LOAD, key);
             try {
               // 获得最新的 ReleaseMessage 对象
-              ReleaseMessage latestReleaseMessage = releaseMessageService.findLatestReleaseMessageForMessages(Lists
-                  .newArrayList(key));
+              ReleaseMessage latestReleaseMessage = ReplicaReadContext.read(() -> releaseMessageService
+                  .findLatestReleaseMessageForMessages(Lists.newArrayList(key)));
               // 获得最新的，并且有效的 Release 对象
-              Release latestRelease = releaseService.findLatestActiveRelease(namespaceInfo.get(0), namespaceInfo.get(1),
-                  namespaceInfo.get(2));
+              Release latestRelease = ReplicaReadContext.read(() -> releaseService.findLatestActiveRelease(
+                  namespaceInfo.get(0), namespaceInfo.get(1), namespaceInfo.get(2)));
 
               transaction.setStatus(Transaction.SUCCESS);
 
@@ -116,10 +158,20 @@ public class ConfigServiceWithCache extends AbstractConfigService {
                 return nullConfigCacheEntry;
               }
 
+              // 异步保存到快照
+              snapshotExecutorService.execute(
+                  () -> releaseSnapshotStore.saveLatestActiveRelease(key, notificationId, latestRelease));
+
               // 创建 ConfigCacheEntry 对象
               return new ConfigCacheEntry(notificationId, latestRelease);
             } catch (Throwable ex) {
               transaction.setStatus(ex);
+              // DB 访问失败，从快照读取
+              markDbUnavailable();
+              ConfigCacheEntry snapshotEntry = loadFromSnapshot(key);
+              if (snapshotEntry != null) {
+                return snapshotEntry;
+              }
               throw ex;
             } finally {
               transaction.complete();
@@ -133,17 +185,37 @@ public class ConfigServiceWithCache extends AbstractConfigService {
         .build(new CacheLoader<Long, Optional<Release>>() {
           @Override
           public Optional<Release> load(Long key) throws Exception {
+            if (isDbUnavailable()) {
+              Release snapshotRelease = loadFromSnapshot(key);
+              if (snapshotRelease != null) {
+                return Optional.of(snapshotRelease);
+              }
+            }
+
             Transaction transaction = Tracer.newTransaction(TRACER_EVENT_CACHE_LOAD_ID, String.valueOf(key));
             try {
               // 获得 Release 对象
-              Release release = releaseService.findActiveOne(key);
+              Release release = ReplicaReadContext.read(() -> releaseService.findActiveOne(key));
 
               transaction.setStatus(Transaction.SUCCESS);
 
+              // 异步保存到快照，已失效（如灰度回滚）的 Release 从快照移除
+              if (release != null) {
+                snapshotExecutorService.execute(() -> releaseSnapshotStore.saveActiveRelease(release));
+              } else {
+                snapshotExecutorService.execute(() -> releaseSnapshotStore.removeActiveRelease(key));
+              }
+
               // 使用 Optional 包装 Release 对象返回
               return Optional.ofNullable(release);
             } catch (Throwable ex) {
               transaction.setStatus(ex);
+              // DB 访问失败，从快照读取
+              markDbUnavailable();
+              Release snapshotRelease = loadFromSnapshot(key);
+              if (snapshotRelease != null) {
+                return Optional.of(snapshotRelease);
+              }
               throw ex;
             } finally {
               transaction.complete();
@@ -185,6 +257,33 @@ public class ConfigServiceWithCache extends AbstractConfigService {
     return cacheEntry.getRelease();
   }
 
+  private boolean isDbUnavailable() {
+    return releaseSnapshotStore.isEnabled() && System.currentTimeMillis() < dbUnavailableUntil;
+  }
+
+  private void markDbUnavailable() {
+    if (releaseSnapshotStore.isEnabled()) {
+      dbUnavailableUntil = System.currentTimeMillis() + DB_UNAVAILABLE_BACKOFF_IN_MILLIS;
+    }
+  }
+
+  private ConfigCacheEntry loadFromSnapshot(String key) {
+    ReleaseSnapshot snapshot = releaseSnapshotStore.findLatestActiveRelease(key);
+    if (snapshot == null) {
+      return null;
+    }
+    Tracer.logEvent(TRACER_EVENT_CACHE_LOAD_SNAPSHOT, key);
+    return new ConfigCacheEntry(snapshot.getNotificationId(), snapshot.getRelease());
+  }
+
+  private Release loadFromSnapshot(long id) {
+    Release release = releaseSnapshotStore.findActiveRelease(id);
+    if (release != null) {
+      Tracer.logEvent(TRACER_EVENT_CACHE_LOAD_SNAPSHOT_ID, String.valueOf(id));
+    }
+    return release;
+  }
+
   private void invalidate(String key) {
     // 清空对应的缓存
     configCache.invalidate(key);
@@ -44,6 +44,7 @@ public class ServiceController {
       @RequestParam(value = "appId", defaultValue = "") String appId,
       @RequestParam(value = "ip", required = false) String clientIp) {
     List<InstanceInfo> instances = discoveryService.getConfigServiceInstances();
+    String routing = discoveryService.getConfigServiceRouting().getValue();
     List<ServiceDTO> result = instances.stream().map(new Function<InstanceInfo, ServiceDTO>() {
 
       @Override
@@ -52,6 +53,8 @@ public class ServiceController {
         service.setAppName(instance.getAppName());
         service.setInstanceId(instance.getInstanceId());
         service.setHomepageUrl(instance.getHomePageUrl());
+        service.setRouting(routing);
+        service.setLoad(discoveryService.getLoad(instance));
         return service;
       }
 
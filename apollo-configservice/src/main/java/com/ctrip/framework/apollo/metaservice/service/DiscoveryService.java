@@ -1,7 +1,10 @@
 package com.ctrip.framework.apollo.metaservice.service;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
 import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.primitives.Ints;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
@@ -14,10 +17,17 @@ import java.util.List;
 
 @Service
 public class DiscoveryService {
+  /**
+   * The eureka metadata key of the load published by the config service
+   */
+  public static final String LOAD_METADATA_KEY = "apollo.load";
 
   @Autowired
   private EurekaClient eurekaClient;
 
+  @Autowired
+  private BizConfig bizConfig;
+
   public List<InstanceInfo> getConfigServiceInstances() {
     Application application = eurekaClient.getApplication(ServiceNameConsts.APOLLO_CONFIGSERVICE);
     if (application == null) {
@@ -26,6 +36,23 @@ public class DiscoveryService {
     return application != null ? application.getInstances() : Collections.emptyList();
   }
 
+  /**
+   * How clients should choose among the config service instances
+   */
+  public ConfigServiceRouting getConfigServiceRouting() {
+    return ConfigServiceRouting.fromString(bizConfig.configServiceRouting());
+  }
+
+  /**
+   * The load published by the config service instance, i.e. the long polls it holds
+   *
+   * @return the load, or null if the instance doesn't publish it
+   */
+  public Integer getLoad(InstanceInfo instance) {
+    String load = instance.getMetadata() == null ? null : instance.getMetadata().get(LOAD_METADATA_KEY);
+    return load == null ? null : Ints.tryParse(load);
+  }
+
   public List<InstanceInfo> getMetaServiceInstances() {
     Application application = eurekaClient.getApplication(ServiceNameConsts.APOLLO_METASERVICE);
     if (application == null) {
@@ -0,0 +1,51 @@
+package com.ctrip.framework.apollo.configservice;
+
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.netflix.appinfo.ApplicationInfoManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigServiceLoadReporterTest {
+  private ConfigServiceLoadReporter configServiceLoadReporter;
+  @Mock
+  private ApplicationInfoManager applicationInfoManager;
+  @Mock
+  private NotificationControllerV2 notificationController;
+
+  @Before
+  public void setUp() throws Exception {
+    configServiceLoadReporter = new ConfigServiceLoadReporter();
+    ReflectionTestUtils.setField(configServiceLoadReporter, "applicationInfoManager", applicationInfoManager);
+    ReflectionTestUtils.setField(configServiceLoadReporter, "notificationController", notificationController);
+  }
+
+  @Test
+  public void testReportLoad() throws Exception {
+    when(notificationController.getPendingLongPolls()).thenReturn(10, 10, 20);
+
+    configServiceLoadReporter.report();
+    configServiceLoadReporter.report();
+    configServiceLoadReporter.report();
+
+    //only published when changed
+    verify(applicationInfoManager, times(1))
+        .registerAppMetadata(Collections.singletonMap(DiscoveryService.LOAD_METADATA_KEY, "10"));
+    verify(applicationInfoManager, times(1))
+        .registerAppMetadata(Collections.singletonMap(DiscoveryService.LOAD_METADATA_KEY, "20"));
+    verify(applicationInfoManager, times(2)).registerAppMetadata(anyMapOf(String.class, String.class));
+  }
+}
@@ -8,6 +8,7 @@ import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.Topics;
@@ -20,6 +21,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -32,9 +34,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -52,6 +56,8 @@ public class ConfigFileControllerTest {
   private NamespaceUtil namespaceUtil;
   @Mock
   private GrayReleaseRulesHolder grayReleaseRulesHolder;
+  @Mock
+  private BizConfig bizConfig;
   private ConfigFileController configFileController;
   private String someAppId;
   private String someClusterName;
@@ -72,6 +78,7 @@ public class ConfigFileControllerTest {
     ReflectionTestUtils.setField(configFileController, "watchKeysUtil", watchKeysUtil);
     ReflectionTestUtils.setField(configFileController, "namespaceUtil", namespaceUtil);
     ReflectionTestUtils.setField(configFileController, "grayReleaseRulesHolder", grayReleaseRulesHolder);
+    ReflectionTestUtils.setField(configFileController, "bizConfig", bizConfig);
 
     someAppId = "someAppId";
     someClusterName = "someClusterName";
@@ -226,10 +233,11 @@ public class ConfigFileControllerTest {
     ReleaseMessage someReleaseMessage = mock(ReleaseMessage.class);
     when(someReleaseMessage.getMessage()).thenReturn(someWatchKey);
 
-    Cache<String, String> cache =
-        (Cache<String, String>) ReflectionTestUtils.getField(configFileController, "localCache");
-    cache.put(someCacheKey, someValue);
-    cache.put(anotherCacheKey, someValue);
+    Cache<String, ConfigFileController.ConfigFile> cache =
+        (Cache<String, ConfigFileController.ConfigFile>) ReflectionTestUtils
+            .getField(configFileController, "localCache");
+    cache.put(someCacheKey, new ConfigFileController.ConfigFile("someReleaseKey", someValue));
+    cache.put(anotherCacheKey, new ConfigFileController.ConfigFile("someReleaseKey", someValue));
 
     watchedKeys2CacheKey.putAll(someWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
     watchedKeys2CacheKey.putAll(anotherWatchKey, Lists.newArrayList(someCacheKey, anotherCacheKey));
@@ -242,4 +250,131 @@ public class ConfigFileControllerTest {
     assertTrue(watchedKeys2CacheKey.isEmpty());
     assertTrue(cacheKey2WatchedKeys.isEmpty());
   }
+
+  @Test
+  public void testQueryConfigWithEntityTag() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(someApolloConfig.getReleaseKey()).thenReturn(someReleaseKey);
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+
+    ResponseEntity<String> response =
+        configFileController
+            .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"" + someReleaseKey + "\"", response.getHeaders().getETag());
+    assertEquals("no-cache", response.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void testQueryConfigWithCacheMaxAge() throws Exception {
+    Map<String, String> configurations = ImmutableMap.of("someKey", "someValue");
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(configurations);
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+    when(bizConfig.configFileCacheMaxAgeInSeconds()).thenReturn(60);
+
+    ResponseEntity<String> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals("public, max-age=60", response.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void testQueryConfigWithGrayReleaseNotSharedCacheable() throws Exception {
+    when(grayReleaseRulesHolder.hasGrayReleaseRule(someAppId, someClientIp, someNamespace))
+        .thenReturn(true);
+    when(bizConfig.configFileCacheMaxAgeInSeconds()).thenReturn(60);
+
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(ImmutableMap.of("someKey", "someValue"));
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, null,
+            someRequest, someResponse)).thenReturn(someApolloConfig);
+
+    ResponseEntity<String> response =
+        configFileController
+            .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals("private, no-cache", response.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void testQueryConfigNotModified() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    when(someRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"" + someReleaseKey + "\"");
+    when(someResponse.getStatus()).thenReturn(HttpServletResponse.SC_NOT_MODIFIED);
+
+    ResponseEntity<String> response =
+        configFileController
+            .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertNull(response.getBody());
+    assertEquals("\"" + someReleaseKey + "\"", response.getHeaders().getETag());
+    assertTrue(cacheKey2WatchedKeys.isEmpty());
+    verify(configController, times(1))
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, someReleaseKey, someClientIp,
+            null, someRequest, someResponse);
+    verify(watchKeysUtil, never()).assembleAllWatchKeys(anyString(), anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void testQueryConfigModifiedSinceEntityTag() throws Exception {
+    String someReleaseKey = "someReleaseKey";
+    String anotherReleaseKey = "anotherReleaseKey";
+    String cacheKey =
+        configFileController
+            .assembleCacheKey(ConfigFileController.ConfigFileOutputFormat.PROPERTIES, someAppId, someClusterName,
+                someNamespace, someDataCenter);
+    when(someRequest.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("W/\"" + someReleaseKey + "\"");
+
+    ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+    when(someApolloConfig.getConfigurations()).thenReturn(ImmutableMap.of("someKey", "someValue"));
+    when(someApolloConfig.getReleaseKey()).thenReturn(anotherReleaseKey);
+    when(configController
+        .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, someReleaseKey, someClientIp,
+            null, someRequest, someResponse)).thenReturn(someApolloConfig);
+    when(watchKeysUtil
+        .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
+        .thenReturn(Sets.newHashSet("someWatchKey"));
+
+    ResponseEntity<String> response =
+        configFileController
+            .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
+                someClientIp, someRequest, someResponse);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertTrue(response.getBody().contains("someKey=someValue"));
+    assertEquals("\"" + anotherReleaseKey + "\"", response.getHeaders().getETag());
+    assertTrue(cacheKey2WatchedKeys.containsKey(cacheKey));
+  }
+
+  @Test
+  public void testExtractReleaseKey() throws Exception {
+    assertNull(configFileController.extractReleaseKey(null));
+    assertNull(configFileController.extractReleaseKey(""));
+    assertNull(configFileController.extractReleaseKey("*"));
+    assertEquals("a+b", configFileController.extractReleaseKey("\"a+b\""));
+    assertEquals("a+b", configFileController.extractReleaseKey("W/\"a+b\""));
+    assertEquals("a", configFileController.extractReleaseKey(" \"a\", \"b\""));
+  }
 }
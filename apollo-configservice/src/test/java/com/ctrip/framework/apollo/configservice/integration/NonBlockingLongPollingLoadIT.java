@@ -0,0 +1,127 @@
+package com.ctrip.framework.apollo.configservice.integration;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.net.UrlEscapers;
+import com.google.gson.Gson;
+
+import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+
+import org.apache.catalina.startup.Tomcat;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainer;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Park many long polls on the server with raw sockets and report the heap and server threads used by them.
+ *
+ * It's not run by default, run it with mvn test -Dtest=NonBlockingLongPollingLoadIT. The number of long polls is 1000
+ * by default, and could be changed with -Dapollo.long-polling.load-test.connections. The heap measured includes the
+ * client side sockets in the same JVM, so the parked connections per GB of heap (logged at info level) is a lower
+ * bound.
+ */
+@WebIntegrationTest(value = {"apollo.long-polling.non-blocking.enabled=true",
+    "apollo.long-polling.max-threads=" + NonBlockingLongPollingLoadIT.MAX_THREADS,
+    //a separate database, as the schema is recreated when the context starts
+    "spring.datasource.url=jdbc:h2:mem:~/apolloconfigdb-longpolling;mode=mysql;DB_CLOSE_ON_EXIT=FALSE;DB_CLOSE_DELAY=-1"},
+    randomPort = true)
+public class NonBlockingLongPollingLoadIT extends AbstractBaseIntegrationTest {
+  private static final Logger logger = LoggerFactory.getLogger(NonBlockingLongPollingLoadIT.class);
+  static final int MAX_THREADS = 20;
+  private static final double GB = 1024 * 1024 * 1024;
+
+  @Autowired
+  private NotificationControllerV2 notificationControllerV2;
+
+  @Autowired
+  private EmbeddedWebApplicationContext applicationContext;
+
+  private List<SocketChannel> channels = Lists.newArrayList();
+
+  @After
+  public void tearDown() throws Exception {
+    for (SocketChannel channel : channels) {
+      channel.close();
+    }
+  }
+
+  @Test
+  public void testParkLongPolls() throws Exception {
+    int connections = Integer.getInteger("apollo.long-polling.load-test.connections", 1000);
+    Multimap<String, DeferredResultWrapper> deferredResults = (Multimap<String, DeferredResultWrapper>)
+        ReflectionTestUtils.getField(notificationControllerV2, "deferredResults");
+
+    long heapBefore = usedHeap();
+
+    byte[] request = assembleLongPollRequest("someLoadTestAppId");
+    for (int i = 0; i < connections; i++) {
+      SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+      channel.write(ByteBuffer.wrap(request));
+      channels.add(channel);
+    }
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (deferredResults.size() < connections && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+
+    long heapUsed = Math.max(usedHeap() - heapBefore, 1);
+    int serverThreads = countServerThreads();
+
+    assertEquals(connections, deferredResults.size());
+    assertTrue(serverThreads > 0);
+    assertTrue(serverThreads <= MAX_THREADS);
+
+    logger.info("Parked {} long polls with {} server threads and {} KB heap: {} connections per GB of heap, "
+            + "{} connections per thread", connections, serverThreads, heapUsed / 1024,
+        (long) (connections / (heapUsed / GB)), connections / serverThreads);
+  }
+
+  private byte[] assembleLongPollRequest(String appId) {
+    String notifications = new Gson().toJson(Lists.newArrayList(
+        new ApolloConfigNotification(ConfigConsts.NAMESPACE_APPLICATION, ConfigConsts.NOTIFICATION_ID_PLACEHOLDER)));
+    String path = String.format("/notifications/v2?appId=%s&cluster=%s&notifications=%s", appId,
+        ConfigConsts.CLUSTER_NAME_DEFAULT, UrlEscapers.urlFormParameterEscaper().escape(notifications));
+    String request = String.format("GET %s HTTP/1.1\r\nHost: localhost:%d\r\n\r\n", path, port);
+    return request.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private long usedHeap() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * @return the most request processing threads the connector has ever had
+   */
+  private int countServerThreads() {
+    Tomcat tomcat = ((TomcatEmbeddedServletContainer) applicationContext.getEmbeddedServletContainer()).getTomcat();
+    Executor executor = tomcat.getService().findConnectors()[0].getProtocolHandler().getExecutor();
+    return ((ThreadPoolExecutor) executor).getLargestPoolSize();
+  }
+}
@@ -13,6 +13,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
@@ -23,6 +24,9 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -41,6 +45,9 @@ public class ReleaseMessageServiceWithCacheTest {
   @Mock
   private BizConfig bizConfig;
 
+  @Mock
+  private ReleaseSnapshotStore releaseSnapshotStore;
+
   private int scanInterval;
 
   private TimeUnit scanIntervalTimeUnit;
@@ -53,6 +60,7 @@ public class ReleaseMessageServiceWithCacheTest {
     ReflectionTestUtils.setField(releaseMessageServiceWithCache, "releaseMessageRepository",
         releaseMessageRepository);
     ReflectionTestUtils.setField(releaseMessageServiceWithCache, "bizConfig", bizConfig);
+    ReflectionTestUtils.setField(releaseMessageServiceWithCache, "releaseSnapshotStore", releaseSnapshotStore);
 
     scanInterval = 10;
     scanIntervalTimeUnit = TimeUnit.MILLISECONDS;
@@ -233,6 +241,84 @@ public class ReleaseMessageServiceWithCacheTest {
     assertEquals(newLatestReleaseMsg, newLatestReleaseMsgGroupByMsgContent.get(0));
   }
 
+  @Test
+  public void testBootstrapWithLatestReleaseMessagesGroupByMessages() throws Exception {
+    String someMessageContent = "someMessage";
+    String anotherMessageContent = "anotherMessage";
+    long maxId = 1000;
+    List<Object[]> firstBatch = new ArrayList<>(500);
+    for (int i = 0; i < 500; i++) {
+      firstBatch.add(new Object[]{someMessageContent + i, (long) i + 1});
+    }
+    List<Object[]> secondBatch = Collections.singletonList(new Object[]{anotherMessageContent, maxId});
+    ReleaseMessage newMessage = assembleReleaseMsg(maxId + 1, someMessageContent + 0);
+
+    when(releaseMessageRepository.findTopByOrderByIdDesc()).thenReturn(assembleReleaseMsg(maxId,
+        anotherMessageContent));
+    when(releaseMessageRepository.findLatestReleaseMessagesGroupByMessagesAfter(eq(""), eq(maxId),
+        any(Pageable.class))).thenReturn(firstBatch);
+    when(releaseMessageRepository.findLatestReleaseMessagesGroupByMessagesAfter(eq(someMessageContent + 499),
+        eq(maxId), any(Pageable.class))).thenReturn(secondBatch);
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxId)).thenReturn(
+        Lists.newArrayList(newMessage));
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+
+    verify(releaseMessageRepository, never()).findFirst500ByIdGreaterThanOrderByIdAsc(0L);
+
+    assertEquals(maxId, releaseMessageServiceWithCache
+        .findLatestReleaseMessageForMessages(Sets.newHashSet(anotherMessageContent)).getId());
+    assertEquals(500, releaseMessageServiceWithCache
+        .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent + 499)).getId());
+    assertEquals(newMessage, releaseMessageServiceWithCache
+        .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent + 0)));
+  }
+
+  @Test
+  public void testLoadFromSnapshotWhenDbUnavailable() throws Exception {
+    String someMessageContent = "someMessage";
+    long someMessageId = 1;
+    ReleaseMessage someMessage = assembleReleaseMsg(someMessageId, someMessageContent);
+    String anotherMessageContent = "anotherMessage";
+    long anotherMessageId = 2;
+    ReleaseMessage anotherMessage = assembleReleaseMsg(anotherMessageId, anotherMessageContent);
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenThrow(
+        new RuntimeException("db is down"));
+    when(releaseSnapshotStore.findLatestReleaseMessages()).thenReturn(Lists.newArrayList(someMessage,
+        anotherMessage));
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+
+    ReleaseMessage latestReleaseMsg =
+        releaseMessageServiceWithCache
+            .findLatestReleaseMessageForMessages(Sets.newHashSet(someMessageContent, anotherMessageContent));
+
+    assertEquals(anotherMessageId, latestReleaseMsg.getId());
+    assertEquals(anotherMessageContent, latestReleaseMsg.getMessage());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testLoadFailedWithEmptySnapshot() throws Exception {
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenThrow(
+        new RuntimeException("db is down"));
+    when(releaseSnapshotStore.findLatestReleaseMessages()).thenReturn(Collections.emptyList());
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+  }
+
+  @Test
+  public void testReleaseMessagesSavedToSnapshot() throws Exception {
+    ReleaseMessage someMessage = assembleReleaseMsg(1, "someMessage");
+
+    when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(Lists.newArrayList
+        (someMessage));
+
+    releaseMessageServiceWithCache.afterPropertiesSet();
+
+    verify(releaseSnapshotStore, times(1)).saveReleaseMessage(someMessage);
+  }
+
   private ReleaseMessage assembleReleaseMsg(long id, String msgContent) {
 
     ReleaseMessage msg = new ReleaseMessage(msgContent);
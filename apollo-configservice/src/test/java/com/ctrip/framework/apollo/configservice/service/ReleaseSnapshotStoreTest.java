@@ -0,0 +1,249 @@
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.configservice.service.ReleaseSnapshotStore.ReleaseSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReleaseSnapshotStoreTest {
+  private ReleaseSnapshotStore releaseSnapshotStore;
+  private Path someDir;
+  private Path somePath;
+
+  private String someWatchKey;
+  private String anotherWatchKey;
+
+  @Before
+  public void setUp() throws Exception {
+    someDir = Files.createTempDirectory("ReleaseSnapshotStoreTest");
+    somePath = someDir.resolve("config-snapshot.db");
+
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    someWatchKey = "someAppId+someCluster+someNamespace";
+    anotherWatchKey = "someAppId+someCluster+anotherNamespace";
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    releaseSnapshotStore.destroy();
+    Files.walk(someDir).sorted((p1, p2) -> p2.compareTo(p1)).forEach(path -> path.toFile().delete());
+  }
+
+  @Test
+  public void testSaveAndFind() throws Exception {
+    long someNotificationId = 10;
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, someNotificationId, someRelease);
+    releaseSnapshotStore.saveLatestActiveRelease(anotherWatchKey, someNotificationId, null);
+    releaseSnapshotStore.saveActiveRelease(someRelease);
+
+    ReleaseSnapshot snapshot = releaseSnapshotStore.findLatestActiveRelease(someWatchKey);
+
+    assertEquals(someNotificationId, snapshot.getNotificationId());
+    assertRelease(someRelease, snapshot.getRelease());
+    assertNull(releaseSnapshotStore.findLatestActiveRelease(anotherWatchKey).getRelease());
+    assertRelease(someRelease, releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+    assertNull(releaseSnapshotStore.findLatestActiveRelease("someUnknownKey"));
+    assertNull(releaseSnapshotStore.findActiveRelease(2));
+  }
+
+  @Test
+  public void testSaveNewerRelease() throws Exception {
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+    Release anotherRelease = assembleRelease(2, "anotherReleaseKey", "{\"k1\":\"v2\"}");
+
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 1, someRelease);
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 2, anotherRelease);
+
+    ReleaseSnapshot snapshot = releaseSnapshotStore.findLatestActiveRelease(someWatchKey);
+
+    assertEquals(2, snapshot.getNotificationId());
+    assertRelease(anotherRelease, snapshot.getRelease());
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    StringBuilder largeConfigurations = new StringBuilder("{\"k1\":\"");
+    for (int i = 0; i < 100000; i++) {
+      largeConfigurations.append('v');
+    }
+    largeConfigurations.append("\"}");
+    Release someRelease = assembleRelease(1, "someReleaseKey", largeConfigurations.toString());
+
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 10, someRelease);
+    releaseSnapshotStore.saveReleaseMessage(assembleReleaseMessage(10, someWatchKey));
+    releaseSnapshotStore.saveReleaseMessage(assembleReleaseMessage(11, anotherWatchKey));
+    releaseSnapshotStore.destroy();
+
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertRelease(someRelease, releaseSnapshotStore.findLatestActiveRelease(someWatchKey).getRelease());
+
+    List<ReleaseMessage> releaseMessages = releaseSnapshotStore.findLatestReleaseMessages();
+    assertEquals(2, releaseMessages.size());
+    assertEquals(10, releaseMessages.get(0).getId());
+    assertEquals(someWatchKey, releaseMessages.get(0).getMessage());
+    assertEquals(11, releaseMessages.get(1).getId());
+    assertEquals(anotherWatchKey, releaseMessages.get(1).getMessage());
+  }
+
+  @Test
+  public void testReopenWithCorruptedTail() throws Exception {
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+    Release anotherRelease = assembleRelease(2, "anotherReleaseKey", "{\"k1\":\"v2\"}");
+
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 1, someRelease);
+    releaseSnapshotStore.saveLatestActiveRelease(anotherWatchKey, 2, anotherRelease);
+    releaseSnapshotStore.destroy();
+
+    //simulate a crash while writing the last record
+    try (RandomAccessFile file = new RandomAccessFile(somePath.toFile(), "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertRelease(someRelease, releaseSnapshotStore.findLatestActiveRelease(someWatchKey).getRelease());
+    assertNull(releaseSnapshotStore.findLatestActiveRelease(anotherWatchKey));
+
+    releaseSnapshotStore.saveLatestActiveRelease(anotherWatchKey, 2, anotherRelease);
+
+    assertRelease(anotherRelease, releaseSnapshotStore.findLatestActiveRelease(anotherWatchKey).getRelease());
+  }
+
+  @Test
+  public void testCompact() throws Exception {
+    int times = 30000;
+    for (int i = 1; i <= times; i++) {
+      releaseSnapshotStore.saveReleaseMessage(assembleReleaseMessage(i, someWatchKey));
+      releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, i, assembleRelease(i, "key" + i, "{}"));
+    }
+    long sizeAfterCompaction = Files.size(somePath);
+
+    //without compaction, the file would be more than 100 bytes per record
+    assertTrue(sizeAfterCompaction < times * 50L);
+    assertRelease(assembleRelease(times, "key" + times, "{}"),
+        releaseSnapshotStore.findLatestActiveRelease(someWatchKey).getRelease());
+
+    releaseSnapshotStore.destroy();
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertEquals(times, releaseSnapshotStore.findLatestActiveRelease(someWatchKey).getNotificationId());
+    assertEquals(times, releaseSnapshotStore.findLatestReleaseMessages().get(0).getId());
+  }
+
+  @Test
+  public void testSaveNewerReleaseOfNamespacePrunesOlderOne() throws Exception {
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+    Release anotherRelease = assembleRelease(2, "anotherReleaseKey", "{\"k1\":\"v2\"}");
+
+    releaseSnapshotStore.saveActiveRelease(someRelease);
+    releaseSnapshotStore.saveActiveRelease(anotherRelease);
+    releaseSnapshotStore.saveActiveRelease(someRelease);
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+    assertRelease(anotherRelease, releaseSnapshotStore.findActiveRelease(anotherRelease.getId()));
+
+    releaseSnapshotStore.destroy();
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+    assertRelease(anotherRelease, releaseSnapshotStore.findActiveRelease(anotherRelease.getId()));
+  }
+
+  @Test
+  public void testAbandonedReleaseNotServed() throws Exception {
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+    Release someAbandonedRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+    someAbandonedRelease.setAbandoned(true);
+    Release anotherAbandonedRelease = assembleRelease(2, "anotherReleaseKey", "{\"k1\":\"v2\"}");
+    anotherAbandonedRelease.setAbandoned(true);
+
+    releaseSnapshotStore.saveActiveRelease(someRelease);
+    releaseSnapshotStore.saveActiveRelease(someAbandonedRelease);
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 1, anotherAbandonedRelease);
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+    assertNull(releaseSnapshotStore.findLatestActiveRelease(someWatchKey));
+
+    releaseSnapshotStore.destroy();
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+    assertNull(releaseSnapshotStore.findLatestActiveRelease(someWatchKey));
+  }
+
+  @Test
+  public void testRemoveActiveRelease() throws Exception {
+    Release someRelease = assembleRelease(1, "someReleaseKey", "{\"k1\":\"v1\"}");
+
+    releaseSnapshotStore.saveActiveRelease(someRelease);
+    releaseSnapshotStore.removeActiveRelease(someRelease.getId());
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+
+    releaseSnapshotStore.destroy();
+    releaseSnapshotStore = new ReleaseSnapshotStore();
+    releaseSnapshotStore.open(somePath);
+
+    assertNull(releaseSnapshotStore.findActiveRelease(someRelease.getId()));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    releaseSnapshotStore.destroy();
+
+    releaseSnapshotStore.saveLatestActiveRelease(someWatchKey, 1, assembleRelease(1, "someReleaseKey", "{}"));
+
+    assertFalse(releaseSnapshotStore.isEnabled());
+    assertNull(releaseSnapshotStore.findLatestActiveRelease(someWatchKey));
+    assertTrue(releaseSnapshotStore.findLatestReleaseMessages().isEmpty());
+  }
+
+  private void assertRelease(Release expected, Release actual) {
+    assertEquals(expected.getId(), actual.getId());
+    assertEquals(expected.getReleaseKey(), actual.getReleaseKey());
+    assertEquals(expected.getAppId(), actual.getAppId());
+    assertEquals(expected.getClusterName(), actual.getClusterName());
+    assertEquals(expected.getNamespaceName(), actual.getNamespaceName());
+    assertEquals(expected.getConfigurations(), actual.getConfigurations());
+  }
+
+  private Release assembleRelease(long id, String releaseKey, String configurations) {
+    Release release = new Release();
+    release.setId(id);
+    release.setReleaseKey(releaseKey);
+    release.setAppId("someAppId");
+    release.setClusterName("someCluster");
+    release.setNamespaceName("someNamespace");
+    release.setConfigurations(configurations);
+    return release;
+  }
+
+  private ReleaseMessage assembleReleaseMessage(long id, String message) {
+    ReleaseMessage releaseMessage = new ReleaseMessage(message);
+    releaseMessage.setId(id);
+    return releaseMessage;
+  }
+}
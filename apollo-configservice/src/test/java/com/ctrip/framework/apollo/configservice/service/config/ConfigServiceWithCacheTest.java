@@ -9,6 +9,8 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.configservice.service.ReleaseSnapshotStore;
+import com.ctrip.framework.apollo.configservice.service.ReleaseSnapshotStore.ReleaseSnapshot;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +22,8 @@ import org.springframework.test.util.ReflectionTestUtils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +40,8 @@ public class ConfigServiceWithCacheTest {
   @Mock
   private ReleaseMessageService releaseMessageService;
   @Mock
+  private ReleaseSnapshotStore releaseSnapshotStore;
+  @Mock
   private Release someRelease;
   @Mock
   private ReleaseMessage someReleaseMessage;
@@ -52,6 +58,7 @@ public class ConfigServiceWithCacheTest {
     configServiceWithCache = new ConfigServiceWithCache();
     ReflectionTestUtils.setField(configServiceWithCache, "releaseService", releaseService);
     ReflectionTestUtils.setField(configServiceWithCache, "releaseMessageService", releaseMessageService);
+    ReflectionTestUtils.setField(configServiceWithCache, "releaseSnapshotStore", releaseSnapshotStore);
 
     configServiceWithCache.initialize();
 
@@ -284,4 +291,78 @@ public class ConfigServiceWithCacheTest {
     verify(releaseMessageService, times(1)).findLatestReleaseMessageForMessages(Lists.newArrayList(someKey));
     verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
   }
+
+  @Test
+  public void testFindLatestActiveReleaseWithDbUnavailable() throws Exception {
+    when(releaseSnapshotStore.isEnabled()).thenReturn(true);
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenThrow(
+        new RuntimeException("db is down"));
+    when(releaseSnapshotStore.findLatestActiveRelease(someKey)).thenReturn(
+        new ReleaseSnapshot(someNotificationId, someRelease));
+
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    assertEquals(someRelease, release);
+    verify(releaseService, never()).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+  }
+
+  @Test
+  public void testFindLatestActiveReleaseServedFromSnapshotWhileDbUnavailable() throws Exception {
+    String anotherNamespaceName = "anotherNamespaceName";
+    String anotherKey = ReleaseMessageKeyGenerator.generate(someAppId, someClusterName, anotherNamespaceName);
+    Release anotherRelease = mock(Release.class);
+
+    when(releaseSnapshotStore.isEnabled()).thenReturn(true);
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenThrow(
+        new RuntimeException("db is down"));
+    when(releaseSnapshotStore.findLatestActiveRelease(someKey)).thenReturn(
+        new ReleaseSnapshot(someNotificationId, someRelease));
+    when(releaseSnapshotStore.findLatestActiveRelease(anotherKey)).thenReturn(
+        new ReleaseSnapshot(someNotificationId, anotherRelease));
+
+    configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+    Release release = configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName,
+        anotherNamespaceName, someNotificationMessages);
+
+    assertEquals(anotherRelease, release);
+    verify(releaseMessageService, never()).findLatestReleaseMessageForMessages(Lists.newArrayList(anotherKey));
+  }
+
+  @Test
+  public void testFindLatestActiveReleaseSavedToSnapshot() throws Exception {
+    when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn
+        (someReleaseMessage);
+    when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn
+        (someRelease);
+    when(someReleaseMessage.getId()).thenReturn(someNotificationId);
+
+    configServiceWithCache.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName,
+        someNotificationMessages);
+
+    verify(releaseSnapshotStore, timeout(1000).times(1)).saveLatestActiveRelease(someKey, someNotificationId,
+        someRelease);
+  }
+
+  @Test
+  public void testFindActiveOneNotFoundRemovedFromSnapshot() throws Exception {
+    long someId = 1;
+
+    when(releaseService.findActiveOne(someId)).thenReturn(null);
+
+    assertNull(configServiceWithCache.findActiveOne(someId, someNotificationMessages));
+    verify(releaseSnapshotStore, timeout(1000).times(1)).removeActiveRelease(someId);
+  }
+
+  @Test
+  public void testFindActiveOneWithDbUnavailable() throws Exception {
+    long someId = 1;
+
+    when(releaseSnapshotStore.isEnabled()).thenReturn(true);
+    when(releaseService.findActiveOne(someId)).thenThrow(new RuntimeException("db is down"));
+    when(releaseSnapshotStore.findActiveRelease(someId)).thenReturn(someRelease);
+
+    assertEquals(someRelease, configServiceWithCache.findActiveOne(someId, someNotificationMessages));
+  }
 }
@@ -0,0 +1,77 @@
+package com.ctrip.framework.apollo.metaservice.controller;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.google.common.collect.Lists;
+import com.netflix.appinfo.InstanceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServiceControllerTest {
+  private ServiceController serviceController;
+  @Mock
+  private DiscoveryService discoveryService;
+
+  @Before
+  public void setUp() throws Exception {
+    serviceController = new ServiceController();
+    ReflectionTestUtils.setField(serviceController, "discoveryService", discoveryService);
+  }
+
+  @Test
+  public void testGetConfigService() throws Exception {
+    InstanceInfo someInstance = assembleInstance("someInstanceId", "http://10.0.0.1:8080/");
+    InstanceInfo anotherInstance = assembleInstance("anotherInstanceId", "http://10.0.0.2:8080/");
+    int someLoad = 10;
+
+    when(discoveryService.getConfigServiceInstances()).thenReturn(Lists.newArrayList(someInstance, anotherInstance));
+    when(discoveryService.getConfigServiceRouting()).thenReturn(ConfigServiceRouting.NAMESPACE);
+    when(discoveryService.getLoad(someInstance)).thenReturn(someLoad);
+    when(discoveryService.getLoad(anotherInstance)).thenReturn(null);
+
+    List<ServiceDTO> services = serviceController.getConfigService("someAppId", null);
+
+    assertEquals(2, services.size());
+    assertEquals("someInstanceId", services.get(0).getInstanceId());
+    assertEquals("http://10.0.0.1:8080/", services.get(0).getHomepageUrl());
+    assertEquals(ConfigServiceRouting.NAMESPACE.getValue(), services.get(0).getRouting());
+    assertEquals(someLoad, services.get(0).getLoad().intValue());
+    assertEquals(ConfigServiceRouting.NAMESPACE.getValue(), services.get(1).getRouting());
+    assertNull(services.get(1).getLoad());
+  }
+
+  @Test
+  public void testGetMetaServiceWithoutRouting() throws Exception {
+    InstanceInfo someInstance = assembleInstance("someInstanceId", "http://10.0.0.1:8080/");
+
+    when(discoveryService.getMetaServiceInstances()).thenReturn(Lists.newArrayList(someInstance));
+
+    List<ServiceDTO> services = serviceController.getMetaService();
+
+    assertEquals(1, services.size());
+    assertNull(services.get(0).getRouting());
+    assertNull(services.get(0).getLoad());
+  }
+
+  private InstanceInfo assembleInstance(String instanceId, String homepageUrl) {
+    InstanceInfo instance = mock(InstanceInfo.class);
+    when(instance.getAppName()).thenReturn("someAppName");
+    when(instance.getInstanceId()).thenReturn(instanceId);
+    when(instance.getHomePageUrl()).thenReturn(homepageUrl);
+    return instance;
+  }
+}
@@ -0,0 +1,59 @@
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.enums.ConfigServiceRouting;
+import com.google.common.collect.ImmutableMap;
+import com.netflix.appinfo.InstanceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DiscoveryServiceTest {
+  private DiscoveryService discoveryService;
+  @Mock
+  private BizConfig bizConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    discoveryService = new DiscoveryService();
+    ReflectionTestUtils.setField(discoveryService, "bizConfig", bizConfig);
+  }
+
+  @Test
+  public void testGetConfigServiceRouting() throws Exception {
+    when(bizConfig.configServiceRouting()).thenReturn(ConfigServiceRouting.APP_ID.getValue());
+
+    assertEquals(ConfigServiceRouting.APP_ID, discoveryService.getConfigServiceRouting());
+  }
+
+  @Test
+  public void testGetLoad() throws Exception {
+    InstanceInfo someInstance = mock(InstanceInfo.class);
+    when(someInstance.getMetadata()).thenReturn(ImmutableMap.of(DiscoveryService.LOAD_METADATA_KEY, "10"));
+
+    assertEquals(10, discoveryService.getLoad(someInstance).intValue());
+  }
+
+  @Test
+  public void testGetLoadNotPublished() throws Exception {
+    InstanceInfo someInstance = mock(InstanceInfo.class);
+    when(someInstance.getMetadata()).thenReturn(Collections.<String, String>emptyMap());
+    InstanceInfo anotherInstance = mock(InstanceInfo.class);
+    when(anotherInstance.getMetadata()).thenReturn(ImmutableMap.of(DiscoveryService.LOAD_METADATA_KEY, "invalid"));
+
+    assertNull(discoveryService.getLoad(someInstance));
+    assertNull(discoveryService.getLoad(anotherInstance));
+  }
+}
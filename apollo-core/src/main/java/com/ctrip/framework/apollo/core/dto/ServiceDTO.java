@@ -8,6 +8,16 @@ public class ServiceDTO {
 
   private String homepageUrl;
 
+  /**
+   * @see com.ctrip.framework.apollo.core.enums.ConfigServiceRouting
+   */
+  private String routing;
+
+  /**
+   * The load of the config service, i.e. the long polls it holds, null if not advertised
+   */
+  private Integer load;
+
   public String getAppName() {
     return appName;
   }
@@ -20,6 +30,14 @@ public class ServiceDTO {
     return instanceId;
   }
 
+  public String getRouting() {
+    return routing;
+  }
+
+  public Integer getLoad() {
+    return load;
+  }
+
   public void setAppName(String appName) {
     this.appName = appName;
   }
@@ -32,12 +50,22 @@ public class ServiceDTO {
     this.instanceId = instanceId;
   }
 
+  public void setRouting(String routing) {
+    this.routing = routing;
+  }
+
+  public void setLoad(Integer load) {
+    this.load = load;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder("ServiceDTO{");
     sb.append("appName='").append(appName).append('\'');
     sb.append(", instanceId='").append(instanceId).append('\'');
     sb.append(", homepageUrl='").append(homepageUrl).append('\'');
+    sb.append(", routing='").append(routing).append('\'');
+    sb.append(", load=").append(load);
     sb.append('}');
     return sb.toString();
   }
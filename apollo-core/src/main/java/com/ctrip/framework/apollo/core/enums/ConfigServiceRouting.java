@@ -0,0 +1,48 @@
+package com.ctrip.framework.apollo.core.enums;
+
+import com.ctrip.framework.apollo.core.utils.StringUtils;
+
+/**
+ * How clients choose config services, advertised by meta service
+ */
+public enum ConfigServiceRouting {
+  /**
+   * pick a random config service, the default one
+   */
+  RANDOM("random"),
+  /**
+   * consistent hash by app id, so all namespaces of an app are served by the same config service
+   */
+  APP_ID("app-id"),
+  /**
+   * consistent hash by the namespace requested, so each namespace is served by the same config service
+   */
+  NAMESPACE("namespace");
+
+  private String value;
+
+  ConfigServiceRouting(String value) {
+    this.value = value;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * @return the routing, or RANDOM if the value is empty or unknown
+   */
+  public static ConfigServiceRouting fromString(String value) {
+    if (StringUtils.isEmpty(value)) {
+      return RANDOM;
+    }
+    switch (value.trim().toLowerCase()) {
+      case "app-id":
+        return APP_ID;
+      case "namespace":
+        return NAMESPACE;
+      default:
+        return RANDOM;
+    }
+  }
+}
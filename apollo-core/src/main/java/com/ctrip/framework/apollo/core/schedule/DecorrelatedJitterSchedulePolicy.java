@@ -0,0 +1,36 @@
+package com.ctrip.framework.apollo.core.schedule;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with decorrelated jitter, i.e. the next delay is a random time between the lower bound and 3
+ * times the last delay, capped by the upper bound. So the retries of the clients failed at the same time are spread
+ * out, instead of hitting the server in synchronized waves.
+ */
+public class DecorrelatedJitterSchedulePolicy implements SchedulePolicy {
+  private final long delayTimeLowerBound;
+  private final long delayTimeUpperBound;
+  private long lastDelayTime;
+
+  public DecorrelatedJitterSchedulePolicy(long delayTimeLowerBound, long delayTimeUpperBound) {
+    this.delayTimeLowerBound = delayTimeLowerBound;
+    this.delayTimeUpperBound = Math.max(delayTimeLowerBound, delayTimeUpperBound);
+    this.lastDelayTime = delayTimeLowerBound;
+  }
+
+  @Override
+  public synchronized long fail() {
+    long upper = lastDelayTime > delayTimeUpperBound / 3 ? delayTimeUpperBound : Math.max(lastDelayTime * 3,
+        delayTimeLowerBound);
+    long delayTime = delayTimeLowerBound + ThreadLocalRandom.current().nextLong(upper - delayTimeLowerBound + 1);
+
+    lastDelayTime = delayTime;
+
+    return delayTime;
+  }
+
+  @Override
+  public synchronized void success() {
+    lastDelayTime = delayTimeLowerBound;
+  }
+}
@@ -0,0 +1,45 @@
+package com.ctrip.framework.apollo.core.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DecorrelatedJitterSchedulePolicyTest {
+
+  @Test
+  public void testFail() throws Exception {
+    long lowerBound = 1000;
+    long upperBound = 120000;
+    SchedulePolicy policy = new DecorrelatedJitterSchedulePolicy(lowerBound, upperBound);
+
+    long lastDelayTime = lowerBound;
+    for (int i = 0; i < 100; i++) {
+      long delayTime = policy.fail();
+      assertTrue(delayTime >= lowerBound);
+      assertTrue(delayTime <= Math.min(upperBound, lastDelayTime * 3));
+      lastDelayTime = delayTime;
+    }
+  }
+
+  @Test
+  public void testSuccess() throws Exception {
+    long lowerBound = 1000;
+    SchedulePolicy policy = new DecorrelatedJitterSchedulePolicy(lowerBound, 120000);
+
+    for (int i = 0; i < 10; i++) {
+      policy.fail();
+    }
+    policy.success();
+
+    assertTrue(policy.fail() <= lowerBound * 3);
+  }
+
+  @Test
+  public void testSameBounds() throws Exception {
+    SchedulePolicy policy = new DecorrelatedJitterSchedulePolicy(0, 0);
+
+    assertEquals(0, policy.fail());
+    assertEquals(0, policy.fail());
+  }
+}
@@ -6,6 +6,7 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.utils.RequestPrecondition;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.ctrip.framework.apollo.openapi.auth.ConsumerPermissionValidator;
 import com.ctrip.framework.apollo.openapi.dto.OpenReleaseDTO;
 import com.ctrip.framework.apollo.openapi.util.OpenApiBeanUtils;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceReleaseModel;
@@ -13,13 +14,18 @@ import com.ctrip.framework.apollo.portal.service.ReleaseService;
 import com.ctrip.framework.apollo.portal.spi.UserService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 import javax.servlet.http.HttpServletRequest;
 
 import static com.ctrip.framework.apollo.common.utils.RequestPrecondition.checkModel;
@@ -32,6 +38,8 @@ public class ReleaseController {
   private ReleaseService releaseService;
   @Autowired
   private UserService userService;
+  @Autowired
+  private ConsumerPermissionValidator consumerPermissionValidator;
 
   @PreAuthorize(value = "@consumerPermissionValidator.hasReleaseNamespacePermission(#request, #appId, #namespaceName, #env)")
   @RequestMapping(value = "/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases", method = RequestMethod.POST)
@@ -58,6 +66,39 @@ public class ReleaseController {
     return OpenApiBeanUtils.transformFromReleaseDTO(releaseService.publish(model));
   }
 
+  @RequestMapping(value = "/releases/batch", method = RequestMethod.POST)
+  public List<OpenReleaseDTO> batchCreateRelease(@PathVariable String env,
+                                                 @RequestBody List<NamespaceReleaseModel> models,
+                                                 HttpServletRequest request) {
+
+    RequestPrecondition.checkArguments(!CollectionUtils.isEmpty(models), "Namespaces to publish can not be empty");
+
+    String releasedBy = models.get(0).getReleasedBy();
+    for (NamespaceReleaseModel model : models) {
+      checkModel(model != null);
+      RequestPrecondition.checkArguments(!StringUtils.isContainEmpty(model.getAppId(), model.getClusterName(),
+                                                                     model.getNamespaceName(), model.getReleasedBy(),
+                                                                     model.getReleaseTitle()),
+          "Params(appId, clusterName, namespaceName, releaseTitle and releasedBy) can not be empty");
+      RequestPrecondition.checkArguments(releasedBy.equals(model.getReleasedBy()),
+          "Params(releasedBy) must be the same in one batch");
+
+      if (!consumerPermissionValidator.hasReleaseNamespacePermission(request, model.getAppId(),
+                                                                     model.getNamespaceName(), env)) {
+        throw new AccessDeniedException(String.format("No release permission for %s %s", model.getAppId(),
+                                                      model.getNamespaceName()));
+      }
+      model.setEnv(Env.fromString(env).toString());
+    }
+
+    if (userService.findByUserId(releasedBy) == null) {
+      throw new BadRequestException("user(releaseBy) not exists");
+    }
+
+    List<ReleaseDTO> releaseDTOs = releaseService.batchPublish(Env.fromString(env), models);
+    return releaseDTOs.stream().map(OpenApiBeanUtils::transformFromReleaseDTO).collect(Collectors.toList());
+  }
+
   @RequestMapping(value = "/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases/latest", method = RequestMethod.GET)
   public OpenReleaseDTO loadLatestActiveRelease(@PathVariable String appId, @PathVariable String env,
                                                 @PathVariable String clusterName, @PathVariable
@@ -11,6 +11,7 @@ import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceLockDTO;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseHistoryDTO;
@@ -274,6 +275,12 @@ public class AdminServiceAPI {
       return response;
     }
 
+    public List<ReleaseDTO> batchCreateRelease(Env env, List<NamespacePublishDTO> publishes, String operator) {
+      ReleaseDTO[] releaseDTOs = restTemplate.post(env, "releases/batch?operator={operator}", publishes,
+          ReleaseDTO[].class, operator);
+      return Arrays.asList(releaseDTOs);
+    }
+
     public ReleaseDTO updateAndPublish(String appId, Env env, String clusterName, String namespace,
         String releaseName, String releaseComment, String branchName,
         boolean isEmergencyPublish, boolean deleteBranch, ItemChangeSets changeSets) {
@@ -5,6 +5,7 @@ import com.google.gson.Gson;
 
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
+import com.ctrip.framework.apollo.common.dto.NamespacePublishDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.core.enums.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
@@ -22,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -60,6 +62,43 @@ public class ReleaseService {
     return releaseDTO;
   }
 
+  /**
+   * 调用 Admin Service API ，在一次请求中批量发布同一个 Env 下的多个 Namespace 。
+   * @param env
+   * @param models
+   * @return 与请求顺序一致的 Release 数组
+   */
+  public List<ReleaseDTO> batchPublish(Env env, List<NamespaceReleaseModel> models) {
+    if (CollectionUtils.isEmpty(models)) {
+      return Collections.emptyList();
+    }
+
+    String releaseBy = StringUtils.isEmpty(models.get(0).getReleasedBy()) ?
+                       userInfoHolder.getUser().getUserId() : models.get(0).getReleasedBy();
+
+    List<NamespacePublishDTO> publishes = new ArrayList<>(models.size());
+    for (NamespaceReleaseModel model : models) {
+      NamespacePublishDTO publish = new NamespacePublishDTO();
+      publish.setAppId(model.getAppId());
+      publish.setClusterName(model.getClusterName());
+      publish.setNamespaceName(model.getNamespaceName());
+      publish.setReleaseName(model.getReleaseTitle());
+      publish.setReleaseComment(model.getReleaseComment());
+      publish.setEmergencyPublish(model.isEmergencyPublish());
+      publishes.add(publish);
+    }
+
+    List<ReleaseDTO> releaseDTOs = releaseAPI.batchCreateRelease(env, publishes, releaseBy);
+
+    for (NamespacePublishDTO publish : publishes) {
+      Tracer.logEvent(TracerEventType.RELEASE_NAMESPACE,
+                      String.format("%s+%s+%s+%s", publish.getAppId(), env, publish.getClusterName(),
+                                    publish.getNamespaceName()));
+    }
+
+    return releaseDTOs;
+  }
+
   /**
    * 调用 Admin Service API ，合并子 Namespace 变更的配置 Map 到父 Namespace ，并进行一次 Release 。
    * @param appId
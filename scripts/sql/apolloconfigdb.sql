@@ -284,6 +284,7 @@ CREATE TABLE `Release` (
   `NamespaceName` varchar(500) NOT NULL DEFAULT 'default' COMMENT 'namespaceName',
   `Configurations` longtext NOT NULL COMMENT '发布配置',
   `IsAbandoned` bit(1) NOT NULL DEFAULT b'0' COMMENT '是否废弃',
+  `ContentId` int(10) unsigned DEFAULT NULL COMMENT '共享的发布配置Id',
   `IsDeleted` bit(1) NOT NULL DEFAULT b'0' COMMENT '1: deleted, 0: normal',
   `DataChange_CreatedBy` varchar(32) NOT NULL DEFAULT 'default' COMMENT '创建人邮箱前缀',
   `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -323,6 +324,23 @@ CREATE TABLE `ReleaseHistory` (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发布历史';
 
 
+# Dump of table releasecontent
+# ------------------------------------------------------------
+
+DROP TABLE IF EXISTS `ReleaseContent`;
+
+CREATE TABLE `ReleaseContent` (
+  `Id` int(10) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+  `ContentHash` varchar(64) NOT NULL DEFAULT '' COMMENT '发布配置的SHA-256',
+  `Content` longtext NOT NULL COMMENT '发布配置，可能经过压缩',
+  `IsCompressed` bit(1) NOT NULL DEFAULT b'0' COMMENT '是否压缩',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`Id`),
+  KEY `IX_ContentHash` (`ContentHash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发布配置内容';
+
+
+
 # Dump of table releasemessage
 # ------------------------------------------------------------
 
@@ -0,0 +1,18 @@
+# delta schema to upgrade apollo config db from v0.11.0 to v0.12.0
+
+Use ApolloConfigDB;
+
+CREATE TABLE `ReleaseContent` (
+  `Id` int(10) unsigned NOT NULL AUTO_INCREMENT COMMENT '自增主键',
+  `ContentHash` varchar(64) NOT NULL DEFAULT '' COMMENT '发布配置的SHA-256',
+  `Content` longtext NOT NULL COMMENT '发布配置，可能经过压缩',
+  `IsCompressed` bit(1) NOT NULL DEFAULT b'0' COMMENT '是否压缩',
+  `DataChange_CreatedTime` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`Id`),
+  KEY `IX_ContentHash` (`ContentHash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发布配置内容';
+
+ALTER TABLE `Release` ADD `ContentId` int(10) unsigned DEFAULT NULL COMMENT '共享的发布配置Id' AFTER `IsAbandoned`;
+
+# After all config services and admin services are upgraded, enable release.content.dedup.enabled in ServerConfig,
+# then call POST /releases/contents/migration?fromId={lastId} on admin service repeatedly to migrate existing releases.